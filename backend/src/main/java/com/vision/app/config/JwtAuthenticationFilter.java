@@ -43,7 +43,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         final String requestURI = request.getRequestURI();
         final String method = request.getMethod();
-        final String authHeader = request.getHeader("Authorization");
+        String authHeader = request.getHeader("Authorization");
+
+        // Un navigateur ne peut pas ajouter d'en-tête à la poignée de main WebSocket : jeton en paramètre
+        if (authHeader == null && requestURI.startsWith("/ws/") && request.getParameter("token") != null) {
+            authHeader = "Bearer " + request.getParameter("token");
+        }
 
         log.debug("🔍 JWT Filter - Processing {} {}", method, requestURI);
         log.debug("🔍 JWT Filter - Auth header: {}", authHeader != null ? "Present" : "Missing");
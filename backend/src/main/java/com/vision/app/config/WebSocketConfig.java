@@ -0,0 +1,45 @@
+package com.vision.app.config;
+
+import com.vision.app.controller.MrzCaptureWebSocketHandler;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.standard.ServletServerContainerFactoryBean;
+
+/**
+ * Configuration WebSocket (capture MRZ sur flux caméra)
+ */
+@Configuration
+@EnableWebSocket
+@RequiredArgsConstructor
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    private final MrzCaptureWebSocketHandler mrzCaptureWebSocketHandler;
+
+    @Value("${mrz.capture.allowed-origins:http://localhost:3000,http://localhost:5173,http://127.0.0.1:3000,http://127.0.0.1:5173}")
+    private String[] allowedOrigins;
+
+    @Value("${mrz.capture.max-frame-bytes:4194304}")
+    private int maxFrameBytes = 4 * 1024 * 1024;
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(mrzCaptureWebSocketHandler, "/ws/mrz/capture")
+                .setAllowedOrigins(allowedOrigins);
+    }
+
+    /**
+     * Une image caméra entière doit tenir dans un message binaire
+     */
+    @Bean
+    public ServletServerContainerFactoryBean createWebSocketContainer() {
+        ServletServerContainerFactoryBean container = new ServletServerContainerFactoryBean();
+        container.setMaxBinaryMessageBufferSize(maxFrameBytes);
+        container.setMaxTextMessageBufferSize(8192);
+        return container;
+    }
+}
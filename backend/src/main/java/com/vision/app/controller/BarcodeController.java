@@ -0,0 +1,118 @@
+package com.vision.app.controller;
+
+import com.google.zxing.BarcodeFormat;
+import com.vision.app.dto.BarcodeGenerationRequest;
+import com.vision.app.service.BarcodeGenerationService;
+import com.vision.app.service.ResponseStreamService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contrôleur REST pour la génération de QR codes et codes-barres
+ */
+@RestController
+@RequestMapping("/api/barcodes")
+@RequiredArgsConstructor
+@Slf4j
+public class BarcodeController {
+
+    private final BarcodeGenerationService barcodeGenerationService;
+    private final ResponseStreamService responseStreamService;
+
+    @Value("${barcode.generation.timeout-ms:600000}")
+    private long bulkTimeoutMs = 600_000;
+
+    /**
+     * Génère un code unique (PNG)
+     */
+    @GetMapping("/generate")
+    public ResponseEntity<?> generate(
+            @RequestParam("text") String text,
+            @RequestParam(defaultValue = "QR_CODE") String format,
+            @RequestParam(defaultValue = "250") int width,
+            @RequestParam(defaultValue = "250") int height) {
+
+        try {
+            BarcodeFormat barcodeFormat = barcodeGenerationService.validate(format, width, height, 1);
+            byte[] png = barcodeGenerationService.generate(text, barcodeFormat, width, height);
+
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.maxAge(1, TimeUnit.DAYS).cachePrivate())
+                    .contentType(MediaType.IMAGE_PNG)
+                    .body(png);
+
+        } catch (IllegalArgumentException e) {
+            log.warn("⚠️ Génération - Requête invalide: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(error(e.getMessage()));
+        } catch (Exception e) {
+            log.error("❌ Génération - Erreur: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().body(error("Barcode generation failed: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Génère un lot de codes, renvoyés au fil de l'eau dans une archive ZIP
+     * (délai propre à cet endpoint : barcode.generation.timeout-ms)
+     */
+    @PostMapping(value = "/generate/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ResponseBodyEmitter> generateBulk(@RequestBody BarcodeGenerationRequest request) {
+        List<String> payloads = request.getPayloads();
+        if (payloads == null || payloads.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No payloads provided");
+        }
+
+        BarcodeFormat format;
+        int width = request.getWidth() != null ? request.getWidth() : 250;
+        int height = request.getHeight() != null ? request.getHeight() : 250;
+        try {
+            format = barcodeGenerationService.validate(
+                    request.getFormat() != null ? request.getFormat() : "QR_CODE", width, height, payloads.size());
+        } catch (IllegalArgumentException e) {
+            log.warn("⚠️ Génération en masse - Requête invalide: {}", e.getMessage());
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+
+        log.info("📦 Génération en masse de {} codes {} ({}x{})", payloads.size(), format, width, height);
+        ResponseBodyEmitter body = responseStreamService.stream(bulkTimeoutMs,
+                out -> barcodeGenerationService.writeZip(payloads, format, width, height, out));
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename("barcodes.zip").build().toString())
+                .body(body);
+    }
+
+    /**
+     * Statistiques du cache de génération
+     */
+    @GetMapping("/status")
+    public ResponseEntity<Map<String, Object>> getStatus() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", barcodeGenerationService.getStats());
+        return ResponseEntity.ok(response);
+    }
+
+    private Map<String, Object> error(String message) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("error", message);
+        return response;
+    }
+}
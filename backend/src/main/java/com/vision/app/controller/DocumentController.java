@@ -6,22 +6,38 @@ import com.vision.app.dto.BarcodeResult;
 import com.vision.app.dto.MrzResult;
 import com.vision.app.dto.OllamaResult;
 import com.vision.app.dto.DocumentDto;
+import com.vision.app.dto.DocumentProcessingResult;
 import com.vision.app.service.OcrService;
 import com.vision.app.service.PdfService;
 import com.vision.app.service.BarcodeService;
 import com.vision.app.service.MrzService;
 import com.vision.app.service.OllamaService;
 import com.vision.app.service.DocumentService;
+import com.vision.app.service.ServiceHealthRegistry;
+import com.vision.app.service.ThumbnailService;
+import com.google.zxing.BarcodeFormat;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.data.domain.Page;
 
 import jakarta.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/documents")
@@ -37,6 +53,13 @@ public class DocumentController {
     private final MrzService mrzService;
     private final OllamaService ollamaService;
     private final DocumentService documentService;
+    private final ThumbnailService thumbnailService;
+    private final ServiceHealthRegistry healthRegistry;
+
+    @Value("${ollama.stream.timeout-ms:300000}")
+    private long streamTimeoutMs = 300_000;
+
+    private static final String DEFAULT_ANALYZE_PROMPT = "Analysez cette image et décrivez son contenu. Identifiez les éléments visuels, le texte visible, et fournissez une description détaillée.";
 
     /**
      * Endpoint pour récupérer la liste des documents
@@ -343,7 +366,8 @@ public class DocumentController {
      */
     @PostMapping(value = "/barcode", consumes = "multipart/form-data")
     public ResponseEntity<Map<String, Object>> processBarcode(
-            @RequestParam("file") MultipartFile file) {
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "formats", required = false) String formats) {
 
         Map<String, Object> result = new HashMap<>();
 
@@ -364,10 +388,21 @@ public class DocumentController {
                 return ResponseEntity.badRequest().body(result);
             }
 
+            // Filtre optionnel sur les formats (ex. "QR_CODE,EAN_13")
+            Set<BarcodeFormat> barcodeFormats;
+            try {
+                barcodeFormats = barcodeService.parseFormats(formats);
+            } catch (IllegalArgumentException e) {
+                result.put("success", false);
+                result.put("error", "Format de code-barres non supporté: " + formats);
+                return ResponseEntity.badRequest().body(result);
+            }
+
             // Traitement codes-barres
             BarcodeResult barcodeResult = barcodeService.readBarcodesFromImageBytes(
                     file.getBytes(),
-                    file.getOriginalFilename());
+                    file.getOriginalFilename(),
+                    barcodeFormats);
 
             if (barcodeResult.isSuccess()) {
                 result.put("success", true);
@@ -448,9 +483,10 @@ public class DocumentController {
 
     /**
      * Endpoint Ollama - Analyse intelligente de document avec IA
+     * (asynchrone : le thread de requête est libéré pendant la génération)
      */
     @PostMapping(value = "/analyze", consumes = "multipart/form-data")
-    public ResponseEntity<Map<String, Object>> processAnalyze(
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> processAnalyze(
             @RequestParam("file") MultipartFile file,
             @RequestParam(value = "prompt", required = false) String customPrompt) {
 
@@ -463,46 +499,240 @@ public class DocumentController {
             if (file.isEmpty()) {
                 result.put("success", false);
                 result.put("error", "Fichier vide");
-                return ResponseEntity.badRequest().body(result);
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(result));
             }
 
             // Vérifier que c'est bien une image
             if (!file.getContentType().startsWith("image/")) {
                 result.put("success", false);
                 result.put("error", "Le fichier doit être une image");
-                return ResponseEntity.badRequest().body(result);
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(result));
             }
 
             // Utiliser un prompt par défaut si aucun n'est fourni
-            String prompt = customPrompt != null ? customPrompt
-                    : "Analysez cette image et décrivez son contenu. Identifiez les éléments visuels, le texte visible, et fournissez une description détaillée.";
+            String prompt = customPrompt != null ? customPrompt : DEFAULT_ANALYZE_PROMPT;
 
             // Traitement Ollama
-            OllamaResult ollamaResult = ollamaService.analyzeImageWithText(
+            return ollamaService.analyzeImageWithTextAsync(
                     file.getBytes(),
                     file.getOriginalFilename(),
-                    prompt);
+                    prompt).thenApply(ollamaResult -> {
+                        if (ollamaResult.isSuccessful()) {
+                            result.put("success", true);
+                            result.put("data", ollamaResult);
+                            result.put("message", "Analyse IA terminée avec succès");
+                            log.info("✅ Ollama - Succès pour {}: {} caractères de réponse",
+                                    file.getOriginalFilename(), ollamaResult.getResponseLength());
+                        } else {
+                            result.put("success", false);
+                            result.put("error", ollamaResult.getErrorMessage());
+                            result.put("data", ollamaResult);
+                            log.warn("⚠️ Ollama - Échec pour {}: {}", file.getOriginalFilename(),
+                                    ollamaResult.getErrorMessage());
+                        }
+                        return ResponseEntity.ok(result);
+                    });
 
-            if (ollamaResult.isSuccessful()) {
-                result.put("success", true);
-                result.put("data", ollamaResult);
-                result.put("message", "Analyse IA terminée avec succès");
-                log.info("✅ Ollama - Succès pour {}: {} caractères de réponse",
-                        file.getOriginalFilename(), ollamaResult.getResponse().length());
+        } catch (Exception e) {
+            log.error("❌ Ollama - Erreur lors de l'analyse: {}", e.getMessage(), e);
+            result.put("success", false);
+            result.put("error", "Erreur lors de l'analyse IA: " + e.getMessage());
+            return CompletableFuture.completedFuture(ResponseEntity.internalServerError().body(result));
+        }
+    }
+
+    /**
+     * Endpoint Ollama - Analyse IA en flux (Server-Sent Events) : événements
+     * « token » au fil de la génération, puis « done » avec le résultat complet
+     * (ou « error »)
+     */
+    @PostMapping(value = "/analyze/stream", consumes = "multipart/form-data",
+            produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter processAnalyzeStream(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "prompt", required = false) String customPrompt) {
+
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+
+        try {
+            log.info("🤖 Ollama - Analyse IA en flux du document: {} ({} bytes)", file.getOriginalFilename(),
+                    file.getSize());
+
+            if (file.isEmpty() || file.getContentType() == null || !file.getContentType().startsWith("image/")) {
+                sendError(emitter, file.isEmpty() ? "Fichier vide" : "Le fichier doit être une image");
+                return emitter;
+            }
+
+            String prompt = customPrompt != null ? customPrompt : DEFAULT_ANALYZE_PROMPT;
+
+            // Chaque fragment est relayé dès sa réception ; un client parti interrompt la génération
+            CompletableFuture<OllamaResult> analysis = ollamaService.analyzeImageWithTextStream(
+                    file.getBytes(),
+                    file.getOriginalFilename(),
+                    prompt,
+                    token -> {
+                        try {
+                            emitter.send(SseEmitter.event().name("token").data(Map.of("token", token)));
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+
+            emitter.onTimeout(() -> analysis.cancel(true));
+            emitter.onError(e -> analysis.cancel(true));
+
+            analysis.thenAccept(ollamaResult -> {
+                try {
+                    if (ollamaResult.isSuccessful()) {
+                        emitter.send(SseEmitter.event().name("done").data(ollamaResult));
+                        log.info("✅ Ollama - Flux terminé pour {}: {} caractères de réponse",
+                                file.getOriginalFilename(), ollamaResult.getResponseLength());
+                    } else {
+                        emitter.send(SseEmitter.event().name("error")
+                                .data(Map.of("error", ollamaResult.getErrorMessage())));
+                        log.warn("⚠️ Ollama - Échec du flux pour {}: {}", file.getOriginalFilename(),
+                                ollamaResult.getErrorMessage());
+                    }
+                    emitter.complete();
+                } catch (IOException e) {
+                    emitter.completeWithError(e);
+                }
+            });
+
+        } catch (Exception e) {
+            log.error("❌ Ollama - Erreur lors de l'analyse en flux: {}", e.getMessage(), e);
+            sendError(emitter, "Erreur lors de l'analyse IA: " + e.getMessage());
+        }
+        return emitter;
+    }
+
+    private void sendError(SseEmitter emitter, String message) {
+        try {
+            emitter.send(SseEmitter.event().name("error").data(Map.of("error", message)));
+            emitter.complete();
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+        }
+    }
+
+    /**
+     * Endpoint de traitement d'un document enregistré (extraction, OCR, codes-barres, analyse IA)
+     * Le texte extrait est enregistré sur le document ; un fichier joint est traité comme
+     * une nouvelle révision, dont seules les pages modifiées sont réextraites
+     */
+    @PostMapping("/{id}/process")
+    public ResponseEntity<Map<String, Object>> processStoredDocument(
+            @PathVariable Long id,
+            @RequestParam(value = "file", required = false) MultipartFile revision) {
+        Map<String, Object> result = new HashMap<>();
+
+        try {
+            log.info("📁 Traitement du document {}{}", id, revision != null ? " (nouvelle révision)" : "");
+            DocumentProcessingResult processingResult = documentService.processDocument(id, revision);
+
+            result.put("success", processingResult.isSuccess());
+            result.put("data", processingResult);
+            if (processingResult.isSuccess()) {
+                result.put("message", "Document traité avec succès");
+                log.info("✅ Document {} traité: {} caractères extraits", id,
+                        processingResult.getExtractedText() != null ? processingResult.getExtractedText().length() : 0);
             } else {
+                result.put("error", processingResult.getErrorMessage());
+                log.warn("⚠️ Échec du traitement du document {}: {}", id, processingResult.getErrorMessage());
+            }
+            return ResponseEntity.ok(result);
+
+        } catch (Exception e) {
+            log.error("❌ Erreur lors du traitement du document {}: {}", id, e.getMessage(), e);
+            result.put("success", false);
+            result.put("error", "Erreur lors du traitement: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(result);
+        }
+    }
+
+    /**
+     * Endpoint Ollama - Prompt libre sur le texte extrait d'un document enregistré
+     * (extrait au premier appel si besoin ; le document est lu une fois par le modèle,
+     * les prompts suivants réutilisent son contexte)
+     */
+    @PostMapping("/{id}/analyze")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> analyzeStoredDocument(
+            @PathVariable Long id,
+            @RequestParam("prompt") String prompt) {
+
+        Map<String, Object> result = new HashMap<>();
+
+        try {
+            String text = documentService.getExtractedText(id);
+            if (text == null || text.isBlank()) {
                 result.put("success", false);
-                result.put("error", ollamaResult.getErrorMessage());
-                result.put("data", ollamaResult);
-                log.warn("⚠️ Ollama - Échec pour {}: {}", file.getOriginalFilename(), ollamaResult.getErrorMessage());
+                result.put("error", "Aucun texte extrait pour ce document");
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(result));
             }
 
-            return ResponseEntity.ok(result);
+            log.info("🤖 Ollama - Prompt sur le document {} ({} caractères)", id, text.length());
+
+            return ollamaService.askDocumentAsync(text, prompt).thenApply(ollamaResult -> {
+                result.put("success", ollamaResult.isSuccessful());
+                result.put("data", ollamaResult);
+                if (ollamaResult.isSuccessful()) {
+                    result.put("message", "Analyse IA terminée avec succès");
+                    log.info("✅ Ollama - Succès pour le document {}: {} caractères de réponse",
+                            id, ollamaResult.getResponseLength());
+                } else {
+                    result.put("error", ollamaResult.getErrorMessage());
+                    log.warn("⚠️ Ollama - Échec pour le document {}: {}", id, ollamaResult.getErrorMessage());
+                }
+                return ResponseEntity.ok(result);
+            });
 
         } catch (Exception e) {
-            log.error("❌ Ollama - Erreur lors de l'analyse: {}", e.getMessage(), e);
+            log.error("❌ Ollama - Erreur lors de l'analyse du document {}: {}", id, e.getMessage(), e);
             result.put("success", false);
             result.put("error", "Erreur lors de l'analyse IA: " + e.getMessage());
-            return ResponseEntity.internalServerError().body(result);
+            return CompletableFuture.completedFuture(ResponseEntity.internalServerError().body(result));
+        }
+    }
+
+    /**
+     * Endpoint d'aperçu - Miniature d'une page de document (JPEG, avec ETag)
+     */
+    @GetMapping("/{id}/pages/{page}/thumbnail")
+    public ResponseEntity<byte[]> getPageThumbnail(
+            @PathVariable Long id,
+            @PathVariable int page,
+            @RequestParam(defaultValue = "small") String size,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
+        try {
+            ThumbnailService.ThumbnailSize thumbnailSize = ThumbnailService.ThumbnailSize.fromName(size);
+
+            // Les miniatures sont indexées par l'empreinte de la page : l'ETag est connu sans rendu
+            String etag = thumbnailService.getEtag(id, page, thumbnailSize);
+            if (etag == null) {
+                return ResponseEntity.notFound().build();
+            }
+            if (ifNoneMatch != null && ifNoneMatch.contains(etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+
+            Optional<ThumbnailService.Thumbnail> thumbnail = thumbnailService.getThumbnail(id, page, thumbnailSize);
+            if (thumbnail.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+
+            return ResponseEntity.ok()
+                    .eTag(thumbnail.get().getEtag())
+                    .cacheControl(CacheControl.maxAge(1, TimeUnit.DAYS).cachePrivate())
+                    .contentType(MediaType.IMAGE_JPEG)
+                    .body(thumbnail.get().getBytes());
+
+        } catch (IllegalArgumentException e) {
+            log.warn("⚠️ Miniature - Requête invalide pour le document {} page {}: {}", id, page, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("❌ Miniature - Erreur pour le document {} page {}: {}", id, page, e.getMessage(), e);
+            return ResponseEntity.internalServerError().build();
         }
     }
 
@@ -556,33 +786,17 @@ public class DocumentController {
         Map<String, Object> status = new HashMap<>();
 
         try {
-            // Vérifier le statut des services
-            Map<String, Object> ocrConfig = ocrService.getConfiguration();
-            Map<String, Object> pdfConfig = pdfService.getConfiguration();
-            Map<String, Object> barcodeConfig = barcodeService.getConfiguration();
-            Map<String, Object> ollamaConfig = ollamaService.getConfiguration();
-
+            // Dernier état connu des services (sondes en arrière-plan)
             status.put("timestamp", System.currentTimeMillis());
             status.put("services", Map.of(
-                    "ocr", Map.of(
-                            "available", ocrConfig.get("available"),
-                            "language", ocrConfig.get("language"),
-                            "version", ocrConfig.get("version")),
-                    "pdf", Map.of(
-                            "available", pdfConfig.get("available"),
-                            "version", pdfConfig.get("version")),
-                    "barcode", Map.of(
-                            "available", barcodeConfig.get("available"),
-                            "version", barcodeConfig.get("version"),
-                            "supportedFormats", barcodeConfig.get("supportedFormats")),
+                    "ocr", healthRegistry.describe(ServiceHealthRegistry.OCR),
+                    "pdf", healthRegistry.describe(ServiceHealthRegistry.PDF),
+                    "barcode", healthRegistry.describe(ServiceHealthRegistry.BARCODE),
                     "mrz", Map.of(
                             "available", true,
                             "version", "MRZ Parser 1.0",
                             "supportedTypes", new String[] { "PASSPORT", "ID_CARD" }),
-                    "ollama", Map.of(
-                            "available", ollamaConfig.get("available"),
-                            "version", ollamaConfig.get("version"),
-                            "model", ollamaConfig.get("model"))));
+                    "ollama", healthRegistry.describe(ServiceHealthRegistry.OLLAMA)));
 
             return ResponseEntity.ok(status);
         } catch (Exception e) {
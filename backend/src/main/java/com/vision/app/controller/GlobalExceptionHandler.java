@@ -9,6 +9,7 @@ import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -62,6 +63,21 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
     }
 
+    /**
+     * Gestionnaire pour les refus explicites des contrôleurs (statut conservé)
+     */
+    @ExceptionHandler(ResponseStatusException.class)
+    public ResponseEntity<?> handleResponseStatusException(ResponseStatusException ex, WebRequest request) {
+        log.warn("Request rejected with status {}: {}", ex.getStatusCode(), ex.getReason());
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("error", ex.getReason());
+        response.put("timestamp", System.currentTimeMillis());
+
+        return ResponseEntity.status(ex.getStatusCode()).body(response);
+    }
+
     /**
      * Gestionnaire pour toutes les autres exceptions non gérées
      */
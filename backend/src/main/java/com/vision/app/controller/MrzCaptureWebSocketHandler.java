@@ -0,0 +1,100 @@
+package com.vision.app.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vision.app.service.MrzCaptureService;
+import com.vision.app.service.MrzCaptureSession;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * WebSocket de capture MRZ : la borne envoie ses images caméra en messages
+ * binaires (JPEG ou PNG) et reçoit en JSON le statut de chaque image, les
+ * lectures OCR, puis le résultat final. Le message texte « stop » termine la
+ * session avec la meilleure lecture obtenue.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MrzCaptureWebSocketHandler extends AbstractWebSocketHandler {
+
+    private static final int SEND_TIME_LIMIT_MS = 5000;
+    private static final int SEND_BUFFER_LIMIT = 512 * 1024;
+
+    private final MrzCaptureService mrzCaptureService;
+    private final ObjectMapper objectMapper;
+
+    private final Map<String, MrzCaptureSession> sessions = new ConcurrentHashMap<>();
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        // Les résultats OCR sont envoyés depuis d'autres threads que celui de réception
+        WebSocketSession output = new ConcurrentWebSocketSessionDecorator(session, SEND_TIME_LIMIT_MS, SEND_BUFFER_LIMIT);
+
+        MrzCaptureSession capture = mrzCaptureService.openSession(session.getId(), new MrzCaptureSession.Listener() {
+            @Override
+            public void onMessage(Map<String, Object> message) {
+                try {
+                    output.sendMessage(new TextMessage(objectMapper.writeValueAsString(message)));
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+
+            @Override
+            public void onFinished() {
+                try {
+                    output.close(CloseStatus.NORMAL);
+                } catch (IOException e) {
+                    log.debug("Capture MRZ {}: fermeture impossible: {}", session.getId(), e.getMessage());
+                }
+            }
+        });
+        sessions.put(session.getId(), capture);
+    }
+
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) {
+        MrzCaptureSession capture = sessions.get(session.getId());
+        if (capture == null) {
+            return;
+        }
+
+        ByteBuffer payload = message.getPayload();
+        byte[] frame = new byte[payload.remaining()];
+        payload.get(frame);
+        capture.onFrame(frame);
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+        MrzCaptureSession capture = sessions.get(session.getId());
+        if (capture != null && "stop".equalsIgnoreCase(message.getPayload().trim())) {
+            capture.stop();
+        }
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession session, Throwable exception) {
+        log.warn("Capture MRZ {}: erreur de transport: {}", session.getId(), exception.getMessage());
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        MrzCaptureSession capture = sessions.remove(session.getId());
+        if (capture != null) {
+            capture.close();
+        }
+    }
+}
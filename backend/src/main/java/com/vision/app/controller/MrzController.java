@@ -1,13 +1,29 @@
 package com.vision.app.controller;
 
+import com.vision.app.dto.MrzData;
 import com.vision.app.dto.MrzResult;
+import com.vision.app.service.MrzBatchService;
+import com.vision.app.service.MrzCaptureService;
 import com.vision.app.service.MrzService;
+import com.vision.app.service.ResponseStreamService;
+import com.vision.app.util.MrzParser;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Contrôleur REST pour le service MRZ
@@ -19,6 +35,12 @@ import org.springframework.web.multipart.MultipartFile;
 public class MrzController {
 
     private final MrzService mrzService;
+    private final MrzBatchService mrzBatchService;
+    private final MrzCaptureService mrzCaptureService;
+    private final ResponseStreamService responseStreamService;
+
+    @Value("${mrz.batch.timeout-ms:600000}")
+    private long batchTimeoutMs = 600_000;
 
     /**
      * Traite un document et extrait les informations MRZ
@@ -70,6 +92,58 @@ public class MrzController {
         }
     }
 
+    /**
+     * Traite un lot de documents (images et/ou archives ZIP d'images) ; les
+     * résultats sont renvoyés en NDJSON au fil de l'eau, une ligne par document
+     * puis une ligne de synthèse. Soumis aux limites multipart globales ; pour
+     * les gros lots, envoyer une archive ZIP brute (voir processBatchArchive)
+     */
+    @PostMapping(value = "/batch", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ResponseBodyEmitter> processBatch(@RequestParam("files") List<MultipartFile> files) {
+        if (files == null || files.isEmpty() || files.stream().allMatch(MultipartFile::isEmpty)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Aucun fichier fourni");
+        }
+        if (files.size() > mrzBatchService.getMaxItems()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Trop de fichiers: " + files.size() + " (max " + mrzBatchService.getMaxItems() + ")");
+        }
+
+        log.info("📦 Lot MRZ demandé: {} fichier(s)", files.size());
+        ResponseBodyEmitter body = responseStreamService.stream(batchTimeoutMs,
+                out -> mrzBatchService.process(files, out));
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    /**
+     * Traite un lot envoyé comme une seule archive ZIP dans le corps de la requête
+     * (Content-Type: application/zip). L'archive est lue au fil de l'eau, sans
+     * passer par le multipart ni ses limites globales : seule la limite dédiée
+     * mrz.batch.max-archive-bytes s'applique à cet endpoint.
+     */
+    @PostMapping(value = "/batch", consumes = { "application/zip", "application/x-zip-compressed" })
+    public ResponseEntity<ResponseBodyEmitter> processBatchArchive(
+            @RequestHeader(value = "X-File-Name", defaultValue = "lot.zip") String fileName,
+            HttpServletRequest request) throws IOException {
+        long contentLength = request.getContentLengthLong();
+        if (contentLength > mrzBatchService.getMaxArchiveBytes()) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "Archive trop volumineuse: " + contentLength + " octets (max "
+                            + mrzBatchService.getMaxArchiveBytes() + ")");
+        }
+
+        log.info("📦 Lot MRZ demandé: archive {} ({} octets)", fileName, contentLength);
+        InputStream archive = request.getInputStream();
+        ResponseBodyEmitter body = responseStreamService.stream(batchTimeoutMs,
+                out -> mrzBatchService.processArchive(fileName, archive, out));
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
     /**
      * Valide des données MRZ
      */
@@ -78,8 +152,9 @@ public class MrzController {
         try {
             log.info("Validation MRZ demandée");
 
-            // Pour l'instant, validation simple
-            boolean isValid = mrzText != null && mrzText.length() >= 44;
+            // Format ICAO 9303 et chiffres de contrôle
+            MrzData mrzData = MrzParser.parse(mrzText);
+            boolean isValid = mrzData != null && mrzData.isValid();
 
             return ResponseEntity.ok(isValid);
 
@@ -96,4 +171,15 @@ public class MrzController {
     public ResponseEntity<String> getStatus() {
         return ResponseEntity.ok("Service MRZ opérationnel");
     }
+
+    /**
+     * Sessions de capture caméra actives et paramètres de sélection des images
+     */
+    @GetMapping("/capture/status")
+    public ResponseEntity<Map<String, Object>> getCaptureStatus() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", mrzCaptureService.getConfiguration());
+        return ResponseEntity.ok(response);
+    }
 }
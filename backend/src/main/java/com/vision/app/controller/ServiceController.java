@@ -1,10 +1,11 @@
 package com.vision.app.controller;
 
 import com.vision.app.service.OcrService;
-import com.vision.app.service.OllamaService;
-import com.vision.app.dto.OllamaResult;
+import com.vision.app.service.OllamaModelWarmer;
+import com.vision.app.service.ServiceHealthRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -18,38 +19,20 @@ import java.util.Map;
 public class ServiceController {
 
     private final OcrService ocrService;
-    private final OllamaService ollamaService;
+    private final ServiceHealthRegistry healthRegistry;
+    private final OllamaModelWarmer modelWarmer;
 
     /**
-     * Endpoint de statut de tous les services
+     * Endpoint de statut de tous les services (dernier état connu, sans sonde)
      */
     @GetMapping("/status")
     public ResponseEntity<Map<String, Object>> getServicesStatus() {
         Map<String, Object> status = new HashMap<>();
         
-        // Statut OCR
-        try {
-            Map<String, Object> ocrStatus = ocrService.getConfiguration();
-            status.put("ocr", ocrStatus);
-        } catch (Exception e) {
-            status.put("ocr", Map.of(
-                    "available", false,
-                    "error", e.getMessage()));
-        }
-        
-        // Statut Ollama
-        try {
-            OllamaResult testResult = ollamaService.analyzeText("test", "test");
-            status.put("ollama", Map.of(
-                    "available", testResult.isSuccessful(),
-                    "model", ollamaService.getModel(),
-                    "url", ollamaService.getOllamaUrl()));
-        } catch (Exception e) {
-            status.put("ollama", Map.of(
-                    "available", false,
-                    "error", e.getMessage()));
-        }
-        
+        status.put("ocr", healthRegistry.describe(ServiceHealthRegistry.OCR));
+        status.put("ollama", healthRegistry.describe(ServiceHealthRegistry.OLLAMA));
+        status.put("ollamaWarmup", modelWarmer.getStatus());
+
         // Statut général
         status.put("timestamp", System.currentTimeMillis());
         status.put("version", "1.0.0");
@@ -57,6 +40,17 @@ public class ServiceController {
         return ResponseEntity.ok(status);
     }
 
+    /**
+     * Sonde de disponibilité : 200 quand les modèles Ollama sont chargés, 503 sinon
+     */
+    @GetMapping("/ollama/ready")
+    public ResponseEntity<Map<String, Object>> getOllamaReadiness() {
+        Map<String, Object> status = modelWarmer.getStatus();
+        return modelWarmer.isReady()
+                ? ResponseEntity.ok(status)
+                : ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(status);
+    }
+
     /**
      * Test du service OCR spécifiquement
      */
@@ -0,0 +1,21 @@
+package com.vision.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Demande de génération de codes en masse
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BarcodeGenerationRequest {
+
+    private List<String> payloads;
+    private String format = "QR_CODE";
+    private Integer width = 250;
+    private Integer height = 250;
+}
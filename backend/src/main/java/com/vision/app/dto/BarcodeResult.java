@@ -19,6 +19,7 @@ public class BarcodeResult {
     private List<BarcodeInfo> barcodes;
     private Integer barcodeCount;
     private Map<String, Integer> typeCounts;
+    private Integer subsamplingFactor; // Niveau ayant permis le décodage (1 = pleine résolution)
     private Boolean success;
     private String errorMessage;
 
@@ -1,9 +1,12 @@
 package com.vision.app.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -21,6 +24,10 @@ public class DocumentProcessingResult {
     private Double ocrConfidence;
     private Integer pageCount;
 
+    // Texte de chaque page (texte PDF ou OCR), pour le découpage des documents longs
+    @JsonIgnore
+    private List<String> pageTexts;
+
     // Résultats des services
     private OcrResult ocrResult;
     private PdfResult pdfResult;
@@ -0,0 +1,50 @@
+package com.vision.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Résultat d'un document d'un lot MRZ (une ligne NDJSON)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MrzBatchItem {
+
+    /**
+     * Position du document dans le lot (ordre d'envoi, à partir de 1)
+     */
+    private int index;
+
+    /**
+     * Nom du fichier, ou chemin de l'entrée dans l'archive ZIP
+     */
+    private String fileName;
+
+    private boolean success;
+
+    /**
+     * Durée du traitement de ce document (décodage de l'image compris)
+     */
+    private long durationMs;
+
+    private String mrzFormat;
+
+    /**
+     * Tous les chiffres de contrôle sont corrects
+     */
+    private boolean valid;
+
+    private Map<String, Boolean> checkDigits;
+
+    private String mrzText;
+
+    private MrzData data;
+
+    private String errorMessage;
+}
@@ -6,6 +6,8 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.Map;
+
 /**
  * Données MRZ extraites d'un document
  */
@@ -64,4 +66,29 @@ public class MrzData {
      * Numéro personnel
      */
     private String personalNumber;
+
+    /**
+     * Format ICAO 9303 (TD1, TD2, TD3)
+     */
+    private String mrzFormat;
+
+    /**
+     * Données facultatives (TD1 : ligne 1 puis ligne 2)
+     */
+    private String optionalData;
+
+    /**
+     * Indique si tous les chiffres de contrôle sont corrects
+     */
+    private boolean valid;
+
+    /**
+     * Résultat de chaque chiffre de contrôle (documentNumber, dateOfBirth, expiryDate, ...)
+     */
+    private Map<String, Boolean> checkDigits;
+
+    /**
+     * Nombre de caractères corrigés (confusions OCR O/0, I/1, B/8...)
+     */
+    private int corrections;
 }
@@ -15,12 +15,23 @@ public class PageInfo {
     private Integer rotation;
     private Integer textLength;
     private Boolean hasText;
+    private String contentHash;
+    private Boolean reused;
+    private Boolean changed; // Empreinte absente de la révision précédente du document
 
     // Méthodes utilitaires
     public boolean hasText() {
         return hasText != null && hasText;
     }
 
+    public boolean isReused() {
+        return reused != null && reused;
+    }
+
+    public boolean isChanged() {
+        return changed != null && changed;
+    }
+
     public boolean isRotated() {
         return rotation != null && rotation != 0;
     }
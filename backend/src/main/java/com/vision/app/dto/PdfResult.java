@@ -1,5 +1,6 @@
 package com.vision.app.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -23,6 +24,12 @@ public class PdfResult {
     private String errorMessage;
     private Map<String, Object> metadata;
     private List<PageInfo> pages;
+    private Integer reusedPageCount;
+    private Integer changedPageCount; // Pages modifiées depuis la révision précédente (null sans révision)
+
+    // Texte de chaque page, conservé pour les traitements en aval
+    @JsonIgnore
+    private List<String> pageTexts;
 
     // Méthodes utilitaires
     public boolean hasText() {
@@ -0,0 +1,41 @@
+package com.vision.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Dernier état connu d'un service (sonde en arrière-plan)
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class ServiceHealth {
+
+    private String name;
+
+    private boolean available;
+
+    /**
+     * Date de la dernière sonde (epoch ms), 0 si aucune sonde n'a encore abouti
+     */
+    private long checkedAt;
+
+    private long latencyMs;
+
+    /**
+     * Sonde plus ancienne que la durée de validité configurée
+     */
+    private boolean stale;
+
+    private String error;
+
+    /**
+     * Configuration et informations renvoyées par la sonde
+     */
+    private Map<String, Object> details;
+}
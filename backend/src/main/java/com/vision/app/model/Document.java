@@ -52,6 +52,9 @@ public class Document {
     @Column(name = "metadata", columnDefinition = "TEXT")
     private String metadata; // JSON string for flexible metadata storage
 
+    @Column(name = "page_hashes", columnDefinition = "TEXT")
+    private String pageHashes; // Empreintes SHA-256 des pages, séparées par des virgules
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "uploaded_by", nullable = false)
     private User uploadedBy;
@@ -0,0 +1,43 @@
+package com.vision.app.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Réponse Ollama mise en cache, indexée par l'empreinte de la requête
+ * (modèle et version, options, prompt, texte et images)
+ */
+@Entity
+@Table(name = "llm_responses", indexes = {
+        @Index(name = "idx_llm_responses_key", columnList = "cache_key", unique = true)
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LlmResponse {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "cache_key", nullable = false, length = 64)
+    private String cacheKey; // SHA-256 de la requête /api/generate
+
+    @Column(name = "model")
+    private String model;
+
+    @Column(name = "response_body", columnDefinition = "TEXT")
+    private String responseBody; // JSON string
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
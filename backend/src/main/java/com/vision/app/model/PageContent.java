@@ -0,0 +1,71 @@
+package com.vision.app.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Résultats d'extraction d'une page PDF, indexés par l'empreinte de son contenu.
+ * Une page inchangée entre deux révisions d'un document retrouve ainsi son
+ * texte, son OCR et ses codes-barres sans être retraitée.
+ */
+@Entity
+@Table(name = "page_contents", indexes = {
+        @Index(name = "idx_page_contents_hash", columnList = "content_hash", unique = true)
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PageContent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "content_hash", nullable = false, length = 64)
+    private String contentHash; // SHA-256 du flux de contenu et des ressources
+
+    @Column(name = "page_text", columnDefinition = "TEXT")
+    private String pageText;
+
+    @Column(name = "ocr_text", columnDefinition = "TEXT")
+    private String ocrText;
+
+    @Column(name = "ocr_confidence")
+    private Double ocrConfidence;
+
+    @Column(name = "barcodes", columnDefinition = "TEXT")
+    private String barcodes; // JSON string
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "last_used_at")
+    private LocalDateTime lastUsedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        lastUsedAt = createdAt;
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        lastUsedAt = LocalDateTime.now();
+    }
+
+    public boolean hasPageText() {
+        return pageText != null;
+    }
+
+    public boolean hasOcrText() {
+        return ocrText != null;
+    }
+
+    public boolean hasBarcodes() {
+        return barcodes != null;
+    }
+}
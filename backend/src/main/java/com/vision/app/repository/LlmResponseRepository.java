@@ -0,0 +1,13 @@
+package com.vision.app.repository;
+
+import com.vision.app.model.LlmResponse;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface LlmResponseRepository extends JpaRepository<LlmResponse, Long> {
+
+    Optional<LlmResponse> findByCacheKey(String cacheKey);
+}
@@ -0,0 +1,17 @@
+package com.vision.app.repository;
+
+import com.vision.app.model.PageContent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface PageContentRepository extends JpaRepository<PageContent, Long> {
+
+    Optional<PageContent> findByContentHash(String contentHash);
+
+    List<PageContent> findByContentHashIn(Collection<String> contentHashes);
+}
@@ -0,0 +1,209 @@
+package com.vision.app.service;
+
+import com.google.zxing.common.BitMatrix;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool des tampons utilisés pour le décodage des codes-barres : luminances
+ * (par classe de taille en puissance de deux), matrices binaires et points
+ * noirs (par dimensions). Chaque décodage emprunte ses tampons via un
+ * {@link Lease} et les rend en fin de traitement ; la mémoire conservée
+ * entre deux décodages est bornée.
+ */
+@Component
+public class BarcodeBufferPool {
+
+    private static final int MAX_POOLED_SIZE_CLASS = 30;
+
+    @Value("${barcode.buffer-pool.max-bytes:134217728}")
+    private long maxRetainedBytes = 128L * 1024 * 1024;
+
+    @SuppressWarnings("unchecked")
+    private final ConcurrentLinkedDeque<byte[]>[] freeBytes = new ConcurrentLinkedDeque[MAX_POOLED_SIZE_CLASS + 1];
+    private final Map<Long, ConcurrentLinkedDeque<BitMatrix>> freeMatrices = new ConcurrentHashMap<>();
+    private final Map<Long, ConcurrentLinkedDeque<int[][]>> freeBlackPoints = new ConcurrentHashMap<>();
+    private final AtomicLong retainedBytes = new AtomicLong();
+    private final AtomicLong allocations = new AtomicLong();
+    private final AtomicLong reuses = new AtomicLong();
+
+    public BarcodeBufferPool() {
+        for (int i = 0; i < freeBytes.length; i++) {
+            freeBytes[i] = new ConcurrentLinkedDeque<>();
+        }
+    }
+
+    /**
+     * Ouvre un emprunt de tampons pour un décodage
+     */
+    public Lease lease() {
+        return new Lease();
+    }
+
+    /**
+     * Statistiques du pool
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("retainedBytes", retainedBytes.get());
+        stats.put("maxRetainedBytes", maxRetainedBytes);
+        stats.put("allocations", allocations.get());
+        stats.put("reuses", reuses.get());
+        return stats;
+    }
+
+    private byte[] takeBytes(int minSize) {
+        int sizeClass = sizeClass(minSize);
+        if (sizeClass > MAX_POOLED_SIZE_CLASS) {
+            allocations.incrementAndGet();
+            return new byte[minSize];
+        }
+
+        byte[] buffer = freeBytes[sizeClass].pollFirst();
+        if (buffer != null) {
+            retainedBytes.addAndGet(-buffer.length);
+            reuses.incrementAndGet();
+            return buffer;
+        }
+        allocations.incrementAndGet();
+        return new byte[1 << sizeClass];
+    }
+
+    private void giveBytes(byte[] buffer) {
+        int sizeClass = sizeClass(buffer.length);
+        if (sizeClass > MAX_POOLED_SIZE_CLASS || buffer.length != 1 << sizeClass) {
+            return;
+        }
+        if (retain(buffer.length)) {
+            freeBytes[sizeClass].offerFirst(buffer);
+        }
+    }
+
+    private BitMatrix takeMatrix(int width, int height) {
+        ConcurrentLinkedDeque<BitMatrix> free = freeMatrices.get(key(width, height));
+        BitMatrix matrix = free != null ? free.pollFirst() : null;
+        if (matrix != null) {
+            retainedBytes.addAndGet(-matrixBytes(matrix));
+            reuses.incrementAndGet();
+            matrix.clear();
+            return matrix;
+        }
+        allocations.incrementAndGet();
+        return new BitMatrix(width, height);
+    }
+
+    private void giveMatrix(BitMatrix matrix) {
+        if (retain(matrixBytes(matrix))) {
+            freeMatrices.computeIfAbsent(key(matrix.getWidth(), matrix.getHeight()),
+                    k -> new ConcurrentLinkedDeque<>()).offerFirst(matrix);
+        }
+    }
+
+    private int[][] takeBlackPoints(int subWidth, int subHeight) {
+        ConcurrentLinkedDeque<int[][]> free = freeBlackPoints.get(key(subWidth, subHeight));
+        int[][] points = free != null ? free.pollFirst() : null;
+        if (points != null) {
+            retainedBytes.addAndGet(-4L * subWidth * subHeight);
+            reuses.incrementAndGet();
+            return points;
+        }
+        allocations.incrementAndGet();
+        return new int[subHeight][subWidth];
+    }
+
+    private void giveBlackPoints(int[][] points) {
+        int subHeight = points.length;
+        int subWidth = subHeight > 0 ? points[0].length : 0;
+        if (retain(4L * subWidth * subHeight)) {
+            freeBlackPoints.computeIfAbsent(key(subWidth, subHeight),
+                    k -> new ConcurrentLinkedDeque<>()).offerFirst(points);
+        }
+    }
+
+    /**
+     * Réserve de la place dans le budget mémoire du pool
+     */
+    private boolean retain(long bytes) {
+        long current;
+        do {
+            current = retainedBytes.get();
+            if (current + bytes > maxRetainedBytes) {
+                return false;
+            }
+        } while (!retainedBytes.compareAndSet(current, current + bytes));
+        return true;
+    }
+
+    private static int sizeClass(int minSize) {
+        return minSize <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(minSize - 1);
+    }
+
+    private static long key(int width, int height) {
+        return ((long) width << 32) | (height & 0xFFFFFFFFL);
+    }
+
+    private static long matrixBytes(BitMatrix matrix) {
+        return 4L * matrix.getRowSize() * matrix.getHeight();
+    }
+
+    /**
+     * Tampons empruntés pour un décodage ; tous sont rendus au pool à la fermeture
+     */
+    public final class Lease implements AutoCloseable {
+
+        private final List<byte[]> bytes = new ArrayList<>(4);
+        private final List<BitMatrix> matrices = new ArrayList<>(4);
+        private final List<int[][]> blackPoints = new ArrayList<>(4);
+
+        /**
+         * Tableau d'au moins minSize octets (contenu non initialisé)
+         */
+        public byte[] bytes(int minSize) {
+            byte[] buffer = takeBytes(minSize);
+            bytes.add(buffer);
+            return buffer;
+        }
+
+        /**
+         * Matrice binaire vide aux dimensions demandées
+         */
+        public BitMatrix matrix(int width, int height) {
+            BitMatrix matrix = takeMatrix(width, height);
+            matrices.add(matrix);
+            return matrix;
+        }
+
+        /**
+         * Tableau de points noirs [subHeight][subWidth] (contenu non initialisé)
+         */
+        public int[][] blackPoints(int subWidth, int subHeight) {
+            int[][] points = takeBlackPoints(subWidth, subHeight);
+            blackPoints.add(points);
+            return points;
+        }
+
+        @Override
+        public void close() {
+            for (byte[] buffer : bytes) {
+                giveBytes(buffer);
+            }
+            for (BitMatrix matrix : matrices) {
+                giveMatrix(matrix);
+            }
+            for (int[][] points : blackPoints) {
+                giveBlackPoints(points);
+            }
+            bytes.clear();
+            matrices.clear();
+            blackPoints.clear();
+        }
+    }
+}
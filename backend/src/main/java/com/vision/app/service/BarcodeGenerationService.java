@@ -0,0 +1,224 @@
+package com.vision.app.service;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.MultiFormatWriter;
+import com.google.zxing.WriterException;
+import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.common.BitMatrix;
+import com.vision.app.util.LruCache;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Génération de QR codes et codes-barres (unitaire ou en masse).
+ * Les images PNG sont mises en cache par (format, taille, contenu) et les
+ * générations en masse sont encodées en parallèle puis écrites au fil de l'eau
+ * dans une archive ZIP.
+ */
+@Service
+@Slf4j
+public class BarcodeGenerationService {
+
+    public static final Set<BarcodeFormat> GENERATABLE_FORMATS = EnumSet.of(
+            BarcodeFormat.QR_CODE,
+            BarcodeFormat.DATA_MATRIX,
+            BarcodeFormat.PDF_417,
+            BarcodeFormat.AZTEC,
+            BarcodeFormat.CODE_128,
+            BarcodeFormat.CODE_39,
+            BarcodeFormat.EAN_13,
+            BarcodeFormat.EAN_8,
+            BarcodeFormat.UPC_A,
+            BarcodeFormat.ITF,
+            BarcodeFormat.CODABAR);
+
+    private static final int MAX_DIMENSION = 4096;
+
+    @Value("${barcode.generation.cache.max-bytes:33554432}")
+    private long maxCacheBytes = 32L * 1024 * 1024;
+
+    @Value("${barcode.generation.max-payloads:10000}")
+    private int maxPayloads = 10_000;
+
+    @Value("${barcode.generation.threads:0}")
+    private int threads = 0;
+
+    private LruCache<String, byte[]> cache;
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        cache = new LruCache<>(maxCacheBytes, bytes -> bytes.length);
+        int poolSize = threads > 0 ? threads : Math.max(2, Runtime.getRuntime().availableProcessors());
+        executor = Executors.newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "barcode-generate");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Génère l'image PNG d'un code, depuis le cache si elle a déjà été produite ;
+     * renvoie une copie, l'appelant pouvant modifier le tableau
+     */
+    public byte[] generate(String payload, BarcodeFormat format, int width, int height) throws WriterException {
+        return encode(payload, format, width, height).clone();
+    }
+
+    /**
+     * Image PNG partagée avec le cache : lecture seule
+     */
+    private byte[] encode(String payload, BarcodeFormat format, int width, int height) throws WriterException {
+        String key = format + ":" + width + "x" + height + ":" + payload;
+        byte[] png = cache.get(key);
+        if (png != null) {
+            return png;
+        }
+
+        Map<EncodeHintType, Object> hints = new EnumMap<>(EncodeHintType.class);
+        hints.put(EncodeHintType.CHARACTER_SET, StandardCharsets.UTF_8.name());
+        BitMatrix matrix = new MultiFormatWriter().encode(payload, format, width, height, hints);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try {
+            MatrixToImageWriter.writeToStream(matrix, "PNG", output);
+        } catch (IOException e) {
+            throw new IllegalStateException("PNG encoding failed", e);
+        }
+
+        png = output.toByteArray();
+        cache.put(key, png);
+        return png;
+    }
+
+    /**
+     * Vérifie les paramètres d'une génération (format, dimensions, nombre de codes)
+     */
+    public BarcodeFormat validate(String formatName, int width, int height, int payloadCount) {
+        BarcodeFormat format = BarcodeFormat.valueOf(formatName.trim().toUpperCase());
+        if (!GENERATABLE_FORMATS.contains(format)) {
+            throw new IllegalArgumentException("Unsupported barcode format for generation: " + formatName);
+        }
+        if (width <= 0 || height <= 0 || width > MAX_DIMENSION || height > MAX_DIMENSION) {
+            throw new IllegalArgumentException("Invalid dimensions: " + width + "x" + height);
+        }
+        if (payloadCount > maxPayloads) {
+            throw new IllegalArgumentException("Too many payloads: " + payloadCount + " (max " + maxPayloads + ")");
+        }
+        return format;
+    }
+
+    /**
+     * Encode tous les contenus en parallèle et écrit les PNG dans un ZIP, dans
+     * l'ordre de la demande. Seule une fenêtre de codes est gardée en mémoire ;
+     * les contenus invalides sont listés dans une entrée errors.txt finale.
+     */
+    public int writeZip(List<String> payloads, BarcodeFormat format, int width, int height, OutputStream out)
+            throws IOException {
+        int window = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+        ArrayDeque<CompletableFuture<byte[]>> pending = new ArrayDeque<>(window);
+        StringBuilder errors = new StringBuilder();
+        int written = 0;
+        int next = 0;
+
+        ZipOutputStream zip = new ZipOutputStream(out);
+        try {
+            int index = 0;
+            while (index < payloads.size() || !pending.isEmpty()) {
+                // Remplit la fenêtre d'encodages en cours
+                while (index < payloads.size() && pending.size() < window) {
+                    String payload = payloads.get(index++);
+                    pending.add(CompletableFuture.supplyAsync(() -> {
+                        try {
+                            return encode(payload, format, width, height);
+                        } catch (WriterException e) {
+                            throw new CompletionException(e);
+                        }
+                    }, executor));
+                }
+
+                CompletableFuture<byte[]> head = pending.poll();
+                int entry = next++;
+                try {
+                    byte[] png = head.join();
+                    writeStoredEntry(zip, String.format("%05d.png", entry + 1), png);
+                    written++;
+                } catch (CompletionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    errors.append(entry + 1).append('\t')
+                            .append(cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName())
+                            .append('\n');
+                }
+            }
+
+            if (errors.length() > 0) {
+                writeStoredEntry(zip, "errors.txt", errors.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            zip.finish();
+        } finally {
+            // Client déconnecté : inutile de finir les encodages restants
+            for (CompletableFuture<byte[]> future : pending) {
+                future.cancel(true);
+            }
+        }
+
+        log.info("Bulk generation completed: {} {} codes written, {} failed", written, format,
+                payloads.size() - written);
+        return written;
+    }
+
+    /**
+     * Statistiques du cache de génération
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>(cache.getStats());
+        stats.put("maxPayloads", maxPayloads);
+        return stats;
+    }
+
+    /**
+     * Les PNG sont déjà compressés : entrées stockées sans recompression
+     */
+    private static void writeStoredEntry(ZipOutputStream zip, String name, byte[] bytes) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+
+        ZipEntry entry = new ZipEntry(name);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(bytes.length);
+        entry.setCompressedSize(bytes.length);
+        entry.setCrc(crc.getValue());
+
+        zip.putNextEntry(entry);
+        zip.write(bytes);
+        zip.closeEntry();
+    }
+}
@@ -0,0 +1,151 @@
+package com.vision.app.service;
+
+import com.vision.app.util.OpenCvUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.Rect;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Détecte les zones susceptibles de contenir un code-barres (gradients + morphologie)
+ * afin de ne décoder que de petites régions au lieu de la page entière
+ */
+@Component
+@Slf4j
+public class BarcodeRegionDetector {
+
+    @Value("${barcode.region.working-size:1024}")
+    private int workingSize = 1024;
+
+    @Value("${barcode.region.max-regions:8}")
+    private int maxRegions = 8;
+
+    @Value("${barcode.region.min-area-ratio:0.002}")
+    private double minAreaRatio = 0.002;
+
+    @Value("${barcode.region.max-area-ratio:0.5}")
+    private double maxAreaRatio = 0.5;
+
+    @Value("${barcode.region.padding-ratio:0.15}")
+    private double paddingRatio = 0.15;
+
+    public boolean isAvailable() {
+        return OpenCvUtils.isAvailable();
+    }
+
+    /**
+     * Retourne les régions candidates, de la plus grande à la plus petite,
+     * dans les coordonnées de l'image d'origine
+     */
+    public List<Rectangle> detect(BufferedImage image) {
+        List<Rectangle> regions = new ArrayList<>();
+        if (!isAvailable()) {
+            return regions;
+        }
+
+        List<Mat> mats = new ArrayList<>();
+        try {
+            Mat gray = track(mats, OpenCvUtils.toGrayMat(image));
+
+            // Travail sur une image réduite : la forme des zones suffit
+            double scale = Math.min(1.0, (double) workingSize / Math.max(image.getWidth(), image.getHeight()));
+            Mat small = gray;
+            if (scale < 1.0) {
+                small = track(mats, new Mat());
+                Imgproc.resize(gray, small, new Size(), scale, scale, Imgproc.INTER_AREA);
+            }
+
+            // Gradients de Scharr horizontaux et verticaux
+            Mat gradX = track(mats, new Mat());
+            Mat gradY = track(mats, new Mat());
+            Imgproc.Sobel(small, gradX, CvType.CV_32F, 1, 0, -1);
+            Imgproc.Sobel(small, gradY, CvType.CV_32F, 0, 1, -1);
+            Mat absX = track(mats, new Mat());
+            Mat absY = track(mats, new Mat());
+            Core.convertScaleAbs(gradX, absX);
+            Core.convertScaleAbs(gradY, absY);
+
+            // Codes 1D : une direction domine ; codes 2D : les deux directions sont fortes
+            Mat oneD = track(mats, new Mat());
+            Mat twoD = track(mats, new Mat());
+            Mat gradient = track(mats, new Mat());
+            Core.absdiff(absX, absY, oneD);
+            Core.min(absX, absY, twoD);
+            Core.max(oneD, twoD, gradient);
+
+            Mat blurred = track(mats, new Mat());
+            Mat thresh = track(mats, new Mat());
+            Imgproc.blur(gradient, blurred, new Size(9, 9));
+            Imgproc.threshold(blurred, thresh, 0, 255, Imgproc.THRESH_BINARY | Imgproc.THRESH_OTSU);
+
+            // Fermeture pour combler les espaces entre barres / modules, puis nettoyage
+            Mat kernel = track(mats, Imgproc.getStructuringElement(Imgproc.MORPH_RECT, new Size(21, 21)));
+            Mat closed = track(mats, new Mat());
+            Imgproc.morphologyEx(thresh, closed, Imgproc.MORPH_CLOSE, kernel);
+            Imgproc.erode(closed, closed, new Mat(), new org.opencv.core.Point(-1, -1), 4);
+            Imgproc.dilate(closed, closed, new Mat(), new org.opencv.core.Point(-1, -1), 4);
+
+            List<MatOfPoint> contours = new ArrayList<>();
+            Mat hierarchy = track(mats, new Mat());
+            Imgproc.findContours(closed, contours, hierarchy, Imgproc.RETR_EXTERNAL, Imgproc.CHAIN_APPROX_SIMPLE);
+
+            double smallArea = (double) small.cols() * small.rows();
+            for (MatOfPoint contour : contours) {
+                Rect box = Imgproc.boundingRect(contour);
+                contour.release();
+
+                double areaRatio = box.area() / smallArea;
+                if (areaRatio < minAreaRatio || areaRatio > maxAreaRatio) {
+                    continue;
+                }
+                regions.add(toImageRegion(box, scale, image.getWidth(), image.getHeight()));
+            }
+
+            regions.sort(Comparator.comparingDouble((Rectangle r) -> (double) r.width * r.height).reversed());
+            if (regions.size() > maxRegions) {
+                regions = new ArrayList<>(regions.subList(0, maxRegions));
+            }
+
+            log.debug("Barcode region detection: {} candidate regions", regions.size());
+            return regions;
+
+        } catch (Exception e) {
+            log.warn("Barcode region detection failed: {}", e.getMessage());
+            return new ArrayList<>();
+        } finally {
+            for (Mat mat : mats) {
+                mat.release();
+            }
+        }
+    }
+
+    /**
+     * Ramène une boîte de l'image réduite à l'image d'origine, avec une marge
+     */
+    private Rectangle toImageRegion(Rect box, double scale, int imageWidth, int imageHeight) {
+        double padX = box.width * paddingRatio;
+        double padY = box.height * paddingRatio;
+        int x = (int) Math.max(0, (box.x - padX) / scale);
+        int y = (int) Math.max(0, (box.y - padY) / scale);
+        int right = (int) Math.min(imageWidth, (box.x + box.width + padX) / scale);
+        int bottom = (int) Math.min(imageHeight, (box.y + box.height + padY) / scale);
+        return new Rectangle(x, y, right - x, bottom - y);
+    }
+
+    private static Mat track(List<Mat> mats, Mat mat) {
+        mats.add(mat);
+        return mat;
+    }
+}
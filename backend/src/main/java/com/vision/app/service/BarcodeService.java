@@ -3,27 +3,86 @@ package com.vision.app.service;
 import com.vision.app.dto.BarcodeResult;
 import com.vision.app.dto.BarcodeInfo;
 import com.google.zxing.*;
-import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
 import com.google.zxing.client.j2se.MatrixToImageWriter;
 import com.google.zxing.common.BitMatrix;
-import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.multi.GenericMultipleBarcodeReader;
 import com.google.zxing.qrcode.QRCodeWriter;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 @Service
+@RequiredArgsConstructor
 @Slf4j
 public class BarcodeService {
 
+    private static final Set<BarcodeFormat> SUPPORTED_FORMATS = EnumSet.of(
+            BarcodeFormat.QR_CODE,
+            BarcodeFormat.DATA_MATRIX,
+            BarcodeFormat.PDF_417,
+            BarcodeFormat.AZTEC,
+            BarcodeFormat.CODE_128,
+            BarcodeFormat.CODE_39,
+            BarcodeFormat.EAN_13,
+            BarcodeFormat.EAN_8,
+            BarcodeFormat.UPC_A,
+            BarcodeFormat.UPC_E,
+            BarcodeFormat.ITF,
+            BarcodeFormat.CODABAR);
+
+    private final BarcodeRegionDetector regionDetector;
+    private final BarcodeBufferPool bufferPool;
+
+    @Value("${barcode.pyramid.enabled:true}")
+    private boolean pyramidEnabled = true;
+
+    @Value("${barcode.pyramid.max-factor:4}")
+    private int pyramidMaxFactor = 4;
+
+    @Value("${barcode.pyramid.min-dimension:800}")
+    private int pyramidMinDimension = 800;
+
+    @Value("${barcode.region.enabled:true}")
+    private boolean regionProposalsEnabled = true;
+
+    @Value("${barcode.region.min-pixels:2000000}")
+    private long regionMinPixels = 2_000_000L;
+
+    private final ExecutorService regionExecutor = Executors.newFixedThreadPool(
+            Math.max(2, Runtime.getRuntime().availableProcessors()), runnable -> {
+                Thread thread = new Thread(runnable, "barcode-region");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    @PreDestroy
+    public void shutdown() {
+        regionExecutor.shutdownNow();
+    }
+
     /**
      * Lit tous les codes-barres et QR codes d'une image
      */
@@ -31,19 +90,15 @@ public class BarcodeService {
         try {
             log.info("Starting barcode reading for file: {}", imageFile.getName());
 
-            BufferedImage image = ImageIO.read(imageFile);
-            if (image == null) {
-                throw new IllegalArgumentException("Invalid image file: " + imageFile.getName());
-            }
-
             BarcodeResult result = new BarcodeResult();
             result.setFileName(imageFile.getName());
             result.setFileSize(imageFile.length());
-            result.setImageWidth(image.getWidth());
-            result.setImageHeight(image.getHeight());
 
-            // Lecture des codes-barres
-            List<BarcodeInfo> barcodes = readBarcodes(image);
+            // Lecture des codes-barres, de la résolution la plus faible à la pleine résolution
+            List<BarcodeInfo> barcodes;
+            try (ImageInputStream input = ImageIO.createImageInputStream(imageFile)) {
+                barcodes = readBarcodesCoarseToFine(input, null, result);
+            }
             result.setBarcodes(barcodes);
             result.setBarcodeCount(barcodes.size());
 
@@ -83,22 +138,25 @@ public class BarcodeService {
      * Lit les codes-barres depuis des bytes d'image
      */
     public BarcodeResult readBarcodesFromImageBytes(byte[] imageBytes, String fileName) {
+        return readBarcodesFromImageBytes(imageBytes, fileName, null);
+    }
+
+    /**
+     * Lit les codes-barres des formats demandés depuis des bytes d'image
+     */
+    public BarcodeResult readBarcodesFromImageBytes(byte[] imageBytes, String fileName, Set<BarcodeFormat> formats) {
         try {
             log.info("Starting barcode reading for image bytes: {}", fileName);
 
-            BufferedImage image = ImageIO.read(new java.io.ByteArrayInputStream(imageBytes));
-            if (image == null) {
-                throw new IllegalArgumentException("Invalid image data for file: " + fileName);
-            }
-
             BarcodeResult result = new BarcodeResult();
             result.setFileName(fileName);
             result.setFileSize((long) imageBytes.length);
-            result.setImageWidth(image.getWidth());
-            result.setImageHeight(image.getHeight());
 
-            // Lecture des codes-barres
-            List<BarcodeInfo> barcodes = readBarcodes(image);
+            // Lecture des codes-barres, de la résolution la plus faible à la pleine résolution
+            List<BarcodeInfo> barcodes;
+            try (ImageInputStream input = ImageIO.createImageInputStream(new java.io.ByteArrayInputStream(imageBytes))) {
+                barcodes = readBarcodesCoarseToFine(input, formats, result);
+            }
             result.setBarcodes(barcodes);
             result.setBarcodeCount(barcodes.size());
 
@@ -128,70 +186,221 @@ public class BarcodeService {
     }
 
     /**
-     * Lit tous les codes-barres d'une image
+     * Décode d'abord une version sous-échantillonnée de l'image (sous-échantillonnage
+     * appliqué par le décodeur, sans charger la pleine résolution) puis passe aux
+     * niveaux plus fins uniquement si aucun code n'est trouvé
      */
-    private List<BarcodeInfo> readBarcodes(BufferedImage image) {
-        List<BarcodeInfo> barcodes = new ArrayList<>();
+    private List<BarcodeInfo> readBarcodesCoarseToFine(ImageInputStream input, Set<BarcodeFormat> formats,
+            BarcodeResult result) throws IOException {
+        if (input == null) {
+            throw new IllegalArgumentException("Invalid image data for file: " + result.getFileName());
+        }
+
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        if (!readers.hasNext()) {
+            throw new IllegalArgumentException("Invalid image data for file: " + result.getFileName());
+        }
 
+        ImageReader reader = readers.next();
         try {
-            // Configuration du lecteur
-            MultiFormatReader reader = new MultiFormatReader();
-
-            // Lecture avec différents formats
-            BarcodeFormat[] formats = {
-                    BarcodeFormat.QR_CODE,
-                    BarcodeFormat.DATA_MATRIX,
-                    BarcodeFormat.PDF_417,
-                    BarcodeFormat.AZTEC,
-                    BarcodeFormat.CODE_128,
-                    BarcodeFormat.CODE_39,
-                    BarcodeFormat.EAN_13,
-                    BarcodeFormat.EAN_8,
-                    BarcodeFormat.UPC_A,
-                    BarcodeFormat.UPC_E,
-                    BarcodeFormat.ITF,
-                    BarcodeFormat.CODABAR
-            };
-
-            for (BarcodeFormat format : formats) {
-                try {
-                    Map<DecodeHintType, Object> hints = new HashMap<>();
-                    hints.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
-                    hints.put(DecodeHintType.PURE_BARCODE, Boolean.TRUE);
-
-                    BinaryBitmap binaryBitmap = new BinaryBitmap(
-                            new HybridBinarizer(new BufferedImageLuminanceSource(image)));
-
-                    Result result = reader.decode(binaryBitmap, hints);
-                    if (result != null) {
-                        BarcodeInfo barcodeInfo = new BarcodeInfo();
-                        barcodeInfo.setText(result.getText());
-                        barcodeInfo.setFormat(result.getBarcodeFormat().toString());
-                        barcodeInfo.setConfidence(calculateConfidence(result));
-
-                        // Informations de position
-                        ResultPoint[] points = result.getResultPoints();
-                        if (points != null && points.length > 0) {
-                            barcodeInfo.setTopLeftX((int) points[0].getX());
-                            barcodeInfo.setTopLeftY((int) points[0].getY());
+            reader.setInput(input, false, true);
+            int width = reader.getWidth(0);
+            int height = reader.getHeight(0);
+            result.setImageWidth(width);
+            result.setImageHeight(height);
+
+            List<BarcodeInfo> barcodes = new ArrayList<>();
+            for (int factor : pyramidFactors(width, height)) {
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(factor, factor, 0, 0);
+                BufferedImage image = reader.read(0, param);
+
+                barcodes = readBarcodes(image, formats);
+                if (!barcodes.isEmpty()) {
+                    // Positions exprimées en pleine résolution
+                    for (BarcodeInfo barcode : barcodes) {
+                        if (barcode.hasPosition()) {
+                            barcode.setTopLeftX(barcode.getTopLeftX() * factor);
+                            barcode.setTopLeftY(barcode.getTopLeftY() * factor);
                         }
-
-                        barcodes.add(barcodeInfo);
-                        log.debug("Found {} barcode: {}", format, result.getText());
                     }
-                } catch (NotFoundException e) {
-                    // Format non trouvé, continuer avec le suivant
-                    continue;
-                } catch (Exception e) {
-                    log.warn("Error reading {} format: {}", format, e.getMessage());
+                    result.setSubsamplingFactor(factor);
+                    log.debug("Barcodes decoded at 1/{} resolution ({}x{})", factor,
+                            image.getWidth(), image.getHeight());
+                    break;
+                }
+            }
+            return barcodes;
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    /**
+     * Facteurs de sous-échantillonnage à essayer, du plus grossier à la pleine résolution
+     */
+    private List<Integer> pyramidFactors(int width, int height) {
+        List<Integer> factors = new ArrayList<>();
+        if (pyramidEnabled) {
+            int largest = Math.max(width, height);
+            for (int factor = pyramidMaxFactor; factor > 1; factor /= 2) {
+                if (largest / factor >= pyramidMinDimension) {
+                    factors.add(factor);
+                }
+            }
+        }
+        factors.add(1);
+        return factors;
+    }
+
+    /**
+     * Lit tous les codes-barres d'une image
+     */
+    public List<BarcodeInfo> readBarcodes(BufferedImage image) {
+        return readBarcodes(image, null);
+    }
+
+    /**
+     * Lit en une seule passe tous les codes-barres d'une image, limités
+     * éventuellement à certains formats. L'image n'est binarisée qu'une fois et
+     * chaque code distinct n'est rapporté qu'une seule fois.
+     */
+    public List<BarcodeInfo> readBarcodes(BufferedImage image, Set<BarcodeFormat> formats) {
+        try {
+            // Grandes images : décodage des seules zones candidates, en parallèle
+            if (regionProposalsEnabled
+                    && (long) image.getWidth() * image.getHeight() >= regionMinPixels
+                    && regionDetector.isAvailable()) {
+                List<BarcodeInfo> fromRegions = readBarcodesFromRegions(image, formats);
+                if (!fromRegions.isEmpty()) {
+                    return fromRegions;
                 }
+                log.debug("No barcode decoded in candidate regions, falling back to the whole image");
             }
 
+            return decodeImage(image, formats);
         } catch (Exception e) {
             log.error("Error during barcode reading: {}", e.getMessage());
+            return new ArrayList<>();
         }
+    }
 
-        return barcodes;
+    /**
+     * Décode en parallèle les régions proposées par le détecteur
+     */
+    private List<BarcodeInfo> readBarcodesFromRegions(BufferedImage image, Set<BarcodeFormat> formats) {
+        List<Rectangle> regions = regionDetector.detect(image);
+        if (regions.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<CompletableFuture<List<BarcodeInfo>>> futures = new ArrayList<>();
+        for (Rectangle region : regions) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                BufferedImage crop = image.getSubimage(region.x, region.y, region.width, region.height);
+                List<BarcodeInfo> barcodes = decodeImage(crop, formats);
+                for (BarcodeInfo barcode : barcodes) {
+                    // Positions exprimées dans le repère de l'image complète
+                    if (barcode.hasPosition()) {
+                        barcode.setTopLeftX(barcode.getTopLeftX() + region.x);
+                        barcode.setTopLeftY(barcode.getTopLeftY() + region.y);
+                    }
+                }
+                return barcodes;
+            }, regionExecutor));
+        }
+
+        Map<String, BarcodeInfo> distinct = new LinkedHashMap<>();
+        for (CompletableFuture<List<BarcodeInfo>> future : futures) {
+            try {
+                for (BarcodeInfo barcode : future.join()) {
+                    distinct.putIfAbsent(barcode.getFormat() + ":" + barcode.getText(), barcode);
+                }
+            } catch (Exception e) {
+                log.warn("Barcode region decoding failed: {}", e.getMessage());
+            }
+        }
+
+        log.debug("Decoded {} barcodes from {} candidate regions", distinct.size(), regions.size());
+        return new ArrayList<>(distinct.values());
+    }
+
+    /**
+     * Binarise une image et décode tous ses codes. Luminances, matrice binaire et
+     * points noirs sont empruntés au pool et rendus une fois le décodage terminé.
+     */
+    private List<BarcodeInfo> decodeImage(BufferedImage image, Set<BarcodeFormat> formats) {
+        try (BarcodeBufferPool.Lease lease = bufferPool.lease()) {
+            BinaryBitmap binaryBitmap = new BinaryBitmap(
+                    new PooledHybridBinarizer(PooledLuminanceSource.fromImage(image, lease), lease));
+            return decode(binaryBitmap, formats);
+        }
+    }
+
+    /**
+     * Décode tous les codes présents dans une image binarisée
+     */
+    private List<BarcodeInfo> decode(BinaryBitmap binaryBitmap, Set<BarcodeFormat> formats) {
+        Map<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
+        hints.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
+        hints.put(DecodeHintType.POSSIBLE_FORMATS,
+                formats == null || formats.isEmpty() ? SUPPORTED_FORMATS : formats);
+
+        MultiFormatReader reader = new MultiFormatReader();
+        reader.setHints(hints);
+        GenericMultipleBarcodeReader multiReader = new GenericMultipleBarcodeReader(reader);
+
+        Result[] results;
+        try {
+            results = multiReader.decodeMultiple(binaryBitmap, hints);
+        } catch (NotFoundException e) {
+            return new ArrayList<>();
+        }
+
+        // Un même code peut être trouvé plusieurs fois lors du parcours des sous-régions
+        Map<String, BarcodeInfo> distinct = new LinkedHashMap<>();
+        for (Result result : results) {
+            String key = result.getBarcodeFormat() + ":" + result.getText();
+            if (distinct.containsKey(key)) {
+                continue;
+            }
+
+            BarcodeInfo barcodeInfo = new BarcodeInfo();
+            barcodeInfo.setText(result.getText());
+            barcodeInfo.setFormat(result.getBarcodeFormat().toString());
+            barcodeInfo.setConfidence(calculateConfidence(result));
+
+            // Informations de position
+            ResultPoint[] points = result.getResultPoints();
+            if (points != null && points.length > 0 && points[0] != null) {
+                barcodeInfo.setTopLeftX((int) points[0].getX());
+                barcodeInfo.setTopLeftY((int) points[0].getY());
+            }
+
+            distinct.put(key, barcodeInfo);
+            log.debug("Found {} barcode: {}", result.getBarcodeFormat(), result.getText());
+        }
+
+        return new ArrayList<>(distinct.values());
+    }
+
+    /**
+     * Convertit une liste de formats séparés par des virgules (ex. "QR_CODE,EAN_13")
+     */
+    public Set<BarcodeFormat> parseFormats(String formats) {
+        if (formats == null || formats.trim().isEmpty()) {
+            return null;
+        }
+
+        Set<BarcodeFormat> parsed = EnumSet.noneOf(BarcodeFormat.class);
+        for (String name : formats.split(",")) {
+            BarcodeFormat format = BarcodeFormat.valueOf(name.trim().toUpperCase());
+            if (!SUPPORTED_FORMATS.contains(format)) {
+                throw new IllegalArgumentException("Unsupported barcode format: " + name);
+            }
+            parsed.add(format);
+        }
+        return parsed;
     }
 
     /**
@@ -327,9 +536,15 @@ public class BarcodeService {
         config.put("features", new String[] {
                 "1D Barcode reading",
                 "2D Barcode reading",
+                "Multiple barcodes per image",
+                "Candidate region detection (OpenCV)",
+                "Coarse-to-fine decoding",
+                "Format filtering",
+                "Pooled luminance buffers",
                 "QR Code generation",
                 "Barcode validation"
         });
+        config.put("bufferPool", bufferPool.getStats());
         return config;
     }
 }
@@ -1,13 +1,23 @@
 package com.vision.app.service;
 
 import com.vision.app.dto.*;
+import com.vision.app.model.PageContent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.imageio.ImageIO;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -18,6 +28,12 @@ public class DocumentProcessingService {
     private final PdfService pdfService;
     private final BarcodeService barcodeService;
     private final OllamaService ollamaService;
+    private final PageCacheService pageCacheService;
+    private final ServiceHealthRegistry healthRegistry;
+    private final DocumentSummarizer documentSummarizer;
+
+    @Value("${pdf.render.dpi:200}")
+    private float renderDpi = 200;
 
     /**
      * Traite un document et extrait toutes les informations disponibles
@@ -101,18 +117,22 @@ public class DocumentProcessingService {
         PdfResult pdfResult = pdfService.extractTextFromPdf(pdfFile);
         result.setPdfResult(pdfResult);
 
-        // Lecture des codes-barres si le PDF contient des images
-        if (pdfResult.hasImages()) {
-            // Note: Pour les PDF avec images, on pourrait extraire les images et les
-            // traiter
-            // Pour l'instant, on se contente du texte extrait
-            log.info("PDF contains images, barcode detection not yet implemented for PDF images");
+        // OCR et codes-barres des pages scannées (sans texte)
+        Map<Integer, String> ocrTexts = Map.of();
+        if (pdfResult.isSuccess() && pdfResult.hasImages() && hasScannedPages(pdfResult)) {
+            try {
+                ocrTexts = processScannedPages(Files.readAllBytes(pdfFile.toPath()), pdfFile.getName(),
+                        pdfResult, result);
+            } catch (Exception e) {
+                log.warn("Scanned page processing failed for {}: {}", pdfFile.getName(), e.getMessage());
+            }
         }
 
         // Détermination du succès
-        boolean pdfSuccess = pdfResult.isSuccess() && pdfResult.hasText();
+        boolean pdfSuccess = pdfResult.isSuccess()
+                && (pdfResult.hasText() || ocrTexts.values().stream().anyMatch(this::hasText));
         result.setSuccess(pdfSuccess);
-        result.setExtractedText(pdfResult.getText());
+        setPdfText(result, pdfResult, ocrTexts);
         result.setDetectedLanguage(pdfResult.getDetectedLanguage());
         result.setPageCount(pdfResult.getPageCount());
 
@@ -121,6 +141,115 @@ public class DocumentProcessingService {
         }
     }
 
+    /**
+     * Indique si le PDF contient des pages sans texte extractible
+     */
+    private boolean hasScannedPages(PdfResult pdfResult) {
+        return pdfResult.getPages() != null
+                && pdfResult.getPages().stream().anyMatch(page -> !page.hasText());
+    }
+
+    /**
+     * Traite les pages sans texte (OCR + codes-barres). Les pages dont l'empreinte
+     * est déjà connue réutilisent les résultats en cache ; seules les pages
+     * nouvelles ou modifiées sont rendues et analysées.
+     */
+    private Map<Integer, String> processScannedPages(byte[] pdfBytes, String fileName, PdfResult pdfResult,
+            DocumentProcessingResult result) {
+        List<PageInfo> scannedPages = pdfResult.getPages().stream()
+                .filter(page -> !page.hasText())
+                .collect(Collectors.toList());
+
+        Map<String, PageContent> cached = pageCacheService.findByHashes(scannedPages.stream()
+                .map(PageInfo::getContentHash)
+                .collect(Collectors.toList()));
+
+        Map<Integer, String> ocrTexts = new TreeMap<>();
+        List<BarcodeInfo> barcodes = new ArrayList<>();
+        Map<Integer, String> hashesToRender = new HashMap<>();
+
+        for (PageInfo page : scannedPages) {
+            PageContent content = cached.get(page.getContentHash());
+            if (content != null && content.hasOcrText() && content.hasBarcodes()) {
+                ocrTexts.put(page.getPageNumber(), content.getOcrText());
+                barcodes.addAll(pageCacheService.readBarcodes(content));
+            } else {
+                hashesToRender.put(page.getPageNumber(), page.getContentHash());
+            }
+        }
+
+        log.info("Scanned pages for {}: {} reused from cache, {} to process",
+                fileName, scannedPages.size() - hashesToRender.size(), hashesToRender.size());
+
+        if (!hashesToRender.isEmpty()) {
+            pdfService.renderPages(pdfBytes, new TreeMap<>(hashesToRender).keySet(), renderDpi, (pageNumber, image) -> {
+                String hash = hashesToRender.get(pageNumber);
+                try {
+                    ByteArrayOutputStream png = new ByteArrayOutputStream();
+                    ImageIO.write(image, "png", png);
+                    OcrResult ocrResult = ocrService.extractTextFromImageBytes(png.toByteArray(),
+                            fileName + "#page" + (pageNumber + 1) + ".png");
+                    if (ocrResult.isSuccess()) {
+                        ocrTexts.put(pageNumber, ocrResult.getText());
+                        pageCacheService.saveOcr(hash, ocrResult.getText(), ocrResult.getConfidence());
+                    }
+
+                    List<BarcodeInfo> pageBarcodes = barcodeService.readBarcodes(image);
+                    barcodes.addAll(pageBarcodes);
+                    pageCacheService.saveBarcodes(hash, pageBarcodes);
+                } catch (Exception e) {
+                    log.warn("Failed to process page {} of {}: {}", pageNumber + 1, fileName, e.getMessage());
+                }
+            });
+        }
+
+        if (!barcodes.isEmpty()) {
+            BarcodeResult barcodeResult = new BarcodeResult();
+            barcodeResult.setFileName(fileName);
+            barcodeResult.setBarcodes(barcodes);
+            barcodeResult.setBarcodeCount(barcodes.size());
+            Map<String, Integer> typeCounts = new HashMap<>();
+            for (BarcodeInfo barcode : barcodes) {
+                typeCounts.merge(barcode.getFormat(), 1, Integer::sum);
+            }
+            barcodeResult.setTypeCounts(typeCounts);
+            barcodeResult.setSuccess(true);
+            result.setBarcodeResult(barcodeResult);
+        }
+
+        return ocrTexts;
+    }
+
+    private boolean hasText(String text) {
+        return text != null && !text.trim().isEmpty();
+    }
+
+    /**
+     * Enregistre le texte extrait d'un PDF : texte PDF puis texte OCR des pages
+     * scannées ; les limites de pages sont conservées à part (pageTexts)
+     */
+    private void setPdfText(DocumentProcessingResult result, PdfResult pdfResult, Map<Integer, String> ocrTexts) {
+        String scannedText = String.join("\n\n", ocrTexts.values());
+        String pdfText = pdfResult.getText();
+        if (!hasText(scannedText)) {
+            result.setExtractedText(pdfText);
+        } else if (!hasText(pdfText)) {
+            result.setExtractedText(scannedText);
+        } else {
+            result.setExtractedText(pdfText + "\n\n" + scannedText);
+        }
+
+        if (pdfResult.getPageTexts() != null) {
+            List<String> pageTexts = new ArrayList<>(pdfResult.getPageTexts());
+            ocrTexts.forEach((page, ocrText) -> {
+                if (page < pageTexts.size()) {
+                    pageTexts.set(page, ocrText);
+                }
+            });
+            result.setPageTexts(pageTexts);
+        }
+    }
+
     /**
      * Analyse le texte extrait avec Ollama
      */
@@ -133,17 +262,27 @@ public class DocumentProcessingService {
         try {
             log.info("Starting Ollama analysis for extracted text ({} chars)", result.getExtractedText().length());
 
-            // Résumé automatique
-            OllamaResult summaryResult = ollamaService.summarizeText(result.getExtractedText());
-            result.setSummaryResult(summaryResult);
-
-            // Classification du document
-            OllamaResult classificationResult = ollamaService.classifyDocument(result.getExtractedText());
-            result.setClassificationResult(classificationResult);
+            String text = result.getExtractedText();
+            Map<OllamaService.DocumentAnalysisType, OllamaResult> analyses = null;
+            if (documentSummarizer.needsChunking(text)) {
+                // Document long : résumé map-reduce, puis classification et extraction sur ce résumé
+                OllamaResult summary = documentSummarizer.summarizeAsync(text, result.getPageTexts()).join();
+                result.setSummaryResult(summary);
+                if (summary.isSuccessful() && summary.hasResponse()) {
+                    analyses = ollamaService.analyzeSeparatelyAsync(summary.getResponse(), EnumSet.of(
+                            OllamaService.DocumentAnalysisType.CLASSIFICATION,
+                            OllamaService.DocumentAnalysisType.STRUCTURED_EXTRACTION)).join();
+                }
+            }
 
-            // Extraction d'informations structurées
-            OllamaResult extractionResult = ollamaService.extractStructuredInfo(result.getExtractedText());
-            result.setStructuredExtractionResult(extractionResult);
+            if (analyses == null) {
+                // Résumé, classification et extraction structurée en un seul appel (repli : trois appels)
+                analyses = ollamaService.analyzeDocumentFullyAsync(text).join();
+                result.setSummaryResult(analyses.get(OllamaService.DocumentAnalysisType.SUMMARY));
+            }
+            result.setClassificationResult(analyses.get(OllamaService.DocumentAnalysisType.CLASSIFICATION));
+            result.setStructuredExtractionResult(
+                    analyses.get(OllamaService.DocumentAnalysisType.STRUCTURED_EXTRACTION));
 
             log.info("Ollama analysis completed successfully");
 
@@ -175,8 +314,40 @@ public class DocumentProcessingService {
      * Traite un document depuis des bytes
      */
     public DocumentProcessingResult processDocumentBytes(byte[] documentBytes, String fileName) {
+        return processDocumentBytes(documentBytes, fileName, null);
+    }
+
+    /**
+     * Traite une nouvelle révision d'un document ; les empreintes des pages de la
+     * révision précédente permettent de ne retraiter que les pages modifiées
+     */
+    public DocumentProcessingResult processDocumentBytes(byte[] documentBytes, String fileName,
+            List<String> previousHashes) {
+        DocumentProcessingResult result = extractDocumentBytes(documentBytes, fileName, previousHashes);
+
+        // Analyse LLM si du texte a été extrait
+        if (result.isSuccess() && result.hasExtractedText()) {
+            analyzeWithOllama(result);
+        }
+
+        log.info("Document processing completed for {}: {}", fileName, result.getStatus());
+        return result;
+    }
+
+    /**
+     * Extrait le texte, l'OCR et les codes-barres d'un document depuis des bytes, sans analyse LLM
+     */
+    public DocumentProcessingResult extractDocumentBytes(byte[] documentBytes, String fileName) {
+        return extractDocumentBytes(documentBytes, fileName, null);
+    }
+
+    /**
+     * Extraction sans analyse LLM, comparée à la révision précédente (empreintes des pages)
+     */
+    public DocumentProcessingResult extractDocumentBytes(byte[] documentBytes, String fileName,
+            List<String> previousHashes) {
         try {
-            log.info("Starting document processing for bytes: {}", fileName);
+            log.info("Starting document extraction for bytes: {}", fileName);
 
             DocumentProcessingResult result = new DocumentProcessingResult();
             result.setFileName(fileName);
@@ -189,7 +360,7 @@ public class DocumentProcessingService {
                     processImageBytes(documentBytes, fileName, result);
                     break;
                 case "pdf":
-                    processPdfBytes(documentBytes, fileName, result);
+                    processPdfBytes(documentBytes, fileName, previousHashes, result);
                     break;
                 case "unknown":
                     result.setSuccess(false);
@@ -197,16 +368,10 @@ public class DocumentProcessingService {
                     break;
             }
 
-            // Analyse LLM si du texte a été extrait
-            if (result.isSuccess() && result.hasExtractedText()) {
-                analyzeWithOllama(result);
-            }
-
-            log.info("Document processing completed for {}: {}", fileName, result.getStatus());
             return result;
 
         } catch (Exception e) {
-            log.error("Document processing failed for {}: {}", fileName, e.getMessage());
+            log.error("Document extraction failed for {}: {}", fileName, e.getMessage());
             DocumentProcessingResult result = new DocumentProcessingResult();
             result.setFileName(fileName);
             result.setSuccess(false);
@@ -244,15 +409,27 @@ public class DocumentProcessingService {
     /**
      * Traite des bytes de PDF
      */
-    private void processPdfBytes(byte[] pdfBytes, String fileName, DocumentProcessingResult result) {
-        // Extraction PDF
-        PdfResult pdfResult = pdfService.extractTextFromPdfBytes(pdfBytes, fileName);
+    private void processPdfBytes(byte[] pdfBytes, String fileName, List<String> previousHashes,
+            DocumentProcessingResult result) {
+        // Extraction PDF (pages inchangées depuis la révision précédente reprises du cache)
+        PdfResult pdfResult = pdfService.extractTextFromPdfBytes(pdfBytes, fileName, previousHashes);
         result.setPdfResult(pdfResult);
 
+        // OCR et codes-barres des pages scannées (sans texte)
+        Map<Integer, String> ocrTexts = Map.of();
+        if (pdfResult.isSuccess() && pdfResult.hasImages() && hasScannedPages(pdfResult)) {
+            try {
+                ocrTexts = processScannedPages(pdfBytes, fileName, pdfResult, result);
+            } catch (Exception e) {
+                log.warn("Scanned page processing failed for {}: {}", fileName, e.getMessage());
+            }
+        }
+
         // Détermination du succès
-        boolean pdfSuccess = pdfResult.isSuccess() && pdfResult.hasText();
+        boolean pdfSuccess = pdfResult.isSuccess()
+                && (pdfResult.hasText() || ocrTexts.values().stream().anyMatch(this::hasText));
         result.setSuccess(pdfSuccess);
-        result.setExtractedText(pdfResult.getText());
+        setPdfText(result, pdfResult, ocrTexts);
         result.setDetectedLanguage(pdfResult.getDetectedLanguage());
         result.setPageCount(pdfResult.getPageCount());
 
@@ -279,27 +456,16 @@ public class DocumentProcessingService {
     }
 
     /**
-     * Obtient le statut de tous les services
+     * Obtient le statut de tous les services (dernier état connu du registre)
      */
     public Map<String, Object> getServicesStatus() {
         Map<String, Object> status = new HashMap<>();
-
-        status.put("ocr", Map.of(
-                "available", ocrService.isAvailable(),
-                "config", ocrService.getConfiguration()));
-
-        status.put("pdf", Map.of(
-                "available", pdfService.isAvailable(),
-                "config", pdfService.getConfiguration()));
-
-        status.put("barcode", Map.of(
-                "available", barcodeService.isAvailable(),
-                "config", barcodeService.getConfiguration()));
-
-        status.put("ollama", Map.of(
-                "available", ollamaService.isAvailable(),
-                "config", ollamaService.getConfiguration()));
-
+        for (String service : List.of(ServiceHealthRegistry.OCR, ServiceHealthRegistry.PDF,
+                ServiceHealthRegistry.BARCODE, ServiceHealthRegistry.OLLAMA)) {
+            status.put(service, Map.of(
+                    "available", healthRegistry.isAvailable(service),
+                    "config", healthRegistry.describe(service)));
+        }
         return status;
     }
 }
@@ -1,6 +1,8 @@
 package com.vision.app.service;
 
 import com.vision.app.dto.DocumentDto;
+import com.vision.app.dto.DocumentProcessingResult;
+import com.vision.app.dto.PageInfo;
 import com.vision.app.model.Document;
 import com.vision.app.model.ProcessingStatus;
 import com.vision.app.model.User;
@@ -8,6 +10,7 @@ import com.vision.app.repository.DocumentRepository;
 import com.vision.app.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -15,8 +18,16 @@ import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
@@ -25,6 +36,12 @@ public class DocumentService {
 
     private final DocumentRepository documentRepository;
     private final UserRepository userRepository;
+    private final PdfService pdfService;
+    private final ThumbnailService thumbnailService;
+    private final DocumentProcessingService documentProcessingService;
+
+    @Value("${documents.storage.dir:./uploads}")
+    private String storageDir = "./uploads";
 
     /**
      * Sauvegarder un document uploadé
@@ -41,13 +58,28 @@ public class DocumentService {
             document.setOriginalFileName(file.getOriginalFilename());
             document.setFileType(file.getContentType());
             document.setFileSize(file.getSize());
-            document.setFilePath("uploads/" + file.getOriginalFilename()); // Chemin temporaire
             document.setStatus(ProcessingStatus.PENDING);
             document.setUploadedBy(user);
             document.setUploadedAt(LocalDateTime.now());
 
-            // Sauvegarder
+            // Empreintes des pages pour le retraitement incrémental des révisions
+            List<String> pageHashes = null;
+            if ("application/pdf".equals(file.getContentType())) {
+                pageHashes = pdfService.computePageHashes(file.getBytes());
+                document.setPageHashes(String.join(",", pageHashes));
+            }
+
+            // Sauvegarder, puis enregistrer le fichier sous l'ID du document
             Document savedDocument = documentRepository.save(document);
+            Path storedFile = storeFile(String.valueOf(savedDocument.getId()), file);
+            savedDocument.setFilePath(storedFile.toString());
+            savedDocument = documentRepository.save(savedDocument);
+
+            // Aperçus des premières pages générés en arrière-plan
+            if (pageHashes != null) {
+                thumbnailService.pregenerate(storedFile, pageHashes);
+            }
+
             log.info("📁 Document sauvegardé: {} (ID: {})", file.getOriginalFilename(), savedDocument.getId());
 
             return convertToDto(savedDocument);
@@ -134,6 +166,116 @@ public class DocumentService {
         }
     }
 
+    /**
+     * Traiter un document enregistré (extraction puis analyse IA) et enregistrer le texte extrait.
+     * Avec une nouvelle révision du fichier, les empreintes enregistrées de la révision
+     * précédente servent à ne retraiter que les pages modifiées.
+     */
+    public DocumentProcessingResult processDocument(Long id, MultipartFile revision) {
+        Document document = documentRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Document non trouvé"));
+
+        List<String> previousHashes = parseHashes(document.getPageHashes());
+        if (revision != null && !revision.isEmpty()) {
+            replaceStoredFile(document, revision);
+        }
+
+        byte[] bytes = readStoredFile(document);
+        document.setStatus(ProcessingStatus.PROCESSING);
+        documentRepository.save(document);
+
+        DocumentProcessingResult result = documentProcessingService.processDocumentBytes(bytes,
+                document.getFileName(), previousHashes);
+        document.setStatus(result.isSuccess() ? ProcessingStatus.COMPLETED : ProcessingStatus.FAILED);
+        if (result.isSuccess()) {
+            document.setProcessedAt(LocalDateTime.now());
+        }
+        saveProcessingResult(document, result);
+
+        if (revision != null && result.getPdfResult() != null && result.getPdfResult().getChangedPageCount() != null) {
+            log.info("📁 Révision du document {}: {}/{} pages modifiées", id,
+                    result.getPdfResult().getChangedPageCount(), result.getPdfResult().getPageCount());
+        }
+        log.info("📁 Document {} traité: {}", id, document.getStatus());
+        return result;
+    }
+
+    /**
+     * Récupérer le texte extrait d'un document ; un document pas encore traité
+     * est extrait (sans analyse IA) et son texte enregistré au premier appel
+     */
+    public String getExtractedText(Long id) {
+        Document document = documentRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Document non trouvé"));
+        if (document.getExtractedText() != null) {
+            return document.getExtractedText();
+        }
+
+        DocumentProcessingResult result = documentProcessingService.extractDocumentBytes(
+                readStoredFile(document), document.getFileName(), parseHashes(document.getPageHashes()));
+        saveProcessingResult(document, result);
+        log.info("📁 Texte du document {} extrait: {} caractères", id,
+                document.getExtractedText() != null ? document.getExtractedText().length() : 0);
+        return document.getExtractedText();
+    }
+
+    /**
+     * Remplace le fichier enregistré par une nouvelle révision : la révision est
+     * écrite sous un nouveau nom, le document pointe vers elle, puis seulement
+     * l'ancien fichier est supprimé (un échec laisse le document sur un fichier valide)
+     */
+    private void replaceStoredFile(Document document, MultipartFile revision) {
+        String previousPath = document.getFilePath();
+        Path storedFile;
+        try {
+            storedFile = storeFile(document.getId() + "-" + UUID.randomUUID().toString().substring(0, 8), revision);
+        } catch (IOException e) {
+            throw new RuntimeException("Enregistrement de la révision impossible", e);
+        }
+
+        document.setFileName(revision.getOriginalFilename());
+        document.setFileType(revision.getContentType());
+        document.setFileSize(revision.getSize());
+        document.setFilePath(storedFile.toString());
+        documentRepository.save(document);
+
+        deleteStoredFile(previousPath);
+    }
+
+    private static List<String> parseHashes(String pageHashes) {
+        return pageHashes == null || pageHashes.isEmpty() ? null : List.of(pageHashes.split(","));
+    }
+
+    private byte[] readStoredFile(Document document) {
+        if (document.getFilePath() == null || !Files.isReadable(Paths.get(document.getFilePath()))) {
+            throw new RuntimeException("Fichier du document introuvable: " + document.getFilePath());
+        }
+        try {
+            return Files.readAllBytes(Paths.get(document.getFilePath()));
+        } catch (IOException e) {
+            throw new RuntimeException("Lecture du fichier du document impossible", e);
+        }
+    }
+
+    private void saveProcessingResult(Document document, DocumentProcessingResult result) {
+        // Empreintes de la révision traitée : référence pour la prochaine révision
+        if (result.getPdfResult() != null && result.getPdfResult().getPages() != null) {
+            List<String> pageHashes = result.getPdfResult().getPages().stream()
+                    .map(PageInfo::getContentHash)
+                    .toList();
+            document.setPageHashes(String.join(",", pageHashes));
+        }
+        if (result.isSuccess()) {
+            document.setExtractedText(result.getExtractedText() != null ? result.getExtractedText() : "");
+            document.setDetectedLanguage(result.getDetectedLanguage());
+            document.setOcrConfidence(result.getOcrConfidence());
+            document.setProcessingErrors(null);
+        } else {
+            document.setProcessingErrors(result.getErrorMessage());
+        }
+        documentRepository.save(document);
+    }
+
     /**
      * Supprimer un document
      */
@@ -143,6 +285,7 @@ public class DocumentService {
                 throw new RuntimeException("Document non trouvé");
             }
 
+            documentRepository.findById(id).ifPresent(this::deleteStoredFile);
             documentRepository.deleteById(id);
             log.info("📁 Document {} supprimé", id);
         } catch (Exception e) {
@@ -163,6 +306,42 @@ public class DocumentService {
         }
     }
 
+    /**
+     * Enregistre le fichier uploadé sous un nom dérivé de l'ID du document
+     * (deux uploads du même nom ne partagent jamais le même fichier) ; un
+     * fichier incomplet est supprimé en cas d'échec
+     */
+    private Path storeFile(String prefix, MultipartFile file) throws IOException {
+        Path directory = Paths.get(storageDir);
+        Files.createDirectories(directory);
+
+        String originalName = file.getOriginalFilename() != null ? file.getOriginalFilename() : "document";
+        String safeName = Paths.get(originalName).getFileName().toString().replaceAll("[^A-Za-z0-9._-]", "_");
+        Path target = directory.resolve(prefix + "-" + safeName);
+        try (InputStream input = file.getInputStream()) {
+            Files.copy(input, target, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(target);
+            throw e;
+        }
+        return target;
+    }
+
+    private void deleteStoredFile(Document document) {
+        deleteStoredFile(document.getFilePath());
+    }
+
+    private void deleteStoredFile(String filePath) {
+        if (filePath == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(Paths.get(filePath));
+        } catch (IOException e) {
+            log.warn("⚠️ Impossible de supprimer le fichier {}: {}", filePath, e.getMessage());
+        }
+    }
+
     /**
      * Convertir Document en DocumentDto
      */
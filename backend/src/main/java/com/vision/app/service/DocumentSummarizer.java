@@ -0,0 +1,235 @@
+package com.vision.app.service;
+
+import com.vision.app.dto.OllamaResult;
+import com.vision.app.util.TextChunker;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Résumé des documents longs en map-reduce : le texte est découpé en morceaux
+ * qui tiennent dans le contexte du modèle, résumés en parallèle (concurrence
+ * bornée), puis les résumés partiels sont combinés par niveaux successifs.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DocumentSummarizer {
+
+    private static final String CHUNK_PROMPT = "Voici la partie %d sur %d (pages %d à %d) d'un long document. "
+            + "Résume cette partie en conservant les points clés, les noms, les dates et les chiffres importants. "
+            + "Ne conclus pas sur l'ensemble du document.";
+
+    private static final String COMBINE_PROMPT = "Voici des résumés partiels consécutifs d'un même document. "
+            + "Combine-les en un seul résumé sans perdre les informations importantes.";
+
+    private static final String FINAL_PROMPT = "Voici les résumés successifs de toutes les parties d'un document. "
+            + "Fais-en un résumé concis et structuré du document entier. "
+            + "Inclus les points clés, les informations importantes et les conclusions.";
+
+    private final OllamaService ollamaService;
+
+    @Value("${ollama.summary.chunk-tokens:3000}")
+    private int chunkTokens = 3000;
+
+    @Value("${ollama.summary.concurrency:4}")
+    private int concurrency = 4;
+
+    @Value("${ollama.summary.reduce-fan-in:8}")
+    private int reduceFanIn = 8;
+
+    /**
+     * Vrai si le texte dépasse la taille d'un seul morceau
+     */
+    public boolean needsChunking(String text) {
+        return text != null && TextChunker.estimateTokens(text) > chunkTokens;
+    }
+
+    /**
+     * Résumé d'un document ; un texte court est résumé en un seul appel
+     */
+    public CompletableFuture<OllamaResult> summarizeAsync(String text) {
+        return summarizeAsync(text, null);
+    }
+
+    /**
+     * Résumé d'un document dont le texte de chaque page est connu : les morceaux
+     * sont découpés sur les limites de pages (sinon sur les sauts de page du texte)
+     */
+    public CompletableFuture<OllamaResult> summarizeAsync(String text, List<String> pageTexts) {
+        if (!needsChunking(text)) {
+            return ollamaService.analyzeDocumentAsync(text, OllamaService.DocumentAnalysisType.SUMMARY);
+        }
+
+        long start = System.nanoTime();
+        List<TextChunker.Chunk> chunks = pageTexts != null && !pageTexts.isEmpty()
+                ? TextChunker.split(pageTexts, chunkTokens)
+                : TextChunker.split(text, chunkTokens);
+        log.info("Map-reduce summary: {} chars split into {} chunks of at most {} tokens",
+                text.length(), chunks.size(), chunkTokens);
+
+        List<Map<String, Object>> chunkTimings = new ArrayList<>();
+        return mapBounded(chunks, chunk -> summarizeChunk(chunk, chunks.size()))
+                .thenCompose(partials -> {
+                    List<String> summaries = new ArrayList<>();
+                    for (ChunkSummary partial : partials) {
+                        chunkTimings.add(partial.timing());
+                        if (partial.result().isSuccessful() && partial.result().hasResponse()) {
+                            summaries.add(partial.result().getResponse());
+                        }
+                    }
+                    if (summaries.isEmpty()) {
+                        return CompletableFuture.completedFuture(new Reduced(partials.get(0).result(), 0));
+                    }
+                    return reduce(summaries, 1);
+                })
+                .thenApply(reduced -> {
+                    OllamaResult result = reduced.result();
+                    Map<String, Object> mapReduce = new LinkedHashMap<>();
+                    mapReduce.put("chunks", chunks.size());
+                    mapReduce.put("chunkTokens", chunkTokens);
+                    mapReduce.put("reduceLevels", reduced.levels());
+                    mapReduce.put("failedChunks", chunkTimings.stream()
+                            .filter(timing -> !Boolean.TRUE.equals(timing.get("success"))).count());
+                    mapReduce.put("chunkTimings", chunkTimings);
+                    mapReduce.put("durationMs", (System.nanoTime() - start) / 1_000_000);
+                    if (result.getMetadata() != null) {
+                        result.getMetadata().put("mapReduce", mapReduce);
+                    }
+                    log.info("Map-reduce summary completed: {} chunks, {} reduce levels in {} ms",
+                            chunks.size(), reduced.levels(), mapReduce.get("durationMs"));
+                    return result;
+                });
+    }
+
+    private record ChunkSummary(OllamaResult result, Map<String, Object> timing) {
+    }
+
+    private record Reduced(OllamaResult result, int levels) {
+    }
+
+    private CompletableFuture<ChunkSummary> summarizeChunk(TextChunker.Chunk chunk, int chunkCount) {
+        long start = System.nanoTime();
+        String prompt = String.format(CHUNK_PROMPT, chunk.index() + 1, chunkCount, chunk.firstPage(), chunk.lastPage());
+        CompletableFuture<OllamaResult> summary = ollamaService.analyzeTextAsync(chunk.text(), prompt,
+                OllamaService.DocumentAnalysisType.SUMMARY);
+        return summary.thenApply(result -> {
+            Map<String, Object> timing = new LinkedHashMap<>();
+            timing.put("index", chunk.index());
+            timing.put("firstPage", chunk.firstPage());
+            timing.put("lastPage", chunk.lastPage());
+            timing.put("estimatedTokens", chunk.estimatedTokens());
+            timing.put("durationMs", (System.nanoTime() - start) / 1_000_000);
+            timing.put("success", result.isSuccessful());
+            if (result.getMetadata() != null) {
+                timing.put("promptEvalCount", result.getMetadata().get("promptEvalCount"));
+                timing.put("evalCount", result.getMetadata().get("evalCount"));
+            }
+            return new ChunkSummary(result, timing);
+        });
+    }
+
+    /**
+     * Combine les résumés par groupes (au plus reduceFanIn résumés et chunkTokens
+     * tokens par appel) jusqu'à n'en garder qu'un seul
+     */
+    private CompletableFuture<Reduced> reduce(List<String> summaries, int level) {
+        List<List<String>> groups = group(summaries);
+        boolean last = groups.size() == 1;
+
+        return mapBounded(groups, group -> ollamaService.analyzeTextAsync(
+                String.join("\n\n---\n\n", group), last ? FINAL_PROMPT : COMBINE_PROMPT,
+                OllamaService.DocumentAnalysisType.SUMMARY))
+                .thenCompose(results -> {
+                    if (last) {
+                        return CompletableFuture.completedFuture(new Reduced(results.get(0), level));
+                    }
+
+                    List<String> next = new ArrayList<>();
+                    for (int i = 0; i < results.size(); i++) {
+                        // Groupe en échec : ses résumés passent tels quels au niveau suivant
+                        OllamaResult result = results.get(i);
+                        next.add(result.isSuccessful() && result.hasResponse()
+                                ? result.getResponse()
+                                : String.join("\n\n", groups.get(i)));
+                    }
+                    log.debug("Reduce level {}: {} summaries combined into {}", level, summaries.size(), next.size());
+                    return reduce(next, level + 1);
+                });
+    }
+
+    private List<List<String>> group(List<String> summaries) {
+        List<List<String>> groups = new ArrayList<>();
+        List<String> current = new ArrayList<>();
+        int tokens = 0;
+        for (String summary : summaries) {
+            int summaryTokens = TextChunker.estimateTokens(summary);
+            if (!current.isEmpty() && (current.size() >= reduceFanIn || tokens + summaryTokens > chunkTokens)) {
+                groups.add(current);
+                current = new ArrayList<>();
+                tokens = 0;
+            }
+            current.add(summary);
+            tokens += summaryTokens;
+        }
+        groups.add(current);
+
+        // Chaque niveau doit réduire le nombre de résumés
+        if (groups.size() == summaries.size() && summaries.size() > 1) {
+            groups.clear();
+            for (int i = 0; i < summaries.size(); i += 2) {
+                groups.add(new ArrayList<>(summaries.subList(i, Math.min(summaries.size(), i + 2))));
+            }
+        }
+        return groups;
+    }
+
+    /**
+     * Applique une tâche asynchrone à chaque élément, au plus « concurrency » à la
+     * fois ; les résultats sont rendus dans l'ordre des éléments
+     */
+    private <T, R> CompletableFuture<List<R>> mapBounded(List<T> items, Function<T, CompletableFuture<R>> task) {
+        List<CompletableFuture<R>> results = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            results.add(new CompletableFuture<>());
+        }
+
+        AtomicInteger next = new AtomicInteger();
+        Runnable[] launch = new Runnable[1];
+        launch[0] = () -> {
+            int index = next.getAndIncrement();
+            if (index >= items.size()) {
+                return;
+            }
+            CompletableFuture<R> call;
+            try {
+                call = task.apply(items.get(index));
+            } catch (RuntimeException e) {
+                call = CompletableFuture.failedFuture(e);
+            }
+            call.whenComplete((value, error) -> {
+                if (error != null) {
+                    results.get(index).completeExceptionally(error);
+                } else {
+                    results.get(index).complete(value);
+                }
+                launch[0].run();
+            });
+        };
+        for (int i = 0; i < Math.min(Math.max(1, concurrency), items.size()); i++) {
+            launch[0].run();
+        }
+
+        return CompletableFuture.allOf(results.toArray(new CompletableFuture[0]))
+                .thenApply(done -> results.stream().map(CompletableFuture::join).toList());
+    }
+}
@@ -0,0 +1,415 @@
+package com.vision.app.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vision.app.dto.MrzBatchItem;
+import com.vision.app.dto.MrzResult;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Traitement MRZ par lots (contrôle frontière : centaines de pièces d'identité).
+ * Les images, envoyées une à une ou dans des archives ZIP, passent en parallèle
+ * dans la chaîne MRZ avec un nombre borné de documents en cours ; chaque
+ * résultat est écrit en NDJSON dès qu'il est prêt.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MrzBatchService {
+
+    private static final Set<String> IMAGE_EXTENSIONS = Set.of(
+            "jpg", "jpeg", "png", "bmp", "gif", "tif", "tiff");
+    private static final byte[] NEWLINE = { '\n' };
+
+    private final MrzService mrzService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${mrz.batch.concurrency:4}")
+    private int concurrency = 4;
+
+    @Value("${mrz.batch.max-items:1000}")
+    private int maxItems = 1000;
+
+    @Value("${mrz.batch.max-image-bytes:20971520}")
+    private long maxImageBytes = 20L * 1024 * 1024;
+
+    @Value("${mrz.batch.max-archive-bytes:1073741824}")
+    private long maxArchiveBytes = 1024L * 1024 * 1024;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        executor = Executors.newFixedThreadPool(Math.max(1, concurrency), runnable -> {
+            Thread thread = new Thread(runnable, "mrz-batch");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Vrai si le fichier envoyé est une archive ZIP d'images
+     */
+    public static boolean isZip(MultipartFile file) {
+        String contentType = file.getContentType();
+        return "application/zip".equals(contentType) || "application/x-zip-compressed".equals(contentType)
+                || "zip".equals(extension(file.getOriginalFilename()));
+    }
+
+    /**
+     * Vrai si le fichier (ou l'entrée d'archive) est une image traitable
+     */
+    public static boolean isImage(String fileName, String contentType) {
+        return (contentType != null && contentType.startsWith("image/"))
+                || IMAGE_EXTENSIONS.contains(extension(fileName));
+    }
+
+    public int getMaxItems() {
+        return maxItems;
+    }
+
+    public long getMaxArchiveBytes() {
+        return maxArchiveBytes;
+    }
+
+    /**
+     * Traite le lot et écrit une ligne JSON par document, dans l'ordre de fin de
+     * traitement, puis une ligne de synthèse. Au plus « concurrency » documents
+     * sont en mémoire ou en cours de traitement à la fois.
+     */
+    public void process(List<MultipartFile> files, OutputStream out) throws IOException {
+        run(out, batch -> {
+            for (MultipartFile file : files) {
+                if (isZip(file)) {
+                    submitZipEntries(batch, file.getInputStream());
+                } else if (!isImage(file.getOriginalFilename(), file.getContentType())) {
+                    batch.fail(file.getOriginalFilename(), "Type de fichier non supporté. Utilisez une image ou un ZIP.");
+                } else {
+                    batch.submit(file.getOriginalFilename(), () -> readLimited(file.getInputStream()));
+                }
+            }
+        });
+    }
+
+    /**
+     * Traite une archive ZIP lue directement dans le corps de la requête, au fil
+     * de l'eau : rien n'est mis en tampon hors des documents en cours. L'archive
+     * est bornée à « max-archive-bytes » ; au-delà, la lecture s'arrête et une
+     * ligne d'erreur précède la synthèse.
+     */
+    public void processArchive(String fileName, InputStream archive, OutputStream out) throws IOException {
+        run(out, batch -> {
+            try {
+                submitZipEntries(batch, new BoundedInputStream(archive, maxArchiveBytes));
+            } catch (ArchiveTooLargeException e) {
+                batch.fail(fileName, e.getMessage());
+            }
+        });
+    }
+
+    private void run(OutputStream out, BatchInput input) throws IOException {
+        long start = System.nanoTime();
+        Batch batch = new Batch(out);
+        try {
+            input.submitTo(batch);
+            batch.drain();
+        } finally {
+            batch.cancel();
+        }
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("summary", true);
+        summary.put("total", batch.submitted);
+        summary.put("succeeded", batch.succeeded);
+        summary.put("valid", batch.valid);
+        summary.put("failed", batch.submitted - batch.succeeded);
+        summary.put("skipped", batch.skipped);
+        summary.put("durationMs", (System.nanoTime() - start) / 1_000_000);
+        batch.writeLine(summary);
+        out.flush();
+
+        log.info("📦 Lot MRZ terminé: {} documents, {} lus, {} valides, {} ignorés en {} ms",
+                batch.submitted, batch.succeeded, batch.valid, batch.skipped, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Les entrées sont lues séquentiellement dans l'archive : une entrée n'est
+     * décompressée que lorsqu'une place se libère dans la fenêtre de traitement
+     */
+    private void submitZipEntries(Batch batch, InputStream archive) throws IOException {
+        try (ZipInputStream zip = new ZipInputStream(archive)) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                String name = entry.getName();
+                if (entry.isDirectory() || name.startsWith("__MACOSX/") || !isImage(name, null)) {
+                    continue;
+                }
+                if (batch.isFull()) {
+                    batch.skipped++;
+                    continue;
+                }
+                batch.awaitSlot();
+                byte[] bytes;
+                try {
+                    bytes = readLimited(zip);
+                } catch (ArchiveTooLargeException e) {
+                    throw e;
+                } catch (IOException e) {
+                    batch.fail(name, e.getMessage());
+                    continue;
+                }
+                batch.submit(name, () -> bytes);
+            }
+        }
+    }
+
+    private byte[] readLimited(InputStream in) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        byte[] chunk = new byte[64 * 1024];
+        int read;
+        while ((read = in.read(chunk)) != -1) {
+            if (buffer.size() + read > maxImageBytes) {
+                throw new IOException("Image trop volumineuse (max " + maxImageBytes + " octets)");
+            }
+            buffer.write(chunk, 0, read);
+        }
+        return buffer.toByteArray();
+    }
+
+    private MrzBatchItem processItem(int index, String fileName, ImageSource source) {
+        long start = System.nanoTime();
+        MrzBatchItem.MrzBatchItemBuilder item = MrzBatchItem.builder().index(index).fileName(fileName);
+        try {
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(source.read()));
+            if (image == null) {
+                item.errorMessage("Impossible de lire l'image");
+            } else {
+                MrzResult result = mrzService.processImage(fileName, image);
+                item.success(result.isSuccess()).errorMessage(result.getErrorMessage()).mrzText(result.getMrzText());
+                if (result.getData() != null) {
+                    item.data(result.getData())
+                            .mrzFormat(result.getData().getMrzFormat())
+                            .valid(result.getData().isValid())
+                            .checkDigits(result.getData().getCheckDigits());
+                }
+            }
+        } catch (Exception e) {
+            item.errorMessage("Erreur MRZ: " + e.getMessage());
+        }
+        return item.durationMs((System.nanoTime() - start) / 1_000_000).build();
+    }
+
+    private static String extension(String fileName) {
+        if (fileName == null) {
+            return "";
+        }
+        int dot = fileName.lastIndexOf('.');
+        return dot >= 0 ? fileName.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+    }
+
+    @FunctionalInterface
+    private interface ImageSource {
+        byte[] read() throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface BatchInput {
+        void submitTo(Batch batch) throws IOException;
+    }
+
+    private static final class ArchiveTooLargeException extends IOException {
+        ArchiveTooLargeException(long limit) {
+            super("Archive trop volumineuse (max " + limit + " octets)");
+        }
+    }
+
+    /**
+     * Compte les octets lus dans le corps de la requête et coupe au-delà de la limite
+     */
+    private static final class BoundedInputStream extends FilterInputStream {
+
+        private final long limit;
+        private long count;
+
+        BoundedInputStream(InputStream in, long limit) {
+            super(in);
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value != -1) {
+                count(1);
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count(read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count(skipped);
+            return skipped;
+        }
+
+        private void count(long read) throws ArchiveTooLargeException {
+            count += read;
+            if (count > limit) {
+                throw new ArchiveTooLargeException(limit);
+            }
+        }
+    }
+
+    /**
+     * Fenêtre de documents en cours ; seul le thread qui écrit la réponse la manipule
+     */
+    private final class Batch {
+
+        private final OutputStream out;
+        private final BlockingQueue<MrzBatchItem> completed = new LinkedBlockingQueue<>();
+        private final List<Future<?>> futures = new ArrayList<>();
+        private int inFlight;
+        private int submitted;
+        private int succeeded;
+        private int valid;
+        private int skipped;
+
+        Batch(OutputStream out) {
+            this.out = out;
+        }
+
+        boolean isFull() {
+            return submitted >= maxItems;
+        }
+
+        void submit(String fileName, ImageSource source) throws IOException {
+            if (isFull()) {
+                skipped++;
+                return;
+            }
+            awaitSlot();
+            int index = ++submitted;
+            inFlight++;
+            futures.add(executor.submit(() -> {
+                MrzBatchItem item;
+                try {
+                    item = processItem(index, fileName, source);
+                } catch (RuntimeException | Error e) {
+                    item = MrzBatchItem.builder().index(index).fileName(fileName)
+                            .errorMessage("Erreur MRZ: " + e.getMessage()).build();
+                }
+                // Toujours publié : le thread qui écrit la réponse attend un résultat par document
+                completed.add(item);
+            }));
+        }
+
+        /**
+         * Document rejeté avant traitement (type non supporté, lecture de l'archive en échec)
+         */
+        void fail(String fileName, String message) throws IOException {
+            if (isFull()) {
+                skipped++;
+                return;
+            }
+            write(MrzBatchItem.builder().index(++submitted).fileName(fileName).errorMessage(message).build());
+        }
+
+        /**
+         * Attend qu'une place se libère en écrivant les résultats déjà prêts
+         */
+        void awaitSlot() throws IOException {
+            MrzBatchItem item;
+            while ((item = completed.poll()) != null) {
+                writeCompleted(item);
+            }
+            while (inFlight >= Math.max(1, concurrency)) {
+                writeCompleted(take());
+            }
+        }
+
+        void drain() throws IOException {
+            while (inFlight > 0) {
+                writeCompleted(take());
+            }
+        }
+
+        void cancel() {
+            // Client déconnecté ou erreur : inutile de finir les documents restants
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+        }
+
+        private MrzBatchItem take() throws IOException {
+            try {
+                return completed.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Traitement MRZ par lots interrompu", e);
+            }
+        }
+
+        private void writeCompleted(MrzBatchItem item) throws IOException {
+            inFlight--;
+            write(item);
+        }
+
+        private void write(MrzBatchItem item) throws IOException {
+            if (item.isSuccess()) {
+                succeeded++;
+            }
+            if (item.isValid()) {
+                valid++;
+            }
+            writeLine(item);
+            out.flush();
+        }
+
+        void writeLine(Object value) throws IOException {
+            out.write(objectMapper.writeValueAsString(value).getBytes(StandardCharsets.UTF_8));
+            out.write(NEWLINE);
+        }
+    }
+}
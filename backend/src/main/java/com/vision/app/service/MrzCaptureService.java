@@ -0,0 +1,187 @@
+package com.vision.app.service;
+
+import com.vision.app.util.OpenCvUtils;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Capture MRZ sur flux caméra (bornes de lecture) : chaque image reçue est
+ * évaluée à faible coût (présence d'une zone MRZ, netteté par variance du
+ * laplacien) et seules les plus prometteuses passent par l'OCR
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MrzCaptureService {
+
+    private final MrzDetector mrzDetector;
+    private final MrzService mrzService;
+
+    @Value("${mrz.capture.min-sharpness:100}")
+    private double minSharpness = 100;
+
+    @Value("${mrz.capture.relative-sharpness:0.8}")
+    private double relativeSharpness = 0.8;
+
+    @Value("${mrz.capture.sharpness-decay:0.95}")
+    private double sharpnessDecay = 0.95;
+
+    @Value("${mrz.capture.max-ocr-attempts:20}")
+    private int maxOcrAttempts = 20;
+
+    @Value("${mrz.capture.ocr-threads:2}")
+    private int ocrThreads = 2;
+
+    private final AtomicInteger activeSessions = new AtomicInteger();
+    private ExecutorService ocrExecutor;
+
+    @PostConstruct
+    public void init() {
+        ocrExecutor = Executors.newFixedThreadPool(Math.max(1, ocrThreads), runnable -> {
+            Thread thread = new Thread(runnable, "mrz-capture-ocr");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ocrExecutor.shutdownNow();
+    }
+
+    /**
+     * Ouvre une session de capture ; les messages sont remis au listener
+     */
+    public MrzCaptureSession openSession(String id, MrzCaptureSession.Listener listener) {
+        activeSessions.incrementAndGet();
+        log.info("📷 Session de capture MRZ ouverte: {}", id);
+        return new MrzCaptureSession(id, this, listener);
+    }
+
+    void sessionClosed(MrzCaptureSession session) {
+        activeSessions.decrementAndGet();
+        log.info("📷 Session de capture MRZ fermée: {} ({} images, {} OCR)", session.getId(),
+                session.getFrames(), session.getOcrAttempts());
+    }
+
+    /**
+     * Évalue une image encodée : zone MRZ (null si absente) et netteté de cette zone
+     */
+    FrameScore score(byte[] frame) throws IOException {
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(frame));
+        if (image == null) {
+            throw new IOException("Image illisible");
+        }
+
+        BufferedImage zone;
+        if (mrzDetector.isAvailable()) {
+            zone = mrzDetector.locate(image);
+            if (zone == null) {
+                return new FrameScore(null, 0);
+            }
+        } else {
+            // Sans OpenCV, la présence n'est pas vérifiable : bas de l'image, comme MrzService
+            int top = (int) (image.getHeight() * 0.8);
+            zone = image.getSubimage(0, top, image.getWidth(), image.getHeight() - top);
+        }
+
+        BufferedImage gray = OpenCvUtils.toGray(zone);
+        return new FrameScore(gray, laplacianVariance(gray));
+    }
+
+    void submitOcr(Runnable task) {
+        ocrExecutor.execute(task);
+    }
+
+    MrzService getMrzService() {
+        return mrzService;
+    }
+
+    double getMinSharpness() {
+        return minSharpness;
+    }
+
+    double getRelativeSharpness() {
+        return relativeSharpness;
+    }
+
+    double getSharpnessDecay() {
+        return sharpnessDecay;
+    }
+
+    int getMaxOcrAttempts() {
+        return maxOcrAttempts;
+    }
+
+    /**
+     * Paramètres et sessions actives
+     */
+    public Map<String, Object> getConfiguration() {
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("activeSessions", activeSessions.get());
+        config.put("minSharpness", minSharpness);
+        config.put("relativeSharpness", relativeSharpness);
+        config.put("maxOcrAttempts", maxOcrAttempts);
+        config.put("ocrThreads", ocrThreads);
+        return config;
+    }
+
+    /**
+     * Variance du laplacien (noyau 4-voisins) : faible sur une image floue
+     */
+    static double laplacianVariance(BufferedImage gray) {
+        int width = gray.getWidth();
+        int height = gray.getHeight();
+        if (width < 3 || height < 3) {
+            return 0;
+        }
+
+        byte[] pixels = ((DataBufferByte) gray.getRaster().getDataBuffer()).getData();
+        double sum = 0;
+        double sumSquares = 0;
+        for (int y = 1; y < height - 1; y++) {
+            int row = y * width;
+            for (int x = 1; x < width - 1; x++) {
+                int i = row + x;
+                int laplacian = 4 * (pixels[i] & 0xFF)
+                        - (pixels[i - 1] & 0xFF) - (pixels[i + 1] & 0xFF)
+                        - (pixels[i - width] & 0xFF) - (pixels[i + width] & 0xFF);
+                sum += laplacian;
+                sumSquares += (double) laplacian * laplacian;
+            }
+        }
+
+        double count = (double) (width - 2) * (height - 2);
+        double mean = sum / count;
+        return sumSquares / count - mean * mean;
+    }
+
+    /**
+     * Zone MRZ d'une image et sa netteté
+     */
+    static final class FrameScore {
+
+        final BufferedImage zone;
+        final double sharpness;
+
+        FrameScore(BufferedImage zone, double sharpness) {
+            this.zone = zone;
+            this.sharpness = sharpness;
+        }
+    }
+}
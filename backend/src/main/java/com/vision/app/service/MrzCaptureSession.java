@@ -0,0 +1,282 @@
+package com.vision.app.service;
+
+import com.vision.app.dto.MrzResult;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Session de capture MRZ d'une borne : une seule lecture OCR à la fois ; pendant
+ * qu'elle tourne, seule la meilleure image arrivée est gardée en attente. La
+ * session se termine dès qu'une lecture passe tous les chiffres de contrôle.
+ * Les images sont reçues séquentiellement ; les fins d'OCR arrivent sur un
+ * autre thread, d'où la synchronisation de l'état partagé.
+ */
+@Slf4j
+public class MrzCaptureSession {
+
+    /**
+     * Destinataire des messages de la session (statut des images, lectures, résultat)
+     */
+    public interface Listener {
+
+        void onMessage(Map<String, Object> message);
+
+        void onFinished();
+    }
+
+    private final String id;
+    private final MrzCaptureService service;
+    private final Listener listener;
+    private final long startTime = System.nanoTime();
+
+    private int frames;
+    private int dropped;
+    private int ocrAttempts;
+    private double referenceSharpness;
+    private boolean ocrRunning;
+    private Candidate pending;
+    private MrzResult best;
+    private boolean finished;
+
+    MrzCaptureSession(String id, MrzCaptureService service, Listener listener) {
+        this.id = id;
+        this.service = service;
+        this.listener = listener;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public synchronized int getFrames() {
+        return frames;
+    }
+
+    public synchronized int getOcrAttempts() {
+        return ocrAttempts;
+    }
+
+    /**
+     * Reçoit une image encodée (JPEG, PNG) ; les images floues ou sans MRZ sont
+     * écartées avant tout OCR
+     */
+    public void onFrame(byte[] data) {
+        int frame;
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            frame = ++frames;
+        }
+
+        MrzCaptureService.FrameScore score;
+        try {
+            score = service.score(data);
+        } catch (Exception e) {
+            drop(frame, "unreadable", 0);
+            return;
+        }
+        if (score.zone == null) {
+            drop(frame, "no_mrz", 0);
+            return;
+        }
+        if (score.sharpness < service.getMinSharpness()) {
+            drop(frame, "blurry", score.sharpness);
+            return;
+        }
+
+        Candidate candidate = new Candidate(frame, score);
+        String status;
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            // Référence décroissante : une image exceptionnelle ne bloque pas les suivantes
+            referenceSharpness = Math.max(score.sharpness, referenceSharpness * service.getSharpnessDecay());
+            if (score.sharpness < referenceSharpness * service.getRelativeSharpness()) {
+                dropped++;
+                status = "below_best";
+            } else if (ocrRunning) {
+                if (pending == null || score.sharpness > pending.score.sharpness) {
+                    pending = candidate;
+                }
+                status = "queued";
+            } else {
+                ocrRunning = true;
+                status = "ocr";
+            }
+        }
+
+        send(frameMessage(frame, status, score.sharpness));
+        if ("ocr".equals(status)) {
+            runOcr(candidate);
+        }
+    }
+
+    /**
+     * Arrêt demandé par la borne : renvoie la meilleure lecture obtenue
+     */
+    public void stop() {
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            pending = null;
+        }
+        finish("stopped");
+    }
+
+    /**
+     * Connexion fermée côté client
+     */
+    public void close() {
+        synchronized (this) {
+            finished = true;
+            pending = null;
+        }
+        service.sessionClosed(this);
+    }
+
+    private void runOcr(Candidate candidate) {
+        try {
+            service.submitOcr(() -> {
+                MrzResult result;
+                try {
+                    result = service.getMrzService().processZone("frame-" + candidate.frame, candidate.score.zone);
+                } catch (RuntimeException e) {
+                    result = MrzResult.builder().success(false).errorMessage(e.getMessage()).build();
+                }
+                onOcrCompleted(candidate, result);
+            });
+        } catch (RuntimeException e) {
+            // Exécuteur arrêté : la session ne peut plus progresser
+            log.warn("Capture MRZ {}: OCR indisponible: {}", id, e.getMessage());
+            stop();
+        }
+    }
+
+    private void onOcrCompleted(Candidate candidate, MrzResult result) {
+        boolean valid = result.isSuccess() && result.getData() != null && result.getData().isValid();
+        Candidate next = null;
+        String reason = null;
+        synchronized (this) {
+            ocrAttempts++;
+            if (isBetter(result, best)) {
+                best = result;
+            }
+            if (finished) {
+                return;
+            }
+            if (valid) {
+                reason = "valid";
+            } else if (ocrAttempts >= service.getMaxOcrAttempts()) {
+                reason = "max_attempts";
+            } else {
+                next = pending;
+                pending = null;
+                ocrRunning = next != null;
+            }
+            if (reason != null) {
+                finished = true;
+                pending = null;
+            }
+        }
+
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("type", "attempt");
+        message.put("frame", candidate.frame);
+        message.put("sharpness", Math.round(candidate.score.sharpness));
+        message.put("success", result.isSuccess());
+        message.put("valid", valid);
+        if (result.getData() != null) {
+            message.put("checkDigits", result.getData().getCheckDigits());
+        }
+        send(message);
+
+        if (reason != null) {
+            finish(reason);
+        } else if (next != null) {
+            runOcr(next);
+        }
+    }
+
+    private void finish(String reason) {
+        MrzResult result;
+        synchronized (this) {
+            result = best;
+        }
+
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("type", "result");
+        message.put("reason", reason);
+        message.put("valid", result != null && result.getData() != null && result.getData().isValid());
+        message.put("result", result);
+        synchronized (this) {
+            message.put("frames", frames);
+            message.put("dropped", dropped);
+            message.put("ocrAttempts", ocrAttempts);
+        }
+        message.put("durationMs", (System.nanoTime() - startTime) / 1_000_000);
+        send(message);
+        listener.onFinished();
+    }
+
+    private void drop(int frame, String status, double sharpness) {
+        synchronized (this) {
+            dropped++;
+        }
+        send(frameMessage(frame, status, sharpness));
+    }
+
+    private Map<String, Object> frameMessage(int frame, String status, double sharpness) {
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("type", "frame");
+        message.put("frame", frame);
+        message.put("status", status);
+        message.put("sharpness", Math.round(sharpness));
+        return message;
+    }
+
+    private void send(Map<String, Object> message) {
+        try {
+            listener.onMessage(message);
+        } catch (RuntimeException e) {
+            log.debug("Capture MRZ {}: message non envoyé: {}", id, e.getMessage());
+        }
+    }
+
+    /**
+     * Vrai si la lecture est meilleure : valide, ou davantage de contrôles réussis
+     */
+    private static boolean isBetter(MrzResult candidate, MrzResult current) {
+        if (candidate.getData() == null) {
+            return false;
+        }
+        if (current == null || current.getData() == null) {
+            return true;
+        }
+        if (candidate.getData().isValid() != current.getData().isValid()) {
+            return candidate.getData().isValid();
+        }
+        return passedChecks(candidate) > passedChecks(current);
+    }
+
+    private static long passedChecks(MrzResult result) {
+        Map<String, Boolean> checks = result.getData().getCheckDigits();
+        return checks == null ? 0 : checks.values().stream().filter(Boolean.TRUE::equals).count();
+    }
+
+    private static final class Candidate {
+
+        final int frame;
+        final MrzCaptureService.FrameScore score;
+
+        Candidate(int frame, MrzCaptureService.FrameScore score) {
+            this.frame = frame;
+            this.score = score;
+        }
+    }
+}
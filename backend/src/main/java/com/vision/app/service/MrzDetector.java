@@ -0,0 +1,190 @@
+package com.vision.app.service;
+
+import com.vision.app.util.OpenCvUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.MatOfPoint2f;
+import org.opencv.core.Point;
+import org.opencv.core.RotatedRect;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Localise la zone MRZ d'un document (blackhat + gradient horizontal + fermeture
+ * morphologique) et en extrait un recadrage serré et redressé
+ */
+@Component
+@Slf4j
+public class MrzDetector {
+
+    @Value("${mrz.detect.working-height:600}")
+    private int workingHeight = 600;
+
+    @Value("${mrz.detect.min-aspect-ratio:4.0}")
+    private double minAspectRatio = 4.0;
+
+    @Value("${mrz.detect.min-width-ratio:0.25}")
+    private double minWidthRatio = 0.25;
+
+    @Value("${mrz.detect.padding-x:0.03}")
+    private double paddingX = 0.03;
+
+    @Value("${mrz.detect.padding-y:0.15}")
+    private double paddingY = 0.15;
+
+    public boolean isAvailable() {
+        return OpenCvUtils.isAvailable();
+    }
+
+    /**
+     * Retourne la zone MRZ redressée, en niveaux de gris et en pleine résolution,
+     * ou null si aucune zone plausible n'est trouvée
+     */
+    public BufferedImage locate(BufferedImage image) {
+        if (!isAvailable()) {
+            return null;
+        }
+
+        List<Mat> mats = new ArrayList<>();
+        try {
+            Mat gray = track(mats, OpenCvUtils.toGrayMat(image));
+
+            // Les noyaux sont dimensionnés pour une hauteur de travail fixe
+            double scale = Math.min(1.0, (double) workingHeight / image.getHeight());
+            Mat small = gray;
+            if (scale < 1.0) {
+                small = track(mats, new Mat());
+                Imgproc.resize(gray, small, new Size(), scale, scale, Imgproc.INTER_AREA);
+            }
+
+            Mat rectKernel = track(mats, Imgproc.getStructuringElement(Imgproc.MORPH_RECT, new Size(13, 5)));
+            Mat squareKernel = track(mats, Imgproc.getStructuringElement(Imgproc.MORPH_RECT, new Size(21, 21)));
+            Mat defaultKernel = track(mats, new Mat());
+
+            // Blackhat : texte sombre sur fond clair
+            Mat blurred = track(mats, new Mat());
+            Mat blackhat = track(mats, new Mat());
+            Imgproc.GaussianBlur(small, blurred, new Size(3, 3), 0);
+            Imgproc.morphologyEx(blurred, blackhat, Imgproc.MORPH_BLACKHAT, rectKernel);
+
+            // Gradient horizontal : les caractères régulièrement espacés de la MRZ ressortent
+            Mat gradX = track(mats, new Mat());
+            Imgproc.Sobel(blackhat, gradX, CvType.CV_32F, 1, 0, -1);
+            Core.absdiff(gradX, Scalar.all(0), gradX);
+            Core.MinMaxLocResult range = Core.minMaxLoc(gradX);
+            double span = range.maxVal - range.minVal;
+            if (span <= 0) {
+                return null;
+            }
+            Mat gradient = track(mats, new Mat());
+            gradX.convertTo(gradient, CvType.CV_8U, 255.0 / span, -range.minVal * 255.0 / span);
+
+            // Fusion des caractères en lignes, puis des lignes en un seul bloc
+            Mat thresh = track(mats, new Mat());
+            Imgproc.morphologyEx(gradient, gradient, Imgproc.MORPH_CLOSE, rectKernel);
+            Imgproc.threshold(gradient, thresh, 0, 255, Imgproc.THRESH_BINARY | Imgproc.THRESH_OTSU);
+            Imgproc.morphologyEx(thresh, thresh, Imgproc.MORPH_CLOSE, squareKernel);
+            Imgproc.erode(thresh, thresh, defaultKernel, new Point(-1, -1), 4);
+
+            // Les bords de l'image produisent souvent de faux gradients
+            int border = (int) (thresh.cols() * 0.03);
+            if (border > 0) {
+                track(mats, thresh.colRange(0, border)).setTo(Scalar.all(0));
+                track(mats, thresh.colRange(thresh.cols() - border, thresh.cols())).setTo(Scalar.all(0));
+            }
+
+            List<MatOfPoint> contours = new ArrayList<>();
+            Mat hierarchy = track(mats, new Mat());
+            Imgproc.findContours(thresh, contours, hierarchy, Imgproc.RETR_EXTERNAL, Imgproc.CHAIN_APPROX_SIMPLE);
+
+            double longestSide = Math.max(small.cols(), small.rows());
+            RotatedRect best = null;
+            for (MatOfPoint contour : contours) {
+                MatOfPoint2f points = new MatOfPoint2f(contour.toArray());
+                RotatedRect box = horizontal(Imgproc.minAreaRect(points));
+                points.release();
+                contour.release();
+
+                double aspect = box.size.width / Math.max(1.0, box.size.height);
+                if (aspect < minAspectRatio || box.size.width < minWidthRatio * longestSide) {
+                    continue;
+                }
+                if (best == null || box.size.area() > best.size.area()) {
+                    best = box;
+                }
+            }
+
+            if (best == null) {
+                log.debug("No MRZ candidate among {} contours", contours.size());
+                return null;
+            }
+
+            log.debug("MRZ located at ({}, {}) size {}x{} angle {}", best.center.x / scale, best.center.y / scale,
+                    best.size.width / scale, best.size.height / scale, best.angle);
+            return extract(gray, best, scale, mats);
+
+        } catch (Exception e) {
+            log.warn("MRZ detection failed: {}", e.getMessage());
+            return null;
+        } finally {
+            for (Mat mat : mats) {
+                mat.release();
+            }
+        }
+    }
+
+    /**
+     * Oriente le rectangle pour que son grand côté soit horizontal, avec l'angle
+     * de redressement le plus faible (entre -90 et 90 degrés)
+     */
+    private static RotatedRect horizontal(RotatedRect box) {
+        double width = box.size.width;
+        double height = box.size.height;
+        double angle = box.angle;
+        if (width < height) {
+            width = box.size.height;
+            height = box.size.width;
+            angle += 90;
+        }
+        while (angle > 90) {
+            angle -= 180;
+        }
+        while (angle <= -90) {
+            angle += 180;
+        }
+        return new RotatedRect(box.center, new Size(width, height), angle);
+    }
+
+    /**
+     * Découpe et redresse la zone en une seule transformation affine sur l'image d'origine
+     */
+    private BufferedImage extract(Mat gray, RotatedRect box, double scale, List<Mat> mats) {
+        double centerX = box.center.x / scale;
+        double centerY = box.center.y / scale;
+        int width = (int) Math.round(box.size.width / scale * (1 + 2 * paddingX));
+        int height = (int) Math.round(box.size.height / scale * (1 + 2 * paddingY));
+
+        Mat rotation = track(mats, Imgproc.getRotationMatrix2D(new Point(centerX, centerY), box.angle, 1.0));
+        rotation.put(0, 2, rotation.get(0, 2)[0] + width / 2.0 - centerX);
+        rotation.put(1, 2, rotation.get(1, 2)[0] + height / 2.0 - centerY);
+
+        Mat crop = track(mats, new Mat());
+        Imgproc.warpAffine(gray, crop, rotation, new Size(width, height), Imgproc.INTER_LINEAR, Core.BORDER_REPLICATE);
+        return OpenCvUtils.toBufferedImage(crop);
+    }
+
+    private static Mat track(List<Mat> mats, Mat mat) {
+        mats.add(mat);
+        return mat;
+    }
+}
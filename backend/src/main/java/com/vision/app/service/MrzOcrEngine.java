@@ -0,0 +1,253 @@
+package com.vision.app.service;
+
+import com.sun.jna.Pointer;
+import com.vision.app.util.OpenCvUtils;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import net.sourceforge.tess4j.ITessAPI;
+import net.sourceforge.tess4j.TessAPI1;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reconnaissance OCR dédiée aux zones MRZ.
+ * Les moteurs Tesseract restent initialisés (données OCR-B / MRZ chargées une
+ * seule fois) et sont partagés via un pool ; l'image en niveaux de gris leur est
+ * transmise directement, sans ré-encodage, avec la liste blanche [A-Z0-9<] et une
+ * segmentation en bloc unique.
+ */
+@Component
+@Slf4j
+public class MrzOcrEngine {
+
+    private static final String MRZ_WHITELIST = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789<";
+
+    @Value("${mrz.ocr.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${tesseract.data.path:./tessdata}")
+    private String tessDataPath = "./tessdata";
+
+    @Value("${mrz.ocr.language:mrz}")
+    private String language = "mrz";
+
+    @Value("${mrz.ocr.fallback-language:eng}")
+    private String fallbackLanguage = "eng";
+
+    @Value("${mrz.ocr.pool-size:2}")
+    private int poolSize = 2;
+
+    @Value("${mrz.ocr.acquire-timeout-ms:5000}")
+    private long acquireTimeoutMs = 5000;
+
+    private final BlockingQueue<Recognizer> idle = new LinkedBlockingQueue<>();
+    private final AtomicInteger created = new AtomicInteger();
+
+    // Création d'un moteur Tesseract natif (remplacée dans les tests)
+    private EngineFactory engineFactory = Engine::new;
+
+    private Boolean available;
+    private String dataPath;
+    private String effectiveLanguage;
+
+    /**
+     * Vérifie qu'un répertoire tessdata contenant les données MRZ (ou de repli) existe
+     */
+    public synchronized boolean isAvailable() {
+        if (available == null) {
+            available = enabled && resolveTrainedData();
+        }
+        return available;
+    }
+
+    /**
+     * Reconnaît le texte d'une zone MRZ ; null si le moteur est indisponible
+     */
+    public String recognize(BufferedImage mrzZone) {
+        if (!isAvailable()) {
+            return null;
+        }
+
+        Recognizer engine;
+        try {
+            engine = acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Throwable t) {
+            log.warn("MRZ OCR engine unavailable: {}", t.getMessage());
+            markUnavailable();
+            return null;
+        }
+        if (engine == null) {
+            log.warn("No MRZ OCR engine free after {} ms", acquireTimeoutMs);
+            return null;
+        }
+
+        try {
+            long start = System.nanoTime();
+            String text = engine.recognize(OpenCvUtils.toGray(mrzZone));
+            log.debug("MRZ OCR completed in {} ms", (System.nanoTime() - start) / 1_000_000);
+            return text;
+        } finally {
+            idle.offer(engine);
+        }
+    }
+
+    /**
+     * Informations de configuration du moteur MRZ
+     */
+    public Map<String, Object> getConfiguration() {
+        Map<String, Object> config = new HashMap<>();
+        config.put("available", isAvailable());
+        config.put("language", effectiveLanguage);
+        config.put("dataPath", dataPath);
+        config.put("poolSize", poolSize);
+        config.put("engines", created.get());
+        return config;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        Recognizer engine;
+        while ((engine = idle.poll()) != null) {
+            engine.close();
+        }
+    }
+
+    private Recognizer acquire() throws InterruptedException {
+        Recognizer engine = idle.poll();
+        if (engine != null) {
+            return engine;
+        }
+
+        // Création paresseuse jusqu'à la taille du pool
+        int count = created.get();
+        while (count < poolSize) {
+            if (created.compareAndSet(count, count + 1)) {
+                try {
+                    return engineFactory.create(dataPath, effectiveLanguage);
+                } catch (RuntimeException | Error e) {
+                    created.decrementAndGet();
+                    throw e;
+                }
+            }
+            count = created.get();
+        }
+        return idle.poll(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void markUnavailable() {
+        available = false;
+    }
+
+    /**
+     * Cherche les données MRZ dédiées, sinon la langue de repli
+     */
+    private boolean resolveTrainedData() {
+        String[] candidates = {
+                tessDataPath,
+                System.getenv("TESSDATA_PREFIX"),
+                "/usr/share/tessdata",
+                "/usr/share/tesseract-ocr/5/tessdata",
+                "/usr/share/tesseract-ocr/4.00/tessdata",
+                "/usr/local/share/tessdata",
+                "./tessdata"
+        };
+
+        for (String lang : new String[] { language, fallbackLanguage }) {
+            for (String path : candidates) {
+                if (path != null && new File(path, lang + ".traineddata").isFile()) {
+                    dataPath = path;
+                    effectiveLanguage = lang;
+                    if (!lang.equals(language)) {
+                        log.warn("⚠️ {}.traineddata not found, MRZ OCR uses {} with a character whitelist",
+                                language, lang);
+                    }
+                    log.info("✅ MRZ OCR engine configured with {} from {}", lang, path);
+                    return true;
+                }
+            }
+        }
+
+        log.warn("⚠️ No traineddata found for MRZ OCR, falling back to the general OCR service");
+        return false;
+    }
+
+    /**
+     * Moteur du pool : utilisé par un seul thread à la fois
+     */
+    interface Recognizer {
+
+        String recognize(BufferedImage gray);
+
+        void close();
+    }
+
+    @FunctionalInterface
+    interface EngineFactory {
+        Recognizer create(String dataPath, String language);
+    }
+
+    /**
+     * Instance Tesseract initialisée une fois et réutilisée (non thread-safe)
+     */
+    private static final class Engine implements Recognizer {
+
+        private final ITessAPI.TessBaseAPI handle;
+        private ByteBuffer buffer;
+
+        Engine(String dataPath, String language) {
+            handle = TessAPI1.TessBaseAPICreate();
+            if (TessAPI1.TessBaseAPIInit2(handle, dataPath, language, ITessAPI.TessOcrEngineMode.OEM_LSTM_ONLY) != 0) {
+                TessAPI1.TessBaseAPIDelete(handle);
+                throw new IllegalStateException("Tesseract initialization failed for " + language);
+            }
+            TessAPI1.TessBaseAPISetPageSegMode(handle, ITessAPI.TessPageSegMode.PSM_SINGLE_BLOCK);
+            TessAPI1.TessBaseAPISetVariable(handle, "tessedit_char_whitelist", MRZ_WHITELIST);
+        }
+
+        @Override
+        public String recognize(BufferedImage gray) {
+            int width = gray.getWidth();
+            int height = gray.getHeight();
+            byte[] pixels = ((DataBufferByte) gray.getRaster().getDataBuffer()).getData();
+
+            if (buffer == null || buffer.capacity() < pixels.length) {
+                buffer = ByteBuffer.allocateDirect(pixels.length);
+            }
+            buffer.clear();
+            buffer.put(pixels, 0, width * height).flip();
+
+            TessAPI1.TessBaseAPISetImage(handle, buffer, width, height, 1, width);
+            TessAPI1.TessBaseAPISetSourceResolution(handle, 300);
+            Pointer text = TessAPI1.TessBaseAPIGetUTF8Text(handle);
+            try {
+                return text != null ? text.getString(0, StandardCharsets.UTF_8.name()) : null;
+            } finally {
+                if (text != null) {
+                    TessAPI1.TessDeleteText(text);
+                }
+                TessAPI1.TessBaseAPIClear(handle);
+            }
+        }
+
+        @Override
+        public void close() {
+            TessAPI1.TessBaseAPIEnd(handle);
+            TessAPI1.TessBaseAPIDelete(handle);
+        }
+    }
+}
@@ -7,15 +7,13 @@ import org.springframework.web.multipart.MultipartFile;
 
 import com.vision.app.dto.MrzResult;
 import com.vision.app.dto.MrzData;
-import com.vision.app.model.DocumentType;
+import com.vision.app.util.MrzParser;
+import com.vision.app.util.MrzRecord;
 
 import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Service pour la détection et extraction MRZ (Machine Readable Zone)
@@ -26,19 +24,16 @@ import java.util.regex.Pattern;
 public class MrzService {
 
     private final OcrService ocrService;
+    private final MrzDetector mrzDetector;
+    private final MrzOcrEngine mrzOcrEngine;
 
     @Autowired
-    public MrzService(OcrService ocrService) {
+    public MrzService(OcrService ocrService, MrzDetector mrzDetector, MrzOcrEngine mrzOcrEngine) {
         this.ocrService = ocrService;
+        this.mrzDetector = mrzDetector;
+        this.mrzOcrEngine = mrzOcrEngine;
     }
 
-    // Patterns MRZ pour différents types de documents
-    private static final Pattern PASSPORT_PATTERN = Pattern.compile(
-            "^[A-Z0-9<]{9}[0-9][A-Z0-9<]{3}[0-9]{6}[A-Z0-9<]{14}[0-9][0-9]$");
-
-    private static final Pattern ID_CARD_PATTERN = Pattern.compile(
-            "^[A-Z0-9<]{9}[0-9][A-Z0-9<]{3}[0-9]{6}[A-Z0-9<]{14}[0-9][0-9]$");
-
     /**
      * Traite un document et extrait les informations MRZ
      */
@@ -52,33 +47,74 @@ public class MrzService {
                 throw new IOException("Impossible de lire l'image");
             }
 
+            return processImage(file.getOriginalFilename(), image);
+
+        } catch (Exception e) {
+            log.error("Erreur lors du traitement MRZ du document {}: {}", file.getOriginalFilename(), e.getMessage());
+            return createErrorResult(file.getOriginalFilename(), "Erreur MRZ: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Extrait les informations MRZ d'une image déjà décodée
+     */
+    public MrzResult processImage(String fileName, BufferedImage image) {
+        try {
             // Détecter la zone MRZ
             BufferedImage mrzZone = detectMrzZone(image);
             if (mrzZone == null) {
-                return createErrorResult(file.getOriginalFilename(), "Zone MRZ non détectée");
+                return createErrorResult(fileName, "Zone MRZ non détectée");
             }
 
-            // Extraire le texte MRZ
-            String mrzText = extractMrzText(mrzZone);
-            if (mrzText == null || mrzText.trim().isEmpty()) {
-                return createErrorResult(file.getOriginalFilename(), "Texte MRZ non extrait");
+            return processZone(fileName, mrzZone);
+
+        } catch (Exception e) {
+            log.error("Erreur lors du traitement MRZ du document {}: {}", fileName, e.getMessage());
+            return createErrorResult(fileName, "Erreur MRZ: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Lit une zone MRZ déjà localisée (OCR, analyse et chiffres de contrôle)
+     */
+    public MrzResult processZone(String fileName, BufferedImage mrzZone) {
+        try {
+            // Extraire et parser le texte MRZ ; une lecture valide est acceptée immédiatement
+            String rawText = extractMrzText(mrzZone);
+            MrzRecord record = parseMrzRecord(rawText);
+
+            // Chiffres de contrôle en échec : nouvelle lecture sur la zone retournée
+            if (record == null || !record.isValid()) {
+                log.debug("MRZ invalide, nouvelle tentative sur la zone retournée de 180°");
+                String rotatedText = extractMrzText(rotate180(mrzZone));
+                MrzRecord rotated = parseMrzRecord(rotatedText);
+                if (isBetter(rotated, record)) {
+                    rawText = rotatedText;
+                    record = rotated;
+                }
             }
 
-            // Parser les informations MRZ
-            MrzData mrzData = parseMrzData(mrzText);
+            if (rawText == null || rawText.trim().isEmpty()) {
+                return createErrorResult(fileName, "Texte MRZ non extrait");
+            }
+            if (record == null) {
+                return createErrorResult(fileName, "Format MRZ invalide");
+            }
 
-            log.info("Document MRZ traité avec succès: {}", file.getOriginalFilename());
+            MrzData mrzData = record.toMrzData();
+            log.info("Document MRZ traité avec succès: {} ({}, chiffres de contrôle {})",
+                    fileName, mrzData.getMrzFormat(), mrzData.isValid() ? "valides" : "invalides");
 
             return MrzResult.builder()
-                    .fileName(file.getOriginalFilename())
+                    .fileName(fileName)
                     .success(true)
-                    .mrzText(mrzText)
+                    .mrzText(record.toMrzText())
                     .data(mrzData)
                     .build();
 
         } catch (Exception e) {
-            log.error("Erreur lors du traitement MRZ du document {}: {}", file.getOriginalFilename(), e.getMessage());
-            return createErrorResult(file.getOriginalFilename(), "Erreur MRZ: " + e.getMessage());
+            log.error("Erreur lors du traitement MRZ du document {}: {}", fileName, e.getMessage());
+            return createErrorResult(fileName, "Erreur MRZ: " + e.getMessage());
         }
     }
 
@@ -87,9 +123,15 @@ public class MrzService {
      */
     private BufferedImage detectMrzZone(BufferedImage image) {
         try {
-            // Pour l'instant, nous utilisons une approche simple
-            // En production, on pourrait utiliser OpenCV pour une détection plus précise
+            // Localisation OpenCV : zone serrée et redressée, où qu'elle soit sur le document
+            BufferedImage located = mrzDetector.locate(image);
+            if (located != null) {
+                log.debug("Zone MRZ localisée: {}x{}", located.getWidth(), located.getHeight());
+                return located;
+            }
 
+            // Repli (OpenCV indisponible ou zone non trouvée) : bas de l'image
+            log.debug("Zone MRZ non localisée, utilisation du bas de l'image");
             int width = image.getWidth();
             int height = image.getHeight();
 
@@ -107,11 +149,17 @@ public class MrzService {
     }
 
     /**
-     * Extrait le texte MRZ de l'image
+     * Extrait le texte OCR brut de la zone MRZ (filtré ensuite par le parseur)
      */
     private String extractMrzText(BufferedImage mrzZone) {
         try {
-            // Utiliser le service OCR existant avec des paramètres optimisés pour le MRZ
+            // Voie rapide : moteur MRZ dédié, sur le raster directement
+            String recognized = mrzOcrEngine.recognize(mrzZone);
+            if (recognized != null) {
+                return recognized;
+            }
+
+            // Repli : utiliser le service OCR existant avec des paramètres optimisés pour le MRZ
             // Convertir l'image en bytes pour utiliser le service OCR
             java.io.ByteArrayOutputStream baos = new java.io.ByteArrayOutputStream();
             ImageIO.write(mrzZone, "png", baos);
@@ -122,7 +170,7 @@ public class MrzService {
                     imageBytes, "mrz_zone.png");
 
             if (ocrResult.isSuccess()) {
-                return cleanMrzText(ocrResult.getText());
+                return ocrResult.getText();
             } else {
                 log.error("Échec de l'extraction OCR MRZ: {}", ocrResult.getErrorMessage());
                 return null;
@@ -135,180 +183,38 @@ public class MrzService {
     }
 
     /**
-     * Nettoie le texte MRZ extrait
+     * Parse le texte OCR brut (TD1, TD2, TD3) et vérifie les chiffres de contrôle
      */
-    private String cleanMrzText(String text) {
-        if (text == null)
-            return null;
-
-        // Supprimer les caractères non-ASCII et les espaces
-        String cleaned = text.replaceAll("[^A-Z0-9<]", "").trim();
-
-        // Supprimer les lignes vides et les caractères de contrôle
-        cleaned = cleaned.replaceAll("\\s+", "");
-
-        return cleaned;
+    private MrzRecord parseMrzRecord(String rawText) {
+        return rawText == null || rawText.isEmpty() ? null : MrzParser.parseRecord(rawText);
     }
 
     /**
-     * Parse les données MRZ extraites
+     * Vrai si la nouvelle lecture est meilleure : valide, ou davantage de contrôles réussis
      */
-    private MrzData parseMrzData(String mrzText) {
-        try {
-            // Diviser le texte MRZ en lignes
-            String[] lines = mrzText.split("(?<=\\G.{44})");
-
-            if (lines.length < 2) {
-                throw new IllegalArgumentException("Format MRZ invalide");
-            }
-
-            // Détecter le type de document
-            DocumentType documentType = detectDocumentType(lines[0]);
-
-            // Parser selon le type de document
-            switch (documentType) {
-                case PASSPORT:
-                    return parsePassportMrz(lines);
-                case ID_CARD:
-                    return parseIdCardMrz(lines);
-                default:
-                    throw new IllegalArgumentException("Type de document non supporté");
-            }
-
-        } catch (Exception e) {
-            log.error("Erreur lors du parsing MRZ: {}", e.getMessage());
-            throw new RuntimeException("Erreur parsing MRZ: " + e.getMessage());
-        }
-    }
-
-    /**
-     * Détecte le type de document basé sur le format MRZ
-     */
-    private DocumentType detectDocumentType(String firstLine) {
-        if (firstLine.startsWith("P")) {
-            return DocumentType.PASSPORT;
-        } else if (firstLine.startsWith("I") || firstLine.startsWith("A")) {
-            return DocumentType.ID_CARD;
-        } else {
-            return DocumentType.UNKNOWN;
-        }
-    }
-
-    /**
-     * Parse les données MRZ d'un passeport
-     */
-    private MrzData parsePassportMrz(String[] lines) {
-        if (lines.length < 2) {
-            throw new IllegalArgumentException("Format passeport MRZ invalide");
+    private boolean isBetter(MrzRecord candidate, MrzRecord current) {
+        if (candidate == null) {
+            return false;
         }
-
-        String line1 = lines[0];
-        String line2 = lines[1];
-
-        return MrzData.builder()
-                .documentType(DocumentType.PASSPORT)
-                .issuingCountry(extractIssuingCountry(line1))
-                .surname(extractSurname(line1))
-                .givenNames(extractGivenNames(line1))
-                .documentNumber(extractDocumentNumber(line2))
-                .nationality(extractNationality(line2))
-                .dateOfBirth(extractDateOfBirth(line2))
-                .gender(extractGender(line2))
-                .expiryDate(extractExpiryDate(line2))
-                .personalNumber(extractPersonalNumber(line2))
-                .build();
-    }
-
-    /**
-     * Parse les données MRZ d'une carte d'identité
-     */
-    private MrzData parseIdCardMrz(String[] lines) {
-        if (lines.length < 2) {
-            throw new IllegalArgumentException("Format CNI MRZ invalide");
+        if (current == null) {
+            return true;
         }
-
-        String line1 = lines[0];
-        String line2 = lines[1];
-
-        return MrzData.builder()
-                .documentType(DocumentType.ID_CARD)
-                .issuingCountry(extractIssuingCountry(line1))
-                .surname(extractSurname(line1))
-                .givenNames(extractGivenNames(line1))
-                .documentNumber(extractDocumentNumber(line2))
-                .nationality(extractNationality(line2))
-                .dateOfBirth(extractDateOfBirth(line2))
-                .gender(extractGender(line2))
-                .expiryDate(extractExpiryDate(line2))
-                .personalNumber(extractPersonalNumber(line2))
-                .build();
-    }
-
-    // Méthodes d'extraction des champs MRZ
-    private String extractIssuingCountry(String line) {
-        return line.substring(2, 5).replace("<", "");
-    }
-
-    private String extractSurname(String line) {
-        String surname = line.substring(5, 44).split("<<")[0];
-        return surname.replace("<", " ").trim();
-    }
-
-    private String extractGivenNames(String line) {
-        String[] parts = line.substring(5, 44).split("<<");
-        if (parts.length > 1) {
-            return parts[1].replace("<", " ").trim();
+        if (candidate.isValid() != current.isValid()) {
+            return candidate.isValid();
         }
-        return "";
-    }
-
-    private String extractDocumentNumber(String line) {
-        return line.substring(0, 9).replace("<", "");
-    }
-
-    private String extractNationality(String line) {
-        return line.substring(10, 13).replace("<", "");
-    }
-
-    private String extractDateOfBirth(String line) {
-        String dob = line.substring(13, 19);
-        return formatDate(dob);
-    }
-
-    private String extractGender(String line) {
-        String gender = line.substring(20, 21);
-        return gender.equals("M") ? "MALE" : gender.equals("F") ? "FEMALE" : "UNSPECIFIED";
-    }
-
-    private String extractExpiryDate(String line) {
-        String expiry = line.substring(21, 27);
-        return formatDate(expiry);
-    }
-
-    private String extractPersonalNumber(String line) {
-        return line.substring(28, 42).replace("<", "");
+        return candidate.getPassedChecks() > current.getPassedChecks();
     }
 
     /**
-     * Formate une date MRZ (YYMMDD) en format lisible
+     * Retourne la zone de 180° (document présenté à l'envers)
      */
-    private String formatDate(String mrzDate) {
-        if (mrzDate == null || mrzDate.length() != 6) {
-            return mrzDate;
-        }
-
-        try {
-            int year = Integer.parseInt(mrzDate.substring(0, 2));
-            int month = Integer.parseInt(mrzDate.substring(2, 4));
-            int day = Integer.parseInt(mrzDate.substring(4, 6));
-
-            // Ajouter 2000 pour les années 00-99
-            year += 2000;
-
-            return String.format("%04d-%02d-%02d", year, month, day);
-        } catch (NumberFormatException e) {
-            return mrzDate;
-        }
+    private BufferedImage rotate180(BufferedImage image) {
+        BufferedImage rotated = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g2d = rotated.createGraphics();
+        g2d.rotate(Math.PI, image.getWidth() / 2.0, image.getHeight() / 2.0);
+        g2d.drawImage(image, 0, 0, null);
+        g2d.dispose();
+        return rotated;
     }
 
     /**
@@ -342,6 +248,6 @@ public class MrzService {
             return false;
         }
 
-        return true;
+        return mrzData.isValid();
     }
 }
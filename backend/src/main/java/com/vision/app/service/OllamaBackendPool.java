@@ -0,0 +1,368 @@
+package com.vision.app.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.ConnectTimeoutException;
+import org.apache.hc.core5.http.RequestNotExecutedException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+/**
+ * Pool de serveurs Ollama : chaque appel part vers le serveur qui a le moins de
+ * requêtes en cours, de préférence un serveur où le modèle est déjà chargé
+ * (/api/ps, réponses servies). Un serveur injoignable est écarté pendant un
+ * temps (détection passive, sur les appels eux-mêmes) et l'appel est rejoué
+ * sur un autre serveur.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OllamaBackendPool {
+
+    private final OllamaHttpClient httpClient;
+
+    @Value("${ollama.url:http://localhost:11434/api/generate}")
+    private String ollamaUrl = "http://localhost:11434/api/generate";
+
+    // Serveurs du pool, séparés par des virgules (vide : ollama.url seul)
+    @Value("${ollama.backends:}")
+    private String backendUrls = "";
+
+    @Value("${ollama.pool.eject-after-failures:1}")
+    private int ejectAfterFailures = 1;
+
+    @Value("${ollama.pool.eject-ms:30000}")
+    private long ejectMs = 30_000;
+
+    @Value("${ollama.pool.max-attempts:3}")
+    private int maxAttempts = 3;
+
+    // Un serveur où le modèle est chargé est préféré tant qu'il n'a pas plus de affinity-slack requêtes d'avance
+    @Value("${ollama.pool.affinity-slack:2}")
+    private int affinitySlack = 2;
+
+    @Value("${ollama.pool.refresh-interval-ms:15000}")
+    private long refreshIntervalMs = 15_000;
+
+    private List<Backend> backends = List.of();
+    private final AtomicInteger rotation = new AtomicInteger();
+    private ScheduledExecutorService scheduler;
+
+    private static final class Backend {
+        private final String url;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final Set<String> loadedModels = ConcurrentHashMap.newKeySet();
+        private int consecutiveFailures;
+        private volatile long ejectedUntil;
+
+        Backend(String url) {
+            this.url = url;
+        }
+
+        boolean isEjected(long now) {
+            return ejectedUntil > now;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        List<Backend> configured = new ArrayList<>();
+        Arrays.stream(backendUrls.split(","))
+                .map(String::trim)
+                .filter(url -> !url.isEmpty())
+                .map(OllamaBackendPool::baseUrl)
+                .distinct()
+                .forEach(url -> configured.add(new Backend(url)));
+        if (configured.isEmpty()) {
+            configured.add(new Backend(baseUrl(ollamaUrl)));
+        }
+        backends = List.copyOf(configured);
+        log.info("Ollama backend pool: {}", backends.stream().map(backend -> backend.url).toList());
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ollama-pool");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::refreshLoadedModels, 0, refreshIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * URL de base d'un serveur (une URL d'API comme …/api/generate est ramenée à sa racine)
+     */
+    public static String baseUrl(String url) {
+        int api = url.indexOf("/api/");
+        String base = api >= 0 ? url.substring(0, api) : url;
+        return base.endsWith("/") ? base.substring(0, base.length() - 1) : base;
+    }
+
+    /**
+     * Premier serveur du pool
+     */
+    public String getPrimaryUrl() {
+        return backends.get(0).url;
+    }
+
+    /**
+     * Appel vers un serveur du pool, rejoué ailleurs en cas d'échec de connexion
+     */
+    public <T> CompletableFuture<T> execute(String model, Function<String, CompletableFuture<T>> call) {
+        return execute(model, call, () -> true);
+    }
+
+    /**
+     * Appel vers un serveur du pool ; après un échec de connexion, l'appel n'est
+     * rejoué sur un autre serveur que si retryable le permet encore (flux : rien
+     * reçu). Annuler le future annule la tentative en cours.
+     */
+    public <T> CompletableFuture<T> execute(String model, Function<String, CompletableFuture<T>> call,
+            BooleanSupplier retryable) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        attempt(model, call, retryable, new HashSet<>(), result);
+        return result;
+    }
+
+    /**
+     * Même appel vers chaque serveur non écarté (préchauffage : le modèle doit être
+     * chargé partout où il peut être servi), un future par URL de serveur, terminé
+     * une fois l'état du serveur mis à jour, sans nouvel essai ailleurs ; si tous
+     * sont écartés, celui dont l'éviction se termine le plus tôt
+     */
+    public <T> Map<String, CompletableFuture<T>> executeOnEach(String model,
+            Function<String, CompletableFuture<T>> call) {
+        long now = System.currentTimeMillis();
+        List<Backend> targets = backends.stream().filter(backend -> !backend.isEjected(now)).toList();
+        if (targets.isEmpty()) {
+            targets = List.of(select(model, new HashSet<>()));
+        }
+
+        Map<String, CompletableFuture<T>> calls = new LinkedHashMap<>();
+        for (Backend backend : targets) {
+            backend.outstanding.incrementAndGet();
+            backend.requests.incrementAndGet();
+            CompletableFuture<T> current;
+            try {
+                current = call.apply(backend.url);
+            } catch (RuntimeException e) {
+                current = CompletableFuture.failedFuture(e);
+            }
+            calls.put(backend.url, current.whenComplete((value, error) -> {
+                backend.outstanding.decrementAndGet();
+                if (error == null) {
+                    recordSuccess(backend, model, value);
+                } else if (isConnectionFailure(error)) {
+                    recordFailure(backend, error);
+                }
+            }));
+        }
+        return calls;
+    }
+
+    private <T> void attempt(String model, Function<String, CompletableFuture<T>> call, BooleanSupplier retryable,
+            Set<Backend> tried, CompletableFuture<T> result) {
+        Backend backend = select(model, tried);
+        tried.add(backend);
+        backend.outstanding.incrementAndGet();
+        backend.requests.incrementAndGet();
+
+        CompletableFuture<T> current;
+        try {
+            current = call.apply(backend.url);
+        } catch (RuntimeException e) {
+            current = CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<T> attempt = current;
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                attempt.cancel(true);
+            }
+        });
+
+        attempt.whenComplete((value, error) -> {
+            backend.outstanding.decrementAndGet();
+            if (error == null) {
+                recordSuccess(backend, model, value);
+                result.complete(value);
+                return;
+            }
+
+            if (!isConnectionFailure(error)) {
+                result.completeExceptionally(error);
+                return;
+            }
+            recordFailure(backend, error);
+            boolean canRetry = tried.size() < Math.min(maxAttempts, backends.size()) && retryable.getAsBoolean()
+                    && !result.isDone();
+            if (canRetry) {
+                log.warn("Ollama backend {} unreachable ({}), retrying on another backend", backend.url,
+                        rootMessage(error));
+                attempt(model, call, retryable, tried, result);
+            } else {
+                result.completeExceptionally(error);
+            }
+        });
+    }
+
+    /**
+     * Serveur non essayé le moins chargé, de préférence un serveur où le modèle est
+     * chargé ; si tous sont écartés, celui dont l'éviction se termine le plus tôt
+     */
+    private Backend select(String model, Set<Backend> tried) {
+        long now = System.currentTimeMillis();
+        List<Backend> candidates = new ArrayList<>();
+        for (Backend backend : backends) {
+            if (!tried.contains(backend) && !backend.isEjected(now)) {
+                candidates.add(backend);
+            }
+        }
+        if (candidates.isEmpty()) {
+            Backend soonest = null;
+            for (Backend backend : backends) {
+                if (!tried.contains(backend) && (soonest == null || backend.ejectedUntil < soonest.ejectedUntil)) {
+                    soonest = backend;
+                }
+            }
+            return soonest != null ? soonest : backends.get(0);
+        }
+
+        // Parcours à partir d'un rang tournant : les égalités sont réparties
+        int offset = Math.floorMod(rotation.getAndIncrement(), candidates.size());
+        Backend leastLoaded = null;
+        Backend leastLoadedWarm = null;
+        for (int i = 0; i < candidates.size(); i++) {
+            Backend backend = candidates.get((offset + i) % candidates.size());
+            int outstanding = backend.outstanding.get();
+            if (leastLoaded == null || outstanding < leastLoaded.outstanding.get()) {
+                leastLoaded = backend;
+            }
+            if (model != null && backend.loadedModels.contains(model)
+                    && (leastLoadedWarm == null || outstanding < leastLoadedWarm.outstanding.get())) {
+                leastLoadedWarm = backend;
+            }
+        }
+        if (leastLoadedWarm != null
+                && leastLoadedWarm.outstanding.get() <= leastLoaded.outstanding.get() + affinitySlack) {
+            return leastLoadedWarm;
+        }
+        return leastLoaded;
+    }
+
+    private void recordSuccess(Backend backend, String model, Object value) {
+        synchronized (backend) {
+            backend.consecutiveFailures = 0;
+            backend.ejectedUntil = 0;
+        }
+        // Réponse servie sans erreur : le modèle est désormais chargé sur ce serveur
+        if (model != null && !(value instanceof Map<?, ?> body && body.containsKey("error"))) {
+            backend.loadedModels.add(model);
+        }
+    }
+
+    private void recordFailure(Backend backend, Throwable error) {
+        backend.failures.incrementAndGet();
+        synchronized (backend) {
+            backend.consecutiveFailures++;
+            if (backend.consecutiveFailures >= ejectAfterFailures) {
+                backend.ejectedUntil = System.currentTimeMillis() + ejectMs;
+                backend.loadedModels.clear();
+                log.warn("Ollama backend {} ejected for {} ms after {} connection failures: {}", backend.url,
+                        ejectMs, backend.consecutiveFailures, rootMessage(error));
+            }
+        }
+    }
+
+    /**
+     * Modèles chargés sur chaque serveur (/api/ps), pour l'affinité de modèle
+     */
+    public void refreshLoadedModels() {
+        for (Backend backend : backends) {
+            httpClient.getJson(backend.url + "/api/ps").whenComplete((body, error) -> {
+                if (error != null || body.containsKey("error") || !(body.get("models") instanceof List<?> models)) {
+                    return;
+                }
+                Set<String> loaded = new HashSet<>();
+                for (Object entry : models) {
+                    if (entry instanceof Map<?, ?> running && running.get("name") != null) {
+                        String name = String.valueOf(running.get("name"));
+                        loaded.add(name);
+                        if (name.endsWith(":latest")) {
+                            loaded.add(name.substring(0, name.length() - ":latest".length()));
+                        }
+                    }
+                }
+                backend.loadedModels.retainAll(loaded);
+                backend.loadedModels.addAll(loaded);
+            });
+        }
+    }
+
+    /**
+     * État de chaque serveur du pool
+     */
+    public List<Map<String, Object>> getStats() {
+        long now = System.currentTimeMillis();
+        List<Map<String, Object>> stats = new ArrayList<>();
+        for (Backend backend : backends) {
+            Map<String, Object> backendStats = new LinkedHashMap<>();
+            backendStats.put("url", backend.url);
+            backendStats.put("outstanding", backend.outstanding.get());
+            backendStats.put("requests", backend.requests.get());
+            backendStats.put("connectionFailures", backend.failures.get());
+            backendStats.put("ejected", backend.isEjected(now));
+            backendStats.put("ejectedForMs", Math.max(0, backend.ejectedUntil - now));
+            backendStats.put("loadedModels", List.copyOf(backend.loadedModels));
+            stats.add(backendStats);
+        }
+        return stats;
+    }
+
+    /**
+     * Échecs qui n'ont pas atteint le serveur : l'appel peut être rejoué ailleurs
+     * (connexion réutilisée fermée : déjà rejouée une fois par le client HTTP)
+     */
+    private static boolean isConnectionFailure(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof ConnectException
+                || cause instanceof ConnectTimeoutException
+                || cause instanceof RequestNotExecutedException
+                || cause instanceof UnknownHostException
+                || cause instanceof NoRouteToHostException;
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        return cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+    }
+}
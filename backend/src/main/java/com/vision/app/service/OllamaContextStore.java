@@ -0,0 +1,145 @@
+package com.vision.app.service;
+
+import com.vision.app.util.LruCache;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Contextes Ollama (tokens « context » renvoyés par /api/generate) des documents
+ * déjà lus par le modèle : le texte n'est évalué qu'une fois, les prompts
+ * suivants repartent de ce contexte. Mémoire LRU bornée, durée de validité
+ * courte ; les évaluations simultanées d'un même document partagent un appel.
+ */
+@Component
+@Slf4j
+public class OllamaContextStore {
+
+    @Value("${ollama.context.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${ollama.context.min-chars:2000}")
+    private int minChars = 2000;
+
+    @Value("${ollama.context.max-bytes:33554432}")
+    private long maxBytes = 32L * 1024 * 1024;
+
+    @Value("${ollama.context.ttl-ms:600000}")
+    private long ttlMs = 600_000;
+
+    private LruCache<String, Entry> contexts;
+    private final Map<String, CompletableFuture<int[]>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong evaluations = new AtomicLong();
+    private final AtomicLong sharedEvaluations = new AtomicLong();
+
+    private record Entry(int[] tokens, long createdAt) {
+    }
+
+    @PostConstruct
+    public void init() {
+        contexts = new LruCache<>(maxBytes, entry -> 64 + 4L * entry.tokens().length);
+    }
+
+    /**
+     * Vrai si le texte est assez long pour qu'un contexte partagé soit rentable
+     * (une évaluation préalable de plus, puis des prompts courts)
+     */
+    public boolean isWorthSharing(String text) {
+        return enabled && text != null && text.length() >= minChars;
+    }
+
+    /**
+     * Clé de contexte : version du modèle et texte du document
+     */
+    public String key(String modelVersion, String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(modelVersion.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(text.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Contexte du document s'il est encore valide, sinon évaluation (partagée
+     * avec les demandes simultanées pour le même document)
+     */
+    public CompletableFuture<int[]> getOrEvaluate(String key, Supplier<CompletableFuture<int[]>> evaluator) {
+        Entry entry = contexts.get(key);
+        if (entry != null && System.currentTimeMillis() - entry.createdAt() <= ttlMs) {
+            return CompletableFuture.completedFuture(entry.tokens());
+        }
+        if (entry != null) {
+            contexts.remove(key);
+        }
+
+        CompletableFuture<int[]> evaluation = new CompletableFuture<>();
+        CompletableFuture<int[]> shared = inFlight.putIfAbsent(key, evaluation);
+        if (shared != null) {
+            sharedEvaluations.incrementAndGet();
+            return shared;
+        }
+
+        evaluations.incrementAndGet();
+        CompletableFuture<int[]> tokens;
+        try {
+            tokens = evaluator.get();
+        } catch (RuntimeException e) {
+            tokens = CompletableFuture.failedFuture(e);
+        }
+        tokens.whenComplete((value, error) -> {
+            if (error == null) {
+                contexts.put(key, new Entry(value, System.currentTimeMillis()));
+            }
+            inFlight.remove(key, evaluation);
+            if (error != null) {
+                evaluation.completeExceptionally(error);
+            } else {
+                evaluation.complete(value);
+            }
+        });
+        return evaluation;
+    }
+
+    /**
+     * Oublie un contexte refusé par le serveur (modèle rechargé, contexte tronqué...)
+     */
+    public void invalidate(String key) {
+        if (contexts.remove(key) != null) {
+            log.debug("Ollama context {} invalidated", key);
+        }
+    }
+
+    public void clear() {
+        contexts.clear();
+    }
+
+    /**
+     * Statistiques des contextes conservés
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>(contexts.getStats());
+        stats.put("enabled", enabled);
+        stats.put("minChars", minChars);
+        stats.put("ttlMs", ttlMs);
+        stats.put("evaluations", evaluations.get());
+        stats.put("sharedEvaluations", sharedEvaluations.get());
+        stats.put("inFlight", inFlight.size());
+        return stats;
+    }
+}
@@ -0,0 +1,392 @@
+package com.vision.app.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.AbstractBinResponseConsumer;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.async.methods.SimpleRequestProducer;
+import org.apache.hc.client5.http.async.methods.SimpleResponseConsumer;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ConnectionClosedException;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.nio.AsyncResponseConsumer;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.protocol.BasicHttpContext;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.http.protocol.HttpCoreContext;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Client HTTP asynchrone vers Ollama : connexions persistantes (keep-alive)
+ * dans un pool borné par hôte, délais de connexion, de lecture et d'inactivité
+ * distincts. Les appels renvoient des CompletableFuture et n'occupent aucun
+ * thread pendant la génération.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OllamaHttpClient {
+
+    private static final TypeReference<Map<String, Object>> JSON_MAP = new TypeReference<>() {
+    };
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${ollama.http.max-connections:32}")
+    private int maxConnections = 32;
+
+    @Value("${ollama.http.max-connections-per-host:8}")
+    private int maxConnectionsPerHost = 8;
+
+    @Value("${ollama.http.connect-timeout-ms:5000}")
+    private long connectTimeoutMs = 5000;
+
+    @Value("${ollama.http.read-timeout-ms:300000}")
+    private long readTimeoutMs = 300_000;
+
+    @Value("${ollama.http.idle-timeout-ms:60000}")
+    private long idleTimeoutMs = 60_000;
+
+    @Value("${ollama.http.acquire-timeout-ms:30000}")
+    private long acquireTimeoutMs = 30_000;
+
+    // Connexion restée inactive plus longtemps : vérifiée avant d'être réutilisée
+    @Value("${ollama.http.validate-after-inactivity-ms:2000}")
+    private long validateAfterInactivityMs = 2000;
+
+    private PoolingAsyncClientConnectionManager connectionManager;
+    private CloseableHttpAsyncClient client;
+
+    @PostConstruct
+    public void init() {
+        connectionManager = PoolingAsyncClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnectionsPerHost)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                        .setSocketTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                        .setValidateAfterInactivity(TimeValue.ofMilliseconds(validateAfterInactivityMs))
+                        .build())
+                .build();
+
+        client = HttpAsyncClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(acquireTimeoutMs))
+                        .setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                        .build())
+                // Les connexions inactives sont fermées avant que le serveur ne les coupe
+                .evictIdleConnections(TimeValue.ofMilliseconds(idleTimeoutMs))
+                .evictExpiredConnections()
+                .build();
+        client.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        client.close(CloseMode.GRACEFUL);
+    }
+
+    /**
+     * POST d'un corps JSON ; la réponse JSON est renvoyée sous forme de Map
+     * (avec une clé « error » pour les statuts HTTP en erreur)
+     */
+    public CompletableFuture<Map<String, Object>> postJson(String url, Object body) {
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(body);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return postJson(url, json);
+    }
+
+    /**
+     * POST d'un corps JSON déjà sérialisé
+     */
+    public CompletableFuture<Map<String, Object>> postJson(String url, byte[] json) {
+        return execute(SimpleRequestBuilder.post(url)
+                .setBody(json, ContentType.APPLICATION_JSON)
+                .build());
+    }
+
+    /**
+     * POST d'un corps JSON dont la réponse est un flux NDJSON : chaque ligne est
+     * transmise à onLine dès sa réception (thread d'E/S du client, ne pas bloquer).
+     * Le résultat est la dernière ligne reçue, ou le corps d'erreur si le statut
+     * HTTP est en erreur. Une exception levée par onLine interrompt l'échange.
+     */
+    public CompletableFuture<Map<String, Object>> postJsonLines(String url, Object body,
+            Consumer<Map<String, Object>> onLine) {
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(body);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        SimpleHttpRequest request = SimpleRequestBuilder.post(url)
+                .setBody(json, ContentType.APPLICATION_JSON)
+                .build();
+        return retryIfStale(context -> send(request, new JsonLinesConsumer(onLine), context));
+    }
+
+    public CompletableFuture<Map<String, Object>> getJson(String url) {
+        return execute(SimpleRequestBuilder.get(url).build());
+    }
+
+    /**
+     * Occupation du pool de connexions
+     */
+    public Map<String, Object> getStats() {
+        PoolStats stats = connectionManager.getTotalStats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("leased", stats.getLeased());
+        result.put("available", stats.getAvailable());
+        result.put("pending", stats.getPending());
+        result.put("max", stats.getMax());
+        result.put("maxPerHost", maxConnectionsPerHost);
+        result.put("connectTimeoutMs", connectTimeoutMs);
+        result.put("readTimeoutMs", readTimeoutMs);
+        result.put("idleTimeoutMs", idleTimeoutMs);
+        result.put("validateAfterInactivityMs", validateAfterInactivityMs);
+        return result;
+    }
+
+    private CompletableFuture<Map<String, Object>> execute(SimpleHttpRequest request) {
+        CompletableFuture<Map<String, Object>> result = new CompletableFuture<>();
+        CompletableFuture<SimpleHttpResponse> response =
+                retryIfStale(context -> send(request, SimpleResponseConsumer.create(), context));
+        response.whenComplete((body, error) -> {
+            if (error != null) {
+                result.completeExceptionally(error);
+                return;
+            }
+            try {
+                result.complete(parse(body.getCode(), body.getBodyBytes()));
+            } catch (IOException e) {
+                result.completeExceptionally(e);
+            }
+        });
+        // Annulation côté appelant : propagée à l'échange en cours
+        result.whenComplete((body, error) -> {
+            if (result.isCancelled()) {
+                response.cancel(false);
+            }
+        });
+        return result;
+    }
+
+    private <T> CompletableFuture<T> send(SimpleHttpRequest request, AsyncResponseConsumer<T> consumer,
+            HttpContext context) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<T> exchange = client.execute(SimpleRequestProducer.create(request), consumer, null, context,
+                completingCallback(result));
+        return cancelOnCancel(result, exchange);
+    }
+
+    /**
+     * Connexion du pool fermée par le serveur pendant son inactivité : l'échange
+     * échoue avant toute réponse et est rejoué une fois sur une nouvelle
+     * connexion, y compris pour un POST (les appels Ollama sont sans effet de
+     * bord). Une fois l'en-tête de réponse reçu, l'échec est remonté tel quel.
+     */
+    private <T> CompletableFuture<T> retryIfStale(Exchange<T> exchange) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        HttpContext firstContext = new BasicHttpContext();
+        CompletableFuture<T> first = exchange.send(firstContext);
+        first.whenComplete((value, error) -> {
+            if (error == null) {
+                result.complete(value);
+            } else if (!result.isDone() && isStaleConnection(error)
+                    && firstContext.getAttribute(HttpCoreContext.HTTP_RESPONSE) == null) {
+                log.debug("Stale Ollama connection ({}), retrying on a new connection", error.getMessage());
+                CompletableFuture<T> second = exchange.send(new BasicHttpContext());
+                relay(second, result);
+            } else {
+                result.completeExceptionally(error);
+            }
+        });
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                first.cancel(false);
+            }
+        });
+        return result;
+    }
+
+    private static <T> void relay(CompletableFuture<T> source, CompletableFuture<T> target) {
+        source.whenComplete((value, error) -> {
+            if (error != null) {
+                target.completeExceptionally(error);
+            } else {
+                target.complete(value);
+            }
+        });
+        target.whenComplete((value, error) -> {
+            if (target.isCancelled()) {
+                source.cancel(false);
+            }
+        });
+    }
+
+    private static boolean isStaleConnection(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        // Échec d'établissement (ConnectException...) : géré par le pool de serveurs
+        return cause instanceof ConnectionClosedException
+                || cause instanceof SocketException && !(cause instanceof ConnectException)
+                && !(cause instanceof NoRouteToHostException);
+    }
+
+    @FunctionalInterface
+    private interface Exchange<T> {
+        CompletableFuture<T> send(HttpContext context);
+    }
+
+    private static <T> FutureCallback<T> completingCallback(CompletableFuture<T> result) {
+        return new FutureCallback<>() {
+            @Override
+            public void completed(T value) {
+                result.complete(value);
+            }
+
+            @Override
+            public void failed(Exception e) {
+                result.completeExceptionally(e);
+            }
+
+            @Override
+            public void cancelled() {
+                result.cancel(false);
+            }
+        };
+    }
+
+    /**
+     * Annulation côté appelant (délai dépassé, client parti) : libère la connexion
+     */
+    private static <T> CompletableFuture<T> cancelOnCancel(CompletableFuture<T> result, Future<?> exchange) {
+        result.whenComplete((body, error) -> {
+            if (result.isCancelled()) {
+                exchange.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    private Map<String, Object> parse(int status, byte[] body) throws IOException {
+        Map<String, Object> json;
+        try {
+            json = body != null && body.length > 0 ? objectMapper.readValue(body, JSON_MAP) : new HashMap<>();
+        } catch (IOException e) {
+            if (status < 400) {
+                throw e;
+            }
+            // Page d'erreur non JSON (proxy, chemin inconnu)
+            json = new HashMap<>();
+        }
+        if (status >= 400 && !json.containsKey("error")) {
+            json.put("error", "HTTP " + status);
+        }
+        return json;
+    }
+
+    /**
+     * Découpe le flux de réponse en lignes JSON au fil de l'arrivée des octets
+     */
+    private final class JsonLinesConsumer extends AbstractBinResponseConsumer<Map<String, Object>> {
+
+        private final Consumer<Map<String, Object>> onLine;
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private Map<String, Object> last = new HashMap<>();
+        private int status;
+
+        JsonLinesConsumer(Consumer<Map<String, Object>> onLine) {
+            this.onLine = onLine;
+        }
+
+        @Override
+        protected void start(HttpResponse response, ContentType contentType) {
+            status = response.getCode();
+        }
+
+        @Override
+        protected int capacityIncrement() {
+            return 64 * 1024;
+        }
+
+        @Override
+        protected void data(ByteBuffer src, boolean endOfStream) throws IOException {
+            while (src.hasRemaining()) {
+                byte b = src.get();
+                // Corps d'erreur : lu en entier, analysé à la fin
+                if (b == '\n' && status < 400) {
+                    flushLine();
+                } else {
+                    buffer.write(b);
+                }
+            }
+            if (endOfStream && status < 400) {
+                flushLine();
+            }
+        }
+
+        private void flushLine() throws IOException {
+            if (buffer.size() == 0) {
+                return;
+            }
+            Map<String, Object> line = objectMapper.readValue(buffer.toByteArray(), JSON_MAP);
+            buffer.reset();
+            last = line;
+            onLine.accept(line);
+        }
+
+        @Override
+        protected Map<String, Object> buildResult() {
+            if (status < 400) {
+                return last;
+            }
+            try {
+                return parse(status, buffer.toByteArray());
+            } catch (IOException e) {
+                return new HashMap<>(Map.of("error", "HTTP " + status));
+            }
+        }
+
+        @Override
+        public void releaseResources() {
+            buffer.reset();
+        }
+    }
+}
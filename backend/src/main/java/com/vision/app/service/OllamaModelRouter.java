@@ -0,0 +1,229 @@
+package com.vision.app.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Table de routage des analyses Ollama : modèle, nombre maximal de tokens générés
+ * et séquences d'arrêt par type d'analyse. Quand la file de l'ordonnanceur
+ * s'allonge, les analyses passent sur un modèle plus petit, puis les analyses
+ * optionnelles sont ignorées, pour borner la latence du pipeline.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OllamaModelRouter {
+
+    private final OllamaRequestScheduler scheduler;
+
+    @Value("${ollama.model:llama3.2:1b}")
+    private String defaultModel = "llama3.2:1b";
+
+    // Modèle par type d'analyse (vide : ollama.model)
+    @Value("${ollama.routing.summary.model:}")
+    private String summaryModel = "";
+
+    @Value("${ollama.routing.summary.num-predict:2048}")
+    private int summaryNumPredict = 2048;
+
+    @Value("${ollama.routing.classification.model:}")
+    private String classificationModel = "";
+
+    @Value("${ollama.routing.classification.num-predict:256}")
+    private int classificationNumPredict = 256;
+
+    @Value("${ollama.routing.classification.stop:}")
+    private String classificationStop = "";
+
+    @Value("${ollama.routing.extraction.model:}")
+    private String extractionModel = "";
+
+    @Value("${ollama.routing.extraction.num-predict:2048}")
+    private int extractionNumPredict = 2048;
+
+    @Value("${ollama.routing.vision.model:}")
+    private String visionModel = "";
+
+    @Value("${ollama.routing.vision.num-predict:2048}")
+    private int visionNumPredict = 2048;
+
+    // Dégradation : au-delà de degrade-queue requêtes en file, modèle réduit et génération écourtée
+    @Value("${ollama.routing.degraded-model:}")
+    private String degradedModel = "";
+
+    @Value("${ollama.routing.degrade-queue:8}")
+    private int degradeQueue = 8;
+
+    // Au-delà de skip-queue requêtes en file, les analyses optionnelles sont ignorées
+    @Value("${ollama.routing.skip-queue:32}")
+    private int skipQueue = 32;
+
+    @Value("${ollama.routing.optional:STRUCTURED_EXTRACTION,CLASSIFICATION}")
+    private String optionalAnalyses = "STRUCTURED_EXTRACTION,CLASSIFICATION";
+
+    private final Map<OllamaService.DocumentAnalysisType, Route> routes =
+            new EnumMap<>(OllamaService.DocumentAnalysisType.class);
+    private final Set<OllamaService.DocumentAnalysisType> optional =
+            EnumSet.noneOf(OllamaService.DocumentAnalysisType.class);
+    private Route visionRoute;
+    private final AtomicLong degraded = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+
+    /**
+     * Paramètres d'un appel : modèle, limite de génération, séquences d'arrêt
+     */
+    public record Route(String model, int numPredict, List<String> stop, boolean degraded, boolean skipped) {
+    }
+
+    @PostConstruct
+    public void init() {
+        routes.clear();
+        routes.put(OllamaService.DocumentAnalysisType.SUMMARY, route(summaryModel, summaryNumPredict, ""));
+        routes.put(OllamaService.DocumentAnalysisType.CLASSIFICATION,
+                route(classificationModel, classificationNumPredict, classificationStop));
+        routes.put(OllamaService.DocumentAnalysisType.STRUCTURED_EXTRACTION,
+                route(extractionModel, extractionNumPredict, ""));
+        visionRoute = route(visionModel, visionNumPredict, "");
+
+        optional.clear();
+        for (String name : split(optionalAnalyses)) {
+            optional.add(OllamaService.DocumentAnalysisType.valueOf(name.toUpperCase()));
+        }
+    }
+
+    /**
+     * Route d'une analyse de texte selon la charge actuelle de la file
+     */
+    public Route route(OllamaService.DocumentAnalysisType type) {
+        Route route = routes.getOrDefault(type, route("", 2048, ""));
+        int queued = scheduler.getQueued();
+
+        if (queued >= skipQueue && optional.contains(type)) {
+            skipped.incrementAndGet();
+            log.warn("Ollama queue at {} requests: optional {} analysis skipped", queued, type);
+            return new Route(route.model(), route.numPredict(), route.stop(), false, true);
+        }
+        if (queued >= degradeQueue && !degradedModel.isBlank()) {
+            degraded.incrementAndGet();
+            log.debug("Ollama queue at {} requests: {} analysis degraded to {}", queued, type, degradedModel);
+            return new Route(degradedModel, Math.max(128, route.numPredict() / 2), route.stop(), true, false);
+        }
+        return route;
+    }
+
+    /**
+     * Route des analyses d'image (voie interactive, jamais dégradée : le modèle
+     * réduit n'est pas forcément un modèle de vision)
+     */
+    public Route routeVision() {
+        return visionRoute;
+    }
+
+    /**
+     * Vrai si la charge actuelle ferait ignorer les analyses optionnelles
+     */
+    public boolean isSkippingOptional() {
+        return !optional.isEmpty() && scheduler.getQueued() >= skipQueue;
+    }
+
+    /**
+     * Modèles référencés par la table (à préchauffer)
+     */
+    public List<String> getModels() {
+        Set<String> models = new LinkedHashSet<>();
+        models.add(defaultModel);
+        routes.values().forEach(route -> models.add(route.model()));
+        models.add(visionRoute.model());
+        if (!degradedModel.isBlank()) {
+            models.add(degradedModel);
+        }
+        return new ArrayList<>(models);
+    }
+
+    /**
+     * Table de routage et compteurs de dégradation
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        Map<String, Object> table = new LinkedHashMap<>();
+        routes.forEach((type, route) -> table.put(type.name(), describe(route)));
+        table.put("VISION", describe(visionRoute));
+        stats.put("routes", table);
+        stats.put("degradedModel", degradedModel);
+        stats.put("degradeQueue", degradeQueue);
+        stats.put("skipQueue", skipQueue);
+        stats.put("optional", optional);
+        stats.put("degraded", degraded.get());
+        stats.put("skipped", skipped.get());
+        return stats;
+    }
+
+    private Route route(String model, int numPredict, String stop) {
+        return new Route(model == null || model.isBlank() ? defaultModel : model.trim(), numPredict,
+                splitStops(stop), false, false);
+    }
+
+    private static Map<String, Object> describe(Route route) {
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("model", route.model());
+        description.put("numPredict", route.numPredict());
+        description.put("stop", route.stop());
+        return description;
+    }
+
+    private static List<String> split(String values) {
+        return Arrays.stream(values.split(","))
+                .map(String::trim)
+                .filter(value -> !value.isEmpty())
+                .toList();
+    }
+
+    /**
+     * Séquences d'arrêt séparées par des virgules, sans suppression des blancs
+     * (un arrêt sur ligne vide est courant) ; \n, \t, \, et \\ sont décodés
+     */
+    private static List<String> splitStops(String values) {
+        List<String> stops = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i < values.length(); i++) {
+            char c = values.charAt(i);
+            if (c == ',') {
+                addStop(stops, current);
+            } else if (c == '\\' && i + 1 < values.length()) {
+                char next = values.charAt(++i);
+                switch (next) {
+                    case 'n' -> current.append('\n');
+                    case 'r' -> current.append('\r');
+                    case 't' -> current.append('\t');
+                    case ',', '\\' -> current.append(next);
+                    default -> current.append(c).append(next);
+                }
+            } else {
+                current.append(c);
+            }
+        }
+        addStop(stops, current);
+        return List.copyOf(stops);
+    }
+
+    private static void addStop(List<String> stops, StringBuilder current) {
+        if (current.length() > 0) {
+            stops.add(current.toString());
+            current.setLength(0);
+        }
+    }
+}
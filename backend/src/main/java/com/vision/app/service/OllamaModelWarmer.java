@@ -0,0 +1,211 @@
+package com.vision.app.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Préchauffage des modèles Ollama : chargement au démarrage de l'application,
+ * puis rafraîchissement périodique du keep_alive des modèles qui reçoivent du
+ * trafic, sur chaque serveur non écarté du pool, pour que les requêtes ne
+ * paient pas le chargement du modèle quel que soit le serveur choisi.
+ * Le service est prêt quand le dernier chargement de chaque modèle a réussi.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OllamaModelWarmer {
+
+    private final OllamaService ollamaService;
+    private final OllamaModelRouter router;
+
+    @Value("${ollama.warmup.enabled:true}")
+    private boolean enabled = true;
+
+    // Modèles à préchauffer en plus de ceux du routage (liste séparée par des virgules)
+    @Value("${ollama.warmup.models:}")
+    private String extraModels = "";
+
+    @Value("${ollama.warmup.refresh-interval-ms:240000}")
+    private long refreshIntervalMs = 240_000;
+
+    // Sans requête depuis ce délai, le keep_alive n'est plus rafraîchi (Ollama peut décharger le modèle)
+    @Value("${ollama.warmup.idle-ms:1800000}")
+    private long idleMs = 1_800_000;
+
+    private final Map<String, ModelState> states = new ConcurrentHashMap<>();
+    private final Set<String> warming = ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService scheduler;
+
+    private static final class ModelState {
+        private volatile boolean loaded;
+        private volatile long warmedAt;
+        private volatile long lastDurationMs;
+        private volatile long refreshes;
+        private volatile String error;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ollama-warmup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.schedule(this::warmUpAll, 0, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::refresh, refreshIntervalMs, refreshIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Modèles gérés : ollama.model, ceux de la table de routage, puis ollama.warmup.models
+     */
+    public List<String> getModels() {
+        Set<String> models = new LinkedHashSet<>();
+        models.add(ollamaService.getModel());
+        models.addAll(router.getModels());
+        Arrays.stream(extraModels.split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .forEach(models::add);
+        return new ArrayList<>(models);
+    }
+
+    /**
+     * Charge tous les modèles gérés
+     */
+    public CompletableFuture<Void> warmUpAll() {
+        return CompletableFuture.allOf(getModels().stream()
+                .map(this::warmUp)
+                .toArray(CompletableFuture[]::new));
+    }
+
+    /**
+     * Rafraîchit le keep_alive des modèles utilisés récemment, et recharge ceux
+     * dont le préchauffage a échoué (Ollama démarré après l'application)
+     */
+    public void refresh() {
+        long now = System.currentTimeMillis();
+        for (String model : getModels()) {
+            ModelState state = states.get(model);
+            boolean recentlyUsed = now - ollamaService.getLastUsedAt(model) <= idleMs;
+            if (state == null || !state.loaded || recentlyUsed) {
+                warmUp(model);
+            }
+        }
+    }
+
+    /**
+     * Charge un modèle (ou prolonge son maintien en mémoire) ; sans effet s'il est déjà en cours
+     */
+    public CompletableFuture<Void> warmUp(String model) {
+        if (!warming.add(model)) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        ModelState state = states.computeIfAbsent(model, name -> new ModelState());
+        CompletableFuture<Map<String, Object>> warmUp;
+        try {
+            warmUp = ollamaService.warmUpAsync(model);
+        } catch (RuntimeException e) {
+            warmUp = CompletableFuture.failedFuture(e);
+        }
+        return warmUp.handle((result, error) -> {
+            boolean wasLoaded = state.loaded;
+            if (error == null && Boolean.TRUE.equals(result.get("success"))) {
+                state.loaded = true;
+                state.warmedAt = System.currentTimeMillis();
+                state.lastDurationMs = ((Number) result.get("durationMs")).longValue();
+                state.refreshes++;
+                state.error = null;
+                if (!wasLoaded) {
+                    log.info("Ollama model {} warmed up in {} ms on {} backends", model, state.lastDurationMs,
+                            result.get("backends") instanceof List<?> backends ? backends.size() : 1);
+                }
+            } else {
+                state.loaded = false;
+                state.error = error != null ? rootMessage(error) : String.valueOf(result.get("error"));
+                log.warn("Ollama model {} warm-up failed: {}", model, state.error);
+            }
+            warming.remove(model);
+            return null;
+        });
+    }
+
+    /**
+     * Vrai quand le dernier chargement de chaque modèle géré a réussi (toujours
+     * vrai si le préchauffage est désactivé)
+     */
+    public boolean isReady() {
+        if (!enabled) {
+            return true;
+        }
+        for (String model : getModels()) {
+            ModelState state = states.get(model);
+            if (state == null || !state.loaded) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * État du préchauffage par modèle et chargements observés
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", enabled);
+        status.put("ready", isReady());
+        status.put("refreshIntervalMs", refreshIntervalMs);
+        status.put("idleMs", idleMs);
+
+        Map<String, Object> models = new LinkedHashMap<>();
+        for (String model : getModels()) {
+            ModelState state = states.get(model);
+            Map<String, Object> modelStatus = new LinkedHashMap<>();
+            modelStatus.put("loaded", state != null && state.loaded);
+            modelStatus.put("warmedAt", state != null ? state.warmedAt : 0);
+            modelStatus.put("lastDurationMs", state != null ? state.lastDurationMs : 0);
+            modelStatus.put("refreshes", state != null ? state.refreshes : 0);
+            modelStatus.put("lastUsedAt", ollamaService.getLastUsedAt(model));
+            if (state != null && state.error != null) {
+                modelStatus.put("error", state.error);
+            }
+            models.put(model, modelStatus);
+        }
+        status.put("models", models);
+        status.put("load", ollamaService.getLoadStats());
+        return status;
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        return cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,279 @@
+package com.vision.app.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Ordonnanceur des appels Ollama : au plus « parallelism » requêtes envoyées à
+ * la fois (le parallélisme du serveur), les autres attendent ici, par voie de
+ * priorité (interactif avant arrière-plan) puis par ordre d'arrivée. Une requête
+ * dont l'échéance passe avant son envoi est abandonnée sans atteindre Ollama.
+ */
+@Component
+@Slf4j
+public class OllamaRequestScheduler {
+
+    /**
+     * Voies de priorité, de la plus prioritaire à la moins prioritaire
+     */
+    public enum Lane {
+        INTERACTIVE,
+        BACKGROUND
+    }
+
+    @Value("${ollama.scheduler.parallelism:2}")
+    private int parallelism = 2;
+
+    @Value("${ollama.scheduler.max-queue:500}")
+    private int maxQueue = 500;
+
+    @Value("${ollama.scheduler.interactive-deadline-ms:60000}")
+    private long interactiveDeadlineMs = 60_000;
+
+    @Value("${ollama.scheduler.background-deadline-ms:1800000}")
+    private long backgroundDeadlineMs = 1_800_000;
+
+    private final PriorityQueue<Ticket<?>> queue = new PriorityQueue<>();
+    private final Map<Lane, LaneStats> stats = new EnumMap<>(Lane.class);
+    // Échéances des requêtes en file ; annulées (et retirées) dès l'envoi
+    private final ScheduledThreadPoolExecutor deadlines;
+    private int running;
+    private long sequence;
+
+    public OllamaRequestScheduler() {
+        for (Lane lane : Lane.values()) {
+            stats.put(lane, new LaneStats());
+        }
+        deadlines = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "ollama-scheduler-deadline");
+            thread.setDaemon(true);
+            return thread;
+        });
+        deadlines.setRemoveOnCancelPolicy(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        deadlines.shutdownNow();
+    }
+
+    /**
+     * Planifie un appel avec l'échéance par défaut de sa voie
+     */
+    public <T> CompletableFuture<T> submit(Lane lane, Supplier<CompletableFuture<T>> task) {
+        return submit(lane, lane == Lane.INTERACTIVE ? interactiveDeadlineMs : backgroundDeadlineMs, task);
+    }
+
+    /**
+     * Planifie un appel ; le future échoue (TimeoutException) si l'appel n'a pas pu
+     * partir avant l'échéance. Annuler le future retire l'appel de la file, ou
+     * annule l'appel en cours.
+     */
+    public <T> CompletableFuture<T> submit(Lane lane, long deadlineMs, Supplier<CompletableFuture<T>> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Ticket<T> ticket;
+        synchronized (this) {
+            LaneStats laneStats = stats.get(lane);
+            laneStats.submitted++;
+            if (queue.size() >= maxQueue) {
+                laneStats.rejected++;
+                return CompletableFuture.failedFuture(new IllegalStateException(
+                        "File d'attente Ollama pleine (" + maxQueue + " requêtes)"));
+            }
+            ticket = new Ticket<>(lane, sequence++, System.nanoTime(), task, result);
+            // Échéance : la requête encore en file est abandonnée
+            Ticket<T> expiring = ticket;
+            ticket.deadline = deadlines.schedule(() -> expire(expiring, deadlineMs),
+                    deadlineMs, TimeUnit.MILLISECONDS);
+            queue.add(ticket);
+        }
+
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                cancel(ticket);
+            }
+        });
+
+        drain();
+        return result;
+    }
+
+    /**
+     * Nombre de requêtes en attente d'envoi, toutes voies confondues
+     */
+    public synchronized int getQueued() {
+        return queue.size();
+    }
+
+    /**
+     * Statistiques de la file par voie
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("parallelism", parallelism);
+        result.put("running", running);
+        result.put("queued", queue.size());
+        result.put("maxQueue", maxQueue);
+        result.put("pendingDeadlines", deadlines.getQueue().size());
+
+        Map<Lane, Integer> queuedByLane = new EnumMap<>(Lane.class);
+        for (Ticket<?> ticket : queue) {
+            queuedByLane.merge(ticket.lane, 1, Integer::sum);
+        }
+        Map<String, Object> lanes = new LinkedHashMap<>();
+        for (Lane lane : Lane.values()) {
+            LaneStats laneStats = stats.get(lane);
+            Map<String, Object> laneResult = new LinkedHashMap<>();
+            laneResult.put("queued", queuedByLane.getOrDefault(lane, 0));
+            laneResult.put("submitted", laneStats.submitted);
+            laneResult.put("started", laneStats.started);
+            laneResult.put("completed", laneStats.completed);
+            laneResult.put("expired", laneStats.expired);
+            laneResult.put("rejected", laneStats.rejected);
+            laneResult.put("avgWaitMs", laneStats.started > 0 ? laneStats.totalWaitMs / laneStats.started : 0);
+            laneResult.put("maxWaitMs", laneStats.maxWaitMs);
+            lanes.put(lane.name().toLowerCase(), laneResult);
+        }
+        result.put("lanes", lanes);
+        return result;
+    }
+
+    /**
+     * Envoie les requêtes en tête de file tant qu'il reste des places
+     */
+    private void drain() {
+        while (true) {
+            Ticket<?> ticket;
+            synchronized (this) {
+                if (running >= Math.max(1, parallelism) || queue.isEmpty()) {
+                    return;
+                }
+                ticket = queue.poll();
+                // Abandonnée (échéance, annulation) : la place reste libre
+                if (ticket.result.isDone()) {
+                    continue;
+                }
+                running++;
+                LaneStats laneStats = stats.get(ticket.lane);
+                long waitMs = (System.nanoTime() - ticket.queuedAt) / 1_000_000;
+                laneStats.started++;
+                laneStats.totalWaitMs += waitMs;
+                laneStats.maxWaitMs = Math.max(laneStats.maxWaitMs, waitMs);
+            }
+            start(ticket);
+        }
+    }
+
+    private <T> void start(Ticket<T> ticket) {
+        ticket.cancelDeadline();
+        Supplier<CompletableFuture<T>> task = ticket.task;
+        // La requête (prompt, image) n'est plus retenue par le ticket une fois partie
+        ticket.task = null;
+        CompletableFuture<T> call;
+        try {
+            call = task.get();
+        } catch (RuntimeException e) {
+            call = CompletableFuture.failedFuture(e);
+        }
+        ticket.call = call;
+        if (ticket.result.isCancelled()) {
+            call.cancel(true);
+        }
+
+        call.whenComplete((value, error) -> {
+            synchronized (this) {
+                running--;
+                stats.get(ticket.lane).completed++;
+            }
+            if (error != null) {
+                ticket.result.completeExceptionally(error);
+            } else {
+                ticket.result.complete(value);
+            }
+            drain();
+        });
+    }
+
+    private void expire(Ticket<?> ticket, long deadlineMs) {
+        synchronized (this) {
+            if (!queue.remove(ticket)) {
+                return;
+            }
+            stats.get(ticket.lane).expired++;
+            ticket.task = null;
+        }
+        log.warn("Ollama request dropped: still queued after {} ms ({} lane)", deadlineMs, ticket.lane);
+        ticket.result.completeExceptionally(new TimeoutException(
+                "Échéance dépassée avant l'envoi à Ollama (" + deadlineMs + " ms en file)"));
+    }
+
+    private void cancel(Ticket<?> ticket) {
+        ticket.cancelDeadline();
+        synchronized (this) {
+            if (queue.remove(ticket)) {
+                ticket.task = null;
+            }
+        }
+        CompletableFuture<?> call = ticket.call;
+        if (call != null) {
+            call.cancel(true);
+        }
+    }
+
+    private static final class Ticket<T> implements Comparable<Ticket<?>> {
+
+        private final Lane lane;
+        private final long sequence;
+        private final long queuedAt;
+        private final CompletableFuture<T> result;
+        private Supplier<CompletableFuture<T>> task;
+        private volatile ScheduledFuture<?> deadline;
+        private volatile CompletableFuture<T> call;
+
+        Ticket(Lane lane, long sequence, long queuedAt, Supplier<CompletableFuture<T>> task,
+                CompletableFuture<T> result) {
+            this.lane = lane;
+            this.sequence = sequence;
+            this.queuedAt = queuedAt;
+            this.task = task;
+            this.result = result;
+        }
+
+        void cancelDeadline() {
+            ScheduledFuture<?> scheduled = deadline;
+            if (scheduled != null) {
+                scheduled.cancel(false);
+                deadline = null;
+            }
+        }
+
+        @Override
+        public int compareTo(Ticket<?> other) {
+            int byLane = lane.compareTo(other.lane);
+            return byLane != 0 ? byLane : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private static final class LaneStats {
+        private long submitted;
+        private long started;
+        private long completed;
+        private long expired;
+        private long rejected;
+        private long totalWaitMs;
+        private long maxWaitMs;
+    }
+}
@@ -0,0 +1,230 @@
+package com.vision.app.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vision.app.model.LlmResponse;
+import com.vision.app.repository.LlmResponseRepository;
+import com.vision.app.util.LruCache;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache des réponses Ollama, indexé par l'empreinte SHA-256 de la requête
+ * (modèle et version installée, options, prompt, texte et images) : un niveau
+ * mémoire LRU borné, un niveau persistant optionnel, une durée de validité.
+ * Les requêtes identiques simultanées partagent un seul appel.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OllamaResponseCache {
+
+    private static final TypeReference<Map<String, Object>> JSON_MAP = new TypeReference<>() {
+    };
+
+    private final LlmResponseRepository llmResponseRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${ollama.cache.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${ollama.cache.max-bytes:16777216}")
+    private long maxBytes = 16L * 1024 * 1024;
+
+    @Value("${ollama.cache.ttl-ms:86400000}")
+    private long ttlMs = 86_400_000;
+
+    @Value("${ollama.cache.persistent:false}")
+    private boolean persistent;
+
+    private LruCache<String, Entry> memoryCache;
+    private final Map<String, CompletableFuture<Map<String, Object>>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong persistentHits = new AtomicLong();
+    private final AtomicLong sharedCalls = new AtomicLong();
+
+    private record Entry(Map<String, Object> body, long createdAt, long weight) {
+    }
+
+    @PostConstruct
+    public void init() {
+        memoryCache = new LruCache<>(maxBytes, Entry::weight);
+    }
+
+    /**
+     * Clé de cache : version du modèle et corps JSON canonique de la requête
+     */
+    public String key(String modelVersion, byte[] requestBody) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(modelVersion.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(requestBody);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Réponse en cache si elle est encore valide, sinon appel (partagé avec les
+     * requêtes identiques en cours). Seules les réponses sans erreur sont conservées ;
+     * chaque appelant reçoit sa propre copie.
+     */
+    public CompletableFuture<Map<String, Object>> getOrLoad(String key, String model,
+            Supplier<CompletableFuture<Map<String, Object>>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+
+        Map<String, Object> cached = lookup(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        CompletableFuture<Map<String, Object>> call = new CompletableFuture<>();
+        CompletableFuture<Map<String, Object>> shared = inFlight.putIfAbsent(key, call);
+        if (shared != null) {
+            sharedCalls.incrementAndGet();
+            return shared.thenApply(HashMap::new);
+        }
+
+        CompletableFuture<Map<String, Object>> response;
+        try {
+            response = loader.get();
+        } catch (RuntimeException e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+        response.whenComplete((body, error) -> {
+            if (error == null && !body.containsKey("error")) {
+                store(key, model, body);
+            }
+            inFlight.remove(key, call);
+            if (error != null) {
+                call.completeExceptionally(error);
+            } else {
+                call.complete(body);
+            }
+        });
+        return call.thenApply(HashMap::new);
+    }
+
+    public void clear() {
+        memoryCache.clear();
+        if (persistent) {
+            llmResponseRepository.deleteAll();
+        }
+    }
+
+    /**
+     * Statistiques du cache
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>(memoryCache.getStats());
+        stats.put("enabled", enabled);
+        stats.put("persistent", persistent);
+        stats.put("persistentHits", persistentHits.get());
+        stats.put("inFlight", inFlight.size());
+        stats.put("sharedCalls", sharedCalls.get());
+        stats.put("ttlMs", ttlMs);
+        return stats;
+    }
+
+    private Map<String, Object> lookup(String key) {
+        Entry entry = memoryCache.get(key);
+        if (entry != null && isExpired(entry.createdAt())) {
+            memoryCache.remove(key);
+            entry = null;
+        }
+        if (entry == null && persistent) {
+            entry = loadPersistent(key);
+        }
+        if (entry == null) {
+            return null;
+        }
+
+        Map<String, Object> body = new HashMap<>(entry.body());
+        body.put("cached", true);
+        return body;
+    }
+
+    private Entry loadPersistent(String key) {
+        try {
+            Optional<LlmResponse> stored = llmResponseRepository.findByCacheKey(key);
+            if (stored.isEmpty()) {
+                return null;
+            }
+
+            LlmResponse response = stored.get();
+            long createdAt = response.getCreatedAt() != null
+                    ? response.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                    : 0;
+            if (isExpired(createdAt)) {
+                llmResponseRepository.delete(response);
+                return null;
+            }
+
+            Map<String, Object> body = objectMapper.readValue(response.getResponseBody(), JSON_MAP);
+            Entry entry = new Entry(body, createdAt, weigh(body));
+            memoryCache.put(key, entry);
+            persistentHits.incrementAndGet();
+            return entry;
+        } catch (Exception e) {
+            log.warn("LLM response cache lookup failed: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void store(String key, String model, Map<String, Object> response) {
+        // Les tokens de contexte, volumineux, ne servent qu'au magasin de contextes
+        Map<String, Object> body = new HashMap<>(response);
+        body.remove("context");
+        memoryCache.put(key, new Entry(body, System.currentTimeMillis(), weigh(body)));
+        if (!persistent) {
+            return;
+        }
+
+        // Écriture hors du thread d'E/S du client HTTP
+        CompletableFuture.runAsync(() -> {
+            try {
+                LlmResponse entity = new LlmResponse();
+                entity.setCacheKey(key);
+                entity.setModel(model);
+                entity.setResponseBody(objectMapper.writeValueAsString(body));
+                llmResponseRepository.save(entity);
+            } catch (DataIntegrityViolationException e) {
+                log.debug("LLM response {} already cached", key);
+            } catch (Exception e) {
+                log.warn("Failed to cache LLM response {}: {}", key, e.getMessage());
+            }
+        });
+    }
+
+    private boolean isExpired(long createdAt) {
+        return System.currentTimeMillis() - createdAt > ttlMs;
+    }
+
+    /**
+     * Poids approximatif d'une réponse en mémoire (texte en UTF-16 et métadonnées)
+     */
+    private static long weigh(Map<String, Object> body) {
+        Object response = body.get("response");
+        return 512 + (response instanceof String text ? 2L * text.length() : 0);
+    }
+}
@@ -1,14 +1,38 @@
 package com.vision.app.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.vision.app.dto.OllamaResult;
+import com.vision.app.util.ImageUtils;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.*;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
@@ -20,82 +44,344 @@ public class OllamaService {
     @Value("${ollama.model:llama3.2:1b}")
     private String model;
 
-    private final RestTemplate restTemplate;
+    @Value("${ollama.vision.max-side:1024}")
+    private int visionMaxSide = 1024;
 
-    public OllamaService() {
-        this.restTemplate = new RestTemplate();
-        // Configuration du timeout pour les modèles de vision
-        org.springframework.http.client.SimpleClientHttpRequestFactory factory = new org.springframework.http.client.SimpleClientHttpRequestFactory();
-        factory.setConnectTimeout(15000); // 15 secondes
-        factory.setReadTimeout(300000); // 5 minutes pour l'analyse d'images
-        this.restTemplate.setRequestFactory(factory);
+    @Value("${ollama.vision.jpeg-quality:0.85}")
+    private float visionJpegQuality = 0.85f;
+
+    @Value("${ollama.analysis.combined:true}")
+    private boolean combinedAnalysis = true;
+
+    // Durée de maintien du modèle en mémoire après chaque requête (paramètre « keep_alive »)
+    @Value("${ollama.keep-alive:30m}")
+    private String keepAlive = "30m";
+
+    // Au-delà, un load_duration signale un chargement du modèle (démarrage à froid)
+    @Value("${ollama.load-spike-ms:1000}")
+    private long loadSpikeMs = 1000;
+
+    private static final TypeReference<Map<String, Object>> JSON_MAP = new TypeReference<>() {
+    };
+
+    private static final String ANSWER_INSTRUCTIONS = "Instructions: Réponds de manière claire et structurée. "
+            + "Si le texte est vide ou illisible, indique-le clairement.";
+
+    private static final String DOCUMENT_PREFIX = "Voici un document. Lis-le attentivement : des instructions "
+            + "à son sujet suivront. Pour l'instant, réponds seulement « OK ».";
+
+    // Marque interne des réponses obtenues sur le contexte partagé d'un document
+    private static final String SHARED_CONTEXT_TOKENS = "shared_context_tokens";
+
+    private static final String COMBINED_PROMPT = "Analyse le document suivant et réponds uniquement avec un objet JSON. "
+            + "summary : résumé concis et structuré (points clés, informations importantes, conclusion). "
+            + "classification : type de document (facture, contrat, rapport, etc.), domaine d'activité "
+            + "et niveau de confidentialité. "
+            + "structuredData : informations importantes organisées par catégorie "
+            + "(dates, montants, personnes, organisations, lieux, identifiants).";
+
+    // Schéma imposé à la sortie (paramètre « format » d'Ollama)
+    private static final Map<String, Object> COMBINED_SCHEMA = Map.of(
+            "type", "object",
+            "properties", Map.of(
+                    "summary", Map.of("type", "string"),
+                    "classification", Map.of(
+                            "type", "object",
+                            "properties", Map.of(
+                                    "documentType", Map.of("type", "string"),
+                                    "domain", Map.of("type", "string"),
+                                    "confidentiality", Map.of("type", "string")),
+                            "required", List.of("documentType", "domain", "confidentiality")),
+                    "structuredData", Map.of(
+                            "type", "object",
+                            "properties", Map.of(
+                                    "dates", stringArray(),
+                                    "amounts", stringArray(),
+                                    "people", stringArray(),
+                                    "organizations", stringArray(),
+                                    "places", stringArray(),
+                                    "identifiers", stringArray()))),
+            "required", List.of("summary", "classification", "structuredData"));
+
+    private final OllamaHttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final OllamaResponseCache responseCache;
+    private final OllamaRequestScheduler scheduler;
+    private final OllamaContextStore contextStore;
+    private final OllamaModelRouter router;
+    private final OllamaBackendPool backendPool;
+
+    // Sérialisation canonique des requêtes (clés triées) : même requête, même empreinte
+    private final ObjectWriter requestWriter;
+
+    // Empreintes des modèles installés (/api/tags) : un modèle remplacé invalide le cache
+    private final Map<String, String> modelDigests = new ConcurrentHashMap<>();
+
+    // Dernière requête envoyée par modèle, et chargements observés (load_duration)
+    private final Map<String, Long> lastUsedAt = new ConcurrentHashMap<>();
+    private final Map<String, LoadStats> loadStats = new ConcurrentHashMap<>();
+
+    // Registre de santé, qui sonde lui-même ce service : injecté à la demande
+    private ServiceHealthRegistry healthRegistry;
+
+    public OllamaService(OllamaHttpClient httpClient, ObjectMapper objectMapper, OllamaResponseCache responseCache,
+            OllamaRequestScheduler scheduler, OllamaContextStore contextStore, OllamaModelRouter router,
+            OllamaBackendPool backendPool) {
+        // Client asynchrone à connexions persistantes : aucun thread bloqué pendant la génération
+        this.httpClient = httpClient;
+        this.objectMapper = objectMapper;
+        this.responseCache = responseCache;
+        this.scheduler = scheduler;
+        this.contextStore = contextStore;
+        this.router = router;
+        this.backendPool = backendPool;
+        this.requestWriter = objectMapper.writer().with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+    }
+
+    @Autowired
+    public void setHealthRegistry(@Lazy ServiceHealthRegistry healthRegistry) {
+        this.healthRegistry = healthRegistry;
     }
 
     /**
      * Analyse un texte avec Ollama
      */
     public OllamaResult analyzeText(String text, String prompt) {
-        try {
-            log.info("Starting Ollama analysis for text ({} chars) with prompt: {}", text.length(), prompt);
-
-            // Construction de la requête
-            Map<String, Object> request = new HashMap<>();
-            request.put("model", model);
-            request.put("prompt", buildPrompt(prompt, text));
-            request.put("stream", false);
-            request.put("options", buildOptions());
-
-            // Appel à l'API Ollama
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(request, headers);
-            ResponseEntity<Map<String, Object>> response = restTemplate.exchange(
-                    ollamaUrl,
-                    HttpMethod.POST,
-                    entity,
-                    (Class<Map<String, Object>>) (Class<?>) Map.class);
-
-            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-                Map<String, Object> responseBody = response.getBody();
-
-                OllamaResult result = new OllamaResult();
-                result.setSuccess(true);
-                result.setModel(model);
-                result.setPrompt(prompt);
-                result.setResponse((String) responseBody.get("response"));
-                result.setDone((Boolean) responseBody.get("done"));
-
-                // Métadonnées de la réponse
-                Map<String, Object> metadata = new HashMap<>();
-                metadata.put("totalDuration", responseBody.get("total_duration"));
-                metadata.put("loadDuration", responseBody.get("load_duration"));
-                metadata.put("promptEvalCount", responseBody.get("prompt_eval_count"));
-                metadata.put("promptEvalDuration", responseBody.get("prompt_eval_duration"));
-                metadata.put("evalCount", responseBody.get("eval_count"));
-                metadata.put("evalDuration", responseBody.get("eval_duration"));
-                result.setMetadata(metadata);
-
-                log.info("Ollama analysis completed successfully for prompt: {}", prompt);
-                return result;
-
-            } else {
-                log.error("Ollama API returned unexpected response: {}", response.getStatusCode());
-                return createErrorResult("Unexpected API response: " + response.getStatusCode());
-            }
+        return analyzeTextAsync(text, prompt).join();
+    }
+
+    /**
+     * Analyse un texte avec Ollama sans bloquer l'appelant ; le résultat
+     * (succès ou erreur) est toujours rendu par le future
+     */
+    public CompletableFuture<OllamaResult> analyzeTextAsync(String text, String prompt) {
+        return analyzeTextAsync(text, prompt, DocumentAnalysisType.CUSTOM);
+    }
+
+    /**
+     * Analyse un texte avec le modèle et les limites de génération routés pour ce type d'analyse
+     */
+    public CompletableFuture<OllamaResult> analyzeTextAsync(String text, String prompt, DocumentAnalysisType type) {
+        log.info("Starting Ollama analysis for text ({} chars) with prompt: {}", text.length(), prompt);
+
+        OllamaModelRouter.Route route = router.route(type);
+        if (route.skipped()) {
+            return CompletableFuture.completedFuture(skippedResult(prompt, route));
+        }
+
+        // Construction de la requête
+        Map<String, Object> request = new HashMap<>();
+        request.put("model", route.model());
+        request.put("prompt", buildPrompt(prompt, text));
+        request.put("stream", false);
+        request.put("options", buildOptions(route));
+
+        return analysisResult(prompt, route, generate(request, OllamaRequestScheduler.Lane.BACKGROUND));
+    }
+
+    /**
+     * Prompt libre sur le texte d'un document (voie interactive) : un document long
+     * n'est lu qu'une fois par le modèle, les prompts suivants repartent de son contexte
+     */
+    public CompletableFuture<OllamaResult> askDocumentAsync(String text, String prompt) {
+        return analyzeOnDocumentAsync(text, prompt, DocumentAnalysisType.CUSTOM,
+                OllamaRequestScheduler.Lane.INTERACTIVE);
+    }
 
-        } catch (Exception e) {
-            log.error("Ollama analysis failed: {}", e.getMessage());
-            return createErrorResult("Analysis failed: " + e.getMessage());
+    private CompletableFuture<OllamaResult> analyzeOnDocumentAsync(String text, String prompt,
+            DocumentAnalysisType type, OllamaRequestScheduler.Lane lane) {
+        log.info("Starting Ollama analysis for document ({} chars) with prompt: {}", text.length(), prompt);
+
+        OllamaModelRouter.Route route = router.route(type);
+        if (route.skipped()) {
+            return CompletableFuture.completedFuture(skippedResult(prompt, route));
         }
+
+        Map<String, Object> request = new HashMap<>();
+        request.put("model", route.model());
+        request.put("stream", false);
+        request.put("options", buildOptions(route));
+
+        return analysisResult(prompt, route, generateOnDocument(text, prompt, request, lane));
+    }
+
+    private CompletableFuture<OllamaResult> analysisResult(String prompt, OllamaModelRouter.Route route,
+            CompletableFuture<Map<String, Object>> call) {
+        return call
+                .thenApply(responseBody -> {
+                    if (responseBody.containsKey("error")) {
+                        log.error("Ollama API returned an error: {}", responseBody.get("error"));
+                        return createErrorResult("Unexpected API response: " + responseBody.get("error"));
+                    }
+
+                    OllamaResult result = toResult(prompt, responseBody);
+                    if (route.degraded()) {
+                        result.getMetadata().put("degraded", true);
+                    }
+                    log.info("Ollama analysis completed successfully with {} for prompt: {}", route.model(), prompt);
+                    return result;
+                })
+                .exceptionally(e -> {
+                    log.error("Ollama analysis failed: {}", rootMessage(e));
+                    return createErrorResult("Analysis failed: " + rootMessage(e));
+                });
     }
 
     /**
      * Analyse un document avec des instructions spécifiques
      */
     public OllamaResult analyzeDocument(String text, DocumentAnalysisType analysisType) {
+        return analyzeDocumentAsync(text, analysisType).join();
+    }
+
+    /**
+     * Analyse un document sans bloquer l'appelant ; les analyses d'un même document
+     * long partagent son contexte
+     */
+    public CompletableFuture<OllamaResult> analyzeDocumentAsync(String text, DocumentAnalysisType analysisType) {
         String prompt = buildDocumentPrompt(analysisType);
-        return analyzeText(text, prompt);
+        return analyzeOnDocumentAsync(text, prompt, analysisType, OllamaRequestScheduler.Lane.BACKGROUND);
+    }
+
+    /**
+     * Résumé, classification et extraction structurée d'un document : un seul
+     * appel à sortie JSON contrainte, avec repli sur les trois appels séparés si
+     * la réponse n'est pas exploitable (modèle ou serveur sans sortie structurée)
+     */
+    public CompletableFuture<Map<DocumentAnalysisType, OllamaResult>> analyzeDocumentFullyAsync(String text) {
+        // File saturée : appels séparés, pour que les analyses optionnelles soient ignorées
+        if (!combinedAnalysis || router.isSkippingOptional()) {
+            return analyzeSeparatelyAsync(text);
+        }
+        return analyzeCombinedAsync(text).thenCompose(results -> {
+            if (results != null) {
+                return CompletableFuture.completedFuture(results);
+            }
+            log.warn("Combined Ollama analysis unusable, falling back to separate prompts");
+            return analyzeSeparatelyAsync(text);
+        });
+    }
+
+    /**
+     * Les trois analyses en appels séparés (lancés ensemble)
+     */
+    public CompletableFuture<Map<DocumentAnalysisType, OllamaResult>> analyzeSeparatelyAsync(String text) {
+        return analyzeSeparatelyAsync(text, EnumSet.of(DocumentAnalysisType.SUMMARY,
+                DocumentAnalysisType.CLASSIFICATION, DocumentAnalysisType.STRUCTURED_EXTRACTION));
+    }
+
+    /**
+     * Les analyses demandées seulement, en appels séparés (lancés ensemble)
+     */
+    public CompletableFuture<Map<DocumentAnalysisType, OllamaResult>> analyzeSeparatelyAsync(String text,
+            Set<DocumentAnalysisType> types) {
+        Map<DocumentAnalysisType, CompletableFuture<OllamaResult>> calls = new EnumMap<>(DocumentAnalysisType.class);
+        for (DocumentAnalysisType type : types) {
+            calls.put(type, analyzeDocumentAsync(text, type));
+        }
+
+        return CompletableFuture.allOf(calls.values().toArray(new CompletableFuture[0])).thenApply(done -> {
+            Map<DocumentAnalysisType, OllamaResult> results = new EnumMap<>(DocumentAnalysisType.class);
+            calls.forEach((type, call) -> results.put(type, call.join()));
+            return results;
+        });
+    }
+
+    /**
+     * Un seul prompt pour les trois analyses ; null si la réponse n'est pas
+     * exploitable, résultats en erreur si Ollama est injoignable
+     */
+    private CompletableFuture<Map<DocumentAnalysisType, OllamaResult>> analyzeCombinedAsync(String text) {
+        log.info("Starting combined Ollama analysis for text ({} chars)", text.length());
+
+        // Route du résumé, la plus exigeante des trois analyses
+        OllamaModelRouter.Route route = router.route(DocumentAnalysisType.SUMMARY);
+        Map<String, Object> options = buildOptions(route);
+        // Trois réponses dans une seule génération (sortie JSON : pas de séquences d'arrêt)
+        options.put("num_predict", route.degraded() ? route.numPredict() * 3 / 2 : 3072);
+        options.remove("stop");
+
+        Map<String, Object> request = new HashMap<>();
+        request.put("model", route.model());
+        request.put("format", COMBINED_SCHEMA);
+        request.put("stream", false);
+        request.put("options", options);
+
+        return generateOnDocument(text, COMBINED_PROMPT, request, OllamaRequestScheduler.Lane.BACKGROUND)
+                .thenApply(responseBody -> {
+                    if (responseBody.containsKey("error")) {
+                        log.warn("Combined Ollama analysis rejected: {}", responseBody.get("error"));
+                        return null;
+                    }
+                    return splitCombinedResponse(responseBody);
+                })
+                .exceptionally(e -> {
+                    log.error("Combined Ollama analysis failed: {}", rootMessage(e));
+                    OllamaResult error = createErrorResult("Analysis failed: " + rootMessage(e));
+                    Map<DocumentAnalysisType, OllamaResult> results = new EnumMap<>(DocumentAnalysisType.class);
+                    results.put(DocumentAnalysisType.SUMMARY, error);
+                    results.put(DocumentAnalysisType.CLASSIFICATION, error);
+                    results.put(DocumentAnalysisType.STRUCTURED_EXTRACTION, error);
+                    return results;
+                });
+    }
+
+    /**
+     * Répartit la réponse JSON combinée dans les trois résultats habituels
+     */
+    @SuppressWarnings("unchecked")
+    private Map<DocumentAnalysisType, OllamaResult> splitCombinedResponse(Map<String, Object> responseBody) {
+        Map<String, Object> json;
+        try {
+            json = objectMapper.readValue(String.valueOf(responseBody.get("response")), JSON_MAP);
+        } catch (JsonProcessingException e) {
+            log.warn("Combined Ollama response is not valid JSON: {}", e.getOriginalMessage());
+            return null;
+        }
+
+        Object summary = json.get("summary");
+        Object classification = json.get("classification");
+        Object structuredData = json.get("structuredData");
+        if (!(summary instanceof String) || !(classification instanceof Map) || structuredData == null) {
+            log.warn("Combined Ollama response misses fields: {}", json.keySet());
+            return null;
+        }
+
+        String structured;
+        try {
+            structured = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(structuredData);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+
+        Map<DocumentAnalysisType, OllamaResult> results = new EnumMap<>(DocumentAnalysisType.class);
+        results.put(DocumentAnalysisType.SUMMARY,
+                combinedResult(DocumentAnalysisType.SUMMARY, (String) summary, responseBody));
+        results.put(DocumentAnalysisType.CLASSIFICATION, combinedResult(DocumentAnalysisType.CLASSIFICATION,
+                formatClassification((Map<String, Object>) classification), responseBody));
+        results.put(DocumentAnalysisType.STRUCTURED_EXTRACTION,
+                combinedResult(DocumentAnalysisType.STRUCTURED_EXTRACTION, structured, responseBody));
+
+        log.info("Combined Ollama analysis completed successfully");
+        return results;
+    }
+
+    private OllamaResult combinedResult(DocumentAnalysisType type, String response, Map<String, Object> responseBody) {
+        OllamaResult result = toResult(buildDocumentPrompt(type), responseBody);
+        result.setResponse(response);
+        // Durées partagées : une seule génération pour les trois analyses
+        result.getMetadata().put("combined", true);
+        return result;
+    }
+
+    private static String formatClassification(Map<String, Object> classification) {
+        return "Type de document : " + classification.getOrDefault("documentType", "inconnu") + "\n"
+                + "Domaine d'activité : " + classification.getOrDefault("domain", "inconnu") + "\n"
+                + "Niveau de confidentialité : " + classification.getOrDefault("confidentiality", "inconnu");
+    }
+
+    private static Map<String, Object> stringArray() {
+        return Map.of("type", "array", "items", Map.of("type", "string"));
     }
 
     /**
@@ -132,87 +418,189 @@ public class OllamaService {
      * Analyse une image avec du texte (pour l'endpoint /analyze)
      */
     public OllamaResult analyzeImageWithText(byte[] imageBytes, String fileName, String prompt) {
-        try {
-            log.info("🤖 Starting Ollama image analysis for file: {} with prompt: {}", fileName, prompt);
+        return analyzeImageWithTextAsync(imageBytes, fileName, prompt).join();
+    }
 
-            // Vérifier d'abord si Ollama est disponible
-            if (!isOllamaAvailable()) {
-                log.warn("⚠️ Ollama is not available - returning mock result");
-                return createMockResult(prompt);
-            }
+    /**
+     * Analyse une image avec du texte sans bloquer l'appelant
+     */
+    public CompletableFuture<OllamaResult> analyzeImageWithTextAsync(byte[] imageBytes, String fileName, String prompt) {
+        log.info("🤖 Starting Ollama image analysis for file: {} with prompt: {}", fileName, prompt);
+
+        // Réduction et réencodage sur le thread appelant, pas sur celui du client HTTP
+        byte[] visionImage = prepareImage(imageBytes, fileName);
+
+        // Vérifier d'abord que le modèle de vision est installé (dernier état sondé, sans appel réseau)
+        if (!isModelReady(router.routeVision().model())) {
+            log.warn("⚠️ Ollama or vision model {} not available - returning mock result", router.routeVision().model());
+            return CompletableFuture.completedFuture(createMockResult(prompt));
+        }
 
-            // Encoder l'image en base64 pour l'envoyer à Ollama
-            String base64Image = java.util.Base64.getEncoder().encodeToString(imageBytes);
-
-            // Construction de la requête pour l'analyse d'image
-            Map<String, Object> request = new HashMap<>();
-            request.put("model", model);
-            request.put("prompt", prompt);
-            request.put("images", new String[] { base64Image });
-            request.put("stream", false);
-            request.put("options", buildOptions());
-
-            // Appel à l'API Ollama
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(request, headers);
-            ResponseEntity<Map<String, Object>> response = restTemplate.exchange(
-                    ollamaUrl,
-                    HttpMethod.POST,
-                    entity,
-                    (Class<Map<String, Object>>) (Class<?>) Map.class);
-
-            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-                Map<String, Object> responseBody = response.getBody();
-
-                // Vérifier si c'est une erreur de modèle
-                if (responseBody.containsKey("error")) {
-                    String errorMessage = (String) responseBody.get("error");
-                    log.error("❌ Ollama model error: {}", errorMessage);
-
-                    if (errorMessage.contains("model") && errorMessage.contains("not found")) {
-                        return createErrorResult("Modèle Ollama non trouvé. Veuillez installer le modèle " + model
-                                + " avec: ollama pull " + model);
+        // Analyse demandée par un utilisateur qui attend : voie interactive
+        return generate(buildImageRequest(visionImage, prompt), OllamaRequestScheduler.Lane.INTERACTIVE)
+                .thenApply(responseBody -> {
+                    // Vérifier si c'est une erreur de modèle
+                    if (responseBody.containsKey("error")) {
+                        return modelErrorResult(String.valueOf(responseBody.get("error")));
                     }
-                    return createErrorResult("Erreur Ollama: " + errorMessage);
-                }
 
-                OllamaResult result = new OllamaResult();
-                result.setSuccess(true);
-                result.setModel(model);
-                result.setPrompt(prompt);
-                result.setResponse((String) responseBody.get("response"));
-                result.setDone((Boolean) responseBody.getOrDefault("done", true));
-
-                // Ajouter les métadonnées si disponibles
-                if (responseBody.containsKey("total_duration")) {
-                    Map<String, Object> metadata = new HashMap<>();
-                    metadata.put("totalDuration", (Long) responseBody.get("total_duration"));
-                    metadata.put("evalCount", (Integer) responseBody.get("eval_count"));
-                    metadata.put("promptEvalCount", (Integer) responseBody.get("prompt_eval_count"));
-                    metadata.put("evalDuration", (Long) responseBody.get("eval_duration"));
-                    result.setMetadata(metadata);
-                }
+                    OllamaResult result = toResult(prompt, responseBody);
+                    log.info("✅ Ollama image analysis completed successfully for {}", fileName);
+                    return result;
+                })
+                .exceptionally(e -> imageErrorResult(fileName, e));
+    }
+
+    /**
+     * Analyse d'image en flux : chaque fragment généré est transmis à onToken dès
+     * sa réception, le résultat complet est assemblé à la fin du flux.
+     * Annuler le future interrompt la génération.
+     */
+    public CompletableFuture<OllamaResult> analyzeImageWithTextStream(byte[] imageBytes, String fileName,
+            String prompt, Consumer<String> onToken) {
+        log.info("🤖 Starting streamed Ollama image analysis for file: {}", fileName);
+
+        Map<String, Object> request = buildImageRequest(prepareImage(imageBytes, fileName), prompt);
+        request.put("stream", true);
+        request.put("keep_alive", keepAlive);
+        String visionModel = router.routeVision().model();
+        lastUsedAt.put(visionModel, System.currentTimeMillis());
+
+        // Lignes reçues une à une sur le thread d'E/S du client
+        StringBuilder response = new StringBuilder();
+        long start = System.nanoTime();
+        AtomicLong firstTokenNanos = new AtomicLong(-1);
+        // Rejoué sur un autre serveur seulement si aucun fragment n'a encore été transmis
+        CompletableFuture<Map<String, Object>> exchange = scheduler.submit(OllamaRequestScheduler.Lane.INTERACTIVE,
+                () -> backendPool.execute(visionModel,
+                        baseUrl -> httpClient.postJsonLines(baseUrl + "/api/generate", request, line -> {
+                            if (line.get("response") instanceof String token && !token.isEmpty()) {
+                                firstTokenNanos.compareAndSet(-1, System.nanoTime() - start);
+                                response.append(token);
+                                onToken.accept(token);
+                            }
+                        }),
+                        () -> firstTokenNanos.get() < 0));
 
-                log.info("✅ Ollama image analysis completed successfully for {}", fileName);
-                return result;
-            } else {
-                log.error("❌ Ollama API returned error status: {}", response.getStatusCode());
-                return createErrorResult("Ollama API error: " + response.getStatusCode());
+        CompletableFuture<OllamaResult> result = exchange.thenApply(last -> {
+            observeLoad(visionModel, last);
+            if (last.containsKey("error")) {
+                return modelErrorResult(String.valueOf(last.get("error")));
             }
 
-        } catch (Exception e) {
-            log.error("❌ Ollama image analysis failed for {}: {}", fileName, e.getMessage(), e);
+            Map<String, Object> responseBody = new HashMap<>(last);
+            responseBody.put("response", response.toString());
+            OllamaResult assembled = toResult(prompt, responseBody);
+            assembled.getMetadata().put("timeToFirstTokenMs", firstTokenNanos.get() / 1_000_000);
+            log.info("✅ Streamed Ollama image analysis completed for {} (first token after {} ms)",
+                    fileName, firstTokenNanos.get() / 1_000_000);
+            return assembled;
+        }).exceptionally(e -> imageErrorResult(fileName, e));
+
+        result.whenComplete((done, error) -> {
+            if (result.isCancelled()) {
+                exchange.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Requête /api/generate pour une image et un prompt ; l'image reste en octets,
+     * Jackson l'écrit en base64 directement dans le corps JSON
+     */
+    private Map<String, Object> buildImageRequest(byte[] imageBytes, String prompt) {
+        OllamaModelRouter.Route route = router.routeVision();
+        Map<String, Object> request = new HashMap<>();
+        request.put("model", route.model());
+        request.put("prompt", prompt);
+        request.put("images", List.of(imageBytes));
+        request.put("stream", false);
+        request.put("options", buildOptions(route));
+        return request;
+    }
+
+    /**
+     * Ramène l'image à la résolution d'entrée du modèle de vision et la réencode en
+     * JPEG ; un format illisible par ImageIO est envoyé tel quel
+     */
+    private byte[] prepareImage(byte[] imageBytes, String fileName) {
+        try {
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(imageBytes));
+            if (image == null) {
+                return imageBytes;
+            }
 
-            // Vérifier si c'est une erreur de modèle spécifique
-            if (e.getMessage().contains("model") && e.getMessage().contains("not found")) {
-                return createErrorResult("Modèle Ollama non trouvé. Veuillez installer le modèle " + model
-                        + " avec: ollama pull " + model);
+            BufferedImage scaled = ImageUtils.downscale(image, visionMaxSide);
+            byte[] jpeg = ImageUtils.encodeJpeg(scaled, visionJpegQuality);
+            if (scaled == image && jpeg.length >= imageBytes.length) {
+                return imageBytes;
             }
 
-            return createErrorResult("Image analysis failed: " + e.getMessage());
+            log.debug("Vision image {} prepared: {}x{} ({} bytes) -> {}x{} JPEG ({} bytes)", fileName,
+                    image.getWidth(), image.getHeight(), imageBytes.length,
+                    scaled.getWidth(), scaled.getHeight(), jpeg.length);
+            return jpeg;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Vision image {} sent unchanged: {}", fileName, e.getMessage());
+            return imageBytes;
+        }
+    }
+
+    private OllamaResult modelErrorResult(String errorMessage) {
+        log.error("❌ Ollama model error: {}", errorMessage);
+        if (errorMessage.contains("model") && errorMessage.contains("not found")) {
+            return createErrorResult("Modèle Ollama non trouvé. Veuillez installer le modèle " + model
+                    + " avec: ollama pull " + model);
         }
+        return createErrorResult("Erreur Ollama: " + errorMessage);
+    }
+
+    private OllamaResult imageErrorResult(String fileName, Throwable e) {
+        String message = rootMessage(e);
+        log.error("❌ Ollama image analysis failed for {}: {}", fileName, message);
+
+        // Vérifier si c'est une erreur de modèle spécifique
+        if (message.contains("model") && message.contains("not found")) {
+            return createErrorResult("Modèle Ollama non trouvé. Veuillez installer le modèle " + model
+                    + " avec: ollama pull " + model);
+        }
+
+        return createErrorResult("Image analysis failed: " + message);
+    }
+
+    /**
+     * Convertit une réponse /api/generate en résultat
+     */
+    private OllamaResult toResult(String prompt, Map<String, Object> responseBody) {
+        OllamaResult result = new OllamaResult();
+        result.setSuccess(true);
+        result.setModel(String.valueOf(responseBody.getOrDefault("model", model)));
+        result.setPrompt(prompt);
+        result.setResponse((String) responseBody.get("response"));
+        result.setDone((Boolean) responseBody.getOrDefault("done", true));
+
+        // Métadonnées de la réponse
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("totalDuration", responseBody.get("total_duration"));
+        metadata.put("loadDuration", responseBody.get("load_duration"));
+        metadata.put("promptEvalCount", responseBody.get("prompt_eval_count"));
+        metadata.put("promptEvalDuration", responseBody.get("prompt_eval_duration"));
+        metadata.put("evalCount", responseBody.get("eval_count"));
+        metadata.put("evalDuration", responseBody.get("eval_duration"));
+        if (Boolean.TRUE.equals(responseBody.get("cached"))) {
+            metadata.put("cached", true);
+        }
+        if (responseBody.get(SHARED_CONTEXT_TOKENS) instanceof Number contextTokens) {
+            metadata.put("sharedContextTokens", contextTokens);
+        }
+        result.setMetadata(metadata);
+        return result;
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        return cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
     }
 
     /**
@@ -223,12 +611,18 @@ public class OllamaService {
         prompt.append(basePrompt).append("\n\n");
         prompt.append("Texte à analyser:\n");
         prompt.append(text).append("\n\n");
-        prompt.append(
-                "Instructions: Réponds de manière claire et structurée. Si le texte est vide ou illisible, indique-le clairement.");
+        prompt.append(ANSWER_INSTRUCTIONS);
 
         return prompt.toString();
     }
 
+    /**
+     * Prompt envoyé à la suite du contexte d'un document : le texte n'y figure plus
+     */
+    private String buildFollowUpPrompt(String basePrompt) {
+        return basePrompt + "\n\nLe document est le texte fourni plus haut.\n\n" + ANSWER_INSTRUCTIONS;
+    }
+
     /**
      * Construit le prompt pour l'analyse de document
      */
@@ -260,15 +654,31 @@ public class OllamaService {
     /**
      * Construit les options pour l'API Ollama
      */
-    private Map<String, Object> buildOptions() {
+    private Map<String, Object> buildOptions(OllamaModelRouter.Route route) {
         Map<String, Object> options = new HashMap<>();
         options.put("temperature", 0.1); // Réponses plus déterministes
         options.put("top_p", 0.9);
         options.put("top_k", 40);
-        options.put("num_predict", 2048); // Limite de tokens de réponse
+        options.put("num_predict", route.numPredict()); // Limite de tokens de réponse
+        if (!route.stop().isEmpty()) {
+            options.put("stop", route.stop());
+        }
         return options;
     }
 
+    /**
+     * Analyse optionnelle ignorée par le routeur (file saturée)
+     */
+    private OllamaResult skippedResult(String prompt, OllamaModelRouter.Route route) {
+        OllamaResult result = createErrorResult("Analyse ignorée : file Ollama saturée");
+        result.setModel(route.model());
+        result.setPrompt(prompt);
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("skipped", true);
+        result.setMetadata(metadata);
+        return result;
+    }
+
     /**
      * Crée un résultat d'erreur
      */
@@ -295,49 +705,359 @@ public class OllamaService {
     }
 
     /**
-     * Vérifie si Ollama est disponible
+     * URL de base du serveur (ollama.url peut désigner directement /api/generate)
      */
-    public boolean isAvailable() {
+    public String getBaseUrl() {
+        return OllamaBackendPool.baseUrl(ollamaUrl);
+    }
+
+    /**
+     * POST /api/generate sur le serveur du pool choisi pour ce modèle
+     */
+    private CompletableFuture<Map<String, Object>> postGenerate(String generateModel, Object body) {
+        return backendPool.execute(generateModel, baseUrl -> postGenerateTo(baseUrl, body));
+    }
+
+    private CompletableFuture<Map<String, Object>> postGenerateTo(String baseUrl, Object body) {
+        return body instanceof byte[] json
+                ? httpClient.postJson(baseUrl + "/api/generate", json)
+                : httpClient.postJson(baseUrl + "/api/generate", body);
+    }
+
+    /**
+     * Appel /api/generate sans flux, servi par le cache si la même requête a déjà
+     * abouti, sinon planifié dans la voie indiquée
+     */
+    private CompletableFuture<Map<String, Object>> generate(Map<String, Object> request,
+            OllamaRequestScheduler.Lane lane) {
+        Map<String, Object> pinned = new HashMap<>(request);
+        pinned.put("keep_alive", keepAlive);
+        byte[] body;
         try {
-            // Test simple de connexion
-            OllamaResult testResult = analyzeText("test", "test");
-            return testResult.isSuccessful();
-        } catch (Exception e) {
-            log.warn("Ollama availability check failed: {}", e.getMessage());
-            return false;
+            body = requestWriter.writeValueAsBytes(pinned);
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(e);
         }
+        String requestModel = String.valueOf(request.get("model"));
+        String key = responseCache.key(modelVersion(requestModel), body);
+        return responseCache.getOrLoad(key, requestModel, () -> {
+            lastUsedAt.put(requestModel, System.currentTimeMillis());
+            return scheduler.submit(lane, () -> postGenerate(requestModel, body))
+                    .thenApply(responseBody -> observeLoad(requestModel, responseBody));
+        });
     }
 
     /**
-     * Vérifie si Ollama est disponible (version simplifiée)
+     * Nom et empreinte du modèle installé (inconnue tant que /api/tags n'a pas été lu)
      */
-    private boolean isOllamaAvailable() {
-        try {
-            // Test de connexion simple sans traitement
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-
-            Map<String, Object> testRequest = new HashMap<>();
-            testRequest.put("model", model);
-            testRequest.put("prompt", "test");
-            testRequest.put("stream", false);
-
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(testRequest, headers);
-
-            // Utiliser le RestTemplate configuré avec les bons timeouts
-            ResponseEntity<Map<String, Object>> response = restTemplate.exchange(
-                    ollamaUrl,
-                    HttpMethod.POST,
-                    entity,
-                    (Class<Map<String, Object>>) (Class<?>) Map.class);
-
-            return response.getStatusCode() == HttpStatus.OK;
-        } catch (Exception e) {
-            log.debug("Ollama availability check failed: {}", e.getMessage());
-            return false;
+    private String modelVersion(String versionedModel) {
+        return versionedModel + "@" + modelDigests.getOrDefault(versionedModel, "unknown");
+    }
+
+    /**
+     * Charge un modèle en mémoire sans rien générer (prompt vide) sur chaque serveur
+     * non écarté du pool et l'y maintient chargé pour la durée keep_alive ; sur un
+     * modèle déjà chargé, ne fait que prolonger ce maintien. Réussi si au moins un
+     * serveur a chargé le modèle et qu'aucun n'a répondu par une erreur (un serveur
+     * injoignable est écarté du pool, pas compté comme un échec).
+     */
+    public CompletableFuture<Map<String, Object>> warmUpAsync(String warmModel) {
+        Map<String, Object> request = new HashMap<>();
+        request.put("model", warmModel);
+        request.put("prompt", "");
+        request.put("stream", false);
+        request.put("keep_alive", keepAlive);
+
+        long start = System.nanoTime();
+        return scheduler.submit(OllamaRequestScheduler.Lane.BACKGROUND, () -> {
+            Map<String, CompletableFuture<Map<String, Object>>> calls =
+                    backendPool.executeOnEach(warmModel, baseUrl -> postGenerateTo(baseUrl, request));
+            return CompletableFuture.allOf(calls.values().toArray(CompletableFuture[]::new))
+                    .handle((ignored, error) -> summarizeWarmUp(warmModel, calls, start));
+        });
+    }
+
+    /**
+     * Résultat du préchauffage, serveur par serveur (tous les appels sont terminés)
+     */
+    private Map<String, Object> summarizeWarmUp(String warmModel,
+            Map<String, CompletableFuture<Map<String, Object>>> calls, long start) {
+        List<Map<String, Object>> backends = new ArrayList<>();
+        Long loadDurationMs = null;
+        String firstError = null;
+        int loaded = 0;
+        int rejected = 0;
+        for (Map.Entry<String, CompletableFuture<Map<String, Object>>> call : calls.entrySet()) {
+            Map<String, Object> backend = new LinkedHashMap<>();
+            backend.put("url", call.getKey());
+            String error;
+            try {
+                Map<String, Object> responseBody = observeLoad(warmModel, call.getValue().join());
+                Long backendLoadMs = toMillis(responseBody.get("load_duration"));
+                backend.put("loadDurationMs", backendLoadMs);
+                if (backendLoadMs != null) {
+                    loadDurationMs = loadDurationMs == null ? backendLoadMs : Math.max(loadDurationMs, backendLoadMs);
+                }
+                error = responseBody.containsKey("error") ? String.valueOf(responseBody.get("error")) : null;
+                if (error == null) {
+                    loaded++;
+                } else {
+                    rejected++;
+                }
+            } catch (CompletionException | CancellationException e) {
+                error = rootMessage(e);
+            }
+            backend.put("success", error == null);
+            if (error != null) {
+                backend.put("error", error);
+                firstError = firstError != null ? firstError : call.getKey() + ": " + error;
+            }
+            backends.add(backend);
+        }
+
+        Map<String, Object> warmUp = new LinkedHashMap<>();
+        warmUp.put("model", warmModel);
+        warmUp.put("success", loaded > 0 && rejected == 0);
+        warmUp.put("durationMs", (System.nanoTime() - start) / 1_000_000);
+        warmUp.put("loadDurationMs", loadDurationMs);
+        warmUp.put("backends", backends);
+        if (firstError != null) {
+            warmUp.put("error", firstError);
+        }
+        return warmUp;
+    }
+
+    /**
+     * Heure (ms) de la dernière requête envoyée pour ce modèle, 0 si aucune
+     */
+    public long getLastUsedAt(String usedModel) {
+        return lastUsedAt.getOrDefault(usedModel, 0L);
+    }
+
+    /**
+     * Chargements de modèles observés (load_duration des réponses), par modèle
+     */
+    public Map<String, Object> getLoadStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("spikeThresholdMs", loadSpikeMs);
+        Map<String, Object> models = new LinkedHashMap<>();
+        loadStats.forEach((loadedModel, modelStats) -> models.put(loadedModel, modelStats.toMap()));
+        stats.put("models", models);
+        return stats;
+    }
+
+    /**
+     * Relève le load_duration d'une réponse réellement servie par Ollama (hors cache)
+     */
+    private Map<String, Object> observeLoad(String usedModel, Map<String, Object> responseBody) {
+        Long loadMs = toMillis(responseBody.get("load_duration"));
+        if (loadMs != null) {
+            boolean spike = loadMs >= loadSpikeMs;
+            loadStats.computeIfAbsent(usedModel, name -> new LoadStats()).record(loadMs, spike);
+            if (spike) {
+                log.warn("Ollama model {} was loaded before answering: load_duration {} ms", usedModel, loadMs);
+            }
+        }
+        return responseBody;
+    }
+
+    private static Long toMillis(Object nanos) {
+        return nanos instanceof Number number ? number.longValue() / 1_000_000 : null;
+    }
+
+    private static final class LoadStats {
+        private long observed;
+        private long spikes;
+        private long lastSpikeMs;
+        private long lastSpikeAt;
+        private long maxLoadMs;
+        private long totalSpikeMs;
+
+        synchronized void record(long loadMs, boolean spike) {
+            observed++;
+            maxLoadMs = Math.max(maxLoadMs, loadMs);
+            if (spike) {
+                spikes++;
+                lastSpikeMs = loadMs;
+                lastSpikeAt = System.currentTimeMillis();
+                totalSpikeMs += loadMs;
+            }
+        }
+
+        synchronized Map<String, Object> toMap() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("observed", observed);
+            stats.put("spikes", spikes);
+            stats.put("lastSpikeMs", lastSpikeMs);
+            stats.put("lastSpikeAt", lastSpikeAt);
+            stats.put("maxLoadMs", maxLoadMs);
+            stats.put("avgSpikeMs", spikes > 0 ? totalSpikeMs / spikes : 0);
+            return stats;
         }
     }
 
+    /**
+     * Appel /api/generate portant sur un document : un document long est d'abord lu
+     * seul (contexte conservé), puis le prompt part sur ce contexte ; un document
+     * court, ou un contexte indisponible ou refusé, donne un prompt complet avec le texte
+     */
+    private CompletableFuture<Map<String, Object>> generateOnDocument(String text, String prompt,
+            Map<String, Object> request, OllamaRequestScheduler.Lane lane) {
+        Map<String, Object> fullRequest = new HashMap<>(request);
+        fullRequest.put("prompt", buildPrompt(prompt, text));
+        if (!contextStore.isWorthSharing(text)) {
+            return generate(fullRequest, lane);
+        }
+
+        String requestModel = String.valueOf(request.get("model"));
+        String key = contextStore.key(modelVersion(requestModel), text);
+        return contextStore.getOrEvaluate(key, () -> evaluateDocument(text, requestModel, lane))
+                .handle((context, error) -> {
+                    if (error != null) {
+                        log.warn("Shared Ollama context unavailable ({}), sending the full text", rootMessage(error));
+                        return generate(fullRequest, lane);
+                    }
+
+                    Map<String, Object> followUp = new HashMap<>(request);
+                    followUp.put("prompt", buildFollowUpPrompt(prompt));
+                    followUp.put("context", context);
+                    return generate(followUp, lane).thenCompose(responseBody -> {
+                        if (responseBody.containsKey("error")) {
+                            log.warn("Ollama rejected the shared context ({}), sending the full text",
+                                    responseBody.get("error"));
+                            contextStore.invalidate(key);
+                            return generate(fullRequest, lane);
+                        }
+                        Map<String, Object> shared = new HashMap<>(responseBody);
+                        shared.put(SHARED_CONTEXT_TOKENS, context.length);
+                        return CompletableFuture.completedFuture(shared);
+                    });
+                })
+                .thenCompose(Function.identity());
+    }
+
+    /**
+     * Fait lire le document au modèle (un seul token généré) et rend les tokens de
+     * contexte qui le représentent ; hors cache de réponses, le contexte étant
+     * conservé à part
+     */
+    private CompletableFuture<int[]> evaluateDocument(String text, String contextModel,
+            OllamaRequestScheduler.Lane lane) {
+        log.info("Evaluating shared Ollama context for document ({} chars) with {}", text.length(), contextModel);
+
+        Map<String, Object> options = new HashMap<>();
+        options.put("temperature", 0.1);
+        options.put("num_predict", 1);
+
+        Map<String, Object> request = new HashMap<>();
+        request.put("model", contextModel);
+        request.put("prompt", DOCUMENT_PREFIX + "\n\nTexte à analyser:\n" + text);
+        request.put("stream", false);
+        request.put("keep_alive", keepAlive);
+        request.put("options", options);
+        lastUsedAt.put(contextModel, System.currentTimeMillis());
+
+        return scheduler.submit(lane, () -> postGenerate(contextModel, request)).thenApply(responseBody -> {
+            observeLoad(contextModel, responseBody);
+            if (responseBody.containsKey("error")) {
+                throw new IllegalStateException(String.valueOf(responseBody.get("error")));
+            }
+            if (!(responseBody.get("context") instanceof List<?> tokens) || tokens.isEmpty()) {
+                throw new IllegalStateException("Réponse Ollama sans contexte");
+            }
+
+            int[] context = new int[tokens.size()];
+            for (int i = 0; i < context.length; i++) {
+                context[i] = ((Number) tokens.get(i)).intValue();
+            }
+            log.debug("Shared Ollama context ready: {} tokens (prompt evaluated in {} ns)",
+                    context.length, responseBody.get("prompt_eval_duration"));
+            return context;
+        });
+    }
+
+    /**
+     * Vérifie si Ollama est disponible (serveur joignable et modèle installé),
+     * d'après le dernier état sondé par le registre de santé
+     */
+    public boolean isAvailable() {
+        return healthRegistry.isAvailable(ServiceHealthRegistry.OLLAMA);
+    }
+
+    /**
+     * Vrai si le serveur répondait à la dernière sonde avec ce modèle installé,
+     * même si d'autres modèles routés manquent
+     */
+    public boolean isModelReady(String name) {
+        Map<String, Object> details = healthRegistry.get(ServiceHealthRegistry.OLLAMA).getDetails();
+        return details != null && details.get("models") instanceof List<?> models && isInstalled(models, name);
+    }
+
+    private static boolean isInstalled(List<?> models, String name) {
+        return models.contains(name) || models.contains(name + ":latest");
+    }
+
+    /**
+     * Sonde légère, sans génération : modèles installés (/api/tags) et version
+     * du serveur (/api/version), sur un serveur joignable du pool
+     */
+    public CompletableFuture<Map<String, Object>> probeAsync() {
+        return backendPool.execute(null, this::probeBackend).thenApply(status -> {
+            status.put("backends", backendPool.getStats());
+            return status;
+        });
+    }
+
+    private CompletableFuture<Map<String, Object>> probeBackend(String baseUrl) {
+        CompletableFuture<Map<String, Object>> tags = httpClient.getJson(baseUrl + "/api/tags");
+        CompletableFuture<Map<String, Object>> version = httpClient.getJson(baseUrl + "/api/version")
+                .exceptionally(e -> Map.of());
+
+        return tags.thenCombine(version, (tagsBody, versionBody) -> {
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("url", baseUrl);
+            status.put("model", model);
+            if (tagsBody.containsKey("error")) {
+                status.put("available", false);
+                status.put("error", String.valueOf(tagsBody.get("error")));
+                return status;
+            }
+
+            List<String> models = new ArrayList<>();
+            if (tagsBody.get("models") instanceof List<?> entries) {
+                for (Object entry : entries) {
+                    if (entry instanceof Map<?, ?> installed && installed.get("name") != null) {
+                        String name = String.valueOf(installed.get("name"));
+                        models.add(name);
+                        if (installed.get("digest") != null) {
+                            String digest = String.valueOf(installed.get("digest"));
+                            modelDigests.put(name, digest);
+                            if (name.endsWith(":latest")) {
+                                modelDigests.put(name.substring(0, name.length() - ":latest".length()), digest);
+                            }
+                        }
+                    }
+                }
+            }
+            // Tous les modèles routés (analyses, vision, mode dégradé) doivent être installés
+            List<String> missing = router.getModels().stream()
+                    .filter(required -> !isInstalled(models, required))
+                    .collect(Collectors.toList());
+            boolean modelInstalled = missing.isEmpty();
+
+            status.put("available", modelInstalled);
+            status.put("version", versionBody.getOrDefault("version", "unknown"));
+            status.put("models", models);
+            status.put("modelInstalled", modelInstalled);
+            status.put("missingModels", missing);
+            if (!modelInstalled) {
+                status.put("error", "Modèle(s) " + String.join(", ", missing) + " non installé(s) (ollama pull "
+                        + missing.get(0) + ")");
+            }
+            return status;
+        });
+    }
+
     /**
      * Crée un résultat mock quand Ollama n'est pas disponible
      */
@@ -372,7 +1092,14 @@ public class OllamaService {
         Map<String, Object> config = new HashMap<>();
         config.put("url", ollamaUrl);
         config.put("model", model);
-        config.put("available", isAvailable());
+        config.put("http", httpClient.getStats());
+        config.put("backends", backendPool.getStats());
+        config.put("cache", responseCache.getStats());
+        config.put("scheduler", scheduler.getStats());
+        config.put("context", contextStore.getStats());
+        config.put("routing", router.getStats());
+        config.put("keepAlive", keepAlive);
+        config.put("load", getLoadStats());
         config.put("features", new String[] {
                 "Text analysis",
                 "Document summarization",
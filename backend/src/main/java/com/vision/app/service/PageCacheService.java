@@ -0,0 +1,144 @@
+package com.vision.app.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vision.app.dto.BarcodeInfo;
+import com.vision.app.model.PageContent;
+import com.vision.app.repository.PageContentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Cache persistant des résultats d'extraction par page, indexé par l'empreinte
+ * du contenu de la page (voir {@link PdfService#computePageHashes(byte[])})
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PageCacheService {
+
+    private final PageContentRepository pageContentRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${pdf.page-cache.enabled:true}")
+    private boolean enabled = true;
+
+    /**
+     * Récupère les entrées connues pour un ensemble d'empreintes
+     */
+    public Map<String, PageContent> findByHashes(Collection<String> contentHashes) {
+        if (!enabled || contentHashes == null || contentHashes.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        try {
+            Map<String, PageContent> contents = new HashMap<>();
+            for (PageContent content : pageContentRepository.findByContentHashIn(contentHashes)) {
+                contents.put(content.getContentHash(), content);
+            }
+            return contents;
+        } catch (Exception e) {
+            log.warn("Page cache lookup failed: {}", e.getMessage());
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * Enregistre le texte extrait de plusieurs pages en une seule écriture
+     */
+    public void saveTexts(Map<String, String> textsByHash, Map<String, PageContent> known) {
+        if (!enabled || textsByHash.isEmpty()) {
+            return;
+        }
+
+        List<PageContent> toSave = new ArrayList<>();
+        for (Map.Entry<String, String> entry : textsByHash.entrySet()) {
+            PageContent content = known.get(entry.getKey());
+            if (content == null) {
+                content = new PageContent();
+                content.setContentHash(entry.getKey());
+            }
+            content.setPageText(entry.getValue());
+            toSave.add(content);
+        }
+
+        try {
+            pageContentRepository.saveAll(toSave);
+        } catch (DataIntegrityViolationException e) {
+            // Un traitement concurrent a déjà enregistré ces pages
+            log.debug("Page texts already cached by a concurrent upload: {}", e.getMessage());
+        } catch (Exception e) {
+            log.warn("Failed to cache page texts: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Enregistre le résultat OCR d'une page
+     */
+    public void saveOcr(String contentHash, String ocrText, Double confidence) {
+        update(contentHash, content -> {
+            content.setOcrText(ocrText != null ? ocrText : "");
+            content.setOcrConfidence(confidence);
+        });
+    }
+
+    /**
+     * Enregistre les codes-barres détectés sur une page (liste vide comprise)
+     */
+    public void saveBarcodes(String contentHash, List<BarcodeInfo> barcodes) {
+        try {
+            String json = objectMapper.writeValueAsString(barcodes != null ? barcodes : List.of());
+            update(contentHash, content -> content.setBarcodes(json));
+        } catch (Exception e) {
+            log.warn("Failed to serialize barcodes for page {}: {}", contentHash, e.getMessage());
+        }
+    }
+
+    /**
+     * Relit les codes-barres mis en cache pour une page
+     */
+    public List<BarcodeInfo> readBarcodes(PageContent content) {
+        if (content == null || !content.hasBarcodes()) {
+            return Collections.emptyList();
+        }
+
+        try {
+            return objectMapper.readValue(content.getBarcodes(), new TypeReference<List<BarcodeInfo>>() {
+            });
+        } catch (Exception e) {
+            log.warn("Invalid cached barcodes for page {}: {}", content.getContentHash(), e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    private void update(String contentHash, Consumer<PageContent> updater) {
+        if (!enabled || contentHash == null) {
+            return;
+        }
+
+        try {
+            PageContent content = pageContentRepository.findByContentHash(contentHash).orElseGet(() -> {
+                PageContent created = new PageContent();
+                created.setContentHash(contentHash);
+                return created;
+            });
+            updater.accept(content);
+            pageContentRepository.save(content);
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Page {} already cached by a concurrent upload", contentHash);
+        } catch (Exception e) {
+            log.warn("Failed to update page cache for {}: {}", contentHash, e.getMessage());
+        }
+    }
+}
@@ -2,28 +2,57 @@ package com.vision.app.service;
 
 import com.vision.app.dto.PdfResult;
 import com.vision.app.dto.PageInfo;
+import com.vision.app.model.PageContent;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.cos.COSString;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
 import org.apache.pdfbox.pdmodel.common.PDMetadata;
 import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
 import org.apache.pdfbox.text.PDFTextStripper;
 import org.apache.pdfbox.text.PDFTextStripperByArea;
 import org.springframework.stereotype.Service;
 
 import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
 
 @Service
+@RequiredArgsConstructor
 @Slf4j
 public class PdfService {
 
+    private static final byte[] EMPTY_DIGEST = new byte[0];
+
+    private final PageCacheService pageCacheService;
+
     /**
      * Extrait le texte d'un fichier PDF
      */
@@ -36,19 +65,14 @@ public class PdfService {
             result.setFileSize(pdfFile.length());
             result.setPageCount(document.getNumberOfPages());
 
-            // Extraction du texte
-            PDFTextStripper stripper = new PDFTextStripper();
-            String text = stripper.getText(document);
+            // Extraction du texte et des informations par page (avec réutilisation du cache)
+            String text = extractPages(document, result, null);
             result.setText(text);
 
             // Extraction des métadonnées
             Map<String, Object> metadata = extractMetadata(document);
             result.setMetadata(metadata);
 
-            // Extraction des informations par page
-            List<PageInfo> pages = extractPageInfo(document);
-            result.setPages(pages);
-
             // Détection de la langue
             String language = detectLanguage(text);
             result.setDetectedLanguage(language);
@@ -87,6 +111,15 @@ public class PdfService {
      * Extrait le texte d'un PDF depuis des bytes
      */
     public PdfResult extractTextFromPdfBytes(byte[] pdfBytes, String fileName) {
+        return extractTextFromPdfBytes(pdfBytes, fileName, null);
+    }
+
+    /**
+     * Extrait le texte d'un PDF depuis des bytes en le comparant à la révision
+     * précédente du document (empreintes enregistrées) : les pages inchangées
+     * reprennent leur texte en cache, seules les pages modifiées sont extraites
+     */
+    public PdfResult extractTextFromPdfBytes(byte[] pdfBytes, String fileName, List<String> previousHashes) {
         try (InputStream inputStream = new java.io.ByteArrayInputStream(pdfBytes);
                 PDDocument document = PDDocument.load(inputStream)) {
 
@@ -97,19 +130,14 @@ public class PdfService {
             result.setFileSize((long) pdfBytes.length);
             result.setPageCount(document.getNumberOfPages());
 
-            // Extraction du texte
-            PDFTextStripper stripper = new PDFTextStripper();
-            String text = stripper.getText(document);
+            // Extraction du texte et des informations par page (avec réutilisation du cache)
+            String text = extractPages(document, result, previousHashes);
             result.setText(text);
 
             // Extraction des métadonnées
             Map<String, Object> metadata = extractMetadata(document);
             result.setMetadata(metadata);
 
-            // Extraction des informations par page
-            List<PageInfo> pages = extractPageInfo(document);
-            result.setPages(pages);
-
             // Détection de la langue
             String language = detectLanguage(text);
             result.setDetectedLanguage(language);
@@ -219,36 +247,216 @@ public class PdfService {
     }
 
     /**
-     * Extrait les informations de chaque page
+     * Extrait le texte et les informations de chaque page. Les pages dont
+     * l'empreinte est déjà connue réutilisent le texte mis en cache ; avec les
+     * empreintes de la révision précédente, chaque page est marquée modifiée ou non.
      */
-    private List<PageInfo> extractPageInfo(PDDocument document) {
-        List<PageInfo> pages = new ArrayList<>();
-
-        try {
-            for (int i = 0; i < document.getNumberOfPages(); i++) {
-                PDPage page = document.getPage(i);
-                PageInfo pageInfo = new PageInfo();
-
-                pageInfo.setPageNumber(i);
-                pageInfo.setWidth(page.getMediaBox().getWidth());
-                pageInfo.setHeight(page.getMediaBox().getHeight());
-                pageInfo.setRotation(page.getRotation());
-
-                // Extraction du texte de la page
-                PDFTextStripper stripper = new PDFTextStripper();
+    private String extractPages(PDDocument document, PdfResult result, List<String> previousHashes)
+            throws IOException {
+        int pageCount = document.getNumberOfPages();
+        List<String> hashes = computePageHashes(document);
+        Map<String, PageContent> known = pageCacheService.findByHashes(hashes);
+        Set<String> previous = previousHashes != null ? new HashSet<>(previousHashes) : Set.of();
+        int changed = 0;
+
+        List<PageInfo> pages = new ArrayList<>(pageCount);
+        List<String> pageTexts = new ArrayList<>(pageCount);
+        Map<String, String> newTexts = new LinkedHashMap<>();
+        StringBuilder text = new StringBuilder();
+        PDFTextStripper stripper = new PDFTextStripper();
+        int reused = 0;
+
+        for (int i = 0; i < pageCount; i++) {
+            PDPage page = document.getPage(i);
+            String hash = hashes.get(i);
+
+            String pageText;
+            PageContent cached = known.get(hash);
+            if (cached != null && cached.hasPageText()) {
+                pageText = cached.getPageText();
+                reused++;
+            } else {
                 stripper.setStartPage(i + 1);
                 stripper.setEndPage(i + 1);
-                String pageText = stripper.getText(document);
-                pageInfo.setTextLength(pageText.length());
-                pageInfo.setHasText(!pageText.trim().isEmpty());
+                pageText = stripper.getText(document);
+                newTexts.put(hash, pageText);
+            }
 
-                pages.add(pageInfo);
+            PageInfo pageInfo = new PageInfo();
+            pageInfo.setPageNumber(i);
+            pageInfo.setWidth(page.getMediaBox().getWidth());
+            pageInfo.setHeight(page.getMediaBox().getHeight());
+            pageInfo.setRotation(page.getRotation());
+            pageInfo.setTextLength(pageText.length());
+            pageInfo.setHasText(!pageText.trim().isEmpty());
+            pageInfo.setContentHash(hash);
+            pageInfo.setReused(cached != null && cached.hasPageText());
+            if (previousHashes != null) {
+                pageInfo.setChanged(!previous.contains(hash));
+                changed += pageInfo.isChanged() ? 1 : 0;
             }
+
+            pages.add(pageInfo);
+            // Limites de pages conservées à part (pageTexts) pour le découpage des documents longs
+            pageTexts.add(pageText);
+            text.append(pageText);
+        }
+
+        pageCacheService.saveTexts(newTexts, known);
+
+        result.setPages(pages);
+        result.setPageTexts(pageTexts);
+        result.setReusedPageCount(reused);
+
+        if (previousHashes != null) {
+            result.setChangedPageCount(changed);
+            log.info("{}/{} pages changed since the previous revision", changed, pageCount);
+        }
+        if (reused > 0) {
+            log.info("Reused cached text for {}/{} pages", reused, pageCount);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Calcule l'empreinte SHA-256 de chaque page d'un PDF
+     */
+    public List<String> computePageHashes(byte[] pdfBytes) {
+        try (PDDocument document = PDDocument.load(pdfBytes)) {
+            return computePageHashes(document);
         } catch (Exception e) {
-            log.warn("Failed to extract some page information: {}", e.getMessage());
+            log.warn("Failed to compute page hashes: {}", e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Calcule l'empreinte de chaque page à partir de son flux de contenu,
+     * de ses ressources, de ses annotations, de sa taille et de sa rotation
+     */
+    private List<String> computePageHashes(PDDocument document) throws IOException {
+        // Les ressources partagées (polices, images) ne sont hachées qu'une fois
+        Map<COSBase, byte[]> digests = new IdentityHashMap<>();
+        List<String> hashes = new ArrayList<>(document.getNumberOfPages());
+
+        for (PDPage page : document.getPages()) {
+            MessageDigest digest = newDigest();
+            digest.update(page.getMediaBox().toString().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) (page.getRotation() / 90));
+
+            try (InputStream contents = page.getContents()) {
+                if (contents != null) {
+                    byte[] buffer = new byte[8192];
+                    int read;
+                    while ((read = contents.read(buffer)) != -1) {
+                        digest.update(buffer, 0, read);
+                    }
+                }
+            }
+
+            PDResources resources = page.getResources();
+            if (resources != null) {
+                digest.update(digestCos(resources.getCOSObject(), digests));
+            }
+
+            // Annotations (commentaires, champs de formulaire, tampons) et leurs apparences
+            digest.update((byte) 'A');
+            digest.update(digestCos(page.getCOSObject().getDictionaryObject(COSName.ANNOTS), digests));
+
+            hashes.add(HexFormat.of().formatHex(digest.digest()));
+        }
+
+        return hashes;
+    }
+
+    /**
+     * Empreinte récursive d'un objet COS (dictionnaires triés par clé, flux bruts)
+     */
+    private byte[] digestCos(COSBase base, Map<COSBase, byte[]> digests) throws IOException {
+        if (base instanceof COSObject) {
+            base = ((COSObject) base).getObject();
+        }
+        if (base == null) {
+            return EMPTY_DIGEST;
+        }
+
+        byte[] known = digests.get(base);
+        if (known != null) {
+            return known;
+        }
+        // Protection contre les références circulaires
+        digests.put(base, EMPTY_DIGEST);
+
+        MessageDigest digest = newDigest();
+        if (base instanceof COSDictionary) {
+            COSDictionary dictionary = (COSDictionary) base;
+            List<COSName> keys = new ArrayList<>(dictionary.keySet());
+            keys.sort(Comparator.comparing(COSName::getName));
+            digest.update((byte) 'd');
+            for (COSName key : keys) {
+                // Renvois vers le parent ou la page (/P des annotations) : hors empreinte
+                if (COSName.PARENT.equals(key) || COSName.P.equals(key)) {
+                    continue;
+                }
+                digest.update(key.getName().getBytes(StandardCharsets.UTF_8));
+                digest.update(digestCos(dictionary.getItem(key), digests));
+            }
+            if (base instanceof COSStream) {
+                digest.update((byte) 's');
+                try (InputStream raw = ((COSStream) base).createRawInputStream()) {
+                    byte[] buffer = new byte[8192];
+                    int read;
+                    while ((read = raw.read(buffer)) != -1) {
+                        digest.update(buffer, 0, read);
+                    }
+                }
+            }
+        } else if (base instanceof COSArray) {
+            digest.update((byte) 'a');
+            for (COSBase element : (COSArray) base) {
+                digest.update(digestCos(element, digests));
+            }
+        } else if (base instanceof COSString) {
+            digest.update((byte) 't');
+            digest.update(((COSString) base).getBytes());
+        } else if (base instanceof COSName) {
+            digest.update((byte) 'n');
+            digest.update(((COSName) base).getName().getBytes(StandardCharsets.UTF_8));
+        } else {
+            digest.update((byte) 'v');
+            digest.update(base.toString().getBytes(StandardCharsets.UTF_8));
         }
 
-        return pages;
+        byte[] result = digest.digest();
+        digests.put(base, result);
+        return result;
+    }
+
+    private MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Rend les pages demandées en images et les transmet au consommateur, une par une
+     */
+    public void renderPages(byte[] pdfBytes, Collection<Integer> pageNumbers, float dpi,
+            BiConsumer<Integer, BufferedImage> consumer) {
+        try (PDDocument document = PDDocument.load(pdfBytes)) {
+            PDFRenderer renderer = new PDFRenderer(document);
+            for (int pageNumber : pageNumbers) {
+                if (pageNumber < 0 || pageNumber >= document.getNumberOfPages()) {
+                    throw new IllegalArgumentException("Invalid page number: " + pageNumber);
+                }
+                consumer.accept(pageNumber, renderer.renderImageWithDPI(pageNumber, dpi, ImageType.RGB));
+            }
+        } catch (IOException e) {
+            log.error("Failed to render PDF pages: {}", e.getMessage());
+            throw new RuntimeException("Page rendering failed", e);
+        }
     }
 
     /**
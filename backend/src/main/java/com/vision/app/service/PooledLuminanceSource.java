@@ -0,0 +1,240 @@
+package com.vision.app.service;
+
+import com.google.zxing.LuminanceSource;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+
+/**
+ * Source de luminance ZXing alimentée directement depuis le raster de l'image,
+ * dans un tampon emprunté au {@link BarcodeBufferPool}.
+ * Les recadrages partagent le tampon de l'image d'origine.
+ */
+final class PooledLuminanceSource extends LuminanceSource {
+
+    private final byte[] luminances;
+    private final int dataWidth;
+    private final int dataHeight;
+    private final int left;
+    private final int top;
+    private final BarcodeBufferPool.Lease lease;
+
+    private PooledLuminanceSource(byte[] luminances, int dataWidth, int dataHeight,
+            int left, int top, int width, int height, BarcodeBufferPool.Lease lease) {
+        super(width, height);
+        this.luminances = luminances;
+        this.dataWidth = dataWidth;
+        this.dataHeight = dataHeight;
+        this.left = left;
+        this.top = top;
+        this.lease = lease;
+    }
+
+    /**
+     * Convertit une image en niveaux de gris sans passer par une copie ARGB intermédiaire
+     */
+    static PooledLuminanceSource fromImage(BufferedImage image, BarcodeBufferPool.Lease lease) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        byte[] luminances = lease.bytes(width * height);
+
+        if (!convertRaster(image, luminances)) {
+            convertRgb(image, luminances);
+        }
+        return new PooledLuminanceSource(luminances, width, height, 0, 0, width, height, lease);
+    }
+
+    @Override
+    public byte[] getRow(int y, byte[] row) {
+        if (y < 0 || y >= getHeight()) {
+            throw new IllegalArgumentException("Requested row is outside the image: " + y);
+        }
+
+        int width = getWidth();
+        if (row == null || row.length < width) {
+            row = new byte[width];
+        }
+        System.arraycopy(luminances, (y + top) * dataWidth + left, row, 0, width);
+        return row;
+    }
+
+    @Override
+    public byte[] getMatrix() {
+        int width = getWidth();
+        int height = getHeight();
+
+        // Lignes contiguës : le tampon est utilisable tel quel
+        if (left == 0 && top == 0 && width == dataWidth) {
+            return luminances;
+        }
+
+        byte[] matrix = lease.bytes(width * height);
+        for (int y = 0; y < height; y++) {
+            System.arraycopy(luminances, (y + top) * dataWidth + left, matrix, y * width, width);
+        }
+        return matrix;
+    }
+
+    @Override
+    public boolean isCropSupported() {
+        return true;
+    }
+
+    @Override
+    public LuminanceSource crop(int left, int top, int width, int height) {
+        return new PooledLuminanceSource(luminances, dataWidth, dataHeight,
+                this.left + left, this.top + top, width, height, lease);
+    }
+
+    @Override
+    public boolean isRotateSupported() {
+        return true;
+    }
+
+    @Override
+    public LuminanceSource rotateCounterClockwise() {
+        int width = getWidth();
+        int height = getHeight();
+        byte[] rotated = lease.bytes(width * height);
+
+        // (x, y) -> (y, width - 1 - x) dans une image de largeur height
+        for (int y = 0; y < height; y++) {
+            int in = (y + top) * dataWidth + left;
+            for (int x = 0; x < width; x++) {
+                rotated[(width - 1 - x) * height + y] = luminances[in + x];
+            }
+        }
+        return new PooledLuminanceSource(rotated, height, width, 0, 0, height, width, lease);
+    }
+
+    /**
+     * Lecture directe des types de raster courants ; false si le format n'est pas géré
+     */
+    private static boolean convertRaster(BufferedImage image, byte[] luminances) {
+        Raster raster = image.getRaster();
+        DataBuffer dataBuffer = raster.getDataBuffer();
+        SampleModel sampleModel = raster.getSampleModel();
+        int width = image.getWidth();
+        int height = image.getHeight();
+        // Origine de l'image dans le tampon (non nulle pour une sous-image)
+        int x0 = raster.getMinX() - raster.getSampleModelTranslateX();
+        int y0 = raster.getMinY() - raster.getSampleModelTranslateY();
+
+        switch (image.getType()) {
+            case BufferedImage.TYPE_BYTE_GRAY: {
+                if (!(dataBuffer instanceof DataBufferByte) || !(sampleModel instanceof ComponentSampleModel)) {
+                    return false;
+                }
+                ComponentSampleModel model = (ComponentSampleModel) sampleModel;
+                byte[] data = ((DataBufferByte) dataBuffer).getData();
+                int stride = model.getScanlineStride();
+                int pixelStride = model.getPixelStride();
+                int base = dataBuffer.getOffset() + model.getOffset(x0, y0, 0);
+
+                for (int y = 0, out = 0; y < height; y++) {
+                    int in = base + y * stride;
+                    if (pixelStride == 1) {
+                        System.arraycopy(data, in, luminances, out, width);
+                        out += width;
+                    } else {
+                        for (int x = 0; x < width; x++) {
+                            luminances[out++] = data[in + x * pixelStride];
+                        }
+                    }
+                }
+                return true;
+            }
+            case BufferedImage.TYPE_3BYTE_BGR:
+            case BufferedImage.TYPE_4BYTE_ABGR:
+            case BufferedImage.TYPE_4BYTE_ABGR_PRE: {
+                if (!(dataBuffer instanceof DataBufferByte) || !(sampleModel instanceof ComponentSampleModel)) {
+                    return false;
+                }
+                ComponentSampleModel model = (ComponentSampleModel) sampleModel;
+                byte[] data = ((DataBufferByte) dataBuffer).getData();
+                int stride = model.getScanlineStride();
+                int pixelStride = model.getPixelStride();
+                int offset = dataBuffer.getOffset();
+                int red = offset + model.getOffset(x0, y0, 0);
+                int green = offset + model.getOffset(x0, y0, 1);
+                int blue = offset + model.getOffset(x0, y0, 2);
+                int alpha = model.getNumBands() > 3 ? offset + model.getOffset(x0, y0, 3) : -1;
+
+                for (int y = 0, out = 0; y < height; y++) {
+                    int row = y * stride;
+                    for (int x = 0; x < width; x++) {
+                        int in = row + x * pixelStride;
+                        if (alpha >= 0 && data[alpha + in] == 0) {
+                            luminances[out++] = (byte) 0xFF;
+                        } else {
+                            luminances[out++] = luminance(data[red + in] & 0xFF,
+                                    data[green + in] & 0xFF, data[blue + in] & 0xFF);
+                        }
+                    }
+                }
+                return true;
+            }
+            case BufferedImage.TYPE_INT_RGB:
+            case BufferedImage.TYPE_INT_ARGB:
+            case BufferedImage.TYPE_INT_ARGB_PRE: {
+                if (!(dataBuffer instanceof DataBufferInt) || !(sampleModel instanceof SinglePixelPackedSampleModel)) {
+                    return false;
+                }
+                SinglePixelPackedSampleModel model = (SinglePixelPackedSampleModel) sampleModel;
+                int[] data = ((DataBufferInt) dataBuffer).getData();
+                int stride = model.getScanlineStride();
+                int base = dataBuffer.getOffset() + model.getOffset(x0, y0);
+                boolean hasAlpha = image.getType() != BufferedImage.TYPE_INT_RGB;
+
+                for (int y = 0, out = 0; y < height; y++) {
+                    int in = base + y * stride;
+                    for (int x = 0; x < width; x++) {
+                        int pixel = data[in + x];
+                        if (hasAlpha && (pixel & 0xFF000000) == 0) {
+                            luminances[out++] = (byte) 0xFF;
+                        } else {
+                            luminances[out++] = luminance((pixel >> 16) & 0xFF, (pixel >> 8) & 0xFF, pixel & 0xFF);
+                        }
+                    }
+                }
+                return true;
+            }
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Conversion générique, ligne par ligne, pour les autres types d'image
+     */
+    private static void convertRgb(BufferedImage image, byte[] luminances) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] row = new int[width];
+
+        for (int y = 0, out = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            for (int x = 0; x < width; x++) {
+                int pixel = row[x];
+                if ((pixel & 0xFF000000) == 0) {
+                    luminances[out++] = (byte) 0xFF;
+                } else {
+                    luminances[out++] = luminance((pixel >> 16) & 0xFF, (pixel >> 8) & 0xFF, pixel & 0xFF);
+                }
+            }
+        }
+    }
+
+    /**
+     * Même pondération que {@code BufferedImageLuminanceSource}
+     */
+    private static byte luminance(int red, int green, int blue) {
+        return (byte) ((306 * red + 601 * green + 117 * blue + 0x200) >> 10);
+    }
+}
@@ -0,0 +1,139 @@
+package com.vision.app.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Réponses longues écrites au fil de l'eau (archive ZIP, NDJSON). Chaque endpoint
+ * fixe son propre délai sur l'émetteur, sans relever le délai asynchrone global
+ * de Spring MVC.
+ */
+@Service
+@Slf4j
+public class ResponseStreamService {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    // Réponses écrites en parallèle ; les suivantes attendent dans la file, au-delà : 503
+    @Value("${response.stream.max-threads:16}")
+    private int maxThreads = 16;
+
+    @Value("${response.stream.queue:16}")
+    private int queueSize = 16;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        executor = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueSize)), runnable -> {
+                    Thread thread = new Thread(runnable, "response-stream");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Écrit la réponse sur un thread dédié ; le délai ne s'applique qu'à cette
+     * réponse, et l'écriture est interrompue s'il est dépassé ou si le client part.
+     * Refusée (503) si tous les threads sont occupés et la file pleine
+     */
+    public ResponseBodyEmitter stream(long timeoutMs, StreamingResponseBody body) {
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(timeoutMs);
+        Future<?> writer;
+        try {
+            writer = executor.submit(() -> {
+                try (OutputStream out = new EmitterOutputStream(emitter)) {
+                    body.writeTo(out);
+                } catch (Exception e) {
+                    log.warn("Streamed response failed: {}", e.getMessage());
+                    emitter.completeWithError(e);
+                    return;
+                }
+                emitter.complete();
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("Streamed response rejected: {} running, {} queued",
+                    executor.getActiveCount(), executor.getQueue().size());
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Too many streamed responses in progress, retry later");
+        }
+        emitter.onTimeout(() -> writer.cancel(true));
+        emitter.onError(e -> writer.cancel(true));
+        return emitter;
+    }
+
+    /**
+     * Regroupe les écritures en blocs envoyés tels quels ; flush() envoie
+     * immédiatement le bloc en cours (une ligne NDJSON par exemple)
+     */
+    private static final class EmitterOutputStream extends OutputStream {
+
+        private final ResponseBodyEmitter emitter;
+        private final byte[] buffer = new byte[CHUNK_SIZE];
+        private int count;
+
+        EmitterOutputStream(ResponseBodyEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == buffer.length) {
+                flush();
+            }
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            while (length > 0) {
+                if (count == buffer.length) {
+                    flush();
+                }
+                int copied = Math.min(length, buffer.length - count);
+                System.arraycopy(bytes, offset, buffer, count, copied);
+                count += copied;
+                offset += copied;
+                length -= copied;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (count > 0) {
+                // Copie : l'émetteur peut garder le bloc tant que la réponse n'est pas prête
+                emitter.send(Arrays.copyOf(buffer, count), MediaType.APPLICATION_OCTET_STREAM);
+                count = 0;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
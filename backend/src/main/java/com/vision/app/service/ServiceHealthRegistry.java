@@ -0,0 +1,207 @@
+package com.vision.app.service;
+
+import com.vision.app.dto.ServiceHealth;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Registre de l'état des services d'extraction : des sondes légères (sans
+ * génération LLM ni traitement de document) tournent en arrière-plan et les
+ * endpoints de statut lisent le dernier état connu en mémoire.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ServiceHealthRegistry {
+
+    public static final String OCR = "ocr";
+    public static final String PDF = "pdf";
+    public static final String BARCODE = "barcode";
+    public static final String OLLAMA = "ollama";
+
+    private final OcrService ocrService;
+    private final PdfService pdfService;
+    private final BarcodeService barcodeService;
+    private final OllamaService ollamaService;
+
+    @Value("${health.refresh-interval-ms:30000}")
+    private long refreshIntervalMs = 30_000;
+
+    @Value("${health.ttl-ms:90000}")
+    private long ttlMs = 90_000;
+
+    @Value("${health.probe-timeout-ms:5000}")
+    private long probeTimeoutMs = 5000;
+
+    private final Map<String, ServiceHealth> statuses = new ConcurrentHashMap<>();
+    private final Set<String> probing = ConcurrentHashMap.newKeySet();
+    private final Map<String, Supplier<CompletableFuture<Map<String, Object>>>> probes = new LinkedHashMap<>();
+    private ScheduledExecutorService scheduler;
+    private ExecutorService probeExecutor;
+
+    @PostConstruct
+    public void init() {
+        // Services locaux : sondés sur un thread dédié, pour que le délai de sonde
+        // s'applique aussi à un appel bloqué (initialisation éventuelle hors requête)
+        probes.put(OCR, () -> CompletableFuture.supplyAsync(ocrService::getConfiguration, probeExecutor));
+        probes.put(PDF, () -> CompletableFuture.supplyAsync(pdfService::getConfiguration, probeExecutor));
+        probes.put(BARCODE, () -> CompletableFuture.supplyAsync(barcodeService::getConfiguration, probeExecutor));
+        // Ollama : /api/tags et /api/version, sans génération
+        probes.put(OLLAMA, ollamaService::probeAsync);
+
+        // Une sonde au plus par service : le pool ne dépasse pas le nombre de services
+        probeExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "health-probe-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "health-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::refreshAll, 0, refreshIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        probeExecutor.shutdownNow();
+    }
+
+    /**
+     * Lance toutes les sondes (une seule à la fois par service)
+     */
+    public void refreshAll() {
+        probes.keySet().forEach(this::refresh);
+    }
+
+    /**
+     * Lance la sonde d'un service ; sans effet si elle est déjà en cours. Une
+     * sonde qui dépasse le délai rend le service indisponible, mais la suivante
+     * n'est lancée qu'une fois la précédente terminée.
+     */
+    public CompletableFuture<ServiceHealth> refresh(String name) {
+        Supplier<CompletableFuture<Map<String, Object>>> probe = probes.get(name);
+        if (probe == null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Service inconnu: " + name));
+        }
+        if (!probing.add(name)) {
+            return CompletableFuture.completedFuture(get(name));
+        }
+
+        long start = System.nanoTime();
+        CompletableFuture<Map<String, Object>> result;
+        try {
+            result = probe.get();
+        } catch (Exception e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        result.whenComplete((details, error) -> probing.remove(name));
+
+        return result.copy()
+                .orTimeout(probeTimeoutMs, TimeUnit.MILLISECONDS)
+                .handle((details, error) -> {
+                    long latencyMs = (System.nanoTime() - start) / 1_000_000;
+                    ServiceHealth health = error == null
+                            ? ServiceHealth.builder()
+                                    .name(name)
+                                    .available(Boolean.TRUE.equals(details.get("available")))
+                                    .error(details.get("error") != null ? String.valueOf(details.get("error")) : null)
+                                    .details(details)
+                                    .checkedAt(System.currentTimeMillis())
+                                    .latencyMs(latencyMs)
+                                    .build()
+                            : ServiceHealth.builder()
+                                    .name(name)
+                                    .available(false)
+                                    .error(rootMessage(error))
+                                    .details(Map.of())
+                                    .checkedAt(System.currentTimeMillis())
+                                    .latencyMs(latencyMs)
+                                    .build();
+
+                    ServiceHealth previous = statuses.put(name, health);
+                    if (previous == null || previous.isAvailable() != health.isAvailable()) {
+                        log.info("Service {} {}", name, health.isAvailable() ? "disponible"
+                                : "indisponible" + (health.getError() != null ? ": " + health.getError() : ""));
+                    }
+                    return health;
+                });
+    }
+
+    /**
+     * Dernier état connu d'un service, lu en mémoire ; un état périmé (sondes
+     * bloquées) est signalé et déclenche une nouvelle sonde
+     */
+    public ServiceHealth get(String name) {
+        ServiceHealth health = statuses.get(name);
+        if (health == null) {
+            return ServiceHealth.builder()
+                    .name(name)
+                    .available(false)
+                    .stale(true)
+                    .error("Sonde en cours")
+                    .details(Map.of())
+                    .build();
+        }
+
+        if (System.currentTimeMillis() - health.getCheckedAt() > ttlMs) {
+            if (!probing.contains(name) && !scheduler.isShutdown()) {
+                scheduler.execute(() -> refresh(name));
+            }
+            return health.toBuilder().stale(true).build();
+        }
+        return health;
+    }
+
+    public boolean isAvailable(String name) {
+        return get(name).isAvailable();
+    }
+
+    /**
+     * État d'un service à plat pour les endpoints de statut : informations de la
+     * sonde, disponibilité, date et durée de la sonde
+     */
+    public Map<String, Object> describe(String name) {
+        ServiceHealth health = get(name);
+        Map<String, Object> description = new LinkedHashMap<>(health.getDetails());
+        description.put("available", health.isAvailable());
+        description.put("checkedAt", health.getCheckedAt());
+        description.put("latencyMs", health.getLatencyMs());
+        description.put("stale", health.isStale());
+        if (health.getError() != null) {
+            description.put("error", health.getError());
+        }
+        return description;
+    }
+
+    public Map<String, ServiceHealth> getAll() {
+        Map<String, ServiceHealth> all = new LinkedHashMap<>();
+        probes.keySet().forEach(name -> all.put(name, get(name)));
+        return all;
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable cause = e;
+        while (cause.getCause() != null && cause != cause.getCause()) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+    }
+}
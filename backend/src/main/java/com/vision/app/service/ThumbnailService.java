@@ -0,0 +1,439 @@
+package com.vision.app.service;
+
+import com.vision.app.model.Document;
+import com.vision.app.repository.DocumentRepository;
+import com.vision.app.util.ImageUtils;
+import com.vision.app.util.LruCache;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Service de miniatures des pages PDF.
+ * Les aperçus sont rendus une seule fois par (empreinte de page, taille, qualité),
+ * puis servis depuis un cache LRU hors tas (octets JPEG) doublé d'un cache disque
+ * borné, dont les fichiers les moins récemment servis sont supprimés en premier.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ThumbnailService {
+
+    private final DocumentRepository documentRepository;
+
+    @Value("${thumbnails.cache.max-bytes:67108864}")
+    private long maxCacheBytes = 64L * 1024 * 1024;
+
+    @Value("${thumbnails.cache.dir:./cache/thumbnails}")
+    private String cacheDir = "./cache/thumbnails";
+
+    @Value("${thumbnails.disk.enabled:true}")
+    private boolean diskEnabled = true;
+
+    // Au-delà, les miniatures les moins récemment servies sont supprimées du disque
+    @Value("${thumbnails.disk.max-bytes:536870912}")
+    private long maxDiskBytes = 512L * 1024 * 1024;
+
+    @Value("${thumbnails.pregenerate.pages:3}")
+    private int pregeneratePages = 3;
+
+    @Value("${thumbnails.pregenerate.sizes:SMALL}")
+    private List<String> pregenerateSizes = List.of("SMALL");
+
+    // Documents en attente de prégénération ; au-delà, l'upload est ignoré (rendu à la demande)
+    @Value("${thumbnails.pregenerate.queue:16}")
+    private int pregenerateQueue = 16;
+
+    @Value("${thumbnails.jpeg.quality:0.8}")
+    private float jpegQuality = 0.8f;
+
+    private LruCache<String, ByteBuffer> memoryCache;
+    private final Map<String, CompletableFuture<byte[]>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong diskBytes = new AtomicLong();
+    private final Object diskEviction = new Object();
+    private ThreadPoolExecutor pregenerateExecutor;
+
+    @PostConstruct
+    public void init() {
+        memoryCache = new LruCache<>(maxCacheBytes, ByteBuffer::capacity);
+        pregenerateExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, pregenerateQueue)), runnable -> {
+                    Thread thread = new Thread(runnable, "thumbnail-pregenerate");
+                    thread.setDaemon(true);
+                    return thread;
+                }, (task, executor) -> log.debug("Thumbnail pregeneration queue full, skipping document"));
+        if (diskEnabled) {
+            try {
+                Files.createDirectories(Paths.get(cacheDir));
+                diskBytes.set(diskFiles().stream().mapToLong(DiskFile::size).sum());
+            } catch (IOException e) {
+                log.warn("Thumbnail disk cache disabled, cannot create {}: {}", cacheDir, e.getMessage());
+                diskEnabled = false;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (pregenerateExecutor != null) {
+            pregenerateExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Calcule l'ETag d'une miniature sans la rendre (null si la page est inconnue,
+     * ou si la miniature n'est ni en cache ni rendable faute de fichier source)
+     */
+    public String getEtag(Long documentId, int pageNumber, ThumbnailSize size) {
+        Document document = documentRepository.findById(documentId).orElse(null);
+        String pageHash = findPageHash(document, pageNumber);
+        if (pageHash == null) {
+            return null;
+        }
+
+        String key = cacheKey(pageHash, size);
+        return isCached(key) || sourcePath(document) != null ? toEtag(key) : null;
+    }
+
+    /**
+     * Récupère la miniature d'une page, en la rendant au premier accès
+     */
+    public Optional<Thumbnail> getThumbnail(Long documentId, int pageNumber, ThumbnailSize size) {
+        Document document = documentRepository.findById(documentId).orElse(null);
+        String pageHash = findPageHash(document, pageNumber);
+        if (pageHash == null) {
+            return Optional.empty();
+        }
+
+        String key = cacheKey(pageHash, size);
+        byte[] bytes = lookup(key);
+        if (bytes == null) {
+            Path source = sourcePath(document);
+            if (source == null) {
+                log.warn("Thumbnail source not available for document {}: {}", documentId,
+                        document != null ? document.getFilePath() : null);
+                return Optional.empty();
+            }
+
+            try {
+                bytes = renderOnce(key, () -> {
+                    try (PDDocument pdf = PDDocument.load(source.toFile())) {
+                        return render(pdf, pageNumber, size);
+                    }
+                });
+            } catch (IOException e) {
+                log.error("Failed to read thumbnail source for document {}: {}", documentId, e.getMessage());
+                return Optional.empty();
+            }
+        }
+
+        return Optional.of(new Thumbnail(toEtag(key), bytes));
+    }
+
+    /**
+     * Génère en arrière-plan les miniatures des premières pages d'un PDF enregistré.
+     * Seul le chemin est mis en file : le fichier est relu au moment du rendu.
+     */
+    public void pregenerate(Path pdfFile, List<String> pageHashes) {
+        if (pregeneratePages <= 0 || pdfFile == null || pageHashes == null || pageHashes.isEmpty()) {
+            return;
+        }
+
+        List<ThumbnailSize> sizes = new ArrayList<>();
+        for (String name : pregenerateSizes) {
+            sizes.add(ThumbnailSize.fromName(name.trim()));
+        }
+
+        pregenerateExecutor.execute(() -> {
+            try (PDDocument pdf = PDDocument.load(pdfFile.toFile())) {
+                int pages = Math.min(pregeneratePages, Math.min(pageHashes.size(), pdf.getNumberOfPages()));
+                for (int i = 0; i < pages; i++) {
+                    for (ThumbnailSize size : sizes) {
+                        String key = cacheKey(pageHashes.get(i), size);
+                        if (lookup(key) == null) {
+                            int pageNumber = i;
+                            renderOnce(key, () -> render(pdf, pageNumber, size));
+                        }
+                    }
+                }
+                log.debug("Pregenerated thumbnails for {} pages", pages);
+            } catch (Exception e) {
+                log.warn("Thumbnail pregeneration failed: {}", e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Statistiques du cache de miniatures
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>(memoryCache.getStats());
+        stats.put("diskEnabled", diskEnabled);
+        stats.put("cacheDir", cacheDir);
+        stats.put("diskBytes", diskBytes.get());
+        stats.put("diskMaxBytes", maxDiskBytes);
+        return stats;
+    }
+
+    private String findPageHash(Document document, int pageNumber) {
+        if (document == null || document.getPageHashes() == null || document.getPageHashes().isEmpty()) {
+            return null;
+        }
+
+        String[] hashes = document.getPageHashes().split(",");
+        if (pageNumber < 0 || pageNumber >= hashes.length) {
+            throw new IllegalArgumentException("Invalid page number: " + pageNumber);
+        }
+        return hashes[pageNumber];
+    }
+
+    /**
+     * Fichier PDF enregistré du document, s'il est lisible
+     */
+    private Path sourcePath(Document document) {
+        if (document == null || document.getFilePath() == null) {
+            return null;
+        }
+        Path source = Paths.get(document.getFilePath());
+        return Files.isReadable(source) ? source : null;
+    }
+
+    private boolean isCached(String key) {
+        return memoryCache.get(key) != null || (diskEnabled && Files.exists(diskPath(key)));
+    }
+
+    /**
+     * Cherche une miniature en mémoire puis sur disque
+     */
+    private byte[] lookup(String key) {
+        ByteBuffer buffer = memoryCache.get(key);
+        if (buffer != null) {
+            return toBytes(buffer);
+        }
+
+        if (diskEnabled) {
+            Path file = diskPath(key);
+            if (Files.exists(file)) {
+                try {
+                    byte[] bytes = Files.readAllBytes(file);
+                    // Date de modification = dernier accès, pour l'éviction du disque
+                    Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+                    memoryCache.put(key, toDirectBuffer(bytes));
+                    return bytes;
+                } catch (IOException e) {
+                    log.warn("Failed to read cached thumbnail {}: {}", file, e.getMessage());
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Rend une miniature en évitant les rendus concurrents de la même clé
+     */
+    private byte[] renderOnce(String key, ThumbnailRenderer renderer) throws IOException {
+        CompletableFuture<byte[]> future = new CompletableFuture<>();
+        CompletableFuture<byte[]> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            return existing.join();
+        }
+
+        try {
+            byte[] bytes = renderer.render();
+            store(key, bytes);
+            future.complete(bytes);
+            return bytes;
+        } catch (IOException | RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key);
+        }
+    }
+
+    private byte[] render(PDDocument pdf, int pageNumber, ThumbnailSize size) throws IOException {
+        if (pageNumber < 0 || pageNumber >= pdf.getNumberOfPages()) {
+            throw new IllegalArgumentException("Invalid page number: " + pageNumber);
+        }
+
+        PDPage page = pdf.getPage(pageNumber);
+        PDRectangle box = page.getCropBox();
+        float pageWidth = page.getRotation() % 180 == 0 ? box.getWidth() : box.getHeight();
+        float scale = size.getWidth() / pageWidth;
+
+        BufferedImage image = new PDFRenderer(pdf).renderImage(pageNumber, scale, ImageType.RGB);
+        return ImageUtils.encodeJpeg(image, jpegQuality);
+    }
+
+    private void store(String key, byte[] bytes) {
+        memoryCache.put(key, toDirectBuffer(bytes));
+
+        if (diskEnabled) {
+            Path file = diskPath(key);
+            try {
+                Path temp = Files.createTempFile(file.getParent(), key, ".tmp");
+                Files.write(temp, bytes);
+                long replaced = Files.exists(file) ? Files.size(file) : 0;
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                if (diskBytes.addAndGet(bytes.length - replaced) > maxDiskBytes) {
+                    evictDisk();
+                }
+            } catch (IOException e) {
+                log.warn("Failed to write thumbnail {} to disk: {}", file, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Supprime les miniatures les moins récemment servies jusqu'à 90 % de la
+     * limite, pour ne pas relister le répertoire à chaque écriture
+     */
+    private void evictDisk() {
+        synchronized (diskEviction) {
+            if (diskBytes.get() <= maxDiskBytes) {
+                return;
+            }
+            try {
+                List<DiskFile> files = diskFiles();
+                long total = files.stream().mapToLong(DiskFile::size).sum();
+                long target = maxDiskBytes / 10 * 9;
+                files.sort(Comparator.comparingLong(DiskFile::lastAccess));
+                int evicted = 0;
+                for (DiskFile file : files) {
+                    if (total <= target) {
+                        break;
+                    }
+                    if (Files.deleteIfExists(file.path())) {
+                        total -= file.size();
+                        evicted++;
+                    }
+                }
+                diskBytes.set(total);
+                log.debug("Evicted {} thumbnails from disk cache, {} bytes left", evicted, total);
+            } catch (IOException e) {
+                log.warn("Thumbnail disk cache eviction failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private List<DiskFile> diskFiles() throws IOException {
+        List<DiskFile> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(Paths.get(cacheDir), "*.jpg")) {
+            for (Path path : stream) {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                    files.add(new DiskFile(path, attributes.size(), attributes.lastModifiedTime().toMillis()));
+                } catch (IOException e) {
+                    // Supprimée entre-temps
+                }
+            }
+        }
+        return files;
+    }
+
+    private record DiskFile(Path path, long size, long lastAccess) {
+    }
+
+    private Path diskPath(String key) {
+        return Paths.get(cacheDir, key + ".jpg");
+    }
+
+    /**
+     * La qualité JPEG fait partie de la clé : la changer invalide le cache et les ETag
+     */
+    private String cacheKey(String pageHash, ThumbnailSize size) {
+        return pageHash + "-" + size.name().toLowerCase() + "-q" + Math.round(jpegQuality * 100);
+    }
+
+    private String toEtag(String key) {
+        return "\"" + key + "\"";
+    }
+
+    private static ByteBuffer toDirectBuffer(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip();
+        return buffer;
+    }
+
+    private static byte[] toBytes(ByteBuffer buffer) {
+        ByteBuffer view = buffer.duplicate();
+        byte[] bytes = new byte[view.remaining()];
+        view.get(bytes);
+        return bytes;
+    }
+
+    @FunctionalInterface
+    private interface ThumbnailRenderer {
+        byte[] render() throws IOException;
+    }
+
+    /**
+     * Miniature encodée et son ETag
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Thumbnail {
+        private final String etag;
+        private final byte[] bytes;
+    }
+
+    /**
+     * Tailles de miniatures supportées (largeur en pixels)
+     */
+    public enum ThumbnailSize {
+        SMALL(160),
+        MEDIUM(480),
+        LARGE(1024);
+
+        private final int width;
+
+        ThumbnailSize(int width) {
+            this.width = width;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public static ThumbnailSize fromName(String name) {
+            return Arrays.stream(values())
+                    .filter(size -> size.name().equalsIgnoreCase(name))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown thumbnail size: " + name));
+        }
+    }
+}
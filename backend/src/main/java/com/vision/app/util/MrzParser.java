@@ -0,0 +1,442 @@
+package com.vision.app.util;
+
+import com.vision.app.dto.MrzData;
+
+import java.time.Year;
+import java.util.Arrays;
+
+/**
+ * Analyse des zones MRZ ICAO 9303 (TD1 3x30, TD2 2x36, TD3 2x44) avec
+ * vérification des chiffres de contrôle. Les confusions OCR courantes sont
+ * corrigées selon la nature de chaque position (chiffre ou lettre), puis, pour
+ * les champs alphanumériques, en cherchant la substitution qui rend le chiffre
+ * de contrôle valide.
+ * Le texte OCR brut est filtré et découpé en lignes en une seule passe, dans un
+ * tableau de caractères unique : ni expression régulière ni chaîne intermédiaire.
+ */
+public final class MrzParser {
+
+    /**
+     * Formats de MRZ : nombre de lignes et longueur des lignes
+     */
+    public enum Format {
+        TD1(3, 30),
+        TD2(2, 36),
+        TD3(2, 44);
+
+        private final int lineCount;
+        private final int lineLength;
+
+        Format(int lineCount, int lineLength) {
+            this.lineCount = lineCount;
+            this.lineLength = lineLength;
+        }
+
+        public int getLineCount() {
+            return lineCount;
+        }
+
+        public int getLineLength() {
+            return lineLength;
+        }
+    }
+
+    /**
+     * Position des champs d'un format dans la MRZ mise à plat (lignes concaténées)
+     */
+    static final class Layout {
+
+        final Format format;
+        // Nature de chaque position : N chiffre, A lettre, X alphanumérique
+        final char[] template;
+        final int documentFrom;
+        final int documentTo;
+        final int documentCheck;
+        final int nationality;
+        final int birth;
+        final int birthCheck;
+        final int sex;
+        final int expiry;
+        final int expiryCheck;
+        final int namesFrom;
+        final int namesTo;
+        final int personalFrom;
+        final int personalTo;
+        final int personalCheck;
+        // Intervalles [début, fin) des données facultatives et du contrôle composite
+        final int[] optional;
+        final int[] composite;
+        final int compositeCheck;
+
+        Layout(Format format, String template, int documentFrom, int nationality, int birth, int namesFrom,
+               int personalFrom, int[] optional, int[] composite, int compositeCheck) {
+            this.format = format;
+            this.template = template.toCharArray();
+            this.documentFrom = documentFrom;
+            this.documentTo = documentFrom + 9;
+            this.documentCheck = documentFrom + 9;
+            this.nationality = nationality;
+            this.birth = birth;
+            this.birthCheck = birth + 6;
+            this.sex = birth + 7;
+            this.expiry = birth + 8;
+            this.expiryCheck = birth + 14;
+            this.namesFrom = namesFrom;
+            // Les noms occupent la fin de leur ligne
+            this.namesTo = (namesFrom / format.getLineLength() + 1) * format.getLineLength();
+            this.personalFrom = personalFrom;
+            this.personalTo = personalFrom >= 0 ? personalFrom + 14 : -1;
+            this.personalCheck = personalFrom >= 0 ? personalFrom + 14 : -1;
+            this.optional = optional;
+            this.composite = composite;
+            this.compositeCheck = compositeCheck;
+        }
+    }
+
+    private static final Layout TD1 = new Layout(Format.TD1,
+            "AAAAA" + "XXXXXXXXX" + "N" + "XXXXXXXXXXXXXXX"
+                    + "NNNNNNN" + "A" + "NNNNNNN" + "AAA" + "XXXXXXXXXXX" + "N"
+                    + "AAAAAAAAAAAAAAAAAAAAAAAAAAAAAA",
+            5, 45, 30, 60, -1,
+            new int[] { 15, 30, 48, 59 },
+            new int[] { 5, 30, 30, 37, 38, 45, 48, 59 }, 59);
+
+    private static final Layout TD2 = new Layout(Format.TD2,
+            "AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA"
+                    + "XXXXXXXXX" + "N" + "AAA" + "NNNNNNN" + "A" + "NNNNNNN" + "XXXXXXX" + "N",
+            36, 46, 49, 5, -1,
+            new int[] { 64, 71 },
+            new int[] { 36, 46, 49, 56, 57, 71 }, 71);
+
+    private static final Layout TD3 = new Layout(Format.TD3,
+            "AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA"
+                    + "XXXXXXXXX" + "N" + "AAA" + "NNNNNNN" + "A" + "NNNNNNN" + "XXXXXXXXXXXXXX" + "X" + "N",
+            44, 54, 57, 5, 72,
+            new int[0],
+            new int[] { 44, 54, 57, 64, 65, 87 }, 87);
+
+    private static final int MIN_LINE_LENGTH = 20;
+
+    private MrzParser() {
+    }
+
+    /**
+     * Analyse un texte MRZ (lignes séparées par des retours à la ligne) ;
+     * null si aucune ligne MRZ plausible n'est trouvée
+     */
+    public static MrzData parse(String text) {
+        MrzRecord record = parseRecord(text);
+        return record != null ? record.toMrzData() : null;
+    }
+
+    /**
+     * Analyse le texte OCR brut (casse, espaces et caractères parasites tolérés) ;
+     * null si aucune ligne MRZ plausible n'est trouvée
+     */
+    public static MrzRecord parseRecord(CharSequence text) {
+        if (text == null) {
+            return null;
+        }
+
+        // Passe unique : filtrage de l'alphabet MRZ et bornes des lignes candidates
+        int length = text.length();
+        char[] chars = new char[length];
+        int[] bounds = new int[8];
+        int lineCount = 0;
+        int size = 0;
+        int lineStart = 0;
+        for (int i = 0; i <= length; i++) {
+            char c = i < length ? text.charAt(i) : '\n';
+            if (c == '\n' || c == '\r') {
+                if (size - lineStart >= MIN_LINE_LENGTH) {
+                    if (2 * lineCount + 2 > bounds.length) {
+                        bounds = Arrays.copyOf(bounds, bounds.length * 2);
+                    }
+                    bounds[2 * lineCount] = lineStart;
+                    bounds[2 * lineCount + 1] = size;
+                    lineCount++;
+                    lineStart = size;
+                } else {
+                    size = lineStart;
+                }
+                continue;
+            }
+            if (c >= 'a' && c <= 'z') {
+                c -= 'a' - 'A';
+            }
+            if ((c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '<') {
+                chars[size++] = c;
+            }
+        }
+        if (lineCount == 0) {
+            return null;
+        }
+
+        Layout layout;
+        if (lineCount == 1 && size >= 60) {
+            // Texte sans retours à la ligne : découpage selon la longueur totale
+            layout = closestLayout(size);
+            lineCount = layout.format.getLineCount();
+            bounds = splitBounds(size, layout.format, bounds);
+        } else {
+            layout = detectLayout(bounds, lineCount);
+        }
+
+        char[] data = normalize(chars, bounds, lineCount, layout.format);
+        return decode(layout, data);
+    }
+
+    /**
+     * Chiffre de contrôle ICAO (pondérations 7, 3, 1 ; A=10 ... Z=35 ; &lt;=0)
+     */
+    public static int checkDigit(CharSequence value) {
+        int sum = 0;
+        for (int i = 0; i < value.length(); i++) {
+            sum += charValue(value.charAt(i)) * weight(i);
+        }
+        return sum % 10;
+    }
+
+    static int currentTwoDigitYear() {
+        return Year.now().getValue() % 100;
+    }
+
+    private static MrzRecord decode(Layout layout, char[] data) {
+        int corrections = applyTemplate(data, layout.template);
+        int checked = MrzRecord.CHECK_DOCUMENT_NUMBER | MrzRecord.CHECK_DATE_OF_BIRTH
+                | MrzRecord.CHECK_EXPIRY_DATE | MrzRecord.CHECK_COMPOSITE;
+        int passed = 0;
+
+        int repaired = repairWithCheckDigit(data, layout.documentFrom, layout.documentTo, layout.documentCheck);
+        if (repaired >= 0) {
+            passed |= MrzRecord.CHECK_DOCUMENT_NUMBER;
+            corrections += repaired;
+        }
+        if (verify(data, layout.birth, layout.birthCheck, layout.birthCheck)) {
+            passed |= MrzRecord.CHECK_DATE_OF_BIRTH;
+        }
+        if (verify(data, layout.expiry, layout.expiryCheck, layout.expiryCheck)) {
+            passed |= MrzRecord.CHECK_EXPIRY_DATE;
+        }
+        if (layout.personalFrom >= 0) {
+            checked |= MrzRecord.CHECK_PERSONAL_NUMBER;
+            repaired = repairWithCheckDigit(data, layout.personalFrom, layout.personalTo, layout.personalCheck);
+            if (repaired >= 0) {
+                passed |= MrzRecord.CHECK_PERSONAL_NUMBER;
+                corrections += repaired;
+            }
+        }
+        if (matches(compositeCheckDigit(data, layout.composite), data[layout.compositeCheck])) {
+            passed |= MrzRecord.CHECK_COMPOSITE;
+        }
+
+        return new MrzRecord(layout, data, checked, passed, corrections);
+    }
+
+    private static Layout layout(Format format) {
+        switch (format) {
+            case TD1:
+                return TD1;
+            case TD2:
+                return TD2;
+            default:
+                return TD3;
+        }
+    }
+
+    private static Layout detectLayout(int[] bounds, int lineCount) {
+        if (lineCount >= 3 && averageLength(bounds, lineCount, 3) <= 33) {
+            return TD1;
+        }
+        double average = averageLength(bounds, lineCount, Math.min(2, lineCount));
+        return Math.abs(average - 36) < Math.abs(average - 44) ? TD2 : TD3;
+    }
+
+    /**
+     * Longueur moyenne des dernières lignes
+     */
+    private static double averageLength(int[] bounds, int lineCount, int last) {
+        double total = 0;
+        for (int line = lineCount - last; line < lineCount; line++) {
+            total += bounds[2 * line + 1] - bounds[2 * line];
+        }
+        return total / last;
+    }
+
+    private static Layout closestLayout(int size) {
+        Format best = Format.TD3;
+        for (Format format : Format.values()) {
+            int total = format.getLineCount() * format.getLineLength();
+            int bestTotal = best.getLineCount() * best.getLineLength();
+            if (Math.abs(size - total) < Math.abs(size - bestTotal)) {
+                best = format;
+            }
+        }
+        return layout(best);
+    }
+
+    private static int[] splitBounds(int size, Format format, int[] bounds) {
+        int[] split = bounds.length >= 2 * format.getLineCount() ? bounds : new int[2 * format.getLineCount()];
+        for (int line = 0; line < format.getLineCount(); line++) {
+            int from = Math.min(size, line * format.getLineLength());
+            split[2 * line] = from;
+            split[2 * line + 1] = line == format.getLineCount() - 1
+                    ? size : Math.min(size, from + format.getLineLength());
+        }
+        return split;
+    }
+
+    /**
+     * Garde les dernières lignes, ramenées à la longueur du format, bout à bout
+     */
+    private static char[] normalize(char[] chars, int[] bounds, int lineCount, Format format) {
+        int lineLength = format.getLineLength();
+        char[] data = new char[format.getLineCount() * lineLength];
+        Arrays.fill(data, '<');
+        int offset = lineCount - format.getLineCount();
+        for (int i = 0; i < format.getLineCount(); i++) {
+            int line = offset + i;
+            if (line >= 0) {
+                int from = bounds[2 * line];
+                int count = Math.min(bounds[2 * line + 1] - from, lineLength);
+                System.arraycopy(chars, from, data, i * lineLength, count);
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Corrige les confusions selon la nature attendue de chaque position ;
+     * retourne le nombre de corrections
+     */
+    private static int applyTemplate(char[] data, char[] template) {
+        int count = 0;
+        for (int i = 0; i < data.length; i++) {
+            char c = data[i];
+            char fixed = template[i] == 'N' ? toDigit(c) : template[i] == 'A' ? toLetter(c) : c;
+            if (fixed != c) {
+                data[i] = fixed;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Vérifie un champ alphanumérique et, en cas d'échec, essaie une substitution
+     * de caractère ambigu qui rend le chiffre de contrôle valide ; retourne le
+     * nombre de corrections (0 ou 1), ou -1 si le champ reste invalide
+     */
+    private static int repairWithCheckDigit(char[] data, int from, int to, int checkPosition) {
+        if (verify(data, from, to, checkPosition)) {
+            return 0;
+        }
+        for (int i = from; i < to; i++) {
+            char original = data[i];
+            char alternative = swap(original);
+            if (alternative == original) {
+                continue;
+            }
+            data[i] = alternative;
+            if (verify(data, from, to, checkPosition)) {
+                return 1;
+            }
+            data[i] = original;
+        }
+        return -1;
+    }
+
+    private static boolean verify(char[] data, int from, int to, int checkPosition) {
+        int sum = 0;
+        for (int i = from; i < to; i++) {
+            sum += charValue(data[i]) * weight(i - from);
+        }
+        return matches(sum % 10, data[checkPosition]);
+    }
+
+    /**
+     * Chiffre composite calculé sur plusieurs intervalles, la pondération
+     * continuant d'un intervalle à l'autre
+     */
+    private static int compositeCheckDigit(char[] data, int[] ranges) {
+        int sum = 0;
+        int position = 0;
+        for (int r = 0; r < ranges.length; r += 2) {
+            for (int i = ranges[r]; i < ranges[r + 1]; i++) {
+                sum += charValue(data[i]) * weight(position++);
+            }
+        }
+        return sum % 10;
+    }
+
+    private static boolean matches(int expected, char check) {
+        return check == '<' ? expected == 0 : check - '0' == expected;
+    }
+
+    private static int weight(int position) {
+        switch (position % 3) {
+            case 0:
+                return 7;
+            case 1:
+                return 3;
+            default:
+                return 1;
+        }
+    }
+
+    private static int charValue(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A' + 10;
+        }
+        return 0;
+    }
+
+    private static char toDigit(char c) {
+        switch (c) {
+            case 'O':
+            case 'Q':
+            case 'D':
+                return '0';
+            case 'I':
+            case 'L':
+                return '1';
+            case 'Z':
+                return '2';
+            case 'S':
+                return '5';
+            case 'G':
+                return '6';
+            case 'B':
+                return '8';
+            default:
+                return c;
+        }
+    }
+
+    private static char toLetter(char c) {
+        switch (c) {
+            case '0':
+                return 'O';
+            case '1':
+                return 'I';
+            case '2':
+                return 'Z';
+            case '5':
+                return 'S';
+            case '6':
+                return 'G';
+            case '8':
+                return 'B';
+            default:
+                return c;
+        }
+    }
+
+    private static char swap(char c) {
+        char digit = toDigit(c);
+        return digit != c ? digit : toLetter(c);
+    }
+}
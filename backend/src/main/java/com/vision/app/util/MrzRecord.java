@@ -0,0 +1,238 @@
+package com.vision.app.util;
+
+import com.vision.app.dto.MrzData;
+import com.vision.app.model.DocumentType;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * MRZ analysée : lignes normalisées dans un tableau de caractères unique et
+ * résultats des chiffres de contrôle sous forme de masques de bits.
+ * Les champs ne sont convertis en chaînes qu'à la demande.
+ */
+public final class MrzRecord {
+
+    static final int CHECK_DOCUMENT_NUMBER = 1;
+    static final int CHECK_DATE_OF_BIRTH = 1 << 1;
+    static final int CHECK_EXPIRY_DATE = 1 << 2;
+    static final int CHECK_PERSONAL_NUMBER = 1 << 3;
+    static final int CHECK_COMPOSITE = 1 << 4;
+
+    private static final String[] CHECK_NAMES = {
+            "documentNumber", "dateOfBirth", "expiryDate", "personalNumber", "composite"
+    };
+
+    private final MrzParser.Layout layout;
+    private final char[] data;
+    private final int checkedMask;
+    private final int passedMask;
+    private final int corrections;
+
+    MrzRecord(MrzParser.Layout layout, char[] data, int checkedMask, int passedMask, int corrections) {
+        this.layout = layout;
+        this.data = data;
+        this.checkedMask = checkedMask;
+        this.passedMask = passedMask;
+        this.corrections = corrections;
+    }
+
+    public MrzParser.Format getFormat() {
+        return layout.format;
+    }
+
+    /**
+     * Vrai si tous les chiffres de contrôle du format sont corrects
+     */
+    public boolean isValid() {
+        return passedMask == checkedMask;
+    }
+
+    /**
+     * Nombre de chiffres de contrôle corrects
+     */
+    public int getPassedChecks() {
+        return Integer.bitCount(passedMask);
+    }
+
+    public int getCorrections() {
+        return corrections;
+    }
+
+    public DocumentType getDocumentType() {
+        char code = data[0];
+        if (code == 'P') {
+            return DocumentType.PASSPORT;
+        }
+        if (code == 'I' || code == 'C') {
+            return DocumentType.ID_CARD;
+        }
+        return code == 'A' ? DocumentType.RESIDENCE_CARD : DocumentType.UNKNOWN;
+    }
+
+    public String getIssuingCountry() {
+        return text(2, 5, false);
+    }
+
+    public String getDocumentNumber() {
+        return text(layout.documentFrom, layout.documentTo, false);
+    }
+
+    public String getNationality() {
+        return text(layout.nationality, layout.nationality + 3, false);
+    }
+
+    public String getSurname() {
+        int separator = nameSeparator();
+        return text(layout.namesFrom, separator >= 0 ? separator : layout.namesTo, true);
+    }
+
+    public String getGivenNames() {
+        int separator = nameSeparator();
+        return separator >= 0 ? text(separator + 2, layout.namesTo, true) : "";
+    }
+
+    public String getDateOfBirth() {
+        return date(layout.birth, true);
+    }
+
+    public String getExpiryDate() {
+        return date(layout.expiry, false);
+    }
+
+    public String getGender() {
+        char code = data[layout.sex];
+        return code == 'M' ? "MALE" : code == 'F' ? "FEMALE" : "UNSPECIFIED";
+    }
+
+    public String getPersonalNumber() {
+        return layout.personalFrom >= 0 ? text(layout.personalFrom, layout.personalTo, false) : null;
+    }
+
+    public String getOptionalData() {
+        if (layout.optional.length == 0) {
+            return null;
+        }
+        StringBuilder optional = new StringBuilder();
+        for (int i = 0; i < layout.optional.length; i += 2) {
+            for (int p = layout.optional[i]; p < layout.optional[i + 1]; p++) {
+                if (data[p] != '<') {
+                    optional.append(data[p]);
+                }
+            }
+        }
+        return optional.toString();
+    }
+
+    /**
+     * Lignes MRZ normalisées, séparées par des retours à la ligne
+     */
+    public String toMrzText() {
+        int lineLength = layout.format.getLineLength();
+        int lineCount = layout.format.getLineCount();
+        char[] text = new char[lineCount * (lineLength + 1) - 1];
+        for (int line = 0; line < lineCount; line++) {
+            System.arraycopy(data, line * lineLength, text, line * (lineLength + 1), lineLength);
+            if (line < lineCount - 1) {
+                text[line * (lineLength + 1) + lineLength] = '\n';
+            }
+        }
+        return new String(text);
+    }
+
+    /**
+     * Résultat de chaque chiffre de contrôle vérifié
+     */
+    public Map<String, Boolean> getCheckDigits() {
+        Map<String, Boolean> checks = new LinkedHashMap<>();
+        for (int i = 0; i < CHECK_NAMES.length; i++) {
+            int bit = 1 << i;
+            if ((checkedMask & bit) != 0) {
+                checks.put(CHECK_NAMES[i], (passedMask & bit) != 0);
+            }
+        }
+        return checks;
+    }
+
+    public MrzData toMrzData() {
+        return MrzData.builder()
+                .mrzFormat(layout.format.name())
+                .documentType(getDocumentType())
+                .issuingCountry(getIssuingCountry())
+                .surname(getSurname())
+                .givenNames(getGivenNames())
+                .documentNumber(getDocumentNumber())
+                .nationality(getNationality())
+                .dateOfBirth(getDateOfBirth())
+                .gender(getGender())
+                .expiryDate(getExpiryDate())
+                .personalNumber(getPersonalNumber())
+                .optionalData(getOptionalData())
+                .checkDigits(getCheckDigits())
+                .valid(isValid())
+                .corrections(corrections)
+                .build();
+    }
+
+    private int nameSeparator() {
+        for (int i = layout.namesFrom; i < layout.namesTo - 1; i++) {
+            if (data[i] == '<' && data[i + 1] == '<') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Texte d'un champ : les « < » sont supprimés, ou remplacés par des espaces
+     * (noms), sans espaces en début ni en fin
+     */
+    private String text(int from, int to, boolean fillerAsSpace) {
+        while (from < to && data[from] == '<') {
+            from++;
+        }
+        while (to > from && data[to - 1] == '<') {
+            to--;
+        }
+
+        char[] value = new char[to - from];
+        int length = 0;
+        for (int i = from; i < to; i++) {
+            char c = data[i];
+            if (c != '<') {
+                value[length++] = c;
+            } else if (fillerAsSpace) {
+                value[length++] = ' ';
+            }
+        }
+        return new String(value, 0, length);
+    }
+
+    /**
+     * Formate une date YYMMDD en YYYY-MM-DD ; le siècle des dates de naissance
+     * est déduit de l'année courante
+     */
+    private String date(int from, boolean birth) {
+        for (int i = from; i < from + 6; i++) {
+            if (data[i] < '0' || data[i] > '9') {
+                return new String(data, from, 6);
+            }
+        }
+
+        int year = (data[from] - '0') * 10 + data[from + 1] - '0';
+        int month = (data[from + 2] - '0') * 10 + data[from + 3] - '0';
+        int day = (data[from + 4] - '0') * 10 + data[from + 5] - '0';
+        if (month < 1 || month > 12 || day < 1 || day > 31) {
+            return new String(data, from, 6);
+        }
+
+        int century = birth && year > MrzParser.currentTwoDigitYear() ? 19 : 20;
+        char[] value = {
+                (char) ('0' + century / 10), (char) ('0' + century % 10),
+                data[from], data[from + 1], '-',
+                data[from + 2], data[from + 3], '-',
+                data[from + 4], data[from + 5]
+        };
+        return new String(value);
+    }
+}
@@ -0,0 +1,75 @@
+package com.vision.app.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+
+/**
+ * Chargement de la bibliothèque native OpenCV et conversions d'images
+ */
+@Slf4j
+public final class OpenCvUtils {
+
+    private static Boolean available;
+
+    private OpenCvUtils() {
+    }
+
+    /**
+     * Charge OpenCV au premier appel ; renvoie false si la bibliothèque native est absente
+     */
+    public static synchronized boolean isAvailable() {
+        if (available == null) {
+            try {
+                nu.pattern.OpenCV.loadLocally();
+                available = true;
+                log.info("✅ OpenCV native library loaded");
+            } catch (Throwable t) {
+                available = false;
+                log.warn("⚠️ OpenCV native library not available: {}", t.getMessage());
+            }
+        }
+        return available;
+    }
+
+    /**
+     * Convertit une image en niveaux de gris (TYPE_BYTE_GRAY) si nécessaire
+     */
+    public static BufferedImage toGray(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_BYTE_GRAY
+                && image.getRaster().getDataBuffer().getSize() == image.getWidth() * image.getHeight()) {
+            return image;
+        }
+
+        BufferedImage gray = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g2d = gray.createGraphics();
+        g2d.drawImage(image, 0, 0, null);
+        g2d.dispose();
+        return gray;
+    }
+
+    /**
+     * Convertit une image en matrice OpenCV 8 bits à un canal
+     */
+    public static Mat toGrayMat(BufferedImage image) {
+        BufferedImage gray = toGray(image);
+        byte[] pixels = ((DataBufferByte) gray.getRaster().getDataBuffer()).getData();
+        Mat mat = new Mat(gray.getHeight(), gray.getWidth(), CvType.CV_8UC1);
+        mat.put(0, 0, pixels);
+        return mat;
+    }
+
+    /**
+     * Convertit une matrice OpenCV 8 bits à un canal en image
+     */
+    public static BufferedImage toBufferedImage(Mat gray) {
+        BufferedImage image = new BufferedImage(gray.cols(), gray.rows(), BufferedImage.TYPE_BYTE_GRAY);
+        byte[] pixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        gray.get(0, 0, pixels);
+        return image;
+    }
+}
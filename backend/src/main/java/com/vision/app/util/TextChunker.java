@@ -0,0 +1,118 @@
+package com.vision.app.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Découpage d'un texte long en morceaux de taille bornée (estimation en
+ * tokens), sur les limites de pages (textes des pages, ou saut de page « \f »
+ * dans un texte brut) et de paragraphes ; un paragraphe trop long est coupé
+ * sur les lignes puis sur les espaces.
+ */
+public final class TextChunker {
+
+    /**
+     * Estimation courante pour les langues européennes : environ 4 caractères par token
+     */
+    public static final int CHARS_PER_TOKEN = 4;
+
+    public static final char PAGE_SEPARATOR = '\f';
+
+    private TextChunker() {
+    }
+
+    /**
+     * Morceau de texte et pages d'origine (numérotées à partir de 1)
+     */
+    public record Chunk(int index, String text, int firstPage, int lastPage, int estimatedTokens) {
+    }
+
+    public static int estimateTokens(CharSequence text) {
+        return (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+
+    /**
+     * Découpe le texte en morceaux d'au plus maxTokens tokens estimés
+     */
+    public static List<Chunk> split(String text, int maxTokens) {
+        return split(List.of(text.split(String.valueOf(PAGE_SEPARATOR), -1)), maxTokens);
+    }
+
+    /**
+     * Découpe un document, donné page par page, en morceaux d'au plus maxTokens tokens estimés
+     */
+    public static List<Chunk> split(List<String> pages, int maxTokens) {
+        int maxChars = Math.max(1, maxTokens) * CHARS_PER_TOKEN;
+        List<Chunk> chunks = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        int firstPage = 1;
+        int lastPage = 1;
+
+        for (int page = 0; page < pages.size(); page++) {
+            // Une page qui tiendrait entière dans un nouveau morceau n'est pas coupée
+            int pageLength = pages.get(page).strip().length();
+            if (current.length() > 0 && pageLength <= maxChars && current.length() + 2 + pageLength > maxChars) {
+                chunks.add(new Chunk(chunks.size(), current.toString(), firstPage, lastPage, estimateTokens(current)));
+                current.setLength(0);
+            }
+
+            for (String paragraph : pages.get(page).split("\\n\\s*\\n")) {
+                String trimmed = paragraph.strip();
+                if (trimmed.isEmpty()) {
+                    continue;
+                }
+
+                for (String piece : fit(trimmed, maxChars)) {
+                    // Le paragraphe ne tient plus : le morceau courant est clos
+                    if (current.length() > 0 && current.length() + 2 + piece.length() > maxChars) {
+                        chunks.add(new Chunk(chunks.size(), current.toString(), firstPage, lastPage,
+                                estimateTokens(current)));
+                        current.setLength(0);
+                    }
+                    if (current.length() == 0) {
+                        firstPage = page + 1;
+                    } else {
+                        current.append("\n\n");
+                    }
+                    current.append(piece);
+                    lastPage = page + 1;
+                }
+            }
+        }
+
+        if (current.length() > 0) {
+            chunks.add(new Chunk(chunks.size(), current.toString(), firstPage, lastPage, estimateTokens(current)));
+        }
+        return chunks;
+    }
+
+    /**
+     * Coupe un paragraphe trop long sur les retours à la ligne, puis sur les espaces
+     */
+    private static List<String> fit(String paragraph, int maxChars) {
+        if (paragraph.length() <= maxChars) {
+            return List.of(paragraph);
+        }
+
+        List<String> pieces = new ArrayList<>();
+        int start = 0;
+        while (start < paragraph.length()) {
+            int end = Math.min(paragraph.length(), start + maxChars);
+            if (end < paragraph.length()) {
+                int cut = paragraph.lastIndexOf('\n', end);
+                if (cut <= start) {
+                    cut = paragraph.lastIndexOf(' ', end);
+                }
+                if (cut > start) {
+                    end = cut;
+                }
+            }
+            String piece = paragraph.substring(start, end).strip();
+            if (!piece.isEmpty()) {
+                pieces.add(piece);
+            }
+            start = end;
+        }
+        return pieces;
+    }
+}
@@ -0,0 +1,417 @@
+package com.vision.app.benchmark;
+
+import com.vision.app.dto.MrzData;
+import com.vision.app.model.DocumentType;
+import com.vision.app.util.MrzParser.Format;
+
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implémentation de référence pour les benchmarks : parseur MRZ à base de
+ * chaînes, précédé du nettoyage par expressions régulières de MrzService
+ */
+final class LegacyMrzParser {
+
+    // Nature de chaque position : N chiffre, A lettre, X alphanumérique
+    private static final String[] TD1_TEMPLATE = {
+            "AAAAA" + "XXXXXXXXX" + "N" + "XXXXXXXXXXXXXXX",
+            "NNNNNNN" + "A" + "NNNNNNN" + "AAA" + "XXXXXXXXXXX" + "N",
+            "AAAAAAAAAAAAAAAAAAAAAAAAAAAAAA"
+    };
+    private static final String[] TD2_TEMPLATE = {
+            "AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA",
+            "XXXXXXXXX" + "N" + "AAA" + "NNNNNNN" + "A" + "NNNNNNN" + "XXXXXXX" + "N"
+    };
+    private static final String[] TD3_TEMPLATE = {
+            "AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA",
+            "XXXXXXXXX" + "N" + "AAA" + "NNNNNNN" + "A" + "NNNNNNN" + "XXXXXXXXXXXXXX" + "X" + "N"
+    };
+
+    private static final int MIN_LINE_LENGTH = 20;
+    private static final int[] WEIGHTS = { 7, 3, 1 };
+
+    private LegacyMrzParser() {
+    }
+
+    /**
+     * Nettoyage puis analyse du texte OCR brut, comme dans la chaîne d'origine
+     */
+    static MrzData parseRaw(String rawText) {
+        String cleaned = cleanMrzText(rawText);
+        return cleaned == null || cleaned.isEmpty() ? null : parse(cleaned);
+    }
+
+    static String cleanMrzText(String text) {
+        if (text == null)
+            return null;
+
+        StringBuilder cleaned = new StringBuilder();
+        for (String line : text.split("\\R")) {
+            String mrzLine = line.toUpperCase().replaceAll("[^A-Z0-9<]", "");
+            if (!mrzLine.isEmpty()) {
+                cleaned.append(mrzLine).append('\n');
+            }
+        }
+
+        return cleaned.toString().trim();
+    }
+
+    static MrzData parse(String text) {
+        List<String> lines = splitLines(text);
+        if (lines.isEmpty()) {
+            return null;
+        }
+
+        Format format = detectFormat(lines);
+        char[][] mrz = normalize(lines, format);
+        Repair repair = new Repair();
+        repair.applyTemplate(mrz, template(format));
+
+        switch (format) {
+            case TD1:
+                return parseTd1(mrz, repair);
+            case TD2:
+                return parseTd2OrTd3(mrz, format, 35, repair);
+            default:
+                return parseTd2OrTd3(mrz, format, 42, repair);
+        }
+    }
+
+    /**
+     * Chiffre de contrôle ICAO (pondérations 7, 3, 1 ; A=10 ... Z=35 ; &lt;=0)
+     */
+    static int checkDigit(CharSequence value) {
+        int sum = 0;
+        for (int i = 0; i < value.length(); i++) {
+            sum += charValue(value.charAt(i)) * WEIGHTS[i % 3];
+        }
+        return sum % 10;
+    }
+
+    private static MrzData parseTd1(char[][] mrz, Repair repair) {
+        char[] line1 = mrz[0];
+        char[] line2 = mrz[1];
+        char[] line3 = mrz[2];
+
+        Map<String, Boolean> checks = new LinkedHashMap<>();
+        checks.put("documentNumber", repair.withCheckDigit(line1, 5, 14, 14));
+        checks.put("dateOfBirth", verify(line2, 0, 6, 6));
+        checks.put("expiryDate", verify(line2, 8, 14, 14));
+        checks.put("composite", verify(new String(line1, 5, 25) + new String(line2, 0, 7)
+                + new String(line2, 8, 7) + new String(line2, 18, 11), line2[29]));
+
+        String[] names = names(line3, 0, 30);
+        return MrzData.builder()
+                .mrzFormat(Format.TD1.name())
+                .documentType(documentType(line1[0]))
+                .issuingCountry(field(line1, 2, 5))
+                .documentNumber(field(line1, 5, 14))
+                .optionalData(field(line1, 15, 30) + field(line2, 18, 29))
+                .dateOfBirth(formatDate(line2, 0, true))
+                .gender(gender(line2[7]))
+                .expiryDate(formatDate(line2, 8, false))
+                .nationality(field(line2, 15, 18))
+                .surname(names[0])
+                .givenNames(names[1])
+                .checkDigits(checks)
+                .valid(!checks.containsValue(Boolean.FALSE))
+                .corrections(repair.count)
+                .build();
+    }
+
+    /**
+     * TD2 et TD3 ne diffèrent que par la longueur du champ facultatif de la ligne 2
+     */
+    private static MrzData parseTd2OrTd3(char[][] mrz, Format format, int optionalEnd, Repair repair) {
+        char[] line1 = mrz[0];
+        char[] line2 = mrz[1];
+        int composite = format.getLineLength() - 1;
+
+        Map<String, Boolean> checks = new LinkedHashMap<>();
+        checks.put("documentNumber", repair.withCheckDigit(line2, 0, 9, 9));
+        checks.put("dateOfBirth", verify(line2, 13, 19, 19));
+        checks.put("expiryDate", verify(line2, 21, 27, 27));
+        if (format == Format.TD3) {
+            checks.put("personalNumber", repair.withCheckDigit(line2, 28, 42, 42));
+        }
+        checks.put("composite", verify(new String(line2, 0, 10) + new String(line2, 13, 7)
+                + new String(line2, 21, composite - 21), line2[composite]));
+
+        String[] names = names(line1, 5, format.getLineLength());
+        String optional = field(line2, 28, optionalEnd);
+        return MrzData.builder()
+                .mrzFormat(format.name())
+                .documentType(documentType(line1[0]))
+                .issuingCountry(field(line1, 2, 5))
+                .surname(names[0])
+                .givenNames(names[1])
+                .documentNumber(field(line2, 0, 9))
+                .nationality(field(line2, 10, 13))
+                .dateOfBirth(formatDate(line2, 13, true))
+                .gender(gender(line2[20]))
+                .expiryDate(formatDate(line2, 21, false))
+                .personalNumber(format == Format.TD3 ? optional : null)
+                .optionalData(format == Format.TD2 ? optional : null)
+                .checkDigits(checks)
+                .valid(!checks.containsValue(Boolean.FALSE))
+                .corrections(repair.count)
+                .build();
+    }
+
+    /**
+     * Extrait les lignes candidates (caractères MRZ uniquement)
+     */
+    private static List<String> splitLines(String text) {
+        List<String> lines = new ArrayList<>();
+        if (text == null) {
+            return lines;
+        }
+
+        for (String raw : text.split("\n")) {
+            StringBuilder line = new StringBuilder(raw.length());
+            for (int i = 0; i < raw.length(); i++) {
+                char c = Character.toUpperCase(raw.charAt(i));
+                if ((c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '<') {
+                    line.append(c);
+                }
+            }
+            if (line.length() >= MIN_LINE_LENGTH) {
+                lines.add(line.toString());
+            }
+        }
+
+        // Texte sans retours à la ligne : découpage selon la longueur totale
+        if (lines.size() == 1 && lines.get(0).length() >= 60) {
+            String joined = lines.get(0);
+            Format best = Format.TD3;
+            for (Format format : Format.values()) {
+                int total = format.getLineCount() * format.getLineLength();
+                int bestTotal = best.getLineCount() * best.getLineLength();
+                if (Math.abs(joined.length() - total) < Math.abs(joined.length() - bestTotal)) {
+                    best = format;
+                }
+            }
+            lines.clear();
+            for (int i = 0; i < best.getLineCount(); i++) {
+                int from = Math.min(joined.length(), i * best.getLineLength());
+                int to = i == best.getLineCount() - 1 ? joined.length()
+                        : Math.min(joined.length(), from + best.getLineLength());
+                lines.add(joined.substring(from, to));
+            }
+        }
+        return lines;
+    }
+
+    private static Format detectFormat(List<String> lines) {
+        if (lines.size() >= 3 && averageLength(lines.subList(lines.size() - 3, lines.size())) <= 33) {
+            return Format.TD1;
+        }
+        double average = averageLength(lines.subList(Math.max(0, lines.size() - 2), lines.size()));
+        return Math.abs(average - 36) < Math.abs(average - 44) ? Format.TD2 : Format.TD3;
+    }
+
+    private static double averageLength(List<String> lines) {
+        double total = 0;
+        for (String line : lines) {
+            total += line.length();
+        }
+        return total / lines.size();
+    }
+
+    /**
+     * Garde les dernières lignes et les ramène à la longueur du format
+     */
+    private static char[][] normalize(List<String> lines, Format format) {
+        char[][] mrz = new char[format.getLineCount()][];
+        int offset = lines.size() - format.getLineCount();
+        for (int i = 0; i < format.getLineCount(); i++) {
+            char[] line = new char[format.getLineLength()];
+            Arrays.fill(line, '<');
+            String source = offset + i >= 0 ? lines.get(offset + i) : "";
+            source.getChars(0, Math.min(source.length(), line.length), line, 0);
+            mrz[i] = line;
+        }
+        return mrz;
+    }
+
+    private static String[] template(Format format) {
+        switch (format) {
+            case TD1:
+                return TD1_TEMPLATE;
+            case TD2:
+                return TD2_TEMPLATE;
+            default:
+                return TD3_TEMPLATE;
+        }
+    }
+
+    private static boolean verify(char[] line, int from, int to, int checkPosition) {
+        return verify(new String(line, from, to - from), line[checkPosition]);
+    }
+
+    private static boolean verify(String value, char check) {
+        int expected = checkDigit(value);
+        return check == '<' ? expected == 0 : check - '0' == expected;
+    }
+
+    private static int charValue(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A' + 10;
+        }
+        return 0;
+    }
+
+    private static String field(char[] line, int from, int to) {
+        return new String(line, from, to - from).replace("<", "");
+    }
+
+    /**
+     * Nom et prénoms séparés par « << », les « < » isolés valant des espaces
+     */
+    private static String[] names(char[] line, int from, int to) {
+        String value = new String(line, from, to - from);
+        int separator = value.indexOf("<<");
+        String surname = separator >= 0 ? value.substring(0, separator) : value;
+        String givenNames = separator >= 0 ? value.substring(separator + 2) : "";
+        return new String[] {
+                surname.replace('<', ' ').trim(),
+                givenNames.replace('<', ' ').trim()
+        };
+    }
+
+    private static DocumentType documentType(char code) {
+        if (code == 'C') {
+            return DocumentType.ID_CARD;
+        }
+        return DocumentType.fromCode(String.valueOf(code));
+    }
+
+    private static String gender(char code) {
+        return code == 'M' ? "MALE" : code == 'F' ? "FEMALE" : "UNSPECIFIED";
+    }
+
+    /**
+     * Formate une date MRZ (YYMMDD) ; le siècle des dates de naissance est déduit de l'année courante
+     */
+    private static String formatDate(char[] line, int from, boolean birth) {
+        String raw = new String(line, from, 6);
+        for (int i = 0; i < 6; i++) {
+            if (line[from + i] < '0' || line[from + i] > '9') {
+                return raw;
+            }
+        }
+
+        int year = Integer.parseInt(raw.substring(0, 2));
+        int month = Integer.parseInt(raw.substring(2, 4));
+        int day = Integer.parseInt(raw.substring(4, 6));
+        if (month < 1 || month > 12 || day < 1 || day > 31) {
+            return raw;
+        }
+
+        year += birth && year > Year.now().getValue() % 100 ? 1900 : 2000;
+        return String.format("%04d-%02d-%02d", year, month, day);
+    }
+
+    /**
+     * Corrections appliquées à une MRZ
+     */
+    private static final class Repair {
+
+        private int count;
+
+        /**
+         * Corrige les confusions selon la nature attendue de chaque position
+         */
+        void applyTemplate(char[][] mrz, String[] template) {
+            for (int l = 0; l < mrz.length; l++) {
+                for (int i = 0; i < mrz[l].length; i++) {
+                    char expected = template[l].charAt(i);
+                    char c = mrz[l][i];
+                    char fixed = expected == 'N' ? toDigit(c) : expected == 'A' ? toLetter(c) : c;
+                    if (fixed != c) {
+                        mrz[l][i] = fixed;
+                        count++;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Vérifie un champ alphanumérique et, en cas d'échec, essaie une substitution
+         * de caractère ambigu qui rend le chiffre de contrôle valide
+         */
+        boolean withCheckDigit(char[] line, int from, int to, int checkPosition) {
+            if (verify(line, from, to, checkPosition)) {
+                return true;
+            }
+            for (int i = from; i < to; i++) {
+                char original = line[i];
+                char alternative = swap(original);
+                if (alternative == original) {
+                    continue;
+                }
+                line[i] = alternative;
+                if (verify(line, from, to, checkPosition)) {
+                    count++;
+                    return true;
+                }
+                line[i] = original;
+            }
+            return false;
+        }
+
+        private static char toDigit(char c) {
+            switch (c) {
+                case 'O':
+                case 'Q':
+                case 'D':
+                    return '0';
+                case 'I':
+                case 'L':
+                    return '1';
+                case 'Z':
+                    return '2';
+                case 'S':
+                    return '5';
+                case 'G':
+                    return '6';
+                case 'B':
+                    return '8';
+                default:
+                    return c;
+            }
+        }
+
+        private static char toLetter(char c) {
+            switch (c) {
+                case '0':
+                    return 'O';
+                case '1':
+                    return 'I';
+                case '2':
+                    return 'Z';
+                case '5':
+                    return 'S';
+                case '6':
+                    return 'G';
+                case '8':
+                    return 'B';
+                default:
+                    return c;
+            }
+        }
+
+        private static char swap(char c) {
+            char digit = toDigit(c);
+            return digit != c ? digit : toLetter(c);
+        }
+    }
+}
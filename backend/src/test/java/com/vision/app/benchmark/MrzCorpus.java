@@ -0,0 +1,145 @@
+package com.vision.app.benchmark;
+
+import com.vision.app.util.MrzParser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Corpus MRZ synthétique (TD1, TD2, TD3) aux chiffres de contrôle valides,
+ * bruité comme une sortie OCR : casse, espaces, caractères parasites,
+ * confusions O/0 et I/1, retours à la ligne Windows
+ */
+final class MrzCorpus {
+
+    private static final String LETTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+    private static final String DIGITS = "0123456789";
+    private static final String NOISE = " .,'«»-_|";
+
+    private MrzCorpus() {
+    }
+
+    static List<String> generate(int size, long seed) {
+        Random random = new Random(seed);
+        List<String> corpus = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String mrz;
+            switch (i % 3) {
+                case 0:
+                    mrz = td3(random);
+                    break;
+                case 1:
+                    mrz = td1(random);
+                    break;
+                default:
+                    mrz = td2(random);
+                    break;
+            }
+            corpus.add(random.nextInt(4) == 0 ? mrz : noisy(mrz, random));
+        }
+        return corpus;
+    }
+
+    private static String td3(Random random) {
+        String documentNumber = alphanumeric(random, 9);
+        String birth = date(random);
+        String expiry = date(random);
+        String personal = pad(alphanumeric(random, 1 + random.nextInt(14)), 14);
+        String line2 = documentNumber + check(documentNumber) + country(random) + birth + check(birth)
+                + sex(random) + expiry + check(expiry) + personal + check(personal);
+        String composite = line2.substring(0, 10) + line2.substring(13, 20) + line2.substring(21, 43);
+        return pad("P<" + country(random) + names(random), 44) + "\n" + line2 + check(composite);
+    }
+
+    private static String td2(Random random) {
+        String documentNumber = alphanumeric(random, 9);
+        String birth = date(random);
+        String expiry = date(random);
+        String line2 = documentNumber + check(documentNumber) + country(random) + birth + check(birth)
+                + sex(random) + expiry + check(expiry) + "<<<<<<<";
+        String composite = line2.substring(0, 10) + line2.substring(13, 20) + line2.substring(21, 35);
+        return pad("I<" + country(random) + names(random), 36) + "\n" + line2 + check(composite);
+    }
+
+    private static String td1(Random random) {
+        String documentNumber = alphanumeric(random, 9);
+        String birth = date(random);
+        String expiry = date(random);
+        String line1 = "I<" + country(random) + documentNumber + check(documentNumber) + "<<<<<<<<<<<<<<<";
+        String line2 = birth + check(birth) + sex(random) + expiry + check(expiry) + country(random) + "<<<<<<<<<<<";
+        String composite = line1.substring(5, 30) + line2.substring(0, 7) + line2.substring(8, 15)
+                + line2.substring(18, 29);
+        return line1 + "\n" + line2 + check(composite) + "\n" + pad(names(random), 30);
+    }
+
+    /**
+     * Bruit OCR : minuscules, espaces et ponctuation parasites, O/0 et I/1 intervertis
+     */
+    private static String noisy(String mrz, Random random) {
+        StringBuilder text = new StringBuilder(mrz.length() + 16);
+        for (int i = 0; i < mrz.length(); i++) {
+            char c = mrz.charAt(i);
+            if (c == '\n') {
+                text.append(random.nextBoolean() ? "\r\n" : "\n");
+                continue;
+            }
+            int roll = random.nextInt(100);
+            if (roll < 2) {
+                c = c == '0' ? 'O' : c == 'O' ? '0' : c == '1' ? 'I' : c == 'I' ? '1' : c;
+            } else if (roll < 5) {
+                c = Character.toLowerCase(c);
+            }
+            text.append(c);
+            if (random.nextInt(50) == 0) {
+                text.append(NOISE.charAt(random.nextInt(NOISE.length())));
+            }
+        }
+        return text.toString();
+    }
+
+    private static String names(Random random) {
+        return letters(random, 3 + random.nextInt(8)) + "<<" + letters(random, 3 + random.nextInt(6))
+                + "<" + letters(random, 3 + random.nextInt(6));
+    }
+
+    private static String country(Random random) {
+        return letters(random, 3);
+    }
+
+    private static String sex(Random random) {
+        return String.valueOf("MF<".charAt(random.nextInt(3)));
+    }
+
+    private static String date(Random random) {
+        return String.format("%02d%02d%02d", random.nextInt(100), 1 + random.nextInt(12), 1 + random.nextInt(28));
+    }
+
+    private static String letters(Random random, int length) {
+        return randomString(random, LETTERS, length);
+    }
+
+    private static String alphanumeric(Random random, int length) {
+        return randomString(random, LETTERS + DIGITS, length);
+    }
+
+    private static String randomString(Random random, String alphabet, int length) {
+        StringBuilder value = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            value.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return value.toString();
+    }
+
+    private static String pad(String value, int length) {
+        StringBuilder padded = new StringBuilder(value);
+        while (padded.length() < length) {
+            padded.append('<');
+        }
+        return padded.substring(0, length);
+    }
+
+    private static int check(String value) {
+        return MrzParser.checkDigit(value);
+    }
+}
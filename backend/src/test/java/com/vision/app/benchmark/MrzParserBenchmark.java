@@ -0,0 +1,91 @@
+package com.vision.app.benchmark;
+
+import com.vision.app.dto.MrzData;
+import com.vision.app.util.MrzParser;
+import com.vision.app.util.MrzRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare le parseur MRZ sur tableau de caractères à l'ancienne chaîne
+ * (nettoyage regex + parseur à base de chaînes) sur un corpus synthétique.
+ * Lancement : mvn test-compile puis main() avec le classpath de test ; le
+ * profileur GC rapporte les allocations par opération.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MrzParserBenchmark {
+
+    @Param({ "1000" })
+    private int corpusSize;
+
+    private List<String> corpus;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        corpus = MrzCorpus.generate(corpusSize, 42L);
+    }
+
+    /**
+     * Ancienne chaîne : cleanMrzText (split + replaceAll) puis parseur à base de chaînes
+     */
+    @Benchmark
+    public MrzData legacyParse() {
+        return LegacyMrzParser.parseRaw(nextText());
+    }
+
+    /**
+     * Passe unique sur le texte brut, champs décodés à la demande
+     */
+    @Benchmark
+    public void recordParse(Blackhole blackhole) {
+        MrzRecord record = MrzParser.parseRecord(nextText());
+        blackhole.consume(record.isValid());
+        blackhole.consume(record.getDocumentNumber());
+    }
+
+    /**
+     * Passe unique sur le texte brut, conversion complète en MrzData
+     */
+    @Benchmark
+    public MrzData fullParse() {
+        return MrzParser.parse(nextText());
+    }
+
+    private String nextText() {
+        String text = corpus.get(next);
+        next = next + 1 == corpus.size() ? 0 : next + 1;
+        return text;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(MrzParserBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,82 @@
+package com.vision.app.service;
+
+import com.google.zxing.BarcodeFormat;
+import com.vision.app.dto.BarcodeInfo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BarcodeGenerationServiceTest {
+
+    private BarcodeGenerationService generationService;
+    private BarcodeService barcodeService;
+
+    @BeforeEach
+    void setUp() {
+        generationService = new BarcodeGenerationService();
+        generationService.init();
+        barcodeService = new BarcodeService(new BarcodeRegionDetector(), new BarcodeBufferPool());
+    }
+
+    @AfterEach
+    void tearDown() {
+        generationService.shutdown();
+    }
+
+    @Test
+    void testWriteZip_EntriesInOrderWithErrors() throws Exception {
+        // Given
+        List<String> payloads = List.of("4006381333931", "not-an-ean", "9780201379624");
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // When
+        int written = generationService.writeZip(payloads, BarcodeFormat.EAN_13, 300, 120, output);
+
+        // Then
+        assertEquals(2, written);
+        List<String> names = new ArrayList<>();
+        String errors = null;
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(output.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                names.add(entry.getName());
+                byte[] bytes = zip.readAllBytes();
+                if (entry.getName().equals("00001.png")) {
+                    List<BarcodeInfo> barcodes = barcodeService.readBarcodes(ImageIO.read(new ByteArrayInputStream(bytes)));
+                    assertEquals("4006381333931", barcodes.get(0).getText());
+                } else if (entry.getName().equals("errors.txt")) {
+                    errors = new String(bytes, StandardCharsets.UTF_8);
+                }
+            }
+        }
+        assertEquals(List.of("00001.png", "00003.png", "errors.txt"), names);
+        assertTrue(errors.startsWith("2\t"));
+    }
+
+    @Test
+    void testGenerate_CachedByPayloadSizeAndFormat() throws Exception {
+        byte[] first = generationService.generate("DM-42", BarcodeFormat.DATA_MATRIX, 120, 120);
+        byte[] second = generationService.generate("DM-42", BarcodeFormat.DATA_MATRIX, 120, 120);
+
+        assertArrayEquals(first, second);
+        assertFalse(Arrays.equals(first,
+                generationService.generate("DM-42", BarcodeFormat.DATA_MATRIX, 200, 200)));
+        assertEquals(1L, generationService.getStats().get("hits"));
+
+        // Une copie modifiée par l'appelant ne corrompt pas le cache
+        Arrays.fill(second, (byte) 0);
+        assertArrayEquals(first, generationService.generate("DM-42", BarcodeFormat.DATA_MATRIX, 120, 120));
+    }
+}
@@ -0,0 +1,301 @@
+package com.vision.app.service;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.MultiFormatWriter;
+import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
+import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.vision.app.dto.BarcodeInfo;
+import com.vision.app.dto.BarcodeResult;
+import com.vision.app.util.OpenCvUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class BarcodeServiceTest {
+
+    private BarcodeService barcodeService;
+
+    @BeforeEach
+    void setUp() {
+        barcodeService = new BarcodeService(new BarcodeRegionDetector(), new BarcodeBufferPool());
+    }
+
+    @Test
+    void testReadBarcodes_MultipleFormatsInOnePass() throws Exception {
+        // Given
+        BufferedImage image = createImageWithQrAndCode128("https://example.com/invoice/42", "ABC-123456");
+
+        // When
+        List<BarcodeInfo> barcodes = barcodeService.readBarcodes(image);
+
+        // Then
+        List<String> formats = barcodes.stream().map(BarcodeInfo::getFormat).collect(Collectors.toList());
+        assertTrue(formats.contains("QR_CODE"));
+        assertTrue(formats.contains("CODE_128"));
+        assertEquals(formats.size(), barcodes.stream().map(b -> b.getFormat() + b.getText()).distinct().count());
+    }
+
+    @Test
+    void testReadBarcodes_WithFormatFilter() throws Exception {
+        // Given
+        BufferedImage image = createImageWithQrAndCode128("https://example.com/invoice/42", "ABC-123456");
+
+        // When
+        List<BarcodeInfo> barcodes = barcodeService.readBarcodes(image, EnumSet.of(BarcodeFormat.QR_CODE));
+
+        // Then
+        assertEquals(1, barcodes.size());
+        assertEquals("QR_CODE", barcodes.get(0).getFormat());
+        assertEquals("https://example.com/invoice/42", barcodes.get(0).getText());
+    }
+
+    @Test
+    void testPooledLuminance_MatchesReferenceOnSubimages() throws Exception {
+        // Given
+        BufferedImage source = createImageWithQrAndCode128("https://example.com/invoice/42", "ABC-123456");
+        BarcodeBufferPool pool = new BarcodeBufferPool();
+
+        for (int type : new int[] { BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_3BYTE_BGR,
+                BufferedImage.TYPE_BYTE_GRAY, BufferedImage.TYPE_USHORT_GRAY }) {
+            BufferedImage converted = new BufferedImage(source.getWidth(), source.getHeight(), type);
+            Graphics2D g2d = converted.createGraphics();
+            g2d.drawImage(source, 0, 0, null);
+            g2d.dispose();
+            BufferedImage crop = converted.getSubimage(30, 50, 500, 300);
+
+            // When
+            byte[] expected = new BufferedImageLuminanceSource(crop).getMatrix();
+            try (BarcodeBufferPool.Lease lease = pool.lease()) {
+                LuminanceSource pooled = PooledLuminanceSource.fromImage(crop, lease);
+
+                // Then
+                for (int y = 0; y < crop.getHeight(); y++) {
+                    byte[] row = pooled.getRow(y, null);
+                    for (int x = 0; x < crop.getWidth(); x++) {
+                        assertEquals(expected[y * crop.getWidth() + x], row[x], "type " + type + " at " + x + "," + y);
+                    }
+                }
+            }
+        }
+        assertTrue((long) pool.getStats().get("reuses") > 0);
+    }
+
+    @Test
+    void testParseFormats_UnknownFormat() {
+        assertNull(barcodeService.parseFormats(" "));
+        assertEquals(EnumSet.of(BarcodeFormat.QR_CODE, BarcodeFormat.EAN_13),
+                barcodeService.parseFormats("qr_code, EAN_13"));
+        assertThrows(IllegalArgumentException.class, () -> barcodeService.parseFormats("NOT_A_FORMAT"));
+    }
+
+    @Test
+    void testPyramid_LargeCodeDecodedAtCoarsestLevel() throws Exception {
+        // Given : photo 4000x3000 avec un QR code de 1200 px (environ 40 px par module)
+        disableRegionProposals();
+        BufferedImage image = blank(4000, 3000);
+        Graphics2D g2d = image.createGraphics();
+        g2d.drawImage(barcodeService.generateQRCode("https://example.com/invoice/42", 1200, 1200), 1000, 800, null);
+        g2d.dispose();
+
+        // When
+        BarcodeResult result = barcodeService.readBarcodesFromImageBytes(png(image), "photo.png",
+                EnumSet.of(BarcodeFormat.QR_CODE));
+
+        // Then : lu dès le quart de résolution, position ramenée en pleine résolution
+        assertTrue(result.isSuccess());
+        assertEquals(1, result.getBarcodeCount());
+        assertEquals(4, result.getSubsamplingFactor());
+        assertEquals(4000, result.getImageWidth());
+        BarcodeInfo barcode = result.getBarcodes().get(0);
+        assertTrue(barcode.getTopLeftX() > 1000 && barcode.getTopLeftX() < 2200, "x=" + barcode.getTopLeftX());
+        assertTrue(barcode.getTopLeftY() > 800 && barcode.getTopLeftY() < 2000, "y=" + barcode.getTopLeftY());
+    }
+
+    @Test
+    void testPyramid_FallsBackToFinerLevels() throws Exception {
+        disableRegionProposals();
+
+        // Modules de 2 px : illisibles au quart (un module sur deux), exacts à la moitié
+        BarcodeResult half = barcodeService.readBarcodesFromImageBytes(
+                png(imageWithCode128("VISION-2024-000123", 2)), "scan.png", EnumSet.of(BarcodeFormat.CODE_128));
+        // Modules de 1 px : seule la pleine résolution les conserve
+        BarcodeResult full = barcodeService.readBarcodesFromImageBytes(
+                png(imageWithCode128("VISION-2024-000123", 1)), "scan.png", EnumSet.of(BarcodeFormat.CODE_128));
+
+        assertEquals(2, half.getSubsamplingFactor());
+        assertEquals("VISION-2024-000123", half.getBarcodes().get(0).getText());
+        assertEquals(1, full.getSubsamplingFactor());
+        assertEquals("VISION-2024-000123", full.getBarcodes().get(0).getText());
+    }
+
+    @Test
+    void testPyramid_SmallImageReadAtFullResolutionOnly() throws Exception {
+        // Given : image trop petite pour être sous-échantillonnée (min-dimension 800)
+        BufferedImage image = createImageWithQrAndCode128("https://example.com/invoice/42", "ABC-123456");
+
+        // When
+        BarcodeResult result = barcodeService.readBarcodesFromImageBytes(png(image), "small.png");
+
+        // Then
+        assertEquals(1, result.getSubsamplingFactor());
+        assertEquals(2, result.getBarcodeCount());
+    }
+
+    @Test
+    void testPyramid_NothingFoundLeavesFactorUnset() throws Exception {
+        disableRegionProposals();
+
+        BarcodeResult result = barcodeService.readBarcodesFromImageBytes(png(blank(3400, 600)), "vide.png");
+
+        assertTrue(result.isSuccess());
+        assertEquals(0, result.getBarcodeCount());
+        assertNull(result.getSubsamplingFactor());
+    }
+
+    @Test
+    void testRegionProposals_SmallCodeDecodedFromCropOnLargePage() throws Exception {
+        // Given : page A4 à 300 dpi, petit QR code en bas à droite et Code 128 en haut à
+        // gauche ; seule la zone du QR code est proposée
+        RecordingRegionDetector detector = new RecordingRegionDetector(
+                List.of(new Rectangle(1600, 2800, 400, 400)));
+        barcodeService = new BarcodeService(detector, new BarcodeBufferPool());
+
+        // When
+        List<BarcodeInfo> barcodes = barcodeService.readBarcodes(pageWithSmallCodes());
+
+        // Then : décodé dans la découpe (le Code 128 hors zone n'est pas lu),
+        // position ramenée dans le repère de la page
+        assertEquals(1, detector.calls);
+        assertEquals(1, barcodes.size());
+        BarcodeInfo qr = barcodes.get(0);
+        assertEquals("https://example.com/invoice/42", qr.getText());
+        assertTrue(qr.getTopLeftX() >= 1700 && qr.getTopLeftX() <= 1900, "x=" + qr.getTopLeftX());
+        assertTrue(qr.getTopLeftY() >= 2900 && qr.getTopLeftY() <= 3100, "y=" + qr.getTopLeftY());
+    }
+
+    @Test
+    void testRegionProposals_DetectorFindsSmallCodeOnLargePage() throws Exception {
+        assumeTrue(OpenCvUtils.isAvailable(), "OpenCV native library not available");
+
+        // Given
+        RecordingRegionDetector detector = new RecordingRegionDetector(null);
+        barcodeService = new BarcodeService(detector, new BarcodeBufferPool());
+
+        // When
+        List<BarcodeInfo> barcodes = barcodeService.readBarcodes(pageWithSmallCodes());
+
+        // Then : chaque code lu se trouve dans une région proposée
+        assertFalse(detector.regions.isEmpty());
+        BarcodeInfo qr = barcodes.stream().filter(b -> "QR_CODE".equals(b.getFormat())).findFirst().orElseThrow();
+        assertTrue(qr.getTopLeftX() >= 1700 && qr.getTopLeftX() <= 1900, "x=" + qr.getTopLeftX());
+        assertTrue(qr.getTopLeftY() >= 2900 && qr.getTopLeftY() <= 3100, "y=" + qr.getTopLeftY());
+        for (BarcodeInfo barcode : barcodes) {
+            assertTrue(detector.regions.stream()
+                    .anyMatch(r -> r.contains(barcode.getTopLeftX(), barcode.getTopLeftY())),
+                    barcode.getFormat() + " hors des régions proposées");
+        }
+    }
+
+    /**
+     * Page de 2480x3508 avec un QR code de 200 px en (1700, 2900) et un Code 128 en (200, 300)
+     */
+    private BufferedImage pageWithSmallCodes() throws Exception {
+        BufferedImage page = blank(2480, 3508);
+        Graphics2D g2d = page.createGraphics();
+        g2d.drawImage(barcodeService.generateQRCode("https://example.com/invoice/42", 200, 200), 1700, 2900, null);
+        g2d.drawImage(MatrixToImageWriter.toBufferedImage(
+                new MultiFormatWriter().encode("ABC-123456", BarcodeFormat.CODE_128, 300, 80)), 200, 300, null);
+        g2d.dispose();
+        return page;
+    }
+
+    /**
+     * Détecteur qui enregistre ses propositions ; régions imposées si fournies
+     */
+    private static final class RecordingRegionDetector extends BarcodeRegionDetector {
+
+        private final List<Rectangle> fixedRegions;
+        private List<Rectangle> regions = List.of();
+        private int calls;
+
+        RecordingRegionDetector(List<Rectangle> fixedRegions) {
+            this.fixedRegions = fixedRegions;
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return fixedRegions != null || super.isAvailable();
+        }
+
+        @Override
+        public List<Rectangle> detect(BufferedImage image) {
+            calls++;
+            regions = fixedRegions != null ? fixedRegions : super.detect(image);
+            return regions;
+        }
+    }
+
+    private void disableRegionProposals() {
+        // Décodage de l'image entière à chaque niveau, avec ou sans OpenCV
+        ReflectionTestUtils.setField(barcodeService, "regionProposalsEnabled", false);
+    }
+
+    /**
+     * Image de 3400x600 (niveaux 1/4, 1/2 et pleine résolution) contenant un
+     * Code 128 dont chaque module mesure exactement moduleWidth pixels
+     */
+    private static BufferedImage imageWithCode128(String text, int moduleWidth) throws Exception {
+        BufferedImage code = MatrixToImageWriter.toBufferedImage(
+                new MultiFormatWriter().encode(text, BarcodeFormat.CODE_128, 0, 300));
+        BufferedImage image = blank(3400, 600);
+        Graphics2D g2d = image.createGraphics();
+        g2d.drawImage(code, 200, 150, code.getWidth() * moduleWidth, code.getHeight(), null);
+        g2d.dispose();
+        return image;
+    }
+
+    private static BufferedImage blank(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = image.createGraphics();
+        g2d.setColor(Color.WHITE);
+        g2d.fillRect(0, 0, width, height);
+        g2d.dispose();
+        return image;
+    }
+
+    private static byte[] png(BufferedImage image) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    // Méthode utilitaire pour créer une image contenant deux codes de formats différents
+    private BufferedImage createImageWithQrAndCode128(String qrText, String code128Text) throws Exception {
+        BufferedImage qrCode = barcodeService.generateQRCode(qrText, 250, 250);
+        BufferedImage code128 = MatrixToImageWriter.toBufferedImage(
+                new MultiFormatWriter().encode(code128Text, BarcodeFormat.CODE_128, 300, 80));
+
+        BufferedImage image = new BufferedImage(800, 400, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = image.createGraphics();
+        g2d.setColor(Color.WHITE);
+        g2d.fillRect(0, 0, image.getWidth(), image.getHeight());
+        g2d.drawImage(qrCode, 40, 60, null);
+        g2d.drawImage(code128, 420, 160, null);
+        g2d.dispose();
+        return image;
+    }
+}
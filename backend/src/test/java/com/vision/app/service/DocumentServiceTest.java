@@ -0,0 +1,193 @@
+package com.vision.app.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import com.vision.app.controller.DocumentController;
+import com.vision.app.dto.DocumentProcessingResult;
+import com.vision.app.model.Document;
+import com.vision.app.repository.DocumentRepository;
+import com.vision.app.repository.LlmResponseRepository;
+import com.vision.app.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DocumentServiceTest {
+
+    private static final Long DOCUMENT_ID = 3L;
+    private static final String TEXT = "Contrat de location signé le 12 mars 2024 à Lyon. ".repeat(60);
+
+    @TempDir
+    Path tempDir;
+
+    private HttpServer server;
+    private OllamaHttpClient httpClient;
+    private OllamaBackendPool backendPool;
+    private final List<Map<?, ?>> generateRequests = new CopyOnWriteArrayList<>();
+
+    private DocumentRepository documentRepository;
+    private DocumentProcessingService documentProcessingService;
+    private DocumentService documentService;
+    private DocumentController controller;
+    private Document document;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // Serveur Ollama factice : chaque réponse renvoie un contexte réutilisable
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/generate", exchange -> {
+            generateRequests.add(new ObjectMapper().readValue(exchange.getRequestBody(), Map.class));
+            byte[] body = new ObjectMapper().writeValueAsBytes(Map.of(
+                    "response", "ok", "done", true, "eval_count", 2, "context", List.of(7, 8, 9)));
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.setExecutor(Executors.newFixedThreadPool(4));
+        server.start();
+
+        httpClient = new OllamaHttpClient(new ObjectMapper());
+        httpClient.init();
+        OllamaResponseCache responseCache = new OllamaResponseCache(mock(LlmResponseRepository.class),
+                new ObjectMapper());
+        responseCache.init();
+        OllamaRequestScheduler scheduler = new OllamaRequestScheduler();
+        OllamaContextStore contextStore = new OllamaContextStore();
+        contextStore.init();
+        OllamaModelRouter router = new OllamaModelRouter(scheduler);
+        ReflectionTestUtils.setField(router, "defaultModel", "stub");
+        router.init();
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/api/generate";
+        backendPool = new OllamaBackendPool(httpClient);
+        ReflectionTestUtils.setField(backendPool, "ollamaUrl", url);
+        backendPool.init();
+        OllamaService ollamaService = new OllamaService(httpClient, new ObjectMapper(), responseCache, scheduler,
+                contextStore, router, backendPool);
+        ReflectionTestUtils.setField(ollamaService, "ollamaUrl", url);
+        ReflectionTestUtils.setField(ollamaService, "model", "stub");
+
+        // Document enregistré, pas encore traité
+        Path stored = tempDir.resolve(DOCUMENT_ID + "-contrat.pdf");
+        Files.write(stored, new byte[] { '%', 'P', 'D', 'F' });
+        document = new Document();
+        document.setId(DOCUMENT_ID);
+        document.setFileName("contrat.pdf");
+        document.setFilePath(stored.toString());
+
+        documentRepository = mock(DocumentRepository.class);
+        when(documentRepository.findById(DOCUMENT_ID)).thenReturn(Optional.of(document));
+        documentProcessingService = mock(DocumentProcessingService.class);
+        DocumentProcessingResult extraction = new DocumentProcessingResult();
+        extraction.setSuccess(true);
+        extraction.setExtractedText(TEXT);
+        when(documentProcessingService.extractDocumentBytes(any(), eq("contrat.pdf"), any())).thenReturn(extraction);
+
+        documentService = new DocumentService(documentRepository, mock(UserRepository.class),
+                mock(PdfService.class), mock(ThumbnailService.class), documentProcessingService);
+        ReflectionTestUtils.setField(documentService, "storageDir", tempDir.toString());
+        controller = new DocumentController(mock(OcrService.class), mock(PdfService.class),
+                mock(BarcodeService.class), mock(MrzService.class), ollamaService, documentService,
+                mock(ThumbnailService.class), mock(ServiceHealthRegistry.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        backendPool.shutdown();
+        httpClient.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    void testAnalyzeStoredDocument_ExtractsOnceAndReusesContext() {
+        // When
+        ResponseEntity<Map<String, Object>> first =
+                controller.analyzeStoredDocument(DOCUMENT_ID, "Quelle est la date de signature ?").join();
+        ResponseEntity<Map<String, Object>> second =
+                controller.analyzeStoredDocument(DOCUMENT_ID, "Quelle est la ville ?").join();
+
+        // Then
+        assertEquals(HttpStatus.OK, first.getStatusCode());
+        assertEquals(true, first.getBody().get("success"));
+        assertEquals(true, second.getBody().get("success"));
+
+        // Texte extrait une seule fois puis enregistré sur le document
+        assertEquals(TEXT, document.getExtractedText());
+        verify(documentProcessingService, times(1)).extractDocumentBytes(any(), eq("contrat.pdf"), any());
+        verify(documentRepository).save(document);
+
+        // Une lecture du document, puis les deux prompts sur son contexte
+        assertEquals(3, generateRequests.size());
+        assertEquals(1, generateRequests.stream().filter(r -> ((String) r.get("prompt")).contains(TEXT)).count());
+        assertEquals(2, generateRequests.stream().filter(r -> List.of(7, 8, 9).equals(r.get("context"))).count());
+    }
+
+    @Test
+    void testProcessDocument_RevisionStoredBeforeOldFileDeleted() throws Exception {
+        // Given : révision du même nom que le fichier enregistré
+        Path previous = Path.of(document.getFilePath());
+        MockMultipartFile revision = new MockMultipartFile("file", "contrat.pdf", "application/pdf",
+                new byte[] { '%', 'P', 'D', 'F', '2' });
+        List<String> savedPaths = new CopyOnWriteArrayList<>();
+        List<Boolean> previousExisted = new CopyOnWriteArrayList<>();
+        when(documentRepository.save(document)).thenAnswer(invocation -> {
+            savedPaths.add(document.getFilePath());
+            previousExisted.add(Files.exists(previous));
+            return document;
+        });
+        DocumentProcessingResult processed = new DocumentProcessingResult();
+        processed.setSuccess(true);
+        when(documentProcessingService.processDocumentBytes(any(), eq("contrat.pdf"), any())).thenReturn(processed);
+
+        // When
+        documentService.processDocument(DOCUMENT_ID, revision);
+
+        // Then : nouveau nom, ancien fichier supprimé seulement après la mise à jour du document
+        Path stored = Path.of(document.getFilePath());
+        assertNotEquals(previous, stored);
+        assertEquals(stored.toString(), savedPaths.get(0));
+        assertTrue(previousExisted.get(0));
+        assertFalse(Files.exists(previous));
+        assertArrayEquals(revision.getBytes(), Files.readAllBytes(stored));
+    }
+
+    @Test
+    void testAnalyzeStoredDocument_NoTextExtracted() {
+        // Given
+        DocumentProcessingResult failed = new DocumentProcessingResult();
+        failed.setSuccess(false);
+        failed.setErrorMessage("No text could be extracted from the PDF");
+        when(documentProcessingService.extractDocumentBytes(any(), eq("contrat.pdf"), any())).thenReturn(failed);
+
+        // When
+        ResponseEntity<Map<String, Object>> response =
+                controller.analyzeStoredDocument(DOCUMENT_ID, "Résumez ce document").join();
+
+        // Then
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals("No text could be extracted from the PDF", document.getProcessingErrors());
+        assertTrue(generateRequests.isEmpty());
+    }
+}
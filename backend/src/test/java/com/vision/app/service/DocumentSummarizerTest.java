@@ -0,0 +1,125 @@
+package com.vision.app.service;
+
+import com.vision.app.dto.OllamaResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DocumentSummarizerTest {
+
+    private final List<String> prompts = new CopyOnWriteArrayList<>();
+    private final List<CompletableFuture<OllamaResult>> pending = new CopyOnWriteArrayList<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private volatile boolean holdCalls;
+    private OllamaService ollamaService;
+    private DocumentSummarizer summarizer;
+
+    @BeforeEach
+    void setUp() {
+        // Chaque appel répond par un résumé court ; les appels peuvent être retenus pour mesurer la concurrence
+        ollamaService = mock(OllamaService.class);
+        when(ollamaService.analyzeTextAsync(anyString(), anyString(),
+                eq(OllamaService.DocumentAnalysisType.SUMMARY))).thenAnswer(invocation -> {
+                    String prompt = invocation.getArgument(1);
+                    prompts.add(prompt);
+                    maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                    if (!holdCalls) {
+                        inFlight.decrementAndGet();
+                        return CompletableFuture.completedFuture(result("résumé " + prompts.size()));
+                    }
+                    CompletableFuture<OllamaResult> call = new CompletableFuture<>();
+                    pending.add(call);
+                    return call;
+                });
+        when(ollamaService.analyzeDocumentAsync(anyString(), eq(OllamaService.DocumentAnalysisType.SUMMARY)))
+                .thenReturn(CompletableFuture.completedFuture(result("résumé direct")));
+
+        summarizer = new DocumentSummarizer(ollamaService);
+        ReflectionTestUtils.setField(summarizer, "chunkTokens", 100);
+        ReflectionTestUtils.setField(summarizer, "concurrency", 2);
+        ReflectionTestUtils.setField(summarizer, "reduceFanIn", 2);
+    }
+
+    @Test
+    void testShortTextIsSummarizedInOneCall() {
+        OllamaResult summary = summarizer.summarizeAsync("Un court document.").join();
+
+        assertEquals("résumé direct", summary.getResponse());
+        assertTrue(prompts.isEmpty());
+    }
+
+    @Test
+    void testChunksFollowPageTextsAndReduceByLevels() {
+        // Given : cinq pages de 300 caractères, un morceau par page (budget 100 tokens ≈ 400 caractères)
+        List<String> pages = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            pages.add(("Page " + i + " du contrat. ").repeat(20).substring(0, 300));
+        }
+        String text = String.join("", pages);
+
+        // When
+        OllamaResult summary = summarizer.summarizeAsync(text, pages).join();
+
+        // Then : 5 morceaux, puis 3 → 2 → 1 résumés combinés
+        assertEquals(5 + 3 + 2 + 1, prompts.size());
+        for (int i = 0; i < 5; i++) {
+            assertTrue(prompts.get(i).contains("partie " + (i + 1) + " sur 5 (pages " + (i + 1) + " à " + (i + 1)));
+        }
+        assertTrue(prompts.subList(5, 10).stream()
+                .allMatch(prompt -> prompt.startsWith("Voici des résumés partiels")));
+        assertTrue(prompts.get(10).startsWith("Voici les résumés successifs"));
+
+        assertEquals("résumé 11", summary.getResponse());
+        Map<?, ?> mapReduce = (Map<?, ?>) summary.getMetadata().get("mapReduce");
+        assertEquals(5, mapReduce.get("chunks"));
+        assertEquals(3, mapReduce.get("reduceLevels"));
+        assertEquals(0L, mapReduce.get("failedChunks"));
+        assertEquals(5, ((List<?>) mapReduce.get("chunkTimings")).size());
+    }
+
+    @Test
+    void testChunkSummariesRespectConcurrencyBound() {
+        // Given
+        holdCalls = true;
+        String text = "Un paragraphe de quarante caractères....\n\n".repeat(60);
+
+        // When
+        CompletableFuture<OllamaResult> summary = summarizer.summarizeAsync(text);
+        while (!summary.isDone()) {
+            if (pending.isEmpty()) {
+                fail("no call in flight while the summary is not done");
+            }
+            CompletableFuture<OllamaResult> call = pending.remove(0);
+            inFlight.decrementAndGet();
+            call.complete(result("résumé partiel"));
+        }
+
+        // Then
+        assertTrue(summary.join().isSuccessful());
+        assertEquals(2, maxInFlight.get());
+    }
+
+    private static OllamaResult result(String response) {
+        OllamaResult result = new OllamaResult();
+        result.setSuccess(true);
+        result.setDone(true);
+        result.setResponse(response);
+        result.setMetadata(new HashMap<>());
+        return result;
+    }
+}
@@ -0,0 +1,140 @@
+package com.vision.app.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vision.app.dto.MrzData;
+import com.vision.app.dto.MrzResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MrzBatchServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private MrzBatchService batchService;
+
+    @BeforeEach
+    void setUp() {
+        MrzService mrzService = mock(MrzService.class);
+        when(mrzService.processImage(anyString(), any(BufferedImage.class))).thenAnswer(invocation ->
+                MrzResult.builder()
+                        .fileName(invocation.getArgument(0))
+                        .success(true)
+                        .data(MrzData.builder().mrzFormat("TD3").valid(true).build())
+                        .build());
+
+        batchService = new MrzBatchService(mrzService, objectMapper);
+        batchService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        batchService.shutdown();
+    }
+
+    @Test
+    void testProcess_ImagesAndZipStreamedAsNdjson() throws Exception {
+        // Given : une image seule, une archive de trois images (et un fichier ignoré), un fichier invalide
+        byte[] png = png();
+        ByteArrayOutputStream zipBytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(zipBytes)) {
+            for (String name : new String[] { "a.png", "scans/b.png", "readme.txt", "c.PNG" }) {
+                zip.putNextEntry(new ZipEntry(name));
+                zip.write(name.endsWith(".txt") ? "x".getBytes(StandardCharsets.UTF_8) : png);
+                zip.closeEntry();
+            }
+        }
+        List<MultipartFile> files = List.of(
+                new MockMultipartFile("files", "single.png", "image/png", png),
+                new MockMultipartFile("files", "lot.zip", "application/zip", zipBytes.toByteArray()),
+                new MockMultipartFile("files", "notes.pdf", "application/pdf", new byte[] { 1 }));
+
+        // When
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        batchService.process(files, out);
+
+        // Then : une ligne par document puis la synthèse
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+            lines.add(objectMapper.readTree(line));
+        }
+        assertEquals(6, lines.size());
+
+        JsonNode summary = lines.get(5);
+        assertTrue(summary.get("summary").asBoolean());
+        assertEquals(5, summary.get("total").asInt());
+        assertEquals(4, summary.get("succeeded").asInt());
+        assertEquals(4, summary.get("valid").asInt());
+
+        long indexes = lines.subList(0, 5).stream().mapToInt(line -> line.get("index").asInt()).distinct().count();
+        assertEquals(5, indexes);
+        assertTrue(lines.stream().limit(5).allMatch(line -> line.has("durationMs")));
+        assertTrue(lines.stream().limit(5)
+                .anyMatch(line -> "notes.pdf".equals(line.get("fileName").asText()) && !line.get("success").asBoolean()));
+    }
+
+    @Test
+    void testProcessArchive_StreamedAndBounded() throws Exception {
+        // Given : une archive de trois images envoyée en corps brut
+        byte[] png = png();
+        ByteArrayOutputStream zipBytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(zipBytes)) {
+            for (String name : new String[] { "a.png", "b.png", "c.png" }) {
+                zip.putNextEntry(new ZipEntry(name));
+                zip.write(png);
+                zip.closeEntry();
+            }
+        }
+
+        // When
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        batchService.processArchive("lot.zip", new ByteArrayInputStream(zipBytes.toByteArray()), out);
+        ReflectionTestUtils.setField(batchService, "maxArchiveBytes", (long) png.length);
+        ByteArrayOutputStream truncated = new ByteArrayOutputStream();
+        batchService.processArchive("lot.zip", new ByteArrayInputStream(zipBytes.toByteArray()), truncated);
+
+        // Then : tout est lu sous la limite ; au-delà, une ligne d'erreur pour l'archive
+        List<JsonNode> lines = lines(out);
+        assertEquals(4, lines.size());
+        assertEquals(3, lines.get(3).get("succeeded").asInt());
+
+        List<JsonNode> bounded = lines(truncated);
+        JsonNode summary = bounded.get(bounded.size() - 1);
+        assertEquals(1, summary.get("failed").asInt());
+        assertTrue(bounded.stream().anyMatch(line -> "lot.zip".equals(line.path("fileName").asText())
+                && line.get("errorMessage").asText().startsWith("Archive trop volumineuse")));
+    }
+
+    private List<JsonNode> lines(ByteArrayOutputStream out) throws Exception {
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+            lines.add(objectMapper.readTree(line));
+        }
+        return lines;
+    }
+
+    private static byte[] png() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(40, 20, BufferedImage.TYPE_BYTE_GRAY), "png", out);
+        return out.toByteArray();
+    }
+}
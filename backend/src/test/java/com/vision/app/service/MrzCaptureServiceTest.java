@@ -0,0 +1,126 @@
+package com.vision.app.service;
+
+import com.vision.app.dto.MrzData;
+import com.vision.app.dto.MrzResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MrzCaptureServiceTest {
+
+    private MrzService mrzService;
+    private MrzCaptureService captureService;
+
+    @BeforeEach
+    void setUp() {
+        // Sans OpenCV : la zone candidate est le bas de l'image
+        MrzDetector detector = mock(MrzDetector.class);
+        when(detector.isAvailable()).thenReturn(false);
+        mrzService = mock(MrzService.class);
+        when(mrzService.processZone(anyString(), any(BufferedImage.class))).thenReturn(MrzResult.builder()
+                .success(true)
+                .data(MrzData.builder().mrzFormat("TD3").valid(true).checkDigits(Map.of("composite", true)).build())
+                .build());
+
+        captureService = new MrzCaptureService(detector, mrzService);
+        captureService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        captureService.shutdown();
+    }
+
+    @Test
+    void testLaplacianVariance_SharpAboveBlurred() {
+        assertTrue(MrzCaptureService.laplacianVariance(gray(stripes(200, 60)))
+                > 100 * Math.max(1, MrzCaptureService.laplacianVariance(gray(uniform(200, 60)))));
+    }
+
+    @Test
+    void testSession_DropsBlurryFramesAndStopsOnValidReading() throws Exception {
+        // Given
+        List<Map<String, Object>> messages = new CopyOnWriteArrayList<>();
+        CountDownLatch finished = new CountDownLatch(1);
+        MrzCaptureSession session = captureService.openSession("kiosk", new MrzCaptureSession.Listener() {
+            @Override
+            public void onMessage(Map<String, Object> message) {
+                messages.add(message);
+            }
+
+            @Override
+            public void onFinished() {
+                finished.countDown();
+            }
+        });
+
+        // When : une image floue, une image nette, puis une image après la fin de session
+        session.onFrame(png(uniform(400, 300)));
+        session.onFrame(png(stripes(400, 300)));
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        session.onFrame(png(stripes(400, 300)));
+
+        // Then : l'OCR n'a tourné que sur l'image nette
+        verify(mrzService, times(1)).processZone(anyString(), any(BufferedImage.class));
+        assertEquals("blurry", messages.get(0).get("status"));
+        assertEquals("ocr", messages.get(1).get("status"));
+        Map<String, Object> result = messages.get(messages.size() - 1);
+        assertEquals("result", result.get("type"));
+        assertEquals("valid", result.get("reason"));
+        assertEquals(2, result.get("frames"));
+        assertEquals(1, result.get("dropped"));
+    }
+
+    private static BufferedImage uniform(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D g2d = image.createGraphics();
+        g2d.setColor(Color.LIGHT_GRAY);
+        g2d.fillRect(0, 0, width, height);
+        g2d.dispose();
+        return image;
+    }
+
+    private static BufferedImage stripes(int width, int height) {
+        BufferedImage image = uniform(width, height);
+        Graphics2D g2d = image.createGraphics();
+        g2d.setColor(Color.BLACK);
+        for (int x = 0; x < width; x += 4) {
+            g2d.fillRect(x, 0, 2, height);
+        }
+        g2d.dispose();
+        return image;
+    }
+
+    private static BufferedImage gray(BufferedImage image) {
+        BufferedImage gray = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g2d = gray.createGraphics();
+        g2d.drawImage(image, 0, 0, null);
+        g2d.dispose();
+        return gray;
+    }
+
+    private static byte[] png(BufferedImage image) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
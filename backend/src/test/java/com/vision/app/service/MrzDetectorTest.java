@@ -0,0 +1,151 @@
+package com.vision.app.service;
+
+import com.vision.app.dto.MrzResult;
+import com.vision.app.util.OpenCvUtils;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MrzDetectorTest {
+
+    // Spécimen ICAO 9303
+    private static final String TD3 = "P<UTOERIKSSON<<ANNA<MARIA<<<<<<<<<<<<<<<<<<<\n"
+            + "L898902C36UTO7408122F1204159ZE184226B<<<<<10";
+
+    private final MrzDetector detector = new MrzDetector();
+
+    @Test
+    void testLocate_FindsMrzAwayFromBottom() {
+        assumeTrue(OpenCvUtils.isAvailable(), "OpenCV native library not available");
+
+        // Given : MRZ au milieu de la page, bas de page vide
+        BufferedImage page = document(0);
+
+        // When
+        BufferedImage zone = detector.locate(page);
+
+        // Then : bande large et basse, qui contient le texte
+        assertNotNull(zone);
+        assertEquals(BufferedImage.TYPE_BYTE_GRAY, zone.getType());
+        assertTrue(zone.getWidth() > 0.6 * page.getWidth(), "zone too narrow: " + zone.getWidth());
+        assertTrue(zone.getHeight() < 0.25 * page.getHeight(), "zone too tall: " + zone.getHeight());
+        assertTrue(zone.getWidth() > 4 * zone.getHeight());
+        assertTrue(darkFraction(zone) > 0.05, "no text in the located zone");
+    }
+
+    @Test
+    void testLocate_DeskewsRotatedMrz() {
+        assumeTrue(OpenCvUtils.isAvailable(), "OpenCV native library not available");
+
+        // Given : document pivoté de 7°, soit environ 45 px d'écart d'un bout à l'autre des lignes
+        BufferedImage page = document(7);
+
+        // When
+        BufferedImage zone = detector.locate(page);
+
+        // Then : les lignes sont horizontales dans la zone extraite
+        assertNotNull(zone);
+        assertTrue(zone.getWidth() > 4 * zone.getHeight());
+        double left = darkCentroidY(zone, 0, zone.getWidth() / 4);
+        double right = darkCentroidY(zone, zone.getWidth() * 3 / 4, zone.getWidth());
+        assertTrue(Math.abs(left - right) < 0.1 * zone.getHeight(),
+                "lines still skewed: " + left + " vs " + right);
+    }
+
+    @Test
+    void testLocate_BlankPageHasNoMrz() {
+        assertNull(detector.locate(blank(1000, 700)));
+    }
+
+    @Test
+    void testProcessImage_FallsBackToBottomOfPage() {
+        // Given : aucune zone localisée sur une page vierge
+        MrzOcrEngine engine = mock(MrzOcrEngine.class);
+        when(engine.recognize(any())).thenReturn(TD3);
+        MrzService mrzService = new MrzService(mock(OcrService.class), detector, engine);
+
+        // When
+        MrzResult result = mrzService.processImage("passeport.png", blank(1000, 700));
+
+        // Then : OCR sur les 20 % inférieurs, pleine largeur
+        ArgumentCaptor<BufferedImage> zone = ArgumentCaptor.forClass(BufferedImage.class);
+        verify(engine).recognize(zone.capture());
+        assertTrue(result.isSuccess());
+        assertEquals(1000, zone.getValue().getWidth());
+        assertEquals(700 - 560, zone.getValue().getHeight());
+    }
+
+    /**
+     * Page d'identité synthétique : titre en haut, MRZ à mi-hauteur, pivotée si besoin
+     */
+    private static BufferedImage document(double angleDegrees) {
+        BufferedImage page = blank(1000, 700);
+        Graphics2D g2d = page.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g2d.rotate(Math.toRadians(angleDegrees), page.getWidth() / 2.0, page.getHeight() / 2.0);
+        g2d.setColor(Color.BLACK);
+        g2d.setFont(new Font(Font.SANS_SERIF, Font.BOLD, 28));
+        g2d.drawString("PASSEPORT", 80, 120);
+        g2d.setFont(new Font(Font.MONOSPACED, Font.BOLD, 28));
+        String[] lines = TD3.split("\n");
+        g2d.drawString(lines[0], 80, 330);
+        g2d.drawString(lines[1], 80, 375);
+        g2d.dispose();
+        return page;
+    }
+
+    private static BufferedImage blank(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D g2d = image.createGraphics();
+        g2d.setColor(Color.WHITE);
+        g2d.fillRect(0, 0, width, height);
+        g2d.dispose();
+        return image;
+    }
+
+    private static double darkFraction(BufferedImage gray) {
+        long dark = 0;
+        for (int y = 0; y < gray.getHeight(); y++) {
+            for (int x = 0; x < gray.getWidth(); x++) {
+                if (isDark(gray, x, y)) {
+                    dark++;
+                }
+            }
+        }
+        return (double) dark / ((long) gray.getWidth() * gray.getHeight());
+    }
+
+    /**
+     * Ordonnée moyenne des pixels sombres entre deux colonnes
+     */
+    private static double darkCentroidY(BufferedImage gray, int fromX, int toX) {
+        long sum = 0;
+        long count = 0;
+        for (int y = 0; y < gray.getHeight(); y++) {
+            for (int x = fromX; x < toX; x++) {
+                if (isDark(gray, x, y)) {
+                    sum += y;
+                    count++;
+                }
+            }
+        }
+        assertTrue(count > 0, "no text between columns " + fromX + " and " + toX);
+        return (double) sum / count;
+    }
+
+    private static boolean isDark(BufferedImage gray, int x, int y) {
+        return gray.getRaster().getSample(x, y, 0) < 128;
+    }
+}
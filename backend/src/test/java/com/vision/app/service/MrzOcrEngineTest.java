@@ -0,0 +1,220 @@
+package com.vision.app.service;
+
+import com.vision.app.dto.MrzResult;
+import com.vision.app.dto.OcrResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MrzOcrEngineTest {
+
+    // Spécimen ICAO 9303
+    private static final String TD3 = "P<UTOERIKSSON<<ANNA<MARIA<<<<<<<<<<<<<<<<<<<\n"
+            + "L898902C36UTO7408122F1204159ZE184226B<<<<<10";
+
+    @TempDir
+    Path tempDir;
+
+    private final AtomicInteger createdEngines = new AtomicInteger();
+    private final AtomicInteger closedEngines = new AtomicInteger();
+    private MrzOcrEngine engine;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // Données MRZ présentes : seul le pool est testé, sans Tesseract natif
+        Files.createFile(tempDir.resolve("mrz.traineddata"));
+        engine = new MrzOcrEngine();
+        ReflectionTestUtils.setField(engine, "tessDataPath", tempDir.toString());
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.shutdown();
+    }
+
+    @Test
+    void testPool_EnginesCreatedOnceAndReused() throws Exception {
+        // Given : deux moteurs au plus, chaque lecture attend qu'une autre soit en cours
+        CountDownLatch overlapping = new CountDownLatch(2);
+        useEngines(gray -> {
+            overlapping.countDown();
+            await(overlapping);
+            return TD3;
+        });
+        ExecutorService callers = Executors.newFixedThreadPool(6);
+
+        // When
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            results.add(callers.submit(() -> engine.recognize(zone())));
+        }
+        for (Future<String> result : results) {
+            assertEquals(TD3, result.get(5, TimeUnit.SECONDS));
+        }
+        callers.shutdown();
+
+        // Then
+        assertEquals(2, createdEngines.get());
+        assertEquals(2, engine.getConfiguration().get("engines"));
+        assertEquals("mrz", engine.getConfiguration().get("language"));
+        engine.shutdown();
+        assertEquals(2, closedEngines.get());
+    }
+
+    @Test
+    void testPool_BusyEngineTimesOut() throws Exception {
+        // Given : un seul moteur, occupé
+        ReflectionTestUtils.setField(engine, "poolSize", 1);
+        ReflectionTestUtils.setField(engine, "acquireTimeoutMs", 50L);
+        CountDownLatch busy = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        useEngines(gray -> {
+            busy.countDown();
+            await(release);
+            return TD3;
+        });
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        Future<String> first = caller.submit(() -> engine.recognize(zone()));
+        assertTrue(busy.await(5, TimeUnit.SECONDS));
+
+        // When
+        String second = engine.recognize(zone());
+        release.countDown();
+
+        // Then : pas de second moteur, la lecture abandonne après le délai
+        assertNull(second);
+        assertEquals(TD3, first.get(5, TimeUnit.SECONDS));
+        assertEquals(1, createdEngines.get());
+        caller.shutdown();
+    }
+
+    @Test
+    void testFallback_GeneralOcrWhenEngineCannotStart() {
+        // Given : initialisation Tesseract en échec
+        ReflectionTestUtils.setField(engine, "engineFactory", (MrzOcrEngine.EngineFactory) (dataPath, language) -> {
+            throw new IllegalStateException("Tesseract initialization failed for " + language);
+        });
+        OcrService ocrService = generalOcr();
+        MrzService mrzService = new MrzService(ocrService, undetected(), engine);
+
+        // When
+        MrzResult result = mrzService.processImage("passeport.png", document());
+
+        // Then : moteur désactivé, lecture par le service OCR général
+        assertTrue(result.isSuccess());
+        assertEquals("TD3", result.getData().getMrzFormat());
+        assertTrue(result.getData().isValid());
+        assertFalse(engine.isAvailable());
+        verify(ocrService).extractTextFromImageBytes(any(), anyString());
+    }
+
+    @Test
+    void testFallback_GeneralOcrWithoutTrainedData() {
+        // Given : ni données MRZ ni langue de repli
+        engine = new MrzOcrEngine();
+        ReflectionTestUtils.setField(engine, "tessDataPath", tempDir.resolve("vide").toString());
+        ReflectionTestUtils.setField(engine, "language", "mrz-absent");
+        ReflectionTestUtils.setField(engine, "fallbackLanguage", "mrz-absent");
+        useEngines(gray -> TD3);
+        OcrService ocrService = generalOcr();
+
+        // When
+        MrzResult result = new MrzService(ocrService, undetected(), engine).processImage("passeport.png", document());
+
+        // Then
+        assertTrue(result.isSuccess());
+        assertFalse(engine.isAvailable());
+        assertEquals(0, createdEngines.get());
+    }
+
+    @Test
+    void testDedicatedEngineSkipsGeneralOcr() {
+        // Given
+        useEngines(gray -> TD3);
+        OcrService ocrService = generalOcr();
+
+        // When
+        MrzResult result = new MrzService(ocrService, undetected(), engine).processImage("passeport.png", document());
+
+        // Then
+        assertTrue(result.getData().isValid());
+        verify(ocrService, never()).extractTextFromImageBytes(any(), anyString());
+    }
+
+    private void useEngines(Reader reader) {
+        ReflectionTestUtils.setField(engine, "engineFactory", (MrzOcrEngine.EngineFactory) (dataPath, language) -> {
+            createdEngines.incrementAndGet();
+            return new MrzOcrEngine.Recognizer() {
+                @Override
+                public String recognize(BufferedImage gray) {
+                    assertEquals(BufferedImage.TYPE_BYTE_GRAY, gray.getType());
+                    return reader.read(gray);
+                }
+
+                @Override
+                public void close() {
+                    closedEngines.incrementAndGet();
+                }
+            };
+        });
+    }
+
+    private static OcrService generalOcr() {
+        OcrService ocrService = mock(OcrService.class);
+        when(ocrService.extractTextFromImageBytes(any(), anyString()))
+                .thenReturn(OcrResult.builder().success(true).text(TD3).build());
+        return ocrService;
+    }
+
+    /**
+     * Sans localisation OpenCV : repli sur le bas de l'image
+     */
+    private static MrzDetector undetected() {
+        MrzDetector detector = mock(MrzDetector.class);
+        when(detector.locate(any())).thenReturn(null);
+        return detector;
+    }
+
+    private static BufferedImage document() {
+        return new BufferedImage(400, 280, BufferedImage.TYPE_INT_RGB);
+    }
+
+    private static BufferedImage zone() {
+        return new BufferedImage(400, 60, BufferedImage.TYPE_INT_RGB);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Reader {
+        String read(BufferedImage gray);
+    }
+}
@@ -0,0 +1,167 @@
+package com.vision.app.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OllamaBackendPoolTest {
+
+    private final List<HttpServer> servers = new ArrayList<>();
+    private OllamaHttpClient httpClient;
+    private OllamaBackendPool pool;
+
+    @BeforeEach
+    void setUp() {
+        httpClient = new OllamaHttpClient(new ObjectMapper());
+        httpClient.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+        httpClient.shutdown();
+        servers.forEach(server -> server.stop(0));
+    }
+
+    @Test
+    void testRetriesOnAnotherBackendAndEjectsUnreachableOne() throws Exception {
+        AtomicInteger served = new AtomicInteger();
+        String dead = deadUrl();
+        startPool(dead, stub(served, false));
+
+        Map<String, Object> first = generate(null).join();
+        Map<String, Object> second = generate(null).join();
+
+        assertEquals("ok", first.get("response"));
+        assertEquals("ok", second.get("response"));
+        assertEquals(2, served.get());
+        Map<String, Object> deadStats = pool.getStats().get(0);
+        assertEquals(true, deadStats.get("ejected"));
+        // Serveur écarté : la seconde requête n'y est pas repassée
+        assertEquals(1L, deadStats.get("requests"));
+    }
+
+    @Test
+    void testConcurrentCallsGoToLeastLoadedBackends() throws Exception {
+        AtomicInteger first = new AtomicInteger();
+        AtomicInteger second = new AtomicInteger();
+        startPool(stub(first, false), stub(second, false));
+
+        CompletableFuture.allOf(generate(null), generate(null)).join();
+
+        assertEquals(1, first.get());
+        assertEquals(1, second.get());
+    }
+
+    @Test
+    void testPrefersBackendWithModelLoaded() throws Exception {
+        AtomicInteger cold = new AtomicInteger();
+        AtomicInteger warm = new AtomicInteger();
+        startPool(stub(cold, false), stub(warm, true));
+        awaitLoaded(1);
+
+        for (int i = 0; i < 3; i++) {
+            generate("stub").join();
+        }
+
+        assertEquals(0, cold.get());
+        assertEquals(3, warm.get());
+    }
+
+    @Test
+    void testExecuteOnEachReachesEveryBackend() throws Exception {
+        AtomicInteger first = new AtomicInteger();
+        AtomicInteger second = new AtomicInteger();
+        startPool(stub(first, false), stub(second, false));
+
+        Map<String, CompletableFuture<Map<String, Object>>> calls = pool.executeOnEach("stub",
+                baseUrl -> httpClient.postJson(baseUrl + "/api/generate", Map.of("model", "stub", "prompt", "")));
+        CompletableFuture.allOf(calls.values().toArray(CompletableFuture[]::new)).join();
+
+        assertEquals(2, calls.size());
+        assertEquals(1, first.get());
+        assertEquals(1, second.get());
+        // Un appel compté par serveur, plus aucun en cours
+        for (Map<String, Object> backendStats : pool.getStats()) {
+            assertEquals(1L, backendStats.get("requests"));
+            assertEquals(0, backendStats.get("outstanding"));
+        }
+    }
+
+    private CompletableFuture<Map<String, Object>> generate(String model) {
+        return pool.execute(model, baseUrl -> httpClient.postJson(baseUrl + "/api/generate",
+                Map.of("model", "stub", "prompt", "p")));
+    }
+
+    private void startPool(String... urls) {
+        pool = new OllamaBackendPool(httpClient);
+        ReflectionTestUtils.setField(pool, "backendUrls", String.join(",", urls));
+        pool.init();
+    }
+
+    /**
+     * Serveur Ollama factice : /api/generate répond après un court délai,
+     * /api/ps liste le modèle chargé si modelLoaded
+     */
+    private String stub(AtomicInteger served, boolean modelLoaded) throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/generate", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            served.incrementAndGet();
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = "{\"response\":\"ok\",\"done\":true}".getBytes();
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.createContext("/api/ps", exchange -> {
+            byte[] body = (modelLoaded ? "{\"models\":[{\"name\":\"stub:latest\"}]}" : "{\"models\":[]}").getBytes();
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.setExecutor(Executors.newFixedThreadPool(4));
+        server.start();
+        servers.add(server);
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * URL d'un port local sur lequel rien n'écoute
+     */
+    private static String deadUrl() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return "http://127.0.0.1:" + socket.getLocalPort();
+        }
+    }
+
+    private void awaitLoaded(int backendIndex) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            if (!((List<?>) pool.getStats().get(backendIndex).get("loadedModels")).isEmpty()) {
+                return;
+            }
+            Thread.sleep(20);
+        }
+        fail("loaded models never refreshed");
+    }
+}
@@ -0,0 +1,128 @@
+package com.vision.app.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OllamaHttpClientTest {
+
+    private OllamaHttpClient httpClient;
+    private ServerSocket server;
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger answered = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        httpClient = new OllamaHttpClient(new ObjectMapper());
+        httpClient.init();
+        server = new ServerSocket(0);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        httpClient.shutdown();
+        server.close();
+    }
+
+    @Test
+    void testPostRetriedWhenReusedConnectionIsClosed() throws Exception {
+        // Given : le serveur répond une fois, puis ferme la connexion gardée ouverte
+        // à l'arrivée de la requête suivante, sans répondre
+        Thread serverThread = new Thread(this::serve, "stale-connection-stub");
+        serverThread.setDaemon(true);
+        serverThread.start();
+        String url = "http://127.0.0.1:" + server.getLocalPort() + "/api/generate";
+
+        // When
+        Map<String, Object> first = httpClient.postJson(url, Map.of("prompt", "un")).get(10, TimeUnit.SECONDS);
+        awaitIdleConnection();
+        Map<String, Object> second = httpClient.postJson(url, Map.of("prompt", "deux")).get(10, TimeUnit.SECONDS);
+
+        // Then : rejouée sur une nouvelle connexion
+        assertEquals("ok", first.get("response"));
+        assertEquals("ok", second.get("response"));
+        assertEquals(2, connections.get());
+        assertEquals(2, answered.get());
+    }
+
+    /**
+     * Attend que la connexion de la première requête soit rendue au pool
+     */
+    private void awaitIdleConnection() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!Integer.valueOf(1).equals(httpClient.getStats().get("available"))) {
+            assertTrue(System.currentTimeMillis() < deadline, "connection not released");
+            Thread.sleep(10);
+        }
+    }
+
+    private void serve() {
+        try {
+            while (!server.isClosed()) {
+                Socket socket = server.accept();
+                int connection = connections.incrementAndGet();
+                Thread handler = new Thread(() -> handle(socket, connection), "stale-connection-" + connection);
+                handler.setDaemon(true);
+                handler.start();
+            }
+        } catch (IOException e) {
+            // Serveur arrêté en fin de test
+        }
+    }
+
+    private void handle(Socket socket, int connection) {
+        try (socket) {
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+            OutputStream out = socket.getOutputStream();
+            int requests = 0;
+            while (readRequest(reader)) {
+                if (connection == 1 && ++requests == 2) {
+                    return;
+                }
+                byte[] body = "{\"response\":\"ok\"}".getBytes(StandardCharsets.UTF_8);
+                out.write(("HTTP/1.1 200 OK\r\nContent-Type: application/json\r\nContent-Length: "
+                        + body.length + "\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+                out.write(body);
+                out.flush();
+                answered.incrementAndGet();
+            }
+        } catch (IOException e) {
+            // Connexion fermée par le client
+        }
+    }
+
+    /**
+     * Lit l'en-tête et le corps d'une requête ; faux si la connexion est fermée
+     */
+    private static boolean readRequest(BufferedReader reader) throws IOException {
+        String line = reader.readLine();
+        if (line == null) {
+            return false;
+        }
+        int length = 0;
+        while ((line = reader.readLine()) != null && !line.isEmpty()) {
+            if (line.toLowerCase().startsWith("content-length:")) {
+                length = Integer.parseInt(line.substring("content-length:".length()).trim());
+            }
+        }
+        for (int i = 0; i < length; i++) {
+            reader.read();
+        }
+        return true;
+    }
+}
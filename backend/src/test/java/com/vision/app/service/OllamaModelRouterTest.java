@@ -0,0 +1,90 @@
+package com.vision.app.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OllamaModelRouterTest {
+
+    private OllamaRequestScheduler scheduler;
+    private OllamaModelRouter router;
+    private final CompletableFuture<String> blocker = new CompletableFuture<>();
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new OllamaRequestScheduler();
+        ReflectionTestUtils.setField(scheduler, "parallelism", 1);
+
+        router = new OllamaModelRouter(scheduler);
+        ReflectionTestUtils.setField(router, "defaultModel", "llama3.1:8b");
+        ReflectionTestUtils.setField(router, "classificationModel", "llama3.2:1b");
+        ReflectionTestUtils.setField(router, "classificationStop", "\n\n");
+        ReflectionTestUtils.setField(router, "degradedModel", "llama3.2:1b");
+        ReflectionTestUtils.setField(router, "degradeQueue", 2);
+        ReflectionTestUtils.setField(router, "skipQueue", 4);
+        router.init();
+    }
+
+    @Test
+    void testRoutesEachAnalysisToItsModel() {
+        OllamaModelRouter.Route classification = router.route(OllamaService.DocumentAnalysisType.CLASSIFICATION);
+        OllamaModelRouter.Route summary = router.route(OllamaService.DocumentAnalysisType.SUMMARY);
+
+        assertEquals("llama3.2:1b", classification.model());
+        assertEquals(256, classification.numPredict());
+        assertEquals(List.of("\n\n"), classification.stop());
+        assertEquals("llama3.1:8b", summary.model());
+        assertFalse(summary.degraded());
+        assertEquals(List.of("llama3.1:8b", "llama3.2:1b"), router.getModels());
+    }
+
+    @Test
+    void testStopSequencesKeepWhitespaceAndDecodeEscapes() {
+        // Given : forme échappée, telle qu'écrite dans une variable d'environnement ou un YAML
+        ReflectionTestUtils.setField(router, "classificationStop", "\\n\\n, END,a\\,b");
+        router.init();
+
+        // When
+        List<String> stop = router.route(OllamaService.DocumentAnalysisType.CLASSIFICATION).stop();
+
+        // Then
+        assertEquals(List.of("\n\n", " END", "a,b"), stop);
+        assertEquals(List.of(), router.route(OllamaService.DocumentAnalysisType.SUMMARY).stop());
+    }
+
+    @Test
+    void testDegradesThenSkipsOptionalAnalysesUnderQueuePressure() {
+        queue(2);
+        OllamaModelRouter.Route degraded = router.route(OllamaService.DocumentAnalysisType.SUMMARY);
+        assertTrue(degraded.degraded());
+        assertEquals("llama3.2:1b", degraded.model());
+        assertEquals(1024, degraded.numPredict());
+        assertFalse(router.isSkippingOptional());
+
+        queue(2);
+        assertTrue(router.isSkippingOptional());
+        assertTrue(router.route(OllamaService.DocumentAnalysisType.STRUCTURED_EXTRACTION).skipped());
+        // Le résumé n'est pas optionnel : il reste servi, sur le modèle réduit
+        assertFalse(router.route(OllamaService.DocumentAnalysisType.SUMMARY).skipped());
+
+        blocker.complete("done");
+        assertFalse(router.route(OllamaService.DocumentAnalysisType.SUMMARY).degraded());
+    }
+
+    /**
+     * Occupe l'unique place d'envoi puis met des requêtes en file
+     */
+    private void queue(int count) {
+        if (scheduler.getStats().get("running").equals(0)) {
+            scheduler.submit(OllamaRequestScheduler.Lane.BACKGROUND, () -> blocker);
+        }
+        for (int i = 0; i < count; i++) {
+            scheduler.submit(OllamaRequestScheduler.Lane.BACKGROUND, () -> blocker);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.vision.app.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OllamaRequestSchedulerTest {
+
+    private OllamaRequestScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new OllamaRequestScheduler();
+        ReflectionTestUtils.setField(scheduler, "parallelism", 1);
+    }
+
+    @Test
+    void testInteractiveLaneOvertakesQueuedBackgroundWork() {
+        List<String> started = new CopyOnWriteArrayList<>();
+        CompletableFuture<String> blocker = new CompletableFuture<>();
+
+        CompletableFuture<String> running = scheduler.submit(OllamaRequestScheduler.Lane.BACKGROUND, () -> {
+            started.add("running");
+            return blocker;
+        });
+        CompletableFuture<String> background = scheduler.submit(OllamaRequestScheduler.Lane.BACKGROUND,
+                () -> record(started, "background"));
+        CompletableFuture<String> interactive = scheduler.submit(OllamaRequestScheduler.Lane.INTERACTIVE,
+                () -> record(started, "interactive"));
+
+        assertEquals(List.of("running"), started);
+        assertEquals(2, scheduler.getStats().get("queued"));
+
+        blocker.complete("done");
+        CompletableFuture.allOf(running, background, interactive).join();
+
+        assertEquals(List.of("running", "interactive", "background"), started);
+    }
+
+    @Test
+    void testExpiredRequestNeverStarts() {
+        CompletableFuture<String> blocker = new CompletableFuture<>();
+        AtomicInteger calls = new AtomicInteger();
+        scheduler.submit(OllamaRequestScheduler.Lane.BACKGROUND, () -> blocker);
+
+        CompletableFuture<String> stale = scheduler.submit(OllamaRequestScheduler.Lane.BACKGROUND, 50, () -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture("late");
+        });
+
+        CompletionException error = assertThrows(CompletionException.class, stale::join);
+        assertInstanceOf(TimeoutException.class, error.getCause());
+        blocker.complete("done");
+        assertEquals(0, calls.get());
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> background = (Map<String, Object>) ((Map<String, Object>) scheduler.getStats()
+                .get("lanes")).get("background");
+        assertEquals(1L, background.get("expired"));
+    }
+
+    @Test
+    void testDeadlineTimersReleasedOnceRequestsLeaveTheQueue() {
+        // Given : échéances longues, une requête démarrée, une en file puis annulée
+        CompletableFuture<String> blocker = new CompletableFuture<>();
+        CompletableFuture<String> running = scheduler.submit(OllamaRequestScheduler.Lane.BACKGROUND, () -> blocker);
+        CompletableFuture<String> cancelled = scheduler.submit(OllamaRequestScheduler.Lane.BACKGROUND,
+                () -> CompletableFuture.completedFuture("never"));
+        CompletableFuture<String> queued = scheduler.submit(OllamaRequestScheduler.Lane.INTERACTIVE,
+                () -> CompletableFuture.completedFuture("queued"));
+        assertEquals(2, scheduler.getStats().get("pendingDeadlines"));
+
+        // When
+        cancelled.cancel(true);
+        blocker.complete("done");
+
+        // Then : aucun minuteur ne retient plus les tickets jusqu'à leur échéance
+        assertEquals("done", running.join());
+        assertEquals("queued", queued.join());
+        assertEquals(0, scheduler.getStats().get("pendingDeadlines"));
+        assertEquals(0, scheduler.getQueued());
+    }
+
+    private static CompletableFuture<String> record(List<String> started, String name) {
+        started.add(name);
+        return CompletableFuture.completedFuture(name);
+    }
+}
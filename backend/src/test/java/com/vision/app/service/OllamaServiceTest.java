@@ -0,0 +1,341 @@
+package com.vision.app.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import com.vision.app.dto.OllamaResult;
+import com.vision.app.dto.ServiceHealth;
+import com.vision.app.repository.LlmResponseRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.net.InetSocketAddress;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OllamaServiceTest {
+
+    private HttpServer server;
+    private OllamaHttpClient httpClient;
+    private OllamaBackendPool backendPool;
+    private OllamaService ollamaService;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger tagsRequests = new AtomicInteger();
+    private ServiceHealthRegistry healthRegistry;
+    private OllamaModelRouter router;
+    private volatile String generated = "ok";
+    private volatile long loadDuration = 1_000_000;
+    private volatile Map<?, ?> lastRequest;
+    private final List<Map<?, ?>> generateRequests = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // Serveur Ollama factice : /api/generate répond après un court délai
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/generate", exchange -> {
+            requests.incrementAndGet();
+            Map<?, ?> request = new ObjectMapper().readValue(exchange.getRequestBody(), Map.class);
+            lastRequest = request;
+            generateRequests.add(request);
+            if (Boolean.TRUE.equals(request.get("stream"))) {
+                // Flux NDJSON : un fragment par ligne, envoyé au fil de l'eau
+                exchange.getResponseHeaders().add("Content-Type", "application/x-ndjson");
+                exchange.sendResponseHeaders(200, 0);
+                for (String token : new String[] { "Bon", "jour", " !" }) {
+                    exchange.getResponseBody().write(new ObjectMapper().writeValueAsBytes(
+                            Map.of("response", token, "done", false)));
+                    exchange.getResponseBody().write('\n');
+                    exchange.getResponseBody().flush();
+                }
+                exchange.getResponseBody().write(
+                        "{\"response\":\"\",\"done\":true,\"eval_count\":3}\n".getBytes());
+                exchange.close();
+                return;
+            }
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = new ObjectMapper().writeValueAsBytes(Map.of(
+                    "response", generated, "done", true, "total_duration", 5, "eval_count", 2,
+                    "load_duration", loadDuration, "context", List.of(7, 8, 9)));
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.createContext("/api/tags", exchange -> {
+            tagsRequests.incrementAndGet();
+            byte[] body = "{\"models\":[{\"name\":\"stub:latest\"}]}".getBytes();
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.setExecutor(java.util.concurrent.Executors.newFixedThreadPool(4));
+        server.start();
+
+        httpClient = new OllamaHttpClient(new ObjectMapper());
+        httpClient.init();
+        OllamaResponseCache responseCache = new OllamaResponseCache(mock(LlmResponseRepository.class),
+                new ObjectMapper());
+        responseCache.init();
+        OllamaRequestScheduler scheduler = new OllamaRequestScheduler();
+        ReflectionTestUtils.setField(scheduler, "parallelism", 4);
+        OllamaContextStore contextStore = new OllamaContextStore();
+        contextStore.init();
+        router = new OllamaModelRouter(scheduler);
+        ReflectionTestUtils.setField(router, "defaultModel", "stub");
+        router.init();
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/api/generate";
+        backendPool = new OllamaBackendPool(httpClient);
+        ReflectionTestUtils.setField(backendPool, "ollamaUrl", url);
+        backendPool.init();
+        ollamaService = new OllamaService(httpClient, new ObjectMapper(), responseCache, scheduler, contextStore,
+                router, backendPool);
+        ReflectionTestUtils.setField(ollamaService, "ollamaUrl", url);
+        ReflectionTestUtils.setField(ollamaService, "model", "stub");
+        healthRegistry = mock(ServiceHealthRegistry.class);
+        // Dernier état sondé : serveur joignable, modèle stub installé
+        when(healthRegistry.isAvailable(ServiceHealthRegistry.OLLAMA)).thenReturn(true);
+        when(healthRegistry.get(ServiceHealthRegistry.OLLAMA)).thenReturn(ServiceHealth.builder()
+                .name(ServiceHealthRegistry.OLLAMA)
+                .available(true)
+                .details(Map.of("models", List.of("stub:latest")))
+                .build());
+        ollamaService.setHealthRegistry(healthRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        backendPool.shutdown();
+        httpClient.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    void testAnalyzeTextAsync_CallsOverlap() {
+        // When : trois analyses lancées sans attendre
+        long start = System.nanoTime();
+        CompletableFuture<OllamaResult> first = ollamaService.analyzeTextAsync("a", "p1");
+        CompletableFuture<OllamaResult> second = ollamaService.analyzeTextAsync("b", "p2");
+        CompletableFuture<OllamaResult> third = ollamaService.analyzeTextAsync("c", "p3");
+        CompletableFuture.allOf(first, second, third).join();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        // Then
+        assertTrue(first.join().isSuccessful());
+        assertEquals("ok", third.join().getResponse());
+        assertEquals(3, requests.get());
+        assertTrue(elapsedMs < 550, "calls should run concurrently, took " + elapsedMs + " ms");
+    }
+
+    @Test
+    void testAnalyzeDocumentFully_SingleCombinedCall() {
+        generated = "{\"summary\":\"Facture de mars\","
+                + "\"classification\":{\"documentType\":\"facture\",\"domain\":\"comptabilité\","
+                + "\"confidentiality\":\"interne\"},"
+                + "\"structuredData\":{\"amounts\":[\"120 EUR\"]}}";
+
+        Map<OllamaService.DocumentAnalysisType, OllamaResult> results =
+                ollamaService.analyzeDocumentFullyAsync("texte").join();
+
+        assertEquals(1, requests.get());
+        assertEquals("Facture de mars", results.get(OllamaService.DocumentAnalysisType.SUMMARY).getResponse());
+        assertTrue(results.get(OllamaService.DocumentAnalysisType.CLASSIFICATION).getResponse().contains("facture"));
+        assertTrue(results.get(OllamaService.DocumentAnalysisType.STRUCTURED_EXTRACTION).getResponse()
+                .contains("120 EUR"));
+        assertEquals(true, results.get(OllamaService.DocumentAnalysisType.SUMMARY).getMetadata().get("combined"));
+    }
+
+    @Test
+    void testAnalyzeDocumentFully_FallsBackOnInvalidJson() {
+        Map<OllamaService.DocumentAnalysisType, OllamaResult> results =
+                ollamaService.analyzeDocumentFullyAsync("texte").join();
+
+        // Un appel combiné inexploitable, puis les trois appels séparés
+        assertEquals(4, requests.get());
+        assertEquals("ok", results.get(OllamaService.DocumentAnalysisType.CLASSIFICATION).getResponse());
+    }
+
+    @Test
+    void testAnalyzeSeparately_LongDocumentEvaluatedOnce() {
+        String text = "Ligne du document à analyser. ".repeat(100);
+
+        Map<OllamaService.DocumentAnalysisType, OllamaResult> results =
+                ollamaService.analyzeSeparatelyAsync(text).join();
+        OllamaResult custom = ollamaService.askDocumentAsync(text, "Quelles sont les dates ?").join();
+
+        // Une lecture du document, puis quatre prompts sur son contexte
+        assertEquals(5, requests.get());
+        assertEquals(1, generateRequests.stream().filter(r -> ((String) r.get("prompt")).contains(text)).count());
+        assertEquals(4, generateRequests.stream().filter(r -> List.of(7, 8, 9).equals(r.get("context"))).count());
+        assertEquals(3, results.get(OllamaService.DocumentAnalysisType.SUMMARY).getMetadata()
+                .get("sharedContextTokens"));
+        assertTrue(custom.isSuccessful());
+        assertEquals(3, custom.getMetadata().get("sharedContextTokens"));
+    }
+
+    @Test
+    void testAnalyzeImageWithTextStream_RelaysTokensAndAssemblesResult() {
+        List<String> tokens = new CopyOnWriteArrayList<>();
+
+        OllamaResult result = ollamaService.analyzeImageWithTextStream(new byte[] { 1, 2 }, "a.png", "p",
+                tokens::add).join();
+
+        assertEquals(List.of("Bon", "jour", " !"), tokens);
+        assertTrue(result.isSuccessful());
+        assertEquals("Bonjour !", result.getResponse());
+        assertEquals(3, result.getMetadata().get("evalCount"));
+        assertNotNull(result.getMetadata().get("timeToFirstTokenMs"));
+    }
+
+    @Test
+    void testAnalyzeTextAsync_IdenticalRequestsShareOneCall() {
+        CompletableFuture<OllamaResult> first = ollamaService.analyzeTextAsync("même texte", "p");
+        CompletableFuture<OllamaResult> concurrent = ollamaService.analyzeTextAsync("même texte", "p");
+        first.join();
+        concurrent.join();
+        OllamaResult later = ollamaService.analyzeTextAsync("même texte", "p").join();
+
+        assertEquals(1, requests.get());
+        assertEquals("ok", later.getResponse());
+        assertEquals(true, later.getMetadata().get("cached"));
+        assertNull(first.join().getMetadata().get("cached"));
+    }
+
+    @Test
+    void testAnalyzeImageWithTextAsync_SendsDownscaledJpeg() throws Exception {
+        BufferedImage photo = new BufferedImage(4000, 3000, BufferedImage.TYPE_INT_ARGB);
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(photo, "png", png);
+
+        OllamaResult result = ollamaService.analyzeImageWithTextAsync(png.toByteArray(), "photo.png", "p").join();
+
+        assertTrue(result.isSuccessful());
+        String image = (String) ((List<?>) lastRequest.get("images")).get(0);
+        byte[] sent = Base64.getDecoder().decode(image);
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(sent));
+        assertEquals(1024, decoded.getWidth());
+        assertEquals(768, decoded.getHeight());
+        assertEquals((byte) 0xFF, sent[0]);
+        assertEquals((byte) 0xD8, sent[1]);
+    }
+
+    @Test
+    void testAnalyzeImageWithTextAsync_ChecksCachedVisionModel() {
+        // Given : modèle de vision routé absent du dernier état sondé
+        ReflectionTestUtils.setField(router, "visionModel", "llava");
+        router.init();
+
+        // When
+        OllamaResult result = ollamaService.analyzeImageWithTextAsync(new byte[] { 1, 2 }, "a.png", "p").join();
+
+        // Then : réponse simulée, sans appel à /api/tags ni génération
+        assertTrue(result.getModel().endsWith("(mock)"));
+        assertEquals(0, tagsRequests.get());
+        assertEquals(0, requests.get());
+        assertTrue(ollamaService.isModelReady("stub"));
+        assertFalse(ollamaService.isModelReady("llava"));
+    }
+
+    @Test
+    void testWarmUp_LoadsModelOnEveryReachableBackend() throws Exception {
+        // Given : pool du serveur factice et d'un serveur injoignable
+        String live = "http://127.0.0.1:" + server.getAddress().getPort();
+        String dead;
+        try (java.net.ServerSocket socket = new java.net.ServerSocket(0)) {
+            dead = "http://127.0.0.1:" + socket.getLocalPort();
+        }
+        backendPool.shutdown();
+        ReflectionTestUtils.setField(backendPool, "backendUrls", live + "," + dead);
+        backendPool.init();
+        loadDuration = 2_500_000_000L;
+
+        // When
+        Map<String, Object> first = ollamaService.warmUpAsync("stub").join();
+        Map<String, Object> second = ollamaService.warmUpAsync("stub").join();
+
+        // Then : chargé sur le serveur joignable ; l'autre, écarté, n'est plus sollicité
+        assertEquals(true, first.get("success"));
+        List<?> backends = (List<?>) first.get("backends");
+        assertEquals(2, backends.size());
+        assertEquals(Map.of("url", live, "loadDurationMs", 2500L, "success", true), backends.get(0));
+        assertEquals(false, ((Map<?, ?>) backends.get(1)).get("success"));
+        assertEquals(true, second.get("success"));
+        assertEquals(1, ((List<?>) second.get("backends")).size());
+        assertEquals(2, requests.get());
+        assertEquals(List.of("stub"), backendPool.getStats().get(0).get("loadedModels"));
+    }
+
+    @Test
+    void testWarmUp_LoadsModelAndRecordsColdStart() {
+        loadDuration = 2_500_000_000L;
+
+        Map<String, Object> warmUp = ollamaService.warmUpAsync("stub").join();
+
+        assertEquals(true, warmUp.get("success"));
+        assertEquals(2500L, warmUp.get("loadDurationMs"));
+        assertEquals("", lastRequest.get("prompt"));
+        assertEquals("30m", lastRequest.get("keep_alive"));
+        Map<?, ?> stub = (Map<?, ?>) ((Map<?, ?>) ollamaService.getLoadStats().get("models")).get("stub");
+        assertEquals(1L, stub.get("spikes"));
+
+        // Modèle chargé : les requêtes suivantes prolongent son maintien en mémoire
+        loadDuration = 1_000_000;
+        ollamaService.analyzeText("a", "p");
+        assertEquals("30m", lastRequest.get("keep_alive"));
+        stub = (Map<?, ?>) ((Map<?, ?>) ollamaService.getLoadStats().get("models")).get("stub");
+        assertEquals(2L, stub.get("observed"));
+        assertEquals(1L, stub.get("spikes"));
+        assertTrue(ollamaService.getLastUsedAt("stub") > 0);
+    }
+
+    @Test
+    void testProbe_ListsModelsWithoutGenerating() {
+        Map<String, Object> status = ollamaService.probeAsync().join();
+
+        assertEquals(true, status.get("available"));
+        assertEquals(List.of("stub:latest"), status.get("models"));
+        assertEquals(List.of(), status.get("missingModels"));
+        assertEquals(0, requests.get());
+    }
+
+    @Test
+    void testProbe_RequiresEveryRoutedModel() {
+        // Given : résumés routés vers un modèle non installé
+        ReflectionTestUtils.setField(router, "summaryModel", "mistral");
+        router.init();
+
+        // When
+        Map<String, Object> status = ollamaService.probeAsync().join();
+
+        // Then
+        assertEquals(false, status.get("available"));
+        assertEquals(List.of("mistral"), status.get("missingModels"));
+        assertTrue(String.valueOf(status.get("error")).contains("ollama pull mistral"));
+    }
+
+    @Test
+    void testAnalyzeText_ConnectionRefusedGivesErrorResult() {
+        server.stop(0);
+
+        OllamaResult result = ollamaService.analyzeText("a", "p");
+
+        assertFalse(result.isSuccessful());
+        assertTrue(result.getErrorMessage().startsWith("Analysis failed"));
+    }
+}
@@ -0,0 +1,154 @@
+package com.vision.app.service;
+
+import com.vision.app.dto.PageInfo;
+import com.vision.app.dto.PdfResult;
+import com.vision.app.model.PageContent;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationText;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PdfServiceTest {
+
+    private final Map<String, PageContent> cache = new HashMap<>();
+    private PdfService pdfService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        // Cache de pages en mémoire
+        PageCacheService pageCacheService = mock(PageCacheService.class);
+        when(pageCacheService.findByHashes(any())).thenAnswer(invocation -> {
+            Map<String, PageContent> found = new HashMap<>();
+            for (String hash : (Collection<String>) invocation.getArgument(0)) {
+                if (cache.containsKey(hash)) {
+                    found.put(hash, cache.get(hash));
+                }
+            }
+            return found;
+        });
+        doAnswer(invocation -> {
+            ((Map<String, String>) invocation.getArgument(0)).forEach((hash, text) -> {
+                PageContent content = new PageContent();
+                content.setContentHash(hash);
+                content.setPageText(text);
+                cache.put(hash, content);
+            });
+            return null;
+        }).when(pageCacheService).saveTexts(any(), any());
+
+        pdfService = new PdfService(pageCacheService);
+    }
+
+    @Test
+    void testPageHashes_StableAcrossSaves() throws Exception {
+        // Given
+        byte[] pdf = createPdf(List.of("Facture 2024-001", "Conditions générales", "Annexe"), false);
+
+        // When
+        List<String> first = pdfService.computePageHashes(pdf);
+        List<String> second = pdfService.computePageHashes(resave(pdf));
+
+        // Then
+        assertEquals(3, first.size());
+        assertEquals(first, second);
+        assertEquals(3, first.stream().distinct().count());
+    }
+
+    @Test
+    void testPageHashes_DetectContentAndAnnotationChanges() throws Exception {
+        // Given
+        List<String> original = pdfService.computePageHashes(
+                createPdf(List.of("Facture 2024-001", "Conditions générales", "Annexe"), false));
+
+        // When
+        List<String> edited = pdfService.computePageHashes(
+                createPdf(List.of("Facture 2024-001", "Conditions générales v2", "Annexe"), false));
+        List<String> annotated = pdfService.computePageHashes(
+                createPdf(List.of("Facture 2024-001", "Conditions générales", "Annexe"), true));
+
+        // Then
+        assertEquals(original.get(0), edited.get(0));
+        assertNotEquals(original.get(1), edited.get(1));
+        assertEquals(original.get(2), edited.get(2));
+
+        // Commentaire ajouté sur la première page : seule son empreinte change
+        assertNotEquals(original.get(0), annotated.get(0));
+        assertEquals(original.subList(1, 3), annotated.subList(1, 3));
+    }
+
+    @Test
+    void testExtract_RevisionReusesUnchangedPages() throws Exception {
+        // Given
+        byte[] original = createPdf(List.of("Facture 2024-001", "Conditions générales", "Annexe"), false);
+        PdfResult first = pdfService.extractTextFromPdfBytes(original, "facture.pdf");
+        List<String> storedHashes = first.getPages().stream().map(PageInfo::getContentHash)
+                .collect(Collectors.toList());
+        byte[] revision = createPdf(List.of("Facture 2024-001", "Conditions générales v2", "Annexe"), false);
+
+        // When
+        PdfResult second = pdfService.extractTextFromPdfBytes(revision, "facture.pdf", storedHashes);
+
+        // Then
+        assertEquals(0, first.getReusedPageCount());
+        assertNull(first.getChangedPageCount());
+        assertEquals(2, second.getReusedPageCount());
+        assertEquals(1, second.getChangedPageCount());
+        assertEquals(List.of(false, true, false),
+                second.getPages().stream().map(PageInfo::isChanged).collect(Collectors.toList()));
+        assertEquals(List.of(true, false, true),
+                second.getPages().stream().map(PageInfo::isReused).collect(Collectors.toList()));
+        assertTrue(second.getText().contains("Conditions générales v2"));
+        assertTrue(second.getText().contains("Annexe"));
+    }
+
+    private static byte[] createPdf(List<String> pageTexts, boolean annotateFirstPage) throws Exception {
+        try (PDDocument pdf = new PDDocument()) {
+            for (String pageText : pageTexts) {
+                PDPage page = new PDPage(PDRectangle.A4);
+                pdf.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(pdf, page)) {
+                    content.beginText();
+                    content.setFont(PDType1Font.HELVETICA, 14);
+                    content.newLineAtOffset(72, 720);
+                    content.showText(pageText);
+                    content.endText();
+                }
+            }
+            if (annotateFirstPage) {
+                PDAnnotationText note = new PDAnnotationText();
+                note.setRectangle(new PDRectangle(72, 600, 20, 20));
+                note.setContents("À vérifier");
+                pdf.getPage(0).getAnnotations().add(note);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            pdf.save(out);
+            return out.toByteArray();
+        }
+    }
+
+    private static byte[] resave(byte[] pdfBytes) throws Exception {
+        try (PDDocument pdf = PDDocument.load(pdfBytes)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            pdf.save(out);
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.vision.app.service;
+
+import com.vision.app.controller.BarcodeController;
+import com.vision.app.controller.GlobalExceptionHandler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ResponseStreamServiceTest {
+
+    private BarcodeGenerationService generationService;
+    private ResponseStreamService streamService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        generationService = new BarcodeGenerationService();
+        generationService.init();
+        streamService = new ResponseStreamService();
+        streamService.init();
+
+        BarcodeController controller = new BarcodeController(generationService, streamService);
+        ReflectionTestUtils.setField(controller, "bulkTimeoutMs", 42_000L);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        streamService.shutdown();
+        generationService.shutdown();
+    }
+
+    @Test
+    void testBulkGeneration_StreamedWithEndpointTimeout() throws Exception {
+        // When
+        MvcResult result = mockMvc.perform(post("/api/barcodes/generate/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"payloads\":[\"A-1\",\"A-2\",\"A-3\"]}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        result.getAsyncResult(10_000);
+
+        // Then : délai propre à l'endpoint, archive complète
+        assertEquals(42_000L, result.getRequest().getAsyncContext().getTimeout());
+        assertEquals("application/zip", result.getResponse().getContentType());
+        List<String> names = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(
+                new ByteArrayInputStream(result.getResponse().getContentAsByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                names.add(entry.getName());
+            }
+        }
+        assertEquals(List.of("00001.png", "00002.png", "00003.png"), names);
+    }
+
+    @Test
+    void testBulkGeneration_InvalidRequestRejectedBeforeStreaming() throws Exception {
+        // When / Then : erreur JSON classique, aucune réponse asynchrone ouverte
+        mockMvc.perform(post("/api/barcodes/generate/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"payloads\":[]}"))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.success").value(false))
+                .andExpect(jsonPath("$.error").value("No payloads provided"));
+    }
+
+    @Test
+    void testSaturatedPool_RejectedWith503() throws Exception {
+        // Given : un seul thread d'écriture occupé, file d'une réponse pleine
+        ResponseStreamService saturated = new ResponseStreamService();
+        ReflectionTestUtils.setField(saturated, "maxThreads", 1);
+        ReflectionTestUtils.setField(saturated, "queueSize", 1);
+        saturated.init();
+        CountDownLatch release = new CountDownLatch(1);
+        saturated.stream(10_000, out -> await(release));
+        saturated.stream(10_000, out -> await(release));
+        MockMvc saturatedMvc = MockMvcBuilders.standaloneSetup(new BarcodeController(generationService, saturated))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+
+        try {
+            // When / Then
+            saturatedMvc.perform(post("/api/barcodes/generate/bulk")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"payloads\":[\"A-1\"]}"))
+                    .andExpect(request().asyncNotStarted())
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(jsonPath("$.success").value(false));
+        } finally {
+            release.countDown();
+            saturated.shutdown();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
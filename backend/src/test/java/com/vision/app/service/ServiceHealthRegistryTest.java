@@ -0,0 +1,118 @@
+package com.vision.app.service;
+
+import com.vision.app.dto.ServiceHealth;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ServiceHealthRegistryTest {
+
+    private OcrService ocrService;
+    private PdfService pdfService;
+    private BarcodeService barcodeService;
+    private OllamaService ollamaService;
+    private ServiceHealthRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        ocrService = mock(OcrService.class);
+        pdfService = mock(PdfService.class);
+        barcodeService = mock(BarcodeService.class);
+        ollamaService = mock(OllamaService.class);
+        when(ocrService.getConfiguration()).thenReturn(Map.of("available", true, "language", "fra"));
+        when(pdfService.getConfiguration()).thenReturn(Map.of("available", true));
+        when(barcodeService.getConfiguration()).thenReturn(Map.of("available", true));
+        when(ollamaService.probeAsync()).thenReturn(CompletableFuture.completedFuture(
+                Map.of("available", false, "error", "Connection refused")));
+
+        registry = new ServiceHealthRegistry(ocrService, pdfService, barcodeService, ollamaService);
+        // Pas de sonde périodique pendant le test
+        ReflectionTestUtils.setField(registry, "refreshIntervalMs", 3_600_000L);
+        registry.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.shutdown();
+    }
+
+    @Test
+    void testStatusServedFromMemory() throws InterruptedException {
+        awaitProbed(ServiceHealthRegistry.OCR);
+        awaitProbed(ServiceHealthRegistry.OLLAMA);
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(registry.isAvailable(ServiceHealthRegistry.OCR));
+        }
+        Map<String, Object> ollama = registry.describe(ServiceHealthRegistry.OLLAMA);
+
+        // Les lectures ne relancent pas les sondes : seule la sonde initiale a tourné
+        verify(ocrService, atMost(1)).getConfiguration();
+        assertEquals("fra", registry.describe(ServiceHealthRegistry.OCR).get("language"));
+        assertEquals(false, ollama.get("available"));
+        assertEquals("Connection refused", ollama.get("error"));
+    }
+
+    @Test
+    void testExpiredStatusIsFlaggedStale() throws InterruptedException {
+        awaitProbed(ServiceHealthRegistry.PDF);
+        ReflectionTestUtils.setField(registry, "ttlMs", -1L);
+
+        ServiceHealth health = registry.get(ServiceHealthRegistry.PDF);
+
+        assertTrue(health.isStale());
+        assertTrue(health.isAvailable());
+    }
+
+    @Test
+    void testBlockedProbeTimesOutWithoutPilingUp() throws InterruptedException {
+        // Given : une sonde locale qui ne rend pas la main
+        registry.shutdown();
+        CountDownLatch release = new CountDownLatch(1);
+        barcodeService = mock(BarcodeService.class);
+        when(barcodeService.getConfiguration()).thenAnswer(invocation -> {
+            release.await();
+            return Map.of("available", true);
+        });
+        registry = new ServiceHealthRegistry(ocrService, pdfService, barcodeService, ollamaService);
+        ReflectionTestUtils.setField(registry, "refreshIntervalMs", 3_600_000L);
+        ReflectionTestUtils.setField(registry, "probeTimeoutMs", 100L);
+
+        // When
+        registry.init();
+        awaitProbed(ServiceHealthRegistry.BARCODE);
+        ServiceHealth again = registry.refresh(ServiceHealthRegistry.BARCODE).join();
+
+        // Then : indisponible après le délai, sans relancer la sonde encore bloquée
+        ServiceHealth health = registry.get(ServiceHealthRegistry.BARCODE);
+        assertFalse(health.isAvailable());
+        assertEquals("TimeoutException", health.getError());
+        assertTrue(health.getLatencyMs() < 2000);
+        assertEquals(health.getCheckedAt(), again.getCheckedAt());
+        verify(barcodeService, times(1)).getConfiguration();
+        release.countDown();
+    }
+
+    /**
+     * Attend la sonde initiale lancée au démarrage du registre
+     */
+    private void awaitProbed(String name) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (registry.get(name).getCheckedAt() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(registry.get(name).getCheckedAt() > 0, "no probe for " + name);
+    }
+}
@@ -0,0 +1,199 @@
+package com.vision.app.service;
+
+import com.vision.app.controller.DocumentController;
+import com.vision.app.model.Document;
+import com.vision.app.repository.DocumentRepository;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.awt.Color;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ThumbnailServiceTest {
+
+    private static final Long DOCUMENT_ID = 7L;
+
+    @TempDir
+    Path tempDir;
+
+    private DocumentRepository documentRepository;
+    private ThumbnailService thumbnailService;
+    private Document document;
+    private Path pdfFile;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        documentRepository = mock(DocumentRepository.class);
+        thumbnailService = new ThumbnailService(documentRepository);
+        ReflectionTestUtils.setField(thumbnailService, "cacheDir", tempDir.resolve("thumbnails").toString());
+        thumbnailService.init();
+
+        pdfFile = tempDir.resolve(DOCUMENT_ID + "-scan.pdf");
+        writePdf(pdfFile, 2);
+
+        document = new Document();
+        document.setId(DOCUMENT_ID);
+        document.setFilePath(pdfFile.toString());
+        document.setPageHashes("hash-page-1,hash-page-2");
+        when(documentRepository.findById(DOCUMENT_ID)).thenReturn(Optional.of(document));
+    }
+
+    @AfterEach
+    void tearDown() {
+        thumbnailService.shutdown();
+    }
+
+    @Test
+    void testRendersOnDemandFromStoredFile() {
+        // When
+        Optional<ThumbnailService.Thumbnail> thumbnail =
+                thumbnailService.getThumbnail(DOCUMENT_ID, 1, ThumbnailService.ThumbnailSize.SMALL);
+
+        // Then
+        assertTrue(thumbnail.isPresent());
+        byte[] bytes = thumbnail.get().getBytes();
+        assertEquals((byte) 0xFF, bytes[0]);
+        assertEquals((byte) 0xD8, bytes[1]);
+        assertEquals("\"hash-page-2-small-q80\"", thumbnail.get().getEtag());
+    }
+
+    @Test
+    void testServesCachedThumbnailWithoutSourceFile() throws Exception {
+        // Given
+        byte[] rendered = thumbnailService.getThumbnail(DOCUMENT_ID, 0, ThumbnailService.ThumbnailSize.SMALL)
+                .orElseThrow().getBytes();
+        Files.delete(pdfFile);
+
+        // When
+        Optional<ThumbnailService.Thumbnail> cached =
+                thumbnailService.getThumbnail(DOCUMENT_ID, 0, ThumbnailService.ThumbnailSize.SMALL);
+
+        // Then
+        assertTrue(cached.isPresent());
+        assertArrayEquals(rendered, cached.get().getBytes());
+        assertNotNull(thumbnailService.getEtag(DOCUMENT_ID, 0, ThumbnailService.ThumbnailSize.SMALL));
+        // Taille jamais rendue et plus de fichier source : rien à servir
+        assertTrue(thumbnailService.getThumbnail(DOCUMENT_ID, 0, ThumbnailService.ThumbnailSize.LARGE).isEmpty());
+    }
+
+    @Test
+    void testNoEtagWhenThumbnailCannotBeServed() {
+        // Given
+        document.setFilePath(tempDir.resolve("missing.pdf").toString());
+
+        // When
+        String etag = thumbnailService.getEtag(DOCUMENT_ID, 0, ThumbnailService.ThumbnailSize.SMALL);
+        ResponseEntity<byte[]> response =
+                controller().getPageThumbnail(DOCUMENT_ID, 0, "small", "\"hash-page-1-small-q80\"");
+
+        // Then
+        assertNull(etag);
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+        assertNull(response.getHeaders().getETag());
+    }
+
+    @Test
+    void testConditionalRequestReturnsNotModified() {
+        // Given
+        DocumentController controller = controller();
+        ResponseEntity<byte[]> first = controller.getPageThumbnail(DOCUMENT_ID, 0, "small", null);
+        String etag = first.getHeaders().getETag();
+
+        // When
+        ResponseEntity<byte[]> second = controller.getPageThumbnail(DOCUMENT_ID, 0, "small", etag);
+
+        // Then
+        assertEquals(HttpStatus.OK, first.getStatusCode());
+        assertEquals("\"hash-page-1-small-q80\"", etag);
+        assertEquals(HttpStatus.NOT_MODIFIED, second.getStatusCode());
+        assertEquals(etag, second.getHeaders().getETag());
+        assertNull(second.getBody());
+    }
+
+    @Test
+    void testJpegQualityPartOfEtag() {
+        // Given
+        ThumbnailService lowQuality = new ThumbnailService(documentRepository);
+        ReflectionTestUtils.setField(lowQuality, "cacheDir", tempDir.resolve("thumbnails").toString());
+        ReflectionTestUtils.setField(lowQuality, "jpegQuality", 0.5f);
+        lowQuality.init();
+        thumbnailService.getThumbnail(DOCUMENT_ID, 0, ThumbnailService.ThumbnailSize.SMALL);
+
+        // When
+        String etag = lowQuality.getEtag(DOCUMENT_ID, 0, ThumbnailService.ThumbnailSize.SMALL);
+
+        // Then : la miniature à 80 % déjà sur disque n'est pas servie pour 50 %
+        assertEquals("\"hash-page-1-small-q50\"", etag);
+        assertFalse(Files.exists(tempDir.resolve("thumbnails").resolve("hash-page-1-small-q50.jpg")));
+        lowQuality.shutdown();
+    }
+
+    @Test
+    void testDiskCacheEvictsLeastRecentlyServed() throws Exception {
+        // Given : cache disque plein, la miniature de la page 2 est la plus ancienne
+        Path cacheDir = Files.createDirectories(tempDir.resolve("bounded"));
+        long now = System.currentTimeMillis();
+        Path served = writeCached(cacheDir, "hash-page-2-small-q80", 100_000, now - 60_000);
+        Path stale = writeCached(cacheDir, "stale-small-q80", 100_000, now - 30_000);
+        ThumbnailService bounded = new ThumbnailService(documentRepository);
+        ReflectionTestUtils.setField(bounded, "cacheDir", cacheDir.toString());
+        ReflectionTestUtils.setField(bounded, "maxDiskBytes", 200_000L);
+        bounded.init();
+        assertEquals(200_000L, bounded.getStats().get("diskBytes"));
+
+        // When : la page 2 est servie depuis le disque, puis la page 1 est rendue
+        assertTrue(bounded.getThumbnail(DOCUMENT_ID, 1, ThumbnailService.ThumbnailSize.SMALL).isPresent());
+        assertTrue(bounded.getThumbnail(DOCUMENT_ID, 0, ThumbnailService.ThumbnailSize.SMALL).isPresent());
+
+        // Then : seule la miniature la moins récemment servie est supprimée
+        assertFalse(Files.exists(stale));
+        assertTrue(Files.exists(served));
+        assertTrue(Files.exists(cacheDir.resolve("hash-page-1-small-q80.jpg")));
+        assertTrue((Long) bounded.getStats().get("diskBytes") <= 200_000L);
+        bounded.shutdown();
+    }
+
+    private static Path writeCached(Path cacheDir, String key, int size, long lastModified) throws Exception {
+        Path file = cacheDir.resolve(key + ".jpg");
+        Files.write(file, new byte[size]);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(lastModified));
+        return file;
+    }
+
+    private DocumentController controller() {
+        return new DocumentController(mock(OcrService.class), mock(PdfService.class), mock(BarcodeService.class),
+                mock(MrzService.class), mock(OllamaService.class), mock(DocumentService.class), thumbnailService,
+                mock(ServiceHealthRegistry.class));
+    }
+
+    private static void writePdf(Path file, int pages) throws Exception {
+        try (PDDocument pdf = new PDDocument()) {
+            for (int i = 0; i < pages; i++) {
+                PDPage page = new PDPage(PDRectangle.A4);
+                pdf.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(pdf, page)) {
+                    content.setNonStrokingColor(Color.DARK_GRAY);
+                    content.addRect(50, 50 + i * 100, 300, 200);
+                    content.fill();
+                }
+            }
+            pdf.save(file.toFile());
+        }
+    }
+}
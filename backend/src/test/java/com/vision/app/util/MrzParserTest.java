@@ -0,0 +1,78 @@
+package com.vision.app.util;
+
+import com.vision.app.dto.MrzData;
+import com.vision.app.model.DocumentType;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MrzParserTest {
+
+    // Spécimens de la norme ICAO 9303
+    private static final String TD3 = "P<UTOERIKSSON<<ANNA<MARIA<<<<<<<<<<<<<<<<<<<\n"
+            + "L898902C36UTO7408122F1204159ZE184226B<<<<<10";
+    private static final String TD2 = "I<UTOERIKSSON<<ANNA<MARIA<<<<<<<<<<<\n"
+            + "D231458907UTO7408122F1204159<<<<<<<6";
+    private static final String TD1 = "I<UTOD231458907<<<<<<<<<<<<<<<\n"
+            + "7408122F1204159UTO<<<<<<<<<<<6\n"
+            + "ERIKSSON<<ANNA<MARIA<<<<<<<<<<";
+
+    @Test
+    void testParse_Td3Passport() {
+        MrzData data = MrzParser.parse(TD3);
+
+        assertEquals("TD3", data.getMrzFormat());
+        assertEquals(DocumentType.PASSPORT, data.getDocumentType());
+        assertEquals("ERIKSSON", data.getSurname());
+        assertEquals("ANNA MARIA", data.getGivenNames());
+        assertEquals("L898902C3", data.getDocumentNumber());
+        assertEquals("1974-08-12", data.getDateOfBirth());
+        assertEquals("2012-04-15", data.getExpiryDate());
+        assertEquals("ZE184226B", data.getPersonalNumber());
+        assertTrue(data.isValid());
+        assertEquals(0, data.getCorrections());
+    }
+
+    @Test
+    void testParse_Td1AndTd2IdCards() {
+        MrzData td1 = MrzParser.parse(TD1);
+        MrzData td2 = MrzParser.parse(TD2);
+
+        assertEquals("TD1", td1.getMrzFormat());
+        assertEquals("D23145890", td1.getDocumentNumber());
+        assertEquals("UTO", td1.getNationality());
+        assertTrue(td1.isValid());
+        assertEquals("TD2", td2.getMrzFormat());
+        assertEquals("ERIKSSON", td2.getSurname());
+        assertTrue(td2.isValid());
+    }
+
+    @Test
+    void testParse_RepairsOcrConfusions() {
+        // O/0, I/1 confondus dans le numéro, la nationalité, les dates et le chiffre composite
+        String misread = "P<UTOERIKSSON<<ANNA<MARIA<<<<<<<<<<<<<<<<<<<\n"
+                + "L8989O2C36UT07408I22F12O4159ZE184226B<<<<<1O";
+
+        MrzData data = MrzParser.parse(misread);
+
+        assertTrue(data.isValid());
+        assertEquals("L898902C3", data.getDocumentNumber());
+        assertEquals("UTO", data.getNationality());
+        assertTrue(data.getCorrections() > 0);
+    }
+
+    @Test
+    void testParse_InvalidCheckDigit() {
+        MrzData data = MrzParser.parse(TD3.substring(0, TD3.length() - 1) + "1");
+
+        assertFalse(data.isValid());
+        assertFalse(data.getCheckDigits().get("composite"));
+        assertTrue(data.getCheckDigits().get("documentNumber"));
+    }
+
+    @Test
+    void testParse_NotMrz() {
+        assertNull(MrzParser.parse("Hello world"));
+        assertEquals(2, MrzParser.checkDigit("740812"));
+    }
+}
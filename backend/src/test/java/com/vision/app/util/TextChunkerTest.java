@@ -0,0 +1,51 @@
+package com.vision.app.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextChunkerTest {
+
+    @Test
+    void testSplit_ShortTextIsOneChunk() {
+        List<TextChunker.Chunk> chunks = TextChunker.split("Premier paragraphe.\n\nSecond paragraphe.", 100);
+
+        assertEquals(1, chunks.size());
+        assertEquals("Premier paragraphe.\n\nSecond paragraphe.", chunks.get(0).text());
+    }
+
+    @Test
+    void testSplit_RespectsBudgetAndPageBoundaries() {
+        String page = "Un paragraphe de quarante caractères....\n\n".repeat(5);
+        String text = String.join(String.valueOf(TextChunker.PAGE_SEPARATOR), page, page, page, page);
+
+        // 120 tokens ≈ 480 caractères : deux pages de 208 caractères par morceau
+        List<TextChunker.Chunk> chunks = TextChunker.split(text, 120);
+
+        assertEquals(2, chunks.size());
+        for (TextChunker.Chunk chunk : chunks) {
+            assertTrue(chunk.estimatedTokens() <= 120);
+            assertFalse(chunk.text().indexOf(TextChunker.PAGE_SEPARATOR) >= 0);
+        }
+        assertEquals(1, chunks.get(0).firstPage());
+        assertEquals(2, chunks.get(0).lastPage());
+        assertEquals(3, chunks.get(1).firstPage());
+        assertEquals(4, chunks.get(1).lastPage());
+    }
+
+    @Test
+    void testSplit_OversizedParagraphIsCutOnSpaces() {
+        String paragraph = "mot ".repeat(1000).strip();
+
+        List<TextChunker.Chunk> chunks = TextChunker.split(paragraph, 50);
+
+        assertTrue(chunks.size() >= 20);
+        for (TextChunker.Chunk chunk : chunks) {
+            assertTrue(chunk.text().length() <= 200);
+            assertFalse(chunk.text().startsWith(" "));
+            assertTrue(chunk.text().endsWith("mot"));
+        }
+    }
+}